@@ -21,17 +21,24 @@
 
 package org.kaazing.gateway.management.filter;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.gateway.management.ManagementStrategyChangeListener;
 import org.kaazing.gateway.management.Utils;
 import org.kaazing.gateway.management.Utils.ManagementSessionType;
 import org.kaazing.gateway.management.context.ManagementContext;
 import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
 import org.kaazing.gateway.management.monitoring.entity.manager.ServiceSessionCounterManager;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
 import org.kaazing.gateway.management.monitoring.entity.manager.factory.CounterManagerFactory;
 import org.kaazing.gateway.management.monitoring.entity.manager.impl.CounterManagerFactoryImpl;
 import org.kaazing.gateway.management.service.ServiceManagementBean;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.gateway.transport.IoFilterAdapter;
+import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.mina.core.session.IoSessionEx;
 
 /**
@@ -46,12 +53,28 @@ import org.kaazing.mina.core.session.IoSessionEx;
  * <p/>
  * There is exactly 1 ManagementFilter per service instance (excluding the management services, for which we do not want any
  * management).
+ * <p/>
+ * Messages received and written are on the hot path, so for those each session keeps a {@link ManagementSessionHandle}
+ * with the strategy chain resolved as of the latest strategy change, and only goes through the strategies when they do
+ * more than collect statistics.
+ * <p/>
+ * Independently of the strategies, each ManagementFilter also publishes the throughput, handshake and first message
+ * latency, close reasons and write queue depth of its service as monitoring counters (see
+ * {@link ServiceThroughputCounterManager}), which external tools can sample without JMX or SNMP when Agrona
+ * monitoring is enabled.
  */
 public class ManagementFilter extends IoFilterAdapter<IoSessionEx> {
+    private static final TypedAttributeKey<ManagementSessionHandle> SESSION_HANDLE_KEY =
+            new TypedAttributeKey<>(ManagementFilter.class, "managementSessionHandle");
+
     protected ServiceManagementBean serviceBean;
     protected ManagementContext managementContext;
     protected ServiceContext serviceContext;
     private ServiceSessionCounterManager serviceSessionCounterManager;
+    private ServiceThroughputCounterManager serviceThroughputCounterManager;
+
+    // incremented on every strategy change, so session handles know when to resolve the strategies again
+    private final AtomicInteger strategyVersion = new AtomicInteger();
 
     public ManagementFilter(ServiceManagementBean serviceBean,
                             MonitoringEntityFactory monitoringEntityFactory,
@@ -63,6 +86,16 @@ public class ManagementFilter extends IoFilterAdapter<IoSessionEx> {
         CounterManagerFactory counterFactory = new CounterManagerFactoryImpl();
         serviceSessionCounterManager = counterFactory.makeServiceSessionCounterManager(monitoringEntityFactory, serviceName);
         serviceSessionCounterManager.initializeCounters();
+        serviceThroughputCounterManager = counterFactory.makeServiceThroughputCounterManager(monitoringEntityFactory,
+                serviceName);
+        serviceThroughputCounterManager.initializeCounters();
+
+        managementContext.addManagementStrategyChangeListener(new ManagementStrategyChangeListener() {
+            @Override
+            public void managementStrategyChanged() {
+                strategyVersion.incrementAndGet();
+            }
+        });
     }
 
     public ServiceManagementBean getServiceBean() {
@@ -75,6 +108,7 @@ public class ManagementFilter extends IoFilterAdapter<IoSessionEx> {
 
     @Override
     protected void doSessionClosed(NextFilter nextFilter, IoSessionEx session) throws Exception {
+        getSessionHandle(session).getThroughput().sessionClosed(serviceThroughputCounterManager, session.getWrittenBytes());
 
         ManagementSessionType managementSessionType = Utils.getManagementSessionType(session);
         managementContext.getManagementFilterStrategy()
@@ -87,20 +121,39 @@ public class ManagementFilter extends IoFilterAdapter<IoSessionEx> {
 
     @Override
     protected void doMessageReceived(NextFilter nextFilter, IoSessionEx session, Object message) throws Exception {
-        managementContext.getManagementFilterStrategy()
-                .doMessageReceived(managementContext, serviceBean, session.getId(), session.getReadBytes(), message);
+        ManagementSessionHandle handle = getSessionHandle(session);
+        handle.getThroughput().messageReceived(serviceThroughputCounterManager, session.getReadBytes());
+        if (handle.isCollectOnly()) {
+            handle.doMessageReceived(session.getReadBytes(), message);
+        } else {
+            managementContext.getManagementFilterStrategy()
+                    .doMessageReceived(managementContext, serviceBean, session.getId(), session.getReadBytes(), message);
+        }
         super.doMessageReceived(nextFilter, session, message);
     }
 
     @Override
     protected void doFilterWrite(NextFilter nextFilter, IoSessionEx session, WriteRequest writeRequest) throws Exception {
-        managementContext.getManagementFilterStrategy()
-                .doFilterWrite(managementContext, serviceBean, session.getId(), session.getWrittenBytes(), writeRequest);
+        ManagementSessionHandle handle = getSessionHandle(session);
+        handle.getThroughput().messageWritten(serviceThroughputCounterManager, session.getWrittenBytes());
+        if (handle.isCollectOnly()) {
+            handle.doFilterWrite(session.getWrittenBytes(), writeRequest);
+        } else {
+            managementContext.getManagementFilterStrategy()
+                    .doFilterWrite(managementContext, serviceBean, session.getId(), session.getWrittenBytes(), writeRequest);
+        }
         super.doFilterWrite(nextFilter, session, writeRequest);
     }
 
+    @Override
+    protected void doMessageSent(NextFilter nextFilter, IoSessionEx session, WriteRequest writeRequest) throws Exception {
+        getSessionHandle(session).getThroughput().messageSent(serviceThroughputCounterManager);
+        super.doMessageSent(nextFilter, session, writeRequest);
+    }
+
     @Override
     protected void doExceptionCaught(NextFilter nextFilter, IoSessionEx session, Throwable cause) throws Exception {
+        getSessionHandle(session).getThroughput().exceptionCaught();
         managementContext.getManagementFilterStrategy()
                 .doExceptionCaught(managementContext, serviceBean, session.getId(), cause);
         super.doExceptionCaught(nextFilter, session, cause);
@@ -121,5 +174,42 @@ public class ManagementFilter extends IoFilterAdapter<IoSessionEx> {
         managementContext.getManagementFilterStrategy()
                 .doSessionCreated(managementContext, serviceBean, session, managementSessionType);
         serviceSessionCounterManager.incrementCounters(managementSessionType);
+        serviceThroughputCounterManager.handshakeCompleted(managementSessionType, getHandshakeLatencyMicros(session));
+
+        // resolve now that the session bean (if any) exists
+        newSessionHandle(session, new ManagementSessionThroughput(managementSessionType));
+    }
+
+    // This must run ON the IO thread of the session
+    private ManagementSessionHandle getSessionHandle(IoSessionEx session) {
+        ManagementSessionHandle handle = SESSION_HANDLE_KEY.get(session);
+        if (handle == null) {
+            ManagementSessionType managementSessionType = Utils.getManagementSessionType(session);
+            handle = newSessionHandle(session, new ManagementSessionThroughput(managementSessionType));
+        } else if (handle.getStrategyVersion() != strategyVersion.get()) {
+            handle = newSessionHandle(session, handle.getThroughput());
+        }
+        return handle;
+    }
+
+    private ManagementSessionHandle newSessionHandle(IoSessionEx session, ManagementSessionThroughput throughput) {
+        // note: read the version before the strategies, so that a concurrent change leaves the handle out of date
+        ManagementSessionHandle handle =
+                new ManagementSessionHandle(strategyVersion.get(), managementContext, serviceBean, session.getId(), throughput);
+        SESSION_HANDLE_KEY.set(session, handle);
+        return handle;
+    }
+
+    // the time since the connection under the session (for example the TCP connection of a WebSocket) was created
+    private static long getHandshakeLatencyMicros(IoSessionEx session) {
+        IoSessionEx connection = session;
+        while (connection instanceof BridgeSession) {
+            IoSessionEx parent = ((BridgeSession) connection).getParent();
+            if (parent == null) {
+                break;
+            }
+            connection = parent;
+        }
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - connection.getCreationTime());
     }
 }
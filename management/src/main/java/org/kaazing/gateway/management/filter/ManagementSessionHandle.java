@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.filter;
+
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_GATEWAY_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_SERVICE_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_SESSION_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.FULL_FILTER_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.SERVICE_ONLY_FILTER_STRATEGY;
+
+import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.gateway.management.context.ManagementContext;
+import org.kaazing.gateway.management.gateway.GatewayManagementBean;
+import org.kaazing.gateway.management.service.ServiceManagementBean;
+import org.kaazing.gateway.management.session.SessionManagementBean;
+
+/**
+ * The management strategy chain for one session, resolved once per strategy change rather than on every message.
+ *
+ * While the gateway, service and session strategies are collect-only (no management client is connected, or there
+ * are too many sessions), messages only update the statistics of the beans, so the handle calls the beans directly
+ * instead of going through each strategy and looking the session bean up by id.  Otherwise the handle is not
+ * {@link #isCollectOnly() collect-only} and the filter takes the full strategy chain, which also notifies listeners.
+ *
+ * Only used on the IO thread of the session.
+ */
+final class ManagementSessionHandle {
+
+    private final int strategyVersion;
+    private final boolean collectOnly;
+    private final long sessionId;
+    private final ServiceManagementBean serviceBean;
+    private final GatewayManagementBean gatewayBean;
+    private final SessionManagementBean sessionBean;
+    private final ManagementSessionThroughput throughput;
+
+    ManagementSessionHandle(int strategyVersion, ManagementContext managementContext, ServiceManagementBean serviceBean,
+                            long sessionId, ManagementSessionThroughput throughput) {
+        ManagementFilterStrategy filterStrategy = managementContext.getManagementFilterStrategy();
+        boolean fullFilter = filterStrategy == FULL_FILTER_STRATEGY;
+
+        this.strategyVersion = strategyVersion;
+        this.collectOnly = (fullFilter || filterStrategy == SERVICE_ONLY_FILTER_STRATEGY)
+                && managementContext.getManagementGatewayStrategy() == COLLECT_ONLY_GATEWAY_STRATEGY
+                && managementContext.getManagementServiceStrategy() == COLLECT_ONLY_SERVICE_STRATEGY
+                && managementContext.getManagementSessionStrategy() == COLLECT_ONLY_SESSION_STRATEGY;
+        this.sessionId = sessionId;
+        this.serviceBean = serviceBean;
+        this.gatewayBean = serviceBean.getGatewayManagementBean();
+        this.sessionBean = fullFilter ? serviceBean.getSessionManagementBean(sessionId) : null;
+        this.throughput = throughput;
+    }
+
+    int getStrategyVersion() {
+        return strategyVersion;
+    }
+
+    boolean isCollectOnly() {
+        return collectOnly;
+    }
+
+    // carried over when the strategies are resolved again
+    ManagementSessionThroughput getThroughput() {
+        return throughput;
+    }
+
+    // equivalent to the collect-only strategy chain
+    void doMessageReceived(long sessionReadBytes, Object message) throws Exception {
+        if (sessionBean != null) {
+            sessionBean.doMessageReceived(message);
+        }
+        serviceBean.doMessageReceived(sessionId, sessionReadBytes, message);
+        gatewayBean.doMessageReceived(sessionId, sessionReadBytes, message);
+    }
+
+    // equivalent to the collect-only strategy chain
+    void doFilterWrite(long sessionWrittenBytes, WriteRequest writeRequest) throws Exception {
+        if (sessionBean != null) {
+            sessionBean.doFilterWrite(writeRequest);
+        }
+        serviceBean.doFilterWrite(sessionId, sessionWrittenBytes, writeRequest);
+        gatewayBean.doFilterWrite(sessionId, sessionWrittenBytes, writeRequest);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.filter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kaazing.gateway.management.Utils.ManagementSessionType;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
+
+/**
+ * The state one session needs to publish its service throughput counters: the bytes already counted, the writes not yet
+ * sent, and whether the session has received a message or caught an exception.
+ *
+ * Only used on the IO thread of the session.
+ */
+final class ManagementSessionThroughput {
+
+    private final ManagementSessionType managementSessionType;
+    private final long createdNanos;
+
+    private long readBytes;
+    private long writtenBytes;
+    private long pendingWrites;
+    private boolean messageReceived;
+    private boolean exceptionCaught;
+
+    ManagementSessionThroughput(ManagementSessionType managementSessionType) {
+        this.managementSessionType = managementSessionType;
+        this.createdNanos = System.nanoTime();
+    }
+
+    void messageReceived(ServiceThroughputCounterManager counterManager, long sessionReadBytes) {
+        counterManager.messageReceived(managementSessionType, sessionReadBytes - readBytes);
+        readBytes = sessionReadBytes;
+
+        if (!messageReceived) {
+            messageReceived = true;
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - createdNanos);
+            counterManager.firstMessageReceived(managementSessionType, latencyMicros);
+        }
+    }
+
+    // note: the written bytes of a session only include messages already sent, as for the management beans
+    void messageWritten(ServiceThroughputCounterManager counterManager, long sessionWrittenBytes) {
+        counterManager.messageWritten(managementSessionType, sessionWrittenBytes - writtenBytes);
+        writtenBytes = sessionWrittenBytes;
+        pendingWrites++;
+    }
+
+    void messageSent(ServiceThroughputCounterManager counterManager) {
+        // messages written by filters below the management filter are also sent, but were never counted
+        if (pendingWrites > 0) {
+            pendingWrites--;
+            counterManager.messageSent(managementSessionType);
+        }
+    }
+
+    void exceptionCaught() {
+        exceptionCaught = true;
+    }
+
+    void sessionClosed(ServiceThroughputCounterManager counterManager, long sessionWrittenBytes) {
+        counterManager.sessionClosed(managementSessionType, sessionWrittenBytes - writtenBytes, pendingWrites,
+                exceptionCaught);
+        writtenBytes = sessionWrittenBytes;
+        pendingWrites = 0;
+    }
+}
@@ -67,6 +67,11 @@ public interface GatewayManagementBean extends ManagementBean {
 
     long getTotalExceptions();
 
+    /**
+     * @return the fraction of gzip Content-Encoding content bytes saved by compression, over all HTTP responses
+     */
+    double getGzipBytesSavedRatio();
+
     long getUptime();
 
     long getStartTime();
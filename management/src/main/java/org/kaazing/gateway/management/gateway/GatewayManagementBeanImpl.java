@@ -52,6 +52,7 @@ import org.kaazing.gateway.service.cluster.MemberId;
 import org.kaazing.gateway.service.cluster.MembershipEventListener;
 import org.kaazing.gateway.service.http.balancer.HttpBalancerService;
 import org.kaazing.gateway.service.messaging.collections.CollectionsFactory;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpGzipEncoder;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -202,6 +203,12 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
         return total;
     }
 
+    @Override
+    public double getGzipBytesSavedRatio() {
+        long contentBytes = HttpGzipEncoder.getContentBytes();
+        return contentBytes == 0 ? 0.0 : 1.0 - (double) HttpGzipEncoder.getEncodedBytes() / contentBytes;
+    }
+
     @Override
     public long getUptime() {
         return System.currentTimeMillis() - startTime;
@@ -43,6 +43,8 @@ public interface GatewayMXBean {
 
     long getTotalBytesSent();
 
+    double getGzipBytesSavedRatio();
+
     long getUptime();
 
     long getStartTime();
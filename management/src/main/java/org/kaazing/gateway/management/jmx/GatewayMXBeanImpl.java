@@ -86,6 +86,11 @@ public class GatewayMXBeanImpl implements GatewayMXBean {
         return gatewayManagementBean.getTotalBytesSent();
     }
 
+    @Override
+    public double getGzipBytesSavedRatio() {
+        return gatewayManagementBean.getGzipBytesSavedRatio();
+    }
+
     @Override
     public long getUptime() {
         return gatewayManagementBean.getUptime();
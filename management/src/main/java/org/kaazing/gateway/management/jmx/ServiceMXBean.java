@@ -51,6 +51,9 @@ public interface ServiceMXBean {
 
     Map<String, String> getUserPrincipals(Long sessionId);
 
+    // service-specific counters (e.g. broadcast slow consumer policy), empty if the service publishes none
+    Map<String, String> getServiceStatistics();
+
     // -----------------------------------------------------------------
     // For proxy style services the following methods should return data
     // -----------------------------------------------------------------
@@ -74,6 +77,12 @@ public interface ServiceMXBean {
 
     boolean isHeartbeatRunning();
 
+    int getPreparedConnectionTarget();
+
+    double getPreparedConnectionHitRate();
+
+    long[] getConnectLatencyHistogram();
+
     // -----------------------------------------------------------------
     // end of proxy-style service data
     // -----------------------------------------------------------------
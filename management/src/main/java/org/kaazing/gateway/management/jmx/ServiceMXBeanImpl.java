@@ -22,6 +22,7 @@
 package org.kaazing.gateway.management.jmx;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.management.ObjectName;
 import org.kaazing.gateway.management.service.ServiceManagementBean;
@@ -175,6 +176,18 @@ public class ServiceMXBeanImpl implements ServiceMXBean {
         return null;
     }
 
+    @Override
+    public Map<String, String> getServiceStatistics() {
+        Map<String, Number> serviceStatistics = serviceManagementBean.getServiceStatistics();
+
+        Map<String, String> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Number> entry : serviceStatistics.entrySet()) {
+            result.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+
+        return result;
+    }
+
     @Override
     public long getLastSuccessfulConnectTime() {
         return serviceManagementBean.getLastSuccessfulConnectTime();
@@ -220,6 +233,21 @@ public class ServiceMXBeanImpl implements ServiceMXBean {
         return serviceManagementBean.isHeartbeatRunning();
     }
 
+    @Override
+    public int getPreparedConnectionTarget() {
+        return serviceManagementBean.getPreparedConnectionTarget();
+    }
+
+    @Override
+    public double getPreparedConnectionHitRate() {
+        return serviceManagementBean.getPreparedConnectionHitRate();
+    }
+
+    @Override
+    public long[] getConnectLatencyHistogram() {
+        return serviceManagementBean.getConnectLatencyHistogram();
+    }
+
     // Some lifecycle methods for the service, called from
     // the management platform (e.g. JConsole.)
     @Override
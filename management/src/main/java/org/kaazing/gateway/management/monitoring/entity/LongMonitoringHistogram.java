@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity;
+
+/**
+ * This interface represents the abstraction layer for long monitoring histograms.
+ *
+ * Monitoring histograms record the distribution of values, such as handshake latencies, so that external tools can
+ * compute percentiles rather than only averages.
+ *
+ * This interface exposes the API for recording long values hiding the underlying implementation, which is
+ * technology-dependent.
+ */
+public interface LongMonitoringHistogram {
+
+    /**
+     * Method recording a value in the histogram
+     * @param value - the value to record, negative values are recorded as 0
+     * @return LongMonitoringHistogram - the updated histogram
+     */
+    LongMonitoringHistogram record(long value);
+
+    /**
+     * Method returning the number of recorded values
+     * @return long - the number of values recorded in the histogram
+     */
+    long getCount();
+
+    /**
+     * Method returning the number of recorded values which fall in the same bucket as the specified value
+     * @param value - the value identifying the bucket
+     * @return long - the number of values recorded in the bucket
+     */
+    long getCount(long value);
+
+    /**
+     * Method returning the sum of the recorded values
+     * @return long - the sum of the values recorded in the histogram
+     */
+    long getTotal();
+}
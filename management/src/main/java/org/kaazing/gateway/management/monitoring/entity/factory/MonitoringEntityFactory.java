@@ -22,6 +22,7 @@
 package org.kaazing.gateway.management.monitoring.entity.factory;
 
 import org.kaazing.gateway.management.monitoring.entity.LongMonitoringCounter;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
 
 /**
  * Factory for instantiating a specific monitoring entity.
@@ -39,6 +40,13 @@ public interface MonitoringEntityFactory {
      */
     LongMonitoringCounter makeLongMonitoringCounter(String name);
 
+    /**
+     * Method returning a LongMonitoringHistogram object
+     * @param name - the name associated to the histogram
+     * @return - LongMonitoringHistogram
+     */
+    LongMonitoringHistogram makeLongMonitoringHistogram(String name);
+
     /**
      * Cleans up the monitoring entities
      */
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity.impl;
+
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
+
+import uk.co.real_logic.agrona.concurrent.AtomicCounter;
+
+/**
+ * Agrona specific monitoring histogram which uses one AtomicCounter per bucket as the underlying implementation.
+ *
+ * Buckets are laid out as in an HDR histogram with two significant bits: values below 4 have a bucket each, and
+ * every power of two above that is split into 4 buckets of equal width, so the bucket of a value is at most 25%
+ * wider than the value.  Values of 2^27 and above share the last bucket.  Recording a value increments its bucket
+ * and adds the value to the total, which are lock-free operations, so the histogram can be recorded to from any
+ * thread.
+ *
+ * The counters are allocated consecutively with the labels <tt>&lt;name&gt;-total</tt> and
+ * <tt>&lt;name&gt;-bucket-&lt;lowest value&gt;</tt>, so external tools can rebuild the histogram (and its
+ * percentiles) from the monitoring file alone.
+ */
+public class AgronaLongMonitoringHistogram implements LongMonitoringHistogram {
+
+    static final int SUB_BUCKET_BITS = 2;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int MAX_EXPONENT = 26;
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + 1;
+
+    private final AtomicCounter total;
+    private final AtomicCounter[] buckets;
+
+    AgronaLongMonitoringHistogram(AtomicCounter total, AtomicCounter[] buckets) {
+        if (buckets.length != BUCKET_COUNT) {
+            throw new IllegalArgumentException(String.format("Expected %d buckets, got %d", BUCKET_COUNT, buckets.length));
+        }
+        this.total = total;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public LongMonitoringHistogram record(long value) {
+        long recordedValue = Math.max(value, 0L);
+        buckets[bucketIndex(recordedValue)].increment();
+        total.add(recordedValue);
+        return this;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (AtomicCounter bucket : buckets) {
+            count += bucket.get();
+        }
+        return count;
+    }
+
+    @Override
+    public long getCount(long value) {
+        return buckets[bucketIndex(Math.max(value, 0L))].get();
+    }
+
+    @Override
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Returns the index of the bucket of a non-negative value.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the lowest value recorded in the bucket with the specified index.
+     */
+    static long bucketLowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (long) (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+}
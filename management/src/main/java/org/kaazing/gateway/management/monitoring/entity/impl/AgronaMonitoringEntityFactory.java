@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.kaazing.gateway.management.monitoring.entity.LongMonitoringCounter;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
 import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
 
 import uk.co.real_logic.agrona.IoUtil;
@@ -66,6 +67,21 @@ public class AgronaMonitoringEntityFactory implements MonitoringEntityFactory {
         return longMonitoringCounter;
     }
 
+    @Override
+    public LongMonitoringHistogram makeLongMonitoringHistogram(String name) {
+        // The bucket counters are allocated consecutively after the total, so that they form one region of the file.
+        AtomicCounter total = countersManager.newCounter(name + "-total");
+        counters.add(total);
+
+        AtomicCounter[] buckets = new AtomicCounter[AgronaLongMonitoringHistogram.BUCKET_COUNT];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = countersManager.newCounter(name + "-bucket-" + AgronaLongMonitoringHistogram.bucketLowestValue(i));
+            counters.add(buckets[i]);
+        }
+
+        return new AgronaLongMonitoringHistogram(total, buckets);
+    }
+
     @Override
     public void close() {
         // We close the counters and the we also need to unmap the file and delete the monitoring directory.
@@ -22,6 +22,7 @@
 package org.kaazing.gateway.management.monitoring.entity.impl;
 
 import org.kaazing.gateway.management.monitoring.entity.LongMonitoringCounter;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
 import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
 
 public class DefaultMonitoringEntityFactoryStub implements MonitoringEntityFactory {
@@ -35,4 +36,9 @@ public class DefaultMonitoringEntityFactoryStub implements MonitoringEntityFacto
         return new DefaultLongMonitoringCounterStub();
     }
 
+    @Override
+    public LongMonitoringHistogram makeLongMonitoringHistogram(String name) {
+        return new DefaultLongMonitoringHistogramStub();
+    }
+
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity.manager;
+
+import org.kaazing.gateway.management.Utils.ManagementSessionType;
+
+/**
+ * Interface for a ServiceThroughputCounterManager responsible with holding the service throughput and latency data
+ * and performing the needed operations on its respective counters and histograms.
+ *
+ * Every operation updates both the counters of the service and the counters of the session type (native, emulated or
+ * other), and may be called from any IO thread.
+ */
+public interface ServiceThroughputCounterManager {
+
+    /**
+     * Method initializing the service throughput counters and latency histograms
+     */
+    void initializeCounters();
+
+    /**
+     * Method updating the counters for a completed handshake
+     * @param managementSessionType - session type used to determine whether session is native or not
+     * @param latencyMicros - the time from the creation of the underlying connection to the creation of the session
+     */
+    void handshakeCompleted(ManagementSessionType managementSessionType, long latencyMicros);
+
+    /**
+     * Method updating the counters for a received message
+     * @param managementSessionType - session type used to determine whether session is native or not
+     * @param bytes - the number of bytes read since the previous message
+     */
+    void messageReceived(ManagementSessionType managementSessionType, long bytes);
+
+    /**
+     * Method updating the latency histogram for the first message received by a session
+     * @param managementSessionType - session type used to determine whether session is native or not
+     * @param latencyMicros - the time from the creation of the session to its first message
+     */
+    void firstMessageReceived(ManagementSessionType managementSessionType, long latencyMicros);
+
+    /**
+     * Method updating the counters for a message queued for writing
+     * @param managementSessionType - session type used to determine whether session is native or not
+     * @param bytes - the number of bytes written since the previous message
+     */
+    void messageWritten(ManagementSessionType managementSessionType, long bytes);
+
+    /**
+     * Method updating the counters for a message which has been written
+     * @param managementSessionType - session type used to determine whether session is native or not
+     */
+    void messageSent(ManagementSessionType managementSessionType);
+
+    /**
+     * Method updating the counters for a closed session
+     * @param managementSessionType - session type used to determine whether session is native or not
+     * @param bytes - the number of bytes written since the previous message
+     * @param pendingWrites - the number of messages queued by the session which were never written
+     * @param exceptionCaught - whether the session closed after an exception
+     */
+    void sessionClosed(ManagementSessionType managementSessionType, long bytes, long pendingWrites,
+                       boolean exceptionCaught);
+}
@@ -23,6 +23,7 @@ package org.kaazing.gateway.management.monitoring.entity.manager.factory;
 
 import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
 import org.kaazing.gateway.management.monitoring.entity.manager.ServiceSessionCounterManager;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
 
 /**
  * Factory for returning a specific counter manager
@@ -42,4 +43,16 @@ public interface CounterManagerFactory {
             MonitoringEntityFactory monitoringEntityFactory,
             String serviceName);
 
+    /**
+     * Method responsible with returning a ServiceThroughputCounterManager responsible with
+     * holding the service throughput and latency data and performing the needed operations of
+     * its respective counters
+     * @param monitoringEntityFactory - the monitoring entity factory
+     * @param serviceName - the service name parameter
+     * @return - the ServiceThroughputCounterManager instance
+     */
+    ServiceThroughputCounterManager makeServiceThroughputCounterManager(
+            MonitoringEntityFactory monitoringEntityFactory,
+            String serviceName);
+
 }
@@ -23,6 +23,7 @@ package org.kaazing.gateway.management.monitoring.entity.manager.impl;
 
 import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
 import org.kaazing.gateway.management.monitoring.entity.manager.ServiceSessionCounterManager;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
 import org.kaazing.gateway.management.monitoring.entity.manager.factory.CounterManagerFactory;
 
 public class CounterManagerFactoryImpl implements CounterManagerFactory {
@@ -33,4 +34,10 @@ public class CounterManagerFactoryImpl implements CounterManagerFactory {
         return new ServiceSessionCounterManagerImpl(monitoringEntityFactory, serviceName);
     }
 
+    @Override
+    public ServiceThroughputCounterManager makeServiceThroughputCounterManager(
+            MonitoringEntityFactory monitoringEntityFactory, String serviceName) {
+        return new ServiceThroughputCounterManagerImpl(monitoringEntityFactory, serviceName);
+    }
+
 }
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity.manager.impl;
+
+import org.kaazing.gateway.management.Utils.ManagementSessionType;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringCounter;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
+import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
+
+public class ServiceThroughputCounterManagerImpl implements ServiceThroughputCounterManager {
+
+    private static final String BYTES_READ = "-bytes-read";
+    private static final String BYTES_WRITTEN = "-bytes-written";
+    private static final String MESSAGES_RECEIVED = "-messages-received";
+    private static final String MESSAGES_WRITTEN = "-messages-written";
+    private static final String HANDSHAKES = "-handshakes";
+    private static final String WRITE_QUEUE_DEPTH = "-write-queue-depth";
+    private static final String SESSIONS_CLOSED = "-sessions-closed";
+    private static final String SESSIONS_CLOSED_ON_EXCEPTION = "-sessions-closed-on-exception";
+    private static final String HANDSHAKE_LATENCY = "-handshake-latency-micros";
+    private static final String FIRST_MESSAGE_LATENCY = "-first-message-latency-micros";
+
+    private ThroughputCounters serviceCounters;
+    private ThroughputCounters[] sessionTypeCounters;
+    private LongMonitoringHistogram handshakeLatencyHistogram;
+    private LongMonitoringHistogram firstMessageLatencyHistogram;
+
+    private MonitoringEntityFactory monitoringEntityFactory;
+    private String serviceName;
+
+    public ServiceThroughputCounterManagerImpl(MonitoringEntityFactory monitoringEntityFactory,
+            String serviceName) {
+        this.monitoringEntityFactory = monitoringEntityFactory;
+        this.serviceName = serviceName;
+    }
+
+    @Override
+    public void initializeCounters() {
+        serviceCounters = new ThroughputCounters(monitoringEntityFactory, serviceName);
+
+        ManagementSessionType[] managementSessionTypes = ManagementSessionType.values();
+        sessionTypeCounters = new ThroughputCounters[managementSessionTypes.length];
+        for (ManagementSessionType managementSessionType : managementSessionTypes) {
+            String name = serviceName + "-" + managementSessionType.name().toLowerCase();
+            sessionTypeCounters[managementSessionType.ordinal()] = new ThroughputCounters(monitoringEntityFactory, name);
+        }
+
+        handshakeLatencyHistogram = monitoringEntityFactory.makeLongMonitoringHistogram(serviceName + HANDSHAKE_LATENCY);
+        firstMessageLatencyHistogram = monitoringEntityFactory.makeLongMonitoringHistogram(serviceName
+                + FIRST_MESSAGE_LATENCY);
+    }
+
+    @Override
+    public void handshakeCompleted(ManagementSessionType managementSessionType, long latencyMicros) {
+        serviceCounters.handshakes.increment();
+        getSessionTypeCounters(managementSessionType).handshakes.increment();
+        handshakeLatencyHistogram.record(latencyMicros);
+    }
+
+    @Override
+    public void messageReceived(ManagementSessionType managementSessionType, long bytes) {
+        serviceCounters.messageReceived(bytes);
+        getSessionTypeCounters(managementSessionType).messageReceived(bytes);
+    }
+
+    @Override
+    public void firstMessageReceived(ManagementSessionType managementSessionType, long latencyMicros) {
+        firstMessageLatencyHistogram.record(latencyMicros);
+    }
+
+    @Override
+    public void messageWritten(ManagementSessionType managementSessionType, long bytes) {
+        serviceCounters.messageWritten(bytes);
+        getSessionTypeCounters(managementSessionType).messageWritten(bytes);
+    }
+
+    @Override
+    public void messageSent(ManagementSessionType managementSessionType) {
+        serviceCounters.writeQueueDepth.decrement();
+        getSessionTypeCounters(managementSessionType).writeQueueDepth.decrement();
+    }
+
+    @Override
+    public void sessionClosed(ManagementSessionType managementSessionType, long bytes, long pendingWrites,
+                              boolean exceptionCaught) {
+        serviceCounters.sessionClosed(bytes, pendingWrites, exceptionCaught);
+        getSessionTypeCounters(managementSessionType).sessionClosed(bytes, pendingWrites, exceptionCaught);
+    }
+
+    /**
+     * Getter for the counters of the whole service
+     * @return the service counters
+     */
+    public ThroughputCounters getServiceCounters() {
+        return serviceCounters;
+    }
+
+    /**
+     * Getter for the counters of the sessions of one type
+     * @param managementSessionType - the session type
+     * @return the session type counters
+     */
+    public ThroughputCounters getSessionTypeCounters(ManagementSessionType managementSessionType) {
+        return sessionTypeCounters[managementSessionType.ordinal()];
+    }
+
+    /**
+     * Getter for the handshakeLatencyHistogram
+     * @return the handshakeLatencyHistogram
+     */
+    public LongMonitoringHistogram getHandshakeLatencyHistogram() {
+        return handshakeLatencyHistogram;
+    }
+
+    /**
+     * Getter for the firstMessageLatencyHistogram
+     * @return the firstMessageLatencyHistogram
+     */
+    public LongMonitoringHistogram getFirstMessageLatencyHistogram() {
+        return firstMessageLatencyHistogram;
+    }
+
+    /**
+     * The throughput counters of either the whole service or the sessions of one type.
+     */
+    public static final class ThroughputCounters {
+        private final LongMonitoringCounter bytesRead;
+        private final LongMonitoringCounter bytesWritten;
+        private final LongMonitoringCounter messagesReceived;
+        private final LongMonitoringCounter messagesWritten;
+        private final LongMonitoringCounter handshakes;
+        private final LongMonitoringCounter writeQueueDepth;
+        private final LongMonitoringCounter sessionsClosed;
+        private final LongMonitoringCounter sessionsClosedOnException;
+
+        ThroughputCounters(MonitoringEntityFactory monitoringEntityFactory, String name) {
+            bytesRead = monitoringEntityFactory.makeLongMonitoringCounter(name + BYTES_READ);
+            bytesWritten = monitoringEntityFactory.makeLongMonitoringCounter(name + BYTES_WRITTEN);
+            messagesReceived = monitoringEntityFactory.makeLongMonitoringCounter(name + MESSAGES_RECEIVED);
+            messagesWritten = monitoringEntityFactory.makeLongMonitoringCounter(name + MESSAGES_WRITTEN);
+            handshakes = monitoringEntityFactory.makeLongMonitoringCounter(name + HANDSHAKES);
+            writeQueueDepth = monitoringEntityFactory.makeLongMonitoringCounter(name + WRITE_QUEUE_DEPTH);
+            sessionsClosed = monitoringEntityFactory.makeLongMonitoringCounter(name + SESSIONS_CLOSED);
+            sessionsClosedOnException = monitoringEntityFactory.makeLongMonitoringCounter(name
+                    + SESSIONS_CLOSED_ON_EXCEPTION);
+        }
+
+        void messageReceived(long bytes) {
+            messagesReceived.increment();
+            if (bytes > 0) {
+                bytesRead.incrementByValue(bytes);
+            }
+        }
+
+        void messageWritten(long bytes) {
+            messagesWritten.increment();
+            writeQueueDepth.increment();
+            if (bytes > 0) {
+                bytesWritten.incrementByValue(bytes);
+            }
+        }
+
+        void sessionClosed(long bytes, long pendingWrites, boolean exceptionCaught) {
+            if (bytes > 0) {
+                bytesWritten.incrementByValue(bytes);
+            }
+            if (pendingWrites > 0) {
+                writeQueueDepth.decrementByValue(pendingWrites);
+            }
+            if (exceptionCaught) {
+                sessionsClosedOnException.increment();
+            }
+            else {
+                sessionsClosed.increment();
+            }
+        }
+
+        public LongMonitoringCounter getBytesReadCounter() {
+            return bytesRead;
+        }
+
+        public LongMonitoringCounter getBytesWrittenCounter() {
+            return bytesWritten;
+        }
+
+        public LongMonitoringCounter getMessagesReceivedCounter() {
+            return messagesReceived;
+        }
+
+        public LongMonitoringCounter getMessagesWrittenCounter() {
+            return messagesWritten;
+        }
+
+        public LongMonitoringCounter getHandshakesCounter() {
+            return handshakes;
+        }
+
+        public LongMonitoringCounter getWriteQueueDepthCounter() {
+            return writeQueueDepth;
+        }
+
+        public LongMonitoringCounter getSessionsClosedCounter() {
+            return sessionsClosed;
+        }
+
+        public LongMonitoringCounter getSessionsClosedOnExceptionCounter() {
+            return sessionsClosedOnException;
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.service;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from long keys to long values, which does not box and does not allocate except to grow.
+ *
+ * A slot is empty when its value is the missing value given to the constructor, so that value cannot be stored.
+ * Removal shifts later entries of the probe sequence back rather than leaving tombstones, so lookups stay short
+ * as sessions come and go.  Not thread safe.
+ */
+final class LongLongHashMap {
+
+    private static final int MINIMUM_CAPACITY = 64;
+
+    private final long missingValue;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    LongLongHashMap(long missingValue) {
+        this.missingValue = missingValue;
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    long get(long key) {
+        long[] keys = this.keys;
+        long[] values = this.values;
+        for (int index = hash(key, mask); values[index] != missingValue; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the previous value for the key, or the missing value
+     */
+    long put(long key, long value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("Cannot store the missing value: " + value);
+        }
+
+        int index = hash(key, mask);
+        while (values[index] != missingValue) {
+            if (keys[index] == key) {
+                long oldValue = values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            resize(values.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * @return the removed value for the key, or the missing value
+     */
+    long remove(long key) {
+        int index = hash(key, mask);
+        while (values[index] != missingValue) {
+            if (keys[index] == key) {
+                long oldValue = values[index];
+                values[index] = missingValue;
+                size--;
+                compact(index);
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    // move entries after the removed slot back into it where their probe sequence allows
+    private void compact(int removedIndex) {
+        int gap = removedIndex;
+        for (int index = (gap + 1) & mask; values[index] != missingValue; index = (index + 1) & mask) {
+            int home = hash(keys[index], mask);
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                values[index] = missingValue;
+                gap = index;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != missingValue) {
+                int index = hash(oldKeys[i], mask);
+                while (values[index] != missingValue) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, missingValue);
+        mask = capacity - 1;
+        resizeThreshold = (capacity * 5) >> 3;
+    }
+
+    static int hash(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
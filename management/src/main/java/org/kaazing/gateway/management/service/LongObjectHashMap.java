@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.service;
+
+import java.util.Map;
+
+/**
+ * Open addressing map from long keys to object values, which does not box its keys and does not allocate except to
+ * grow.  Null values cannot be stored, as null marks an empty slot.  Removal compacts the probe sequence, as in
+ * {@link LongLongHashMap}.  Not thread safe, except that {@link #copyTo(Map)} may be called from another thread.
+ */
+final class LongObjectHashMap<V> {
+
+    private static final int MINIMUM_CAPACITY = 64;
+
+    // keys and values are replaced together on resize, so a reader on another thread never sees one without the other
+    private volatile Table table;
+    private int size;
+
+    LongObjectHashMap() {
+        table = new Table(MINIMUM_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        Table table = this.table;
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = table.mask;
+        for (int index = LongLongHashMap.hash(key, mask); values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return (V) values[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value for the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+
+        Table table = this.table;
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = table.mask;
+        int index = LongLongHashMap.hash(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V oldValue = (V) values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (++size > table.resizeThreshold) {
+            resize(values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value for the key, or null
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        Table table = this.table;
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = table.mask;
+        int index = LongLongHashMap.hash(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V oldValue = (V) values[index];
+                values[index] = null;
+                size--;
+                compact(table, index);
+                return oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copies the entries of this map into the given map, boxing the keys.
+     *
+     * This may run on a thread other than the owning thread.  The keys and values are then read from the same table,
+     * but the copy is only a best effort snapshot: an entry moved by a concurrent removal may be missed, and an entry
+     * whose value changes while it is read is skipped rather than paired with the wrong key.
+     */
+    @SuppressWarnings("unchecked")
+    void copyTo(Map<Long, ? super V> map) {
+        Table table = this.table;
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null) {
+                long key = keys[i];
+                if (values[i] == value) {
+                    map.put(key, (V) value);
+                }
+            }
+        }
+    }
+
+    private static void compact(Table table, int removedIndex) {
+        long[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = table.mask;
+        int gap = removedIndex;
+        for (int index = (gap + 1) & mask; values[index] != null; index = (index + 1) & mask) {
+            int home = LongLongHashMap.hash(keys[index], mask);
+            if (((index - home) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                values[index] = null;
+                gap = index;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        Table oldTable = table;
+        long[] oldKeys = oldTable.keys;
+        Object[] oldValues = oldTable.values;
+        Table newTable = new Table(capacity);
+        long[] keys = newTable.keys;
+        Object[] values = newTable.values;
+        int mask = newTable.mask;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = LongLongHashMap.hash(oldKeys[i], mask);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+
+        // publish only once filled
+        table = newTable;
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+        private final int mask;
+        private final int resizeThreshold;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            resizeThreshold = (capacity * 5) >> 3;
+        }
+    }
+}
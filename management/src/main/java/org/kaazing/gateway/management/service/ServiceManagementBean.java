@@ -25,6 +25,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -45,6 +46,7 @@ import org.kaazing.gateway.management.session.SessionManagementBean;
 import org.kaazing.gateway.security.RealmContext;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.ServiceStatistics;
 import org.kaazing.gateway.service.proxy.ProxyService;
 import org.kaazing.gateway.service.proxy.ServiceConnectManager;
 import org.kaazing.gateway.transport.AbstractBridgeSession;
@@ -143,6 +145,13 @@ public interface ServiceManagementBean extends ManagementBean {
      */
     String getSessionRemoteAddress(IoSessionEx session);
 
+    /**
+     * Service-specific counters, for services that implement {@link ServiceStatistics}.
+     *
+     * @return the counters keyed by name, or an empty map if the service publishes none
+     */
+    Map<String, Number> getServiceStatistics();
+
     // -----------------------------------------------------------------
     // For proxy style services the following methods should return data
     // -----------------------------------------------------------------
@@ -165,6 +174,23 @@ public interface ServiceManagementBean extends ManagementBean {
 
     boolean isHeartbeatRunning();
 
+    /**
+     * @return the number of prepared connections the service currently aims to keep, which changes over time when
+     * prepared.connection.count.maximum is above prepared.connection.count.minimum
+     */
+    int getPreparedConnectionTarget();
+
+    /**
+     * @return the fraction of backend connects that were served by a prepared connection
+     */
+    double getPreparedConnectionHitRate();
+
+    /**
+     * @return the number of backend connects per latency bucket, where bucket 0 counts connects under 1ms, bucket i
+     * connects of [2^(i-1), 2^i) ms and the last bucket all slower connects
+     */
+    long[] getConnectLatencyHistogram();
+
     // -----------------------------------------------------------------
     // end of proxy-style service data
     // -----------------------------------------------------------------
@@ -219,6 +245,8 @@ public interface ServiceManagementBean extends ManagementBean {
     void removeUserPrincipals(IoSessionEx session);
 
     class DefaultServiceManagementBean extends AbstractManagementBean implements ServiceManagementBean {
+        private static final long NO_BYTE_COUNT = -1L;
+
         // Each IO worker thread gets a ThreadServiceStats object via get().
         private final ThreadLocal<ThreadServiceStats> serviceStats = new VicariousThreadLocal<ThreadServiceStats>() {
             @Override
@@ -253,6 +281,7 @@ public interface ServiceManagementBean extends ManagementBean {
         private final GatewayManagementBean gatewayManagementBean;
         private final ServiceContext serviceContext;
         private final ServiceConnectManager serviceConnectManager;
+        private final ServiceStatistics serviceStatistics;
 
         private final Set<String> userPrincipalClasses;
 
@@ -295,6 +324,8 @@ public interface ServiceManagementBean extends ManagementBean {
                 this.serviceConnectManager = null;
             }
 
+            this.serviceStatistics = (service instanceof ServiceStatistics) ? (ServiceStatistics) service : null;
+
             userPrincipalClasses = new HashSet<>();
             RealmContext realmContext = serviceContext.getServiceRealm();
             if (realmContext != null) {
@@ -531,6 +562,16 @@ public interface ServiceManagementBean extends ManagementBean {
             return val;
         }
 
+        // XXX This runs OFF the IO thread
+        @Override
+        public Map<String, Number> getServiceStatistics() {
+            if (serviceStatistics == null) {
+                return Collections.emptyMap();
+            }
+
+            return serviceStatistics.getStatistics();
+        }
+
         // XXX This runs OFF the IO thread
         @Override
         public Map<Long, Map<String, String>> getLoggedInSessions() {
@@ -605,6 +646,24 @@ public interface ServiceManagementBean extends ManagementBean {
             return serviceConnectManager != null && serviceConnectManager.isHeartbeatRunning();
         }
 
+        // XXX This runs OFF the IO thread
+        @Override
+        public int getPreparedConnectionTarget() {
+            return serviceConnectManager != null ? serviceConnectManager.getPreparedConnectionTarget() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public double getPreparedConnectionHitRate() {
+            return serviceConnectManager != null ? serviceConnectManager.getPreparedConnectionHitRate() : 0.0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long[] getConnectLatencyHistogram() {
+            return serviceConnectManager != null ? serviceConnectManager.getConnectLatencyHistogram() : new long[0];
+        }
+
         @Override
         public IoSessionEx getSession(long sessionId) {
             return serviceContext.getActiveSession(sessionId);
@@ -896,7 +955,7 @@ public interface ServiceManagementBean extends ManagementBean {
             // store something on the IoSessionEx as an attribute, we'll do so here. We
             // know this is safe because the calls to manipulate the map must be done on
             // an IO thread, so there is no contention to deal with.
-            private SessionMap sessionBeans = new SessionMap();
+            private final LongObjectHashMap<SessionManagementBean> sessionBeans = new LongObjectHashMap<>();
 
             // Thread-specific overall counts.
             //
@@ -924,7 +983,7 @@ public interface ServiceManagementBean extends ManagementBean {
             // A map of session ID to an associated set of user principals. Note that we
             // need to convert the ID to something else (e.g. session MBean name) when
             // returned to the user from a call through the service protocol-specific object.
-            private final Map<Long, Map<String, String>> loggedInSessions = new HashMap<>();
+            private final LongObjectHashMap<Map<String, String>> loggedInSessions = new LongObjectHashMap<>();
 
             // Optimization to keep track on a per-session basis (within the thread), of the total
             // bytes sent and received so we can report a total sent and received for the service.
@@ -932,9 +991,10 @@ public interface ServiceManagementBean extends ManagementBean {
             // the previous count for a session and the current count, allowing us to update
             // a total for the thread easily and quickly. Since a given thread is only ever
             // working on a single session at a time, and sessions are pinned to the thread,
-            // we can operate without locks.
-            private final ByteCountMap bytesSentCountBySession = new ByteCountMap();
-            private final ByteCountMap bytesReceivedCountBySession = new ByteCountMap();
+            // we can operate without locks. Byte counts are never negative, so -1 marks a
+            // session with no count yet.
+            private final LongLongHashMap bytesSentCountBySession = new LongLongHashMap(NO_BYTE_COUNT);
+            private final LongLongHashMap bytesReceivedCountBySession = new LongLongHashMap(NO_BYTE_COUNT);
 
             /**
              * Given a session, extract relevant counts and update them locally. NOTE: because we're a singlw thread, it doesn't
@@ -976,21 +1036,11 @@ public interface ServiceManagementBean extends ManagementBean {
             }
 
             SessionManagementBean getSessionManagementBean(long sessionId) {
-                SessionMapEntry entry = sessionBeans.get(sessionId);
-                if (entry != null) {
-                    return entry.bean;
-                }
-
-                return null;
+                return sessionBeans.get(sessionId);
             }
 
             SessionManagementBean removeSessionManagementBean(long sessionId) {
-                SessionMapEntry entry = sessionBeans.remove(sessionId);
-                if (entry != null) {
-                    return entry.bean;
-                }
-
-                return null;
+                return sessionBeans.remove(sessionId);
             }
 
             // For use by the 'summation' methods All of these try to create a future to run on
@@ -1084,7 +1134,7 @@ public interface ServiceManagementBean extends ManagementBean {
             // This runs OFF any IO worker thread
             // See comment above about not needing a Future or Atomic.
             void collectLoggedInSessions(Map<Long, Map<String, String>> vals) {
-                vals.putAll(loggedInSessions);
+                loggedInSessions.copyTo(vals);
             }
 
             // This runs OFF any IO worker thread. The final list of summary values from a service
@@ -1135,24 +1185,25 @@ public interface ServiceManagementBean extends ManagementBean {
 
             // The following is to run ON the IO thread
             void addToBytesSent(long sessionId, long sessionWrittenBytes) {
-                ByteCountMapEntry prevByteCount = bytesSentCountBySession.get(sessionId);
-                long delta = prevByteCount == null ? sessionWrittenBytes : sessionWrittenBytes
-                        - prevByteCount.byteCount;
-                bytesSentCountBySession.put(sessionId, sessionWrittenBytes);
+                long prevByteCount = bytesSentCountBySession.put(sessionId, sessionWrittenBytes);
+                long delta = prevByteCount == NO_BYTE_COUNT ? sessionWrittenBytes : sessionWrittenBytes - prevByteCount;
                 totalBytesSentCount += delta;
             }
 
             // The following is to run ON the IO thread
             void addToBytesReceived(long sessionId, long sessionReadBytes) {
-                ByteCountMapEntry prevByteCount = bytesReceivedCountBySession.get(sessionId);
-                long delta = prevByteCount == null ? sessionReadBytes : sessionReadBytes - prevByteCount.byteCount;
-                bytesReceivedCountBySession.put(sessionId, sessionReadBytes);
+                long prevByteCount = bytesReceivedCountBySession.put(sessionId, sessionReadBytes);
+                long delta = prevByteCount == NO_BYTE_COUNT ? sessionReadBytes : sessionReadBytes - prevByteCount;
                 totalBytesReceivedCount += delta;
             }
 
             // The following is to run ON the IO thread
             void addLoggedInSession(IoSessionEx session, Map<String, String> userPrincipals) {
-                loggedInSessions.put(session.getId(), userPrincipals);
+                if (userPrincipals == null) {
+                    loggedInSessions.remove(session.getId());
+                } else {
+                    loggedInSessions.put(session.getId(), userPrincipals);
+                }
             }
 
             // The following is to run ON the IO thread
@@ -1161,266 +1212,6 @@ public interface ServiceManagementBean extends ManagementBean {
             }
         }
 
-        // an implementation of a map that avoids auto-boxing longs to Longs and thus avoids creation of little
-        // bits of garbage that then need to be garbage collected;
-        private final class SessionMap {
-            private int arraySize;
-            private int mapSize;
-            private SessionMapEntry[] data;
-
-            private SessionMap() {
-                arraySize = 64;
-                mapSize = 0;
-                data = new SessionMapEntry[arraySize];
-            }
-
-            private void put(long id, SessionManagementBean bean) {
-                int index = (int) (id % arraySize);
-                SessionMapEntry entry = data[index];
-                if (entry != null) {
-                    SessionMapEntry prevEntry = null;
-                    while (entry != null) {
-                        if (entry.id == id) {
-                            entry.setBean(bean);
-                            return;
-                        }
-                        prevEntry = entry;
-                        entry = entry.next;
-                    }
-
-                    // The end of the chain was reached, add the new entry to the end of the chain
-                    prevEntry.next = new SessionMapEntry(id, bean);
-                } else {
-                    data[index] = new SessionMapEntry(id, bean);
-                }
-
-                mapSize++;
-
-                // This amounts to a load factor of 1, so when the number of entries reaches the
-                // size of the array, the map is resized.
-                if (mapSize > arraySize) {
-                    resize();
-                }
-            }
-
-            private void resize() {
-                SessionMapEntry[] oldData = data;
-                arraySize *= 2;
-                data = new SessionMapEntry[arraySize];
-
-                for (int i = 0; i < oldData.length; i++) {
-                    SessionMapEntry entry = oldData[i];
-                    while (entry != null) {
-                        int index = (int) (entry.id % arraySize);
-                        SessionMapEntry newEntry = data[index];
-                        if (newEntry != null) {
-                            while (newEntry.next != null) {
-                                newEntry = newEntry.next;
-                            }
-                            newEntry.next = entry;
-                        } else {
-                            data[index] = entry;
-                        }
-
-                        SessionMapEntry prevEntry = entry;
-                        entry = entry.next;
-
-                        prevEntry.next = null;
-                    }
-                }
-            }
-
-            private SessionMapEntry get(long id) {
-                int index = (int) (id % arraySize);
-                SessionMapEntry entry = data[index];
-                while (entry != null) {
-                    if (entry.id == id) {
-                        return entry;
-                    }
-                    entry = entry.next;
-                }
-
-                return null;
-            }
-
-            private SessionMapEntry remove(long id) {
-                int index = (int) (id % arraySize);
-                SessionMapEntry entry = data[index];
-                if (entry != null) {
-                    if (entry.id == id) {
-                        data[index] = entry.next;
-                        entry.next = null;
-                    } else {
-                        SessionMapEntry prevEntry = entry;
-                        while ((entry != null) && (entry.id != id)) {
-                            prevEntry = entry;
-                            entry = entry.next;
-                        }
-
-                        if (entry != null) {
-                            prevEntry.next = entry.next;
-                            entry.next = null;
-                        }
-                    }
-
-                    if (entry != null) {
-                        mapSize--;
-                    }
-                    return entry;
-                }
-
-                return null;
-            }
-        }
-
-        private final class SessionMapEntry {
-            private long id;
-            private SessionManagementBean bean;
-            private SessionMapEntry next;
-
-            private SessionMapEntry(long id, SessionManagementBean bean) {
-                this.id = id;
-                this.bean = bean;
-                this.next = null;
-            }
-
-            // allow the value of an entry to be changed to support the put(K, V) semantics where K already exists in
-            // the
-            // map
-            private void setBean(SessionManagementBean bean) {
-                this.bean = bean;
-            }
-        }
-
-        private final class ByteCountMap {
-            private int arraySize;
-            private int mapSize;
-            private ByteCountMapEntry[] data;
-
-            private ByteCountMap() {
-                arraySize = 64;
-                mapSize = 0;
-                data = new ByteCountMapEntry[arraySize];
-            }
-
-            private void put(long id, long byteCount) {
-                int index = (int) (id % arraySize);
-                ByteCountMapEntry entry = data[index];
-                if (entry != null) {
-                    ByteCountMapEntry prevEntry = null;
-                    while (entry != null) {
-                        if (entry.id == id) {
-                            entry.setByteCount(byteCount);
-                            return;
-                        }
-                        prevEntry = entry;
-                        entry = entry.next;
-                    }
-
-                    // The end of the chain was reached, add the new entry to the end of the chain
-                    prevEntry.next = new ByteCountMapEntry(id, byteCount);
-                } else {
-                    data[index] = new ByteCountMapEntry(id, byteCount);
-                }
-
-                mapSize++;
-
-                // This amounts to a load factor of 1, so when the number of entries reaches the
-                // size of the array, the map is resized.
-                if (mapSize > arraySize) {
-                    resize();
-                }
-            }
-
-            private void resize() {
-                ByteCountMapEntry[] oldData = data;
-                arraySize *= 2;
-                data = new ByteCountMapEntry[arraySize];
-
-                for (int i = 0; i < oldData.length; i++) {
-                    ByteCountMapEntry entry = oldData[i];
-                    while (entry != null) {
-                        int index = (int) (entry.id % arraySize);
-                        ByteCountMapEntry newEntry = data[index];
-                        if (newEntry != null) {
-                            while (newEntry.next != null) {
-                                newEntry = newEntry.next;
-                            }
-                            newEntry.next = entry;
-                        } else {
-                            data[index] = entry;
-                        }
-
-                        ByteCountMapEntry prevEntry = entry;
-                        entry = entry.next;
-
-                        prevEntry.next = null;
-                    }
-                }
-            }
-
-            private ByteCountMapEntry get(long id) {
-                int index = (int) (id % arraySize);
-                ByteCountMapEntry entry = data[index];
-                while (entry != null) {
-                    if (entry.id == id) {
-                        return entry;
-                    }
-                    entry = entry.next;
-                }
-
-                return null;
-            }
-
-            private ByteCountMapEntry remove(long id) {
-                int index = (int) (id % arraySize);
-                ByteCountMapEntry entry = data[index];
-                if (entry != null) {
-                    if (entry.id == id) {
-                        data[index] = entry.next;
-                        entry.next = null;
-                    } else {
-                        ByteCountMapEntry prevEntry = entry;
-                        while ((entry != null) && (entry.id != id)) {
-                            prevEntry = entry;
-                            entry = entry.next;
-                        }
-
-                        if (entry != null) {
-                            prevEntry.next = entry.next;
-                            entry.next = null;
-                        }
-                    }
-
-                    if (entry != null) {
-                        mapSize--;
-                    }
-                    return entry;
-                }
-
-                return null;
-            }
-        }
-
-        private final class ByteCountMapEntry {
-            private long id;
-            private long byteCount;
-            private ByteCountMapEntry next;
-
-            private ByteCountMapEntry(long id, long byteCount) {
-                this.id = id;
-                this.byteCount = byteCount;
-                this.next = null;
-            }
-
-            // allow the value of an entry to be changed to support the put(K, V) semantics where K already exists in
-            // the
-            // map
-            private void setByteCount(long byteCount) {
-                this.byteCount = byteCount;
-            }
-        }
-
         @Override
         public String getServiceName() {
             return serviceContext.getServiceName();
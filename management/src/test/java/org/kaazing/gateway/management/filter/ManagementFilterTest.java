@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.filter;
+
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_GATEWAY_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_SERVICE_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.COLLECT_ONLY_SESSION_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.FULL_FILTER_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.FULL_GATEWAY_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.FULL_SERVICE_STRATEGY;
+import static org.kaazing.gateway.management.context.DefaultManagementContext.FULL_SESSION_STRATEGY;
+
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.write.WriteRequest;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.States;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Test;
+import org.kaazing.gateway.management.ManagementStrategyChangeListener;
+import org.kaazing.gateway.management.context.ManagementContext;
+import org.kaazing.gateway.management.gateway.GatewayManagementBean;
+import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
+import org.kaazing.gateway.management.monitoring.entity.impl.DefaultLongMonitoringCounterStub;
+import org.kaazing.gateway.management.monitoring.entity.impl.DefaultLongMonitoringHistogramStub;
+import org.kaazing.gateway.management.service.ServiceManagementBean;
+import org.kaazing.gateway.management.session.SessionManagementBean;
+import org.kaazing.mina.core.session.DummySessionEx;
+
+public class ManagementFilterTest {
+
+    @Test
+    public void shouldResolveStrategiesOncePerStrategyChange() throws Exception {
+        Mockery context = new Mockery();
+        final ManagementContext managementContext = context.mock(ManagementContext.class);
+        final ServiceManagementBean serviceBean = context.mock(ServiceManagementBean.class);
+        final GatewayManagementBean gatewayBean = context.mock(GatewayManagementBean.class);
+        final SessionManagementBean sessionBean = context.mock(SessionManagementBean.class);
+        final MonitoringEntityFactory monitoringEntityFactory = context.mock(MonitoringEntityFactory.class);
+        final ManagementFilterStrategy filterStrategy = context.mock(ManagementFilterStrategy.class);
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final WriteRequest writeRequest = context.mock(WriteRequest.class);
+        final ManagementStrategyChangeListener[] changeListener = new ManagementStrategyChangeListener[1];
+        final States strategy = context.states("strategy").startsAs("collect-only");
+
+        final DummySessionEx session = new DummySessionEx();
+        final long sessionId = session.getId();
+        final Object message = new Object();
+
+        context.checking(new Expectations() {
+            {
+                allowing(serviceBean).getGatewayManagementBean();
+                will(returnValue(gatewayBean));
+                allowing(gatewayBean).getManagementContext();
+                will(returnValue(managementContext));
+                allowing(serviceBean).getServiceContext();
+                allowing(monitoringEntityFactory).makeLongMonitoringCounter(with(any(String.class)));
+                will(returnValue(new DefaultLongMonitoringCounterStub()));
+                allowing(monitoringEntityFactory).makeLongMonitoringHistogram(with(any(String.class)));
+                will(returnValue(new DefaultLongMonitoringHistogramStub()));
+                oneOf(managementContext).addManagementStrategyChangeListener(
+                        with(any(ManagementStrategyChangeListener.class)));
+                will(new CustomAction("save listener") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        changeListener[0] = (ManagementStrategyChangeListener) invocation.getParameter(0);
+                        return null;
+                    }
+                });
+
+                allowing(managementContext).getManagementFilterStrategy();
+                will(returnValue(FULL_FILTER_STRATEGY));
+                when(strategy.is("collect-only"));
+                allowing(managementContext).getManagementGatewayStrategy();
+                will(returnValue(COLLECT_ONLY_GATEWAY_STRATEGY));
+                when(strategy.is("collect-only"));
+                allowing(managementContext).getManagementServiceStrategy();
+                will(returnValue(COLLECT_ONLY_SERVICE_STRATEGY));
+                when(strategy.is("collect-only"));
+                allowing(managementContext).getManagementSessionStrategy();
+                will(returnValue(COLLECT_ONLY_SESSION_STRATEGY));
+                when(strategy.is("collect-only"));
+
+                // the session bean is looked up when the handle is resolved, not on every message
+                oneOf(serviceBean).getSessionManagementBean(sessionId);
+                will(returnValue(sessionBean));
+                exactly(2).of(sessionBean).doMessageReceived(message);
+                exactly(2).of(serviceBean).doMessageReceived(sessionId, 0L, message);
+                exactly(2).of(gatewayBean).doMessageReceived(sessionId, 0L, message);
+                exactly(3).of(nextFilter).messageReceived(session, message);
+                oneOf(sessionBean).doFilterWrite(writeRequest);
+                oneOf(serviceBean).doFilterWrite(sessionId, 0L, writeRequest);
+                oneOf(gatewayBean).doFilterWrite(sessionId, 0L, writeRequest);
+                oneOf(nextFilter).filterWrite(session, writeRequest);
+
+                allowing(managementContext).getManagementFilterStrategy();
+                will(returnValue(filterStrategy));
+                when(strategy.is("full"));
+                allowing(managementContext).getManagementGatewayStrategy();
+                will(returnValue(FULL_GATEWAY_STRATEGY));
+                when(strategy.is("full"));
+                allowing(managementContext).getManagementServiceStrategy();
+                will(returnValue(FULL_SERVICE_STRATEGY));
+                when(strategy.is("full"));
+                allowing(managementContext).getManagementSessionStrategy();
+                will(returnValue(FULL_SESSION_STRATEGY));
+                when(strategy.is("full"));
+
+                oneOf(filterStrategy).doMessageReceived(managementContext, serviceBean, sessionId, 0L, message);
+            }
+        });
+
+        ManagementFilter filter = new ManagementFilter(serviceBean, monitoringEntityFactory, "service");
+        filter.messageReceived(nextFilter, session, message);
+        filter.messageReceived(nextFilter, session, message);
+        filter.filterWrite(nextFilter, session, writeRequest);
+
+        strategy.become("full");
+        changeListener[0].managementStrategyChanged();
+        filter.messageReceived(nextFilter, session, message);
+
+        context.assertIsSatisfied();
+    }
+
+}
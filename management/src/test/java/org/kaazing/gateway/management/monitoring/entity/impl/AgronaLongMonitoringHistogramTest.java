@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.kaazing.gateway.management.monitoring.entity.impl.AgronaLongMonitoringHistogram.BUCKET_COUNT;
+import static org.kaazing.gateway.management.monitoring.entity.impl.AgronaLongMonitoringHistogram.bucketIndex;
+import static org.kaazing.gateway.management.monitoring.entity.impl.AgronaLongMonitoringHistogram.bucketLowestValue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.management.monitoring.configuration.impl.AgronaMonitoringEntityFactoryBuilder;
+import org.kaazing.gateway.management.monitoring.entity.LongMonitoringHistogram;
+import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
+
+/**
+ * Unit test for AgronaLongMonitoringHistogram
+ */
+public class AgronaLongMonitoringHistogramTest {
+
+    private MonitoringEntityFactory factory;
+    private LongMonitoringHistogram histogram;
+
+    @Before
+    public void before() {
+        AgronaMonitoringEntityFactoryBuilder builder = new AgronaMonitoringEntityFactoryBuilder();
+        factory = builder.build();
+        histogram = factory.makeLongMonitoringHistogram("histogram");
+    }
+
+    @After
+    public void after() {
+        factory.close();
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long lowestValue = bucketLowestValue(i);
+            assertEquals(i, bucketIndex(lowestValue));
+            if (i > 0) {
+                assertEquals(i - 1, bucketIndex(lowestValue - 1));
+            }
+        }
+        assertEquals(BUCKET_COUNT - 1, bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testBucketPrecision() {
+        assertEquals(bucketIndex(1000), bucketIndex(1023));
+        assertEquals(bucketIndex(1024) - 1, bucketIndex(1023));
+        assertEquals(896, bucketLowestValue(bucketIndex(1000)));
+    }
+
+    @Test
+    public void testRecord() {
+        histogram.record(3);
+        histogram.record(1000);
+        histogram.record(1023);
+        histogram.record(-1);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(1, histogram.getCount(3));
+        assertEquals(2, histogram.getCount(900));
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(0, histogram.getCount(1024));
+        assertEquals(2026, histogram.getTotal());
+    }
+}
@@ -34,4 +34,11 @@ public class CounterManagerFactoryImplTest {
         Object serviceSessionCounterManager = counterManagerFactory.makeServiceSessionCounterManager(null, null);
         assertTrue(serviceSessionCounterManager instanceof ServiceSessionCounterManagerImpl);
     }
+
+    @Test
+    public void testMakeServiceThroughputCounterManager() {
+        CounterManagerFactory counterManagerFactory = new CounterManagerFactoryImpl();
+        Object serviceThroughputCounterManager = counterManagerFactory.makeServiceThroughputCounterManager(null, null);
+        assertTrue(serviceThroughputCounterManager instanceof ServiceThroughputCounterManagerImpl);
+    }
 }
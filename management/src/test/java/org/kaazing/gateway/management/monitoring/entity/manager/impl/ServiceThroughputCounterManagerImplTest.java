@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.monitoring.entity.manager.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Properties;
+
+import org.junit.Test;
+import org.kaazing.gateway.management.Utils.ManagementSessionType;
+import org.kaazing.gateway.management.monitoring.configuration.MonitoringEntityFactoryInjector;
+import org.kaazing.gateway.management.monitoring.configuration.impl.MonitoringEntityFactoryInjectorImpl;
+import org.kaazing.gateway.management.monitoring.entity.factory.MonitoringEntityFactory;
+import org.kaazing.gateway.management.monitoring.entity.manager.ServiceThroughputCounterManager;
+import org.kaazing.gateway.management.monitoring.entity.manager.impl.ServiceThroughputCounterManagerImpl.ThroughputCounters;
+
+public class ServiceThroughputCounterManagerImplTest {
+
+    private static final String AGRONA_ENABLED = "org.kaazing.gateway.management.AGRONA_ENABLED";
+
+    @Test
+    public void testAgronaEnabledThroughputCounters() {
+        MonitoringEntityFactory monitoringEntityFactory = createMonitoringEntityFactory(true);
+        ServiceThroughputCounterManagerImpl counterManager =
+                new ServiceThroughputCounterManagerImpl(monitoringEntityFactory, "service");
+
+        counterManager.initializeCounters();
+        counterManager.handshakeCompleted(ManagementSessionType.NATIVE, 1500);
+        counterManager.messageReceived(ManagementSessionType.NATIVE, 10);
+        counterManager.firstMessageReceived(ManagementSessionType.NATIVE, 200);
+        counterManager.messageReceived(ManagementSessionType.NATIVE, 20);
+        counterManager.messageWritten(ManagementSessionType.NATIVE, 0);
+        counterManager.messageWritten(ManagementSessionType.NATIVE, 5);
+        counterManager.messageSent(ManagementSessionType.NATIVE);
+        counterManager.handshakeCompleted(ManagementSessionType.EMULATED, 3000);
+        counterManager.messageWritten(ManagementSessionType.EMULATED, 0);
+
+        // bytes read, bytes written, messages received, messages written, handshakes, write queue depth
+        assertCounters(counterManager.getServiceCounters(), 30, 5, 2, 3, 2, 2);
+        assertCounters(counterManager.getSessionTypeCounters(ManagementSessionType.NATIVE), 30, 5, 2, 2, 1, 1);
+        assertCounters(counterManager.getSessionTypeCounters(ManagementSessionType.EMULATED), 0, 0, 0, 1, 1, 1);
+        assertCounters(counterManager.getSessionTypeCounters(ManagementSessionType.OTHER), 0, 0, 0, 0, 0, 0);
+
+        counterManager.sessionClosed(ManagementSessionType.NATIVE, 7, 1, false);
+        counterManager.sessionClosed(ManagementSessionType.EMULATED, 0, 1, true);
+
+        assertCounters(counterManager.getServiceCounters(), 30, 12, 2, 3, 2, 0);
+        assertCounters(counterManager.getSessionTypeCounters(ManagementSessionType.EMULATED), 0, 0, 0, 1, 1, 0);
+        assertEquals(1, counterManager.getServiceCounters().getSessionsClosedCounter().getValue());
+        assertEquals(1, counterManager.getServiceCounters().getSessionsClosedOnExceptionCounter().getValue());
+        assertEquals(0, counterManager.getSessionTypeCounters(ManagementSessionType.NATIVE)
+                .getSessionsClosedOnExceptionCounter().getValue());
+
+        assertEquals(2, counterManager.getHandshakeLatencyHistogram().getCount());
+        assertEquals(1, counterManager.getHandshakeLatencyHistogram().getCount(1500));
+        assertEquals(4500, counterManager.getHandshakeLatencyHistogram().getTotal());
+        assertEquals(1, counterManager.getFirstMessageLatencyHistogram().getCount(200));
+
+        monitoringEntityFactory.close();
+    }
+
+    @Test
+    public void testAgronaDisabledThroughputCounters() {
+        MonitoringEntityFactory monitoringEntityFactory = createMonitoringEntityFactory(false);
+        ServiceThroughputCounterManager counterManager =
+                new ServiceThroughputCounterManagerImpl(monitoringEntityFactory, null);
+
+        counterManager.initializeCounters();
+        counterManager.handshakeCompleted(ManagementSessionType.NATIVE, 1500);
+        counterManager.messageReceived(ManagementSessionType.NATIVE, 10);
+        counterManager.firstMessageReceived(ManagementSessionType.NATIVE, 200);
+        counterManager.messageWritten(ManagementSessionType.NATIVE, 5);
+        counterManager.messageSent(ManagementSessionType.NATIVE);
+        counterManager.sessionClosed(ManagementSessionType.NATIVE, 0, 0, false);
+        monitoringEntityFactory.close();
+    }
+
+    /**
+     * Helper method for creating a monitoring entity factory
+     * @param agronaEnabled
+     * @return
+     */
+    private MonitoringEntityFactory createMonitoringEntityFactory(boolean agronaEnabled) {
+        Properties configuration = new Properties();
+        configuration.setProperty(AGRONA_ENABLED, Boolean.toString(agronaEnabled));
+        MonitoringEntityFactoryInjector injector = new MonitoringEntityFactoryInjectorImpl(configuration);
+        return injector.makeMonitoringEntityFactory();
+    }
+
+    /**
+     * Method asserting throughput counter values
+     * @param counters
+     * @param values
+     */
+    private void assertCounters(ThroughputCounters counters, long... values) {
+        assertEquals(values[0], counters.getBytesReadCounter().getValue());
+        assertEquals(values[1], counters.getBytesWrittenCounter().getValue());
+        assertEquals(values[2], counters.getMessagesReceivedCounter().getValue());
+        assertEquals(values[3], counters.getMessagesWrittenCounter().getValue());
+        assertEquals(values[4], counters.getHandshakesCounter().getValue());
+        assertEquals(values[5], counters.getWriteQueueDepthCounter().getValue());
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class LongLongHashMapTest {
+
+    @Test
+    public void shouldReturnPreviousValueOnPut() {
+        LongLongHashMap map = new LongLongHashMap(-1L);
+
+        assertEquals(-1L, map.put(7L, 10L));
+        assertEquals(10L, map.put(7L, 25L));
+        assertEquals(25L, map.get(7L));
+        assertEquals(-1L, map.get(8L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacity() {
+        LongLongHashMap map = new LongLongHashMap(-1L);
+        for (long id = 1; id <= 100000; id++) {
+            map.put(id, id * 2);
+        }
+
+        assertEquals(100000, map.size());
+        assertEquals(262144, map.capacity());
+        for (long id = 1; id <= 100000; id++) {
+            assertEquals(id * 2, map.get(id));
+        }
+    }
+
+    @Test
+    public void shouldMatchHashMapUnderRandomUpdatesAndRemoves() {
+        LongLongHashMap map = new LongLongHashMap(-1L);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42L);
+
+        for (int i = 0; i < 200000; i++) {
+            // a small key range forces collisions and removals from the middle of probe sequences
+            long key = random.nextInt(2000) * 64L;
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertEquals(removed == null ? -1L : removed, map.remove(key));
+            }
+            else {
+                long value = random.nextInt(Integer.MAX_VALUE);
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? -1L : previous, map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 2000 * 64L; key += 64L) {
+            Long value = expected.get(key);
+            assertEquals(value == null ? -1L : value, map.get(key));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMissingValue() {
+        new LongLongHashMap(-1L).put(1L, -1L);
+    }
+
+    @Test
+    public void objectMapShouldRemoveAndCopyEntries() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        for (long id = 0; id < 1000; id++) {
+            map.put(id, "session-" + id);
+        }
+        for (long id = 0; id < 1000; id += 2) {
+            assertEquals("session-" + id, map.remove(id));
+        }
+
+        assertEquals(500, map.size());
+        assertNull(map.get(10L));
+        assertEquals("session-11", map.get(11L));
+
+        Map<Long, String> copy = new HashMap<>();
+        map.copyTo(copy);
+        assertEquals(500, copy.size());
+        assertSame(map.get(999L), copy.get(999L));
+    }
+
+    @Test(timeout = 30000)
+    public void objectMapShouldCopyWhileOwnerResizes() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final LongObjectHashMap<?>[] current = new LongObjectHashMap<?>[1];
+        current[0] = new LongObjectHashMap<String>();
+
+        Thread owner = new Thread() {
+            @Override
+            public void run() {
+                for (int round = 0; round < 50; round++) {
+                    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+                    synchronized (current) {
+                        current[0] = map;
+                    }
+                    for (long id = 0; id < 20000; id++) {
+                        map.put(id, "session-" + id);
+                        if (id % 3 == 0) {
+                            map.remove(id / 2);
+                        }
+                    }
+                }
+                done.set(true);
+            }
+        };
+        owner.start();
+
+        while (!done.get()) {
+            LongObjectHashMap<?> map;
+            synchronized (current) {
+                map = current[0];
+            }
+            Map<Long, Object> copy = new HashMap<>();
+            map.copyTo(copy);
+            for (Map.Entry<Long, Object> entry : copy.entrySet()) {
+                assertEquals("session-" + entry.getKey(), entry.getValue());
+            }
+        }
+        owner.join();
+    }
+
+}
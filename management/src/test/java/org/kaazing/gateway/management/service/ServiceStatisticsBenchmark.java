@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.management.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the per-message cost of the service statistics the management filter updates on every read and write
+ * (the per-session byte count map lookup and the running total), comparing the open addressing map with a boxed
+ * HashMap, at 1k, 10k and 100k sessions on one I/O thread.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.management.service.ServiceStatisticsBenchmark
+ */
+public class ServiceStatisticsBenchmark {
+
+    private static final int[] SESSION_COUNTS = { 1000, 10000, 100000 };
+    private static final int MESSAGE_COUNT = 10000000;
+
+    private static long totalBytes;
+
+    public static void main(String... args) throws Exception {
+        for (int sessionCount : SESSION_COUNTS) {
+            long[] sessionIds = sessionIds(sessionCount);
+
+            // warm up
+            runOpenAddressing(sessionIds, MESSAGE_COUNT);
+            runBoxed(sessionIds, MESSAGE_COUNT);
+
+            report("open", sessionCount, runOpenAddressing(sessionIds, MESSAGE_COUNT));
+            report("boxed", sessionCount, runBoxed(sessionIds, MESSAGE_COUNT));
+        }
+    }
+
+    private static long[] runOpenAddressing(long[] sessionIds, int messageCount) {
+        LongLongHashMap countBySession = new LongLongHashMap(-1L);
+        long[] sessionBytes = new long[sessionIds.length];
+        for (long sessionId : sessionIds) {
+            countBySession.put(sessionId, 0L);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long startAt = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            int session = (int) ((i * 0x9E3779B1L) % sessionIds.length);
+            long sessionWrittenBytes = sessionBytes[session] += 100;
+            long prevByteCount = countBySession.put(sessionIds[session], sessionWrittenBytes);
+            totalBytes += prevByteCount == -1L ? sessionWrittenBytes : sessionWrittenBytes - prevByteCount;
+        }
+        long elapsed = System.nanoTime() - startAt;
+        return new long[] { elapsed, allocatedBytes() - allocatedBefore };
+    }
+
+    private static long[] runBoxed(long[] sessionIds, int messageCount) {
+        Map<Long, Long> countBySession = new HashMap<>();
+        long[] sessionBytes = new long[sessionIds.length];
+        for (long sessionId : sessionIds) {
+            countBySession.put(sessionId, 0L);
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long startAt = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            int session = (int) ((i * 0x9E3779B1L) % sessionIds.length);
+            long sessionWrittenBytes = sessionBytes[session] += 100;
+            Long prevByteCount = countBySession.put(sessionIds[session], sessionWrittenBytes);
+            totalBytes += prevByteCount == null ? sessionWrittenBytes : sessionWrittenBytes - prevByteCount;
+        }
+        long elapsed = System.nanoTime() - startAt;
+        return new long[] { elapsed, allocatedBytes() - allocatedBefore };
+    }
+
+    // session ids are allocated sequentially, interleaved across services and I/O threads
+    private static long[] sessionIds(int sessionCount) {
+        long[] sessionIds = new long[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            sessionIds[i] = 1000L + i * 7L;
+        }
+        return sessionIds;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static void report(String mode, int sessionCount, long[] result) {
+        System.out.println(String.format("%-6s sessions=%7d: %6.1f ns/message, %6.2f bytes allocated/message",
+                mode, sessionCount, (double) result[0] / MESSAGE_COUNT, (double) result[1] / MESSAGE_COUNT));
+    }
+}
@@ -40,6 +40,9 @@
  */
 package org.kaazing.mina.core.buffer;
 
+import static org.kaazing.mina.core.buffer.IoBufferPool.BUFFER_POOL;
+import static org.kaazing.mina.core.buffer.IoBufferPool.POOLED_ALLOCATION;
+
 import java.nio.ByteBuffer;
 
 public abstract class AbstractIoBufferAllocatorEx<T extends AbstractIoBufferEx> implements IoBufferAllocatorEx<T> {
@@ -64,11 +67,26 @@ public abstract class AbstractIoBufferAllocatorEx<T extends AbstractIoBufferEx>
     protected final ByteBuffer allocateNioBuffer0(int capacity, int flags) {
         boolean direct = (flags & IoBufferEx.FLAG_DIRECT) != IoBufferEx.FLAG_NONE;
         ByteBuffer nioBuffer;
-        if (direct) {
+        if (POOLED_ALLOCATION && isPoolable(flags)) {
+            // note: shared buffers can be written by many sessions, so they are never pooled
+            nioBuffer = BUFFER_POOL.acquire(capacity, direct);
+        }
+        else if (direct) {
             nioBuffer = ByteBuffer.allocateDirect(capacity);
         } else {
             nioBuffer = ByteBuffer.allocate(capacity);
         }
         return nioBuffer;
     }
+
+    /**
+     * Returns the NIO buffer to the pool, if it was allocated from the pool by the calling thread.
+     */
+    protected static boolean releaseNioBuffer0(ByteBuffer nioBuffer) {
+        return POOLED_ALLOCATION && BUFFER_POOL.release(nioBuffer);
+    }
+
+    private static boolean isPoolable(int flags) {
+        return (flags & (IoBufferEx.FLAG_POOLED | IoBufferEx.FLAG_SHARED)) == IoBufferEx.FLAG_POOLED;
+    }
 }
@@ -77,6 +77,7 @@ public interface IoBufferEx {
     int FLAG_SHARED    = 0x01 << 1;
     int FLAG_DIRECT    = 0x01 << 2;
     int FLAG_ZERO_COPY = 0x01 << 3;
+    int FLAG_POOLED    = 0x01 << 4;
 
     IoBuffer asIoBuffer();
 
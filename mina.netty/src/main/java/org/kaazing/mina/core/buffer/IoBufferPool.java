@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.mina.core.buffer;
+
+import static java.lang.System.getProperty;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * Size-classed pool of NIO buffers with one arena per allocating thread.
+ *
+ * I/O threads (one per NioWorker) each get their own arena, so the acquire and release paths never
+ * contend.  A buffer is only ever recycled into the arena that handed it out, and only if that arena
+ * still remembers it as outstanding, so buffers that were never allocated from the pool (including
+ * wrapped constants) are never reused.  Heap buffers are recognized through their backing array, which
+ * means zero-copy duplicates of a pooled heap buffer can release it too.
+ *
+ * Pooling is disabled by default; enable it with the system property
+ * <tt>org.kaazing.mina.core.buffer.POOLED_ALLOCATION=true</tt>.
+ */
+public final class IoBufferPool {
+
+    public static final boolean POOLED_ALLOCATION =
+            Boolean.valueOf(getProperty("org.kaazing.mina.core.buffer.POOLED_ALLOCATION", "false"));
+
+    public static final IoBufferPool BUFFER_POOL = new IoBufferPool(
+            Integer.parseInt(getProperty("org.kaazing.mina.core.buffer.POOLED_ALLOCATION_MIN_SIZE", "64")),
+            Integer.parseInt(getProperty("org.kaazing.mina.core.buffer.POOLED_ALLOCATION_MAX_SIZE", "65536")),
+            Integer.parseInt(getProperty("org.kaazing.mina.core.buffer.POOLED_ALLOCATION_BUFFERS_PER_CLASS", "64")));
+
+    private final int minShift;
+    private final int maxShift;
+    private final int buffersPerClass;
+    private final List<Arena> arenas;
+    private final ThreadLocal<Arena> arenaRef;
+
+    public IoBufferPool(int minSize, int maxSize, int buffersPerClass) {
+        if (minSize <= 0 || maxSize < minSize) {
+            throw new IllegalArgumentException(String.format("Invalid size range [%d, %d]", minSize, maxSize));
+        }
+        if (buffersPerClass <= 0) {
+            throw new IllegalArgumentException("buffersPerClass must be positive: " + buffersPerClass);
+        }
+        this.minShift = shiftFor(minSize);
+        this.maxShift = shiftFor(maxSize);
+        this.buffersPerClass = buffersPerClass;
+        this.arenas = new CopyOnWriteArrayList<>();
+        this.arenaRef = new VicariousThreadLocal<Arena>() {
+            @Override
+            protected Arena initialValue() {
+                Arena arena = new Arena(Thread.currentThread().getName());
+                arenas.add(arena);
+                return arena;
+            }
+        };
+    }
+
+    /**
+     * Returns a cleared buffer with at least the requested capacity, with its limit set to that capacity.
+     */
+    public ByteBuffer acquire(int capacity, boolean direct) {
+        int shift = shiftFor(capacity);
+        if (shift > maxShift) {
+            // too large to pool
+            Arena arena = arenaRef.get();
+            arena.misses++;
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        Arena arena = arenaRef.get();
+        SizeClass sizeClass = arena.sizeClass(Math.max(shift, minShift) - minShift, direct);
+        ByteBuffer buf = sizeClass.acquire();
+        buf.clear();
+        buf.limit(capacity);
+        return buf;
+    }
+
+    /**
+     * Returns the buffer to the arena of the calling thread.
+     *
+     * @return true if the buffer was recycled, false if it is not known to this thread's arena
+     */
+    public boolean release(ByteBuffer buf) {
+        if (buf == null) {
+            return false;
+        }
+
+        int shift = shiftFor(buf.capacity());
+        if (shift < minShift || shift > maxShift) {
+            return false;
+        }
+
+        Arena arena = arenaRef.get();
+        SizeClass sizeClass = arena.sizeClass(shift - minShift, buf.isDirect());
+        return sizeClass.release(buf);
+    }
+
+    public long getHits() {
+        long hits = 0L;
+        for (Arena arena : arenas) {
+            hits += arena.hits;
+        }
+        return hits;
+    }
+
+    public long getMisses() {
+        long misses = 0L;
+        for (Arena arena : arenas) {
+            misses += arena.misses;
+        }
+        return misses;
+    }
+
+    public long getOutstanding() {
+        long outstanding = 0L;
+        for (Arena arena : arenas) {
+            outstanding += arena.outstanding;
+        }
+        return outstanding;
+    }
+
+    public int getArenaCount() {
+        return arenas.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IoBufferPool [arenas=%d, hits=%d, misses=%d, outstanding=%d]",
+                getArenaCount(), getHits(), getMisses(), getOutstanding());
+    }
+
+    private static int shiftFor(int capacity) {
+        return (capacity <= 1) ? 0 : 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+
+    // note: only mutated by the owning thread, volatile so other threads can read statistics
+    private final class Arena {
+        private final String name;
+        private final SizeClass[] heapClasses;
+        private final SizeClass[] directClasses;
+
+        private volatile long hits;
+        private volatile long misses;
+        private volatile long outstanding;
+
+        Arena(String name) {
+            this.name = name;
+            this.heapClasses = new SizeClass[maxShift - minShift + 1];
+            this.directClasses = new SizeClass[maxShift - minShift + 1];
+        }
+
+        SizeClass sizeClass(int index, boolean direct) {
+            SizeClass[] sizeClasses = direct ? directClasses : heapClasses;
+            SizeClass sizeClass = sizeClasses[index];
+            if (sizeClass == null) {
+                sizeClass = new SizeClass(this, 1 << (index + minShift), direct);
+                sizeClasses[index] = sizeClass;
+            }
+            return sizeClass;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Arena [%s]", name);
+        }
+    }
+
+    private final class SizeClass {
+        private final Arena arena;
+        private final int size;
+        private final boolean direct;
+
+        // recycled buffers ready for reuse (stack)
+        private final ByteBuffer[] free;
+        private int freeCount;
+
+        // buffers handed out and not yet released (ring, oldest entry forgotten when full)
+        private final ByteBuffer[] outstanding;
+        private int outstandingHead;
+        private int outstandingCount;
+
+        SizeClass(Arena arena, int size, boolean direct) {
+            this.arena = arena;
+            this.size = size;
+            this.direct = direct;
+            this.free = new ByteBuffer[buffersPerClass];
+            this.outstanding = new ByteBuffer[buffersPerClass];
+        }
+
+        ByteBuffer acquire() {
+            ByteBuffer buf;
+            if (freeCount > 0) {
+                buf = free[--freeCount];
+                free[freeCount] = null;
+                arena.hits++;
+            }
+            else {
+                buf = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+                arena.misses++;
+            }
+
+            if (outstandingCount == outstanding.length) {
+                // forget the oldest outstanding buffer, it will be garbage collected if never released
+                outstanding[outstandingHead] = null;
+                outstandingHead = (outstandingHead + 1) % outstanding.length;
+                outstandingCount--;
+                arena.outstanding--;
+            }
+            outstanding[(outstandingHead + outstandingCount) % outstanding.length] = buf;
+            outstandingCount++;
+            arena.outstanding++;
+            return buf;
+        }
+
+        boolean release(ByteBuffer buf) {
+            // note: heap buffers match on backing array so that duplicates can release the pooled buffer
+            boolean matchArray = !direct && buf.hasArray();
+            byte[] array = matchArray ? buf.array() : null;
+            for (int i = outstandingCount - 1; i >= 0; i--) {
+                int index = (outstandingHead + i) % outstanding.length;
+                ByteBuffer candidate = outstanding[index];
+                if (candidate == buf || (matchArray && candidate.array() == array)) {
+                    removeOutstanding(i);
+                    if (freeCount < free.length) {
+                        free[freeCount++] = candidate;
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void removeOutstanding(int offset) {
+            int length = outstanding.length;
+            for (int i = offset; i < outstandingCount - 1; i++) {
+                outstanding[(outstandingHead + i) % length] = outstanding[(outstandingHead + i + 1) % length];
+            }
+            outstandingCount--;
+            outstanding[(outstandingHead + outstandingCount) % length] = null;
+            arena.outstanding--;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SizeClass [size=%d, direct=%s, free=%d, outstanding=%d]",
+                    size, direct, freeCount, outstandingCount);
+        }
+    }
+}
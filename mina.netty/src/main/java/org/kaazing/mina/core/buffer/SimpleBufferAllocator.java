@@ -81,6 +81,7 @@ public final class SimpleBufferAllocator extends AbstractIoBufferAllocatorEx<Sim
 
     static final class SimpleUnsharedBuffer extends SimpleBuffer {
         private ByteBuffer buf;
+        private boolean freed;
 
         protected SimpleUnsharedBuffer(ByteBuffer buf) {
             super(buf.capacity());
@@ -150,7 +151,11 @@ public final class SimpleBufferAllocator extends AbstractIoBufferAllocatorEx<Sim
 
         @Override
         public void free() {
-            // do nothing
+            // note: derived buffers do not own the underlying pooled buffer
+            if (!freed && !isDerived()) {
+                freed = true;
+                releaseNioBuffer0(buf);
+            }
         }
     }
 
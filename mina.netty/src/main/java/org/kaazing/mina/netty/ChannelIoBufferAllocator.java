@@ -145,6 +145,7 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
 
     static final class ChannelIoUnsharedBuffer extends ChannelIoBuffer {
         private ByteBuffer buf;
+        private boolean freed;
 
         private ChannelIoUnsharedBuffer(ByteBuffer buf) {
             super(buf.capacity());
@@ -189,6 +190,15 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
             return buf.hasArray();
         }
 
+        @Override
+        public void free() {
+            // note: derived buffers do not own the underlying pooled buffer
+            if (!freed && !isDerived()) {
+                freed = true;
+                releaseNioBuffer0(buf);
+            }
+        }
+
         @Override
         protected ChannelIoSharedBuffer asSharedBuffer0() {
             return new ChannelIoSharedBuffer(buf());
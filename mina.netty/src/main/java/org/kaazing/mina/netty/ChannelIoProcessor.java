@@ -41,7 +41,9 @@ import org.apache.mina.util.ExceptionMonitor;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.DefaultFileRegion;
 
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.service.AbstractIoProcessor;
@@ -305,8 +307,21 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                     }
                 }
                 else if (message instanceof FileRegion) {
-                    FileRegion region = (FileRegion) message;
-                    ChannelFuture future = channel.write(region);  // TODO: FileRegion
+                    // adapt to a Netty file region, transferred by the worker with FileChannel.transferTo (sendfile)
+                    // note: the file channel is owned by the writer, so it is not released after transfer
+                    final FileRegion region = (FileRegion) message;
+                    final long count = region.getRemainingBytes();
+                    DefaultFileRegion channelRegion =
+                            new DefaultFileRegion(region.getFileChannel(), region.getPosition(), count, false);
+                    ChannelFuture future = channel.write(channelRegion);
+                    future.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isSuccess()) {
+                                region.update(count);
+                            }
+                        }
+                    });
                     future.addListener(new ChannelWriteFutureListener(filterChain, req));
                 }
                 else if (message instanceof IoBufferEx && ((IoBufferEx) message).isShared()) {
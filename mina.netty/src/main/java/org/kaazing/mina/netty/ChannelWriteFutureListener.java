@@ -26,6 +26,7 @@ import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.write.WriteRequest;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.kaazing.mina.core.buffer.IoBufferEx;
 
 final class ChannelWriteFutureListener implements ChannelFutureListener {
     private final IoFilterChain filterChain;
@@ -45,12 +46,24 @@ final class ChannelWriteFutureListener implements ChannelFutureListener {
         if (future.isSuccess()) {
 //            filterChain.fireMessageSent(request);
             setFutureWritten(filterChain, request.getFuture());
+            freeWrittenBuffer(request);
         }
         else {
             filterChain.fireExceptionCaught(future.getCause());
         }
     }
 
+    private static void freeWrittenBuffer(WriteRequest request) {
+        // unshared buffers are owned by the write request, return them to the pool (if pooled)
+        Object message = request.getMessage();
+        if (message instanceof IoBufferEx) {
+            IoBufferEx buf = (IoBufferEx) message;
+            if (!buf.isShared()) {
+                buf.free();
+            }
+        }
+    }
+
     private static void setFutureWritten(IoFilterChain filterChain, WriteFuture future) {
         try {
             future.setWritten();
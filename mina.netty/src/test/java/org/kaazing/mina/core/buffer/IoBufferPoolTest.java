@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.mina.core.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class IoBufferPoolTest {
+
+    @Test
+    public void shouldRecycleReleasedHeapBuffer() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        ByteBuffer buf = pool.acquire(100, false);
+        assertEquals(128, buf.capacity());
+        assertEquals(100, buf.limit());
+        assertEquals(1, pool.getOutstanding());
+
+        assertTrue(pool.release(buf));
+        assertEquals(0, pool.getOutstanding());
+
+        ByteBuffer reused = pool.acquire(120, false);
+        assertSame(buf, reused);
+        assertEquals(0, reused.position());
+        assertEquals(120, reused.limit());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void shouldRecycleReleasedDirectBuffer() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        ByteBuffer buf = pool.acquire(64, true);
+        assertTrue(buf.isDirect());
+        assertTrue(pool.release(buf));
+        assertSame(buf, pool.acquire(64, true));
+        assertNotSame(buf, pool.acquire(64, false));
+    }
+
+    @Test
+    public void shouldReleaseHeapBufferThroughDuplicate() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        ByteBuffer buf = pool.acquire(200, false);
+        ByteBuffer duplicate = buf.duplicate();
+        duplicate.position(10);
+        assertTrue(pool.release(duplicate));
+        assertSame(buf, pool.acquire(200, false));
+    }
+
+    @Test
+    public void shouldNotRecycleForeignBuffer() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        assertFalse(pool.release(ByteBuffer.allocate(128)));
+        assertFalse(pool.release(ByteBuffer.wrap(new byte[64])));
+        assertEquals(0, pool.getHits());
+    }
+
+    @Test
+    public void shouldNotRecycleBufferTwice() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        ByteBuffer buf = pool.acquire(64, false);
+        assertTrue(pool.release(buf));
+        assertFalse(pool.release(buf));
+    }
+
+    @Test
+    public void shouldNotPoolOversizedBuffer() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        ByteBuffer buf = pool.acquire(2048, false);
+        assertEquals(2048, buf.capacity());
+        assertFalse(pool.release(buf));
+        assertEquals(0, pool.getOutstanding());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void shouldForgetOldestOutstandingBufferWhenFull() throws Exception {
+        IoBufferPool pool = new IoBufferPool(64, 1024, 2);
+        ByteBuffer first = pool.acquire(64, false);
+        ByteBuffer second = pool.acquire(64, false);
+        ByteBuffer third = pool.acquire(64, false);
+        assertEquals(2, pool.getOutstanding());
+        assertFalse(pool.release(first));
+        assertTrue(pool.release(second));
+        assertTrue(pool.release(third));
+    }
+
+    @Test
+    public void shouldReleaseBufferOnlyToAllocatingThread() throws Exception {
+        final IoBufferPool pool = new IoBufferPool(64, 1024, 4);
+        final ByteBuffer buf = pool.acquire(64, false);
+        final boolean[] released = new boolean[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                released[0] = pool.release(buf);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertFalse(released[0]);
+        assertTrue(pool.release(buf));
+    }
+}
@@ -45,6 +45,8 @@ public final class SslResourceAddress extends ResourceAddress {
     public static final ResourceOption<Boolean> NEED_CLIENT_AUTH = new SslNeedClientAuthOption();
     public static final ResourceOption<KeySelector> KEY_SELECTOR = new SslKeySelectorOption();
     public static final ResourceOption<String[]> PROTOCOLS = new SslProtocolsOption();
+    public static final ResourceOption<Integer> SESSION_CACHE_SIZE = new SslSessionCacheSizeOption();
+    public static final ResourceOption<Integer> SESSION_TIMEOUT = new SslSessionTimeoutOption();
 
     private String[] ciphers;
     private String[] protocols;
@@ -52,6 +54,8 @@ public final class SslResourceAddress extends ResourceAddress {
     private boolean wantClientAuth;
     private boolean needClientAuth;
     private KeySelector keySelector;
+    private int sessionCacheSize = SESSION_CACHE_SIZE.defaultValue();
+    private int sessionTimeout = SESSION_TIMEOUT.defaultValue();
 
 	SslResourceAddress(URI original, URI resource) {
 		super(original, resource);
@@ -75,6 +79,10 @@ public final class SslResourceAddress extends ResourceAddress {
                     return (V) keySelector;
                 case PROTOCOLS:
                     return (V) protocols;
+                case SESSION_CACHE_SIZE:
+                    return (V) Integer.valueOf(sessionCacheSize);
+                case SESSION_TIMEOUT:
+                    return (V) Integer.valueOf(sessionTimeout);
             }
         }
 		
@@ -104,6 +112,12 @@ public final class SslResourceAddress extends ResourceAddress {
                 case PROTOCOLS:
                     protocols = (String[]) value;
                     return;
+                case SESSION_CACHE_SIZE:
+                    sessionCacheSize = (Integer) value;
+                    return;
+                case SESSION_TIMEOUT:
+                    sessionTimeout = (Integer) value;
+                    return;
             }
         }
 
@@ -113,7 +127,8 @@ public final class SslResourceAddress extends ResourceAddress {
 	static class SslResourceOption<T> extends ResourceOption<T> {
 
 	    protected enum Kind { CIPHERS, ENCRYPTION, WANT_CLIENT_AUTH,
-                                    NEED_CLIENT_AUTH, KEY_SELECTOR, PROTOCOLS }
+                                    NEED_CLIENT_AUTH, KEY_SELECTOR, PROTOCOLS,
+                                    SESSION_CACHE_SIZE, SESSION_TIMEOUT }
 		
 		private static final Map<String, ResourceOption<?>> OPTION_NAMES = new HashMap<>();
 
@@ -164,4 +179,18 @@ public final class SslResourceAddress extends ResourceAddress {
             super(Kind.PROTOCOLS, "protocols");
         }
     }
+
+    // number of server sessions cached for resumption, 0 disables resumption
+    private static final class SslSessionCacheSizeOption extends SslResourceOption<Integer> {
+        private SslSessionCacheSizeOption() {
+            super(Kind.SESSION_CACHE_SIZE, "sessionCacheSize", 0);
+        }
+    }
+
+    // lifetime of cached server sessions, in seconds
+    private static final class SslSessionTimeoutOption extends SslResourceOption<Integer> {
+        private SslSessionTimeoutOption() {
+            super(Kind.SESSION_TIMEOUT, "sessionTimeout", 86400);
+        }
+    }
 }
@@ -28,6 +28,8 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.PROTOC
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.ENCRYPTION_ENABLED;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.KEY_SELECTOR;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.NEED_CLIENT_AUTH;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_TIMEOUT;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.TRANSPORT_NAME;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_CLIENT_AUTH;
 
@@ -101,6 +103,16 @@ public class SslResourceAddressFactorySpi extends ResourceAddressFactorySpi<SslR
             options.setOption(PROTOCOLS, protocols);
         }
 
+        Integer sessionCacheSize = (Integer) optionsByName.remove(SESSION_CACHE_SIZE.name());
+        if (sessionCacheSize != null) {
+            options.setOption(SESSION_CACHE_SIZE, sessionCacheSize);
+        }
+
+        Integer sessionTimeout = (Integer) optionsByName.remove(SESSION_TIMEOUT.name());
+        if (sessionTimeout != null) {
+            options.setOption(SESSION_TIMEOUT, sessionTimeout);
+        }
+
     }
     
     @Override
@@ -135,6 +147,8 @@ public class SslResourceAddressFactorySpi extends ResourceAddressFactorySpi<SslR
         address.setOption0(NEED_CLIENT_AUTH, options.getOption(NEED_CLIENT_AUTH));
         address.setOption0(KEY_SELECTOR, options.getOption(KEY_SELECTOR));
         address.setOption0(PROTOCOLS, options.getOption(PROTOCOLS));
+        address.setOption0(SESSION_CACHE_SIZE, options.getOption(SESSION_CACHE_SIZE));
+        address.setOption0(SESSION_TIMEOUT, options.getOption(SESSION_TIMEOUT));
     }
 
 }
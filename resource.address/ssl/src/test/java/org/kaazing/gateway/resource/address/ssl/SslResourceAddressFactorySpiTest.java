@@ -36,6 +36,8 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.PROTOC
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.ENCRYPTION_ENABLED;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.KEY_SELECTOR;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.NEED_CLIENT_AUTH;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_TIMEOUT;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_CLIENT_AUTH;
 
 import java.net.URI;
@@ -62,6 +64,8 @@ public class SslResourceAddressFactorySpiTest {
         options.put("ssl.encryptionEnabled", Boolean.FALSE);
         options.put("ssl.transport", URI.create("tcp://localhost:2121"));
         options.put("ssl.protocols", new String[] { "SSLv3" });
+        options.put("ssl.sessionCacheSize", 20000);
+        options.put("ssl.sessionTimeout", 600);
     }
 
     @Test
@@ -93,6 +97,8 @@ public class SslResourceAddressFactorySpiTest {
         assertFalse(address.getOption(NEED_CLIENT_AUTH));
         assertNull(address.getOption(KEY_SELECTOR));
         assertNull(address.getOption(PROTOCOLS));
+        assertEquals(0, address.getOption(SESSION_CACHE_SIZE).intValue());
+        assertEquals(86400, address.getOption(SESSION_TIMEOUT).intValue());
     }
 
     @Test
@@ -113,5 +119,7 @@ public class SslResourceAddressFactorySpiTest {
         assertEquals(URI.create("tcp://localhost:2121"), address.getOption(TRANSPORT_URI));
         assertFalse(address.getOption(ENCRYPTION_ENABLED));
         assertArrayEquals(new String[] { "SSLv3" }, address.getOption(PROTOCOLS));
+        assertEquals(20000, address.getOption(SESSION_CACHE_SIZE).intValue());
+        assertEquals(600, address.getOption(SESSION_TIMEOUT).intValue());
     }
 }
@@ -28,6 +28,8 @@ import static org.kaazing.gateway.service.TransportOptionNames.SSL_CIPHERS;
 import static org.kaazing.gateway.service.TransportOptionNames.SSL_ENCRYPTION_ENABLED;
 import static org.kaazing.gateway.service.TransportOptionNames.SSL_NEED_CLIENT_AUTH;
 import static org.kaazing.gateway.service.TransportOptionNames.SSL_PROTOCOLS;
+import static org.kaazing.gateway.service.TransportOptionNames.SSL_SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.service.TransportOptionNames.SSL_SESSION_TIMEOUT;
 import static org.kaazing.gateway.service.TransportOptionNames.SSL_TRANSPORT;
 import static org.kaazing.gateway.service.TransportOptionNames.SSL_WANT_CLIENT_AUTH;
 import static org.kaazing.gateway.service.TransportOptionNames.SUPPORTED_PROTOCOLS;
@@ -200,6 +202,8 @@ public class DefaultAcceptOptionsContext implements AcceptOptionsContext {
         result.put(SSL_CIPHERS, getSslCiphers());
         result.put(SSL_PROTOCOLS, getSslProtocols());
         result.put(SSL_ENCRYPTION_ENABLED, isSslEncryptionEnabled());
+        result.put(SSL_SESSION_CACHE_SIZE, getSslSessionCacheSize());
+        result.put(SSL_SESSION_TIMEOUT, getSslSessionTimeout());
 
         result.put(HTTP_SERVER_HEADER_ENABLED, isHttpServerHeaderEnabled());
 
@@ -408,6 +412,36 @@ public class DefaultAcceptOptionsContext implements AcceptOptionsContext {
         return sslCiphers;
     }
 
+    private Integer getSslSessionCacheSize() {
+        Integer sslSessionCacheSize = null;
+        String sslSessionCacheSizeValue = options.get("ssl.session.cache.size");
+        if (sslSessionCacheSizeValue != null) {
+            try {
+                sslSessionCacheSize = Integer.valueOf(sslSessionCacheSizeValue.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(format(
+                        "ssl.session.cache.size must be a number of sessions, not \"%s\"", sslSessionCacheSizeValue), e);
+            }
+            if (sslSessionCacheSize < 0) {
+                throw new IllegalArgumentException(format(
+                        "ssl.session.cache.size must not be negative, not \"%s\"", sslSessionCacheSizeValue));
+            }
+        }
+        return sslSessionCacheSize;
+    }
+
+    private Integer getSslSessionTimeout() {
+        Integer sslSessionTimeout = null;
+        String sslSessionTimeoutValue = options.get("ssl.session.timeout");
+        if (sslSessionTimeoutValue != null) {
+            long val = Utils.parseTimeInterval(sslSessionTimeoutValue, TimeUnit.SECONDS);
+            if (val > 0) {
+                sslSessionTimeout = (int) Math.min(val, Integer.MAX_VALUE);
+            }
+        }
+        return sslSessionTimeout;
+    }
+
     private int getHttpKeepaliveTimeout() {
         int httpKeepaliveTimeout = DEFAULT_HTTP_KEEPALIVE_TIMEOUT;
         String httpKeepaliveTimeoutValue = options.get("http.keepalive.timeout");
@@ -78,13 +78,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.BALANCER_MAP_NAME;
 import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.MEMBERID_BALANCER_MAP_NAME;
+import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.BALANCEE_LOAD_MAP_NAME;
+import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.LOAD_AWARE_BALANCER_MAP_NAME;
 
 /**
  * ClusterContext for KEG
  * <p/>
  * <br>Balancer data<ol> <li> HttpBalancerService.MEMBERID_BALANCER_MAP_NAME: <ul><li> List of balanced URIs for one member
  * <li>Key: Cluster member id <li>Value: Map(key: balancerURI, value: acceptURIs) </ul> <li>HttpBalancerService.BALANCER_MAP_NAME
- * <ul><li> List of balanced URIs for whole cluster <li>Key: balanceURI <li>Value: acceptURIs </ul> </ol>
+ * <ul><li> List of balanced URIs for whole cluster <li>Key: balanceURI <li>Value: acceptURIs </ul>
+ * <li>HttpBalancerService.LOAD_AWARE_BALANCER_MAP_NAME: <ul><li> Balanced URIs whose balancer needs balancee session counts
+ * <li>Key: balanceURI <li>Value: selection strategy name </ul> </ol>
  */
 public class DefaultClusterContext implements ClusterContext, LogListener {
 
@@ -192,6 +196,8 @@ public class DefaultClusterContext implements ClusterContext, LogListener {
         sharedBalancerMapConfig.setBackupCount(Integer.MAX_VALUE);
         MapConfig memberBalancerMapConfig = hazelCastConfig.getMapConfig(MEMBERID_BALANCER_MAP_NAME);
         memberBalancerMapConfig.setBackupCount(Integer.MAX_VALUE);
+        MapConfig loadAwareBalancerMapConfig = hazelCastConfig.getMapConfig(LOAD_AWARE_BALANCER_MAP_NAME);
+        loadAwareBalancerMapConfig.setBackupCount(Integer.MAX_VALUE);
 
         // disable port auto increment
         hazelCastConfig.setPortAutoIncrement(false);
@@ -526,6 +532,14 @@ public class DefaultClusterContext implements ClusterContext, LogListener {
                     throw new IllegalStateException("Unable to remove the balanced URIs served by the member going down from " +
                             "global map");
                 }
+
+                // the member can no longer remove its own published session counts
+                Map<URI, Integer> balanceeLoadMap = getCollectionsFactory().getMap(BALANCEE_LOAD_MAP_NAME);
+                for (List<URI> memberBalancedUris : memberBalancedUrisMap.values()) {
+                    for (URI memberBalancedUri : memberBalancedUris) {
+                        balanceeLoadMap.remove(memberBalancedUri);
+                    }
+                }
             }
 
             fireMemberRemoved(removedMember);
@@ -23,6 +23,7 @@ package org.kaazing.gateway.server.context.resolve;
 
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.kaazing.gateway.resource.address.ResourceAddress.CONNECT_REQUIRES_INIT;
 import static org.kaazing.gateway.resource.address.ResourceAddress.TRANSPORT;
 import static org.kaazing.gateway.server.context.resolve.DefaultClusterContext.CLUSTER_LOGGER_NAME;
@@ -49,6 +50,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.crypto.Cipher;
@@ -90,12 +93,16 @@ import org.kaazing.mina.core.session.IoSessionEx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.EntryListener;
 import com.hazelcast.core.IMap;
 
 public class DefaultServiceContext implements ServiceContext {
 
     public static final String BALANCER_MAP_NAME = "balancerMap";
     public static final String MEMBERID_BALANCER_MAP_NAME = "memberIdBalancerMap";
+    public static final String BALANCEE_LOAD_MAP_NAME = "balanceeLoadMap";
+    public static final String LOAD_AWARE_BALANCER_MAP_NAME = "loadAwareBalancerMap";
 
     private static final Charset UTF_8 = Charset.forName("UTF-8");
     private static final String[] EMPTY_REQUIRE_ROLES = new String[]{};
@@ -154,9 +161,12 @@ public class DefaultServiceContext implements ServiceContext {
     private final boolean supportsConnects;
     private final boolean supportsMimeMappings;
     private final int processorCount;
+    private final long balanceeLoadInterval;
     private int hashCode = -1;
 
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private EntryListener<URI, String> loadAwareBalancerListener;
+    private ScheduledFuture<?> balanceeLoadPublisher;
     private final Map<String, Object> serviceSpecificObjects;
 
     /**
@@ -206,6 +216,7 @@ public class DefaultServiceContext implements ServiceContext {
                 true,
                 false,
                 1,
+                0L,
                 TransportFactory.newTransportFactory(Collections.EMPTY_MAP),
                 ResourceAddressFactory.newResourceAddressFactory()
         );
@@ -234,6 +245,7 @@ public class DefaultServiceContext implements ServiceContext {
                                  boolean supportsConnects,
                                  boolean supportsMimeMappings,
                                  int processorCount,
+                                 long balanceeLoadInterval,
                                  TransportFactory transportFactory,
                                  ResourceAddressFactory resourceAddressFactory) {
         this.serviceType = serviceType;
@@ -263,6 +275,7 @@ public class DefaultServiceContext implements ServiceContext {
         this.supportsConnects = supportsConnects;
         this.supportsMimeMappings = supportsMimeMappings;
         this.processorCount = processorCount;
+        this.balanceeLoadInterval = balanceeLoadInterval;
         this.transportFactory = transportFactory;
         this.resourceAddressFactory = resourceAddressFactory;
         this.serviceSpecificObjects = new HashMap<>();
@@ -602,10 +615,116 @@ public class DefaultServiceContext implements ServiceContext {
                 }
 
                 memberIdBalancerUriMap.put(localMember, memberBalanceUriMap);
+                watchLoadAwareBalancers(factory);
             }
         }
     }
 
+    /**
+     * Starts the balancee load publisher as soon as one of the balance URIs of this service is registered by a balancer
+     * with a load aware selection strategy, which may happen before or after this service is bound.
+     */
+    private void watchLoadAwareBalancers(final CollectionsFactory factory) {
+        if (schedulerProvider == null || balanceeLoadInterval <= 0L) {
+            return;
+        }
+
+        EntryListener<URI, String> listener = new EntryListener<URI, String>() {
+            @Override
+            public void entryAdded(EntryEvent<URI, String> event) {
+                if (balances.contains(event.getKey())) {
+                    startBalanceeLoadPublisher(factory, this);
+                }
+            }
+
+            @Override
+            public void entryUpdated(EntryEvent<URI, String> event) {
+                entryAdded(event);
+            }
+
+            @Override
+            public void entryRemoved(EntryEvent<URI, String> event) {
+            }
+
+            @Override
+            public void entryEvicted(EntryEvent<URI, String> event) {
+            }
+        };
+
+        IMap<URI, String> loadAwareBalancerMap = factory.getMap(LOAD_AWARE_BALANCER_MAP_NAME);
+        synchronized (this) {
+            loadAwareBalancerListener = listener;
+        }
+        loadAwareBalancerMap.addEntryListener(listener, false);
+
+        // the balancer may have registered before the listener was added
+        for (URI balanceURI : balances) {
+            if (loadAwareBalancerMap.containsKey(balanceURI)) {
+                startBalanceeLoadPublisher(factory, listener);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Publishes the live session count of this service for each of its accept URIs to the cluster balancee load map
+     * on a fixed interval, so that load aware balancers can prefer lightly loaded balancees.  Every interval writes the
+     * count again, so an entry lost by the cluster is restored on the next run.
+     */
+    private synchronized void startBalanceeLoadPublisher(CollectionsFactory factory, EntryListener<URI, String> listener) {
+        // ignore events delivered after the service was unbound
+        if (balanceeLoadPublisher != null || loadAwareBalancerListener != listener) {
+            return;
+        }
+
+        final Map<URI, Integer> balanceeLoadMap = factory.getMap(BALANCEE_LOAD_MAP_NAME);
+        final List<URI> balanceeURIs = new ArrayList<>(accepts);
+        Runnable publishLoad = new Runnable() {
+            @Override
+            public void run() {
+                int load = activeSessions.size();
+                try {
+                    for (URI balanceeURI : balanceeURIs) {
+                        balanceeLoadMap.put(balanceeURI, load);
+                    }
+                } catch (RuntimeException e) {
+                    // keep publishing, the next attempt may succeed once the cluster has recovered
+                    GL.debug(CLUSTER_LOGGER_NAME, "Unable to publish balancee load for service {}: {}", serviceType, e);
+                }
+            }
+        };
+
+        ScheduledExecutorService scheduler = schedulerProvider.getScheduler("balancee_load", false);
+        balanceeLoadPublisher = scheduler.scheduleWithFixedDelay(publishLoad, 0L, balanceeLoadInterval, MILLISECONDS);
+    }
+
+    private void stopBalanceeLoadPublisher(CollectionsFactory factory) {
+        EntryListener<URI, String> listener;
+        ScheduledFuture<?> publisher;
+        synchronized (this) {
+            listener = loadAwareBalancerListener;
+            publisher = balanceeLoadPublisher;
+            loadAwareBalancerListener = null;
+            balanceeLoadPublisher = null;
+        }
+
+        if (listener != null) {
+            IMap<URI, String> loadAwareBalancerMap = factory.getMap(LOAD_AWARE_BALANCER_MAP_NAME);
+            loadAwareBalancerMap.removeEntryListener(listener);
+        }
+
+        if (publisher == null) {
+            return;
+        }
+
+        publisher.cancel(false);
+
+        Map<URI, Integer> balanceeLoadMap = factory.getMap(BALANCEE_LOAD_MAP_NAME);
+        for (URI balanceeURI : accepts) {
+            balanceeLoadMap.remove(balanceeURI);
+        }
+    }
+
     private Map<String, Object> buildResourceAddressOptions(URI transportURI, AcceptOptionsContext acceptOptionsContext) {
         // options is a new HashMap
         final Map<String, Object> options = acceptOptionsContext.asOptionsMap();
@@ -882,6 +1001,8 @@ public class DefaultServiceContext implements ServiceContext {
                     throw new IllegalStateException("Member balancerMap is null for member " + localMember);
                 }
 
+                stopBalanceeLoadPublisher(factory);
+
                 IMap<URI, Set<URI>> sharedBalanceUriMap = factory.getMap(BALANCER_MAP_NAME);
                 for (URI balanceURI : balances) {
                     if (accepts != null) {
@@ -660,6 +660,8 @@ public class GatewayContextResolver {
                             supportsConnects(serviceType),
                             supportsMimeMappings(serviceType),
                             InternalSystemProperty.TCP_PROCESSOR_COUNT.getIntProperty(configuration),
+                            Utils.parseTimeInterval(InternalSystemProperty.BALANCEE_LOAD_INTERVAL.getProperty(configuration),
+                                    TimeUnit.MILLISECONDS),
                             transportFactory,
                             resourceAddressFactory);
 
@@ -21,8 +21,15 @@
 
 package org.kaazing.gateway.server.context.resolve;
 
+import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.BALANCER_MAP_NAME;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.EntryListener;
+import com.hazelcast.core.IMap;
 import com.hazelcast.core.IdGenerator;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -30,6 +37,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import org.kaazing.gateway.server.messaging.buffer.MemoryMessageBufferFactory;
+import org.kaazing.gateway.server.messaging.buffer.RingMessageBufferFactory;
 import org.kaazing.gateway.service.cluster.BalancerMapListener;
 import org.kaazing.gateway.service.cluster.ClusterConnectOptionsContext;
 import org.kaazing.gateway.service.cluster.ClusterContext;
@@ -53,13 +61,16 @@ public class StandaloneClusterContext implements ClusterContext {
     private final CollectionsFactory collectionsFactory;
     private final ConcurrentMap<Object, Lock> locks;
     private final ConcurrentMap<String, IdGeneratorImpl> idGenerators;
+    private final ConcurrentMap<BalancerMapListener, EntryListener<URI, Collection<URI>>> balancerMapListeners;
     private final String localInstanceKey = Utils.randomHexString(16);
 
     public StandaloneClusterContext() {
-        this.messageBufferFactory = new MemoryMessageBufferFactory();
+        this.messageBufferFactory = RingMessageBufferFactory.RING_BUFFER ? new RingMessageBufferFactory()
+                : new MemoryMessageBufferFactory();
         this.collectionsFactory = new MemoryCollectionsFactory();
         this.locks = new ConcurrentHashMap<>();
         this.idGenerators = new ConcurrentHashMap<>();
+        this.balancerMapListeners = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -84,12 +95,25 @@ public class StandaloneClusterContext implements ClusterContext {
 
     @Override
     public void addBalancerMapListener(BalancerMapListener balancerMapListener) {
-        // this is a no-op
+        if (balancerMapListener != null) {
+            // the balancer map is local, so listen to it directly rather than through cluster events
+            EntryListener<URI, Collection<URI>> entryListener = new BalancerMapEntryListener(balancerMapListener);
+            if (balancerMapListeners.putIfAbsent(balancerMapListener, entryListener) == null) {
+                IMap<URI, Collection<URI>> balancerMap = collectionsFactory.getMap(BALANCER_MAP_NAME);
+                balancerMap.addEntryListener(entryListener, true);
+            }
+        }
     }
 
     @Override
     public void removeBalancerMapListener(BalancerMapListener balancerMapListener) {
-        // this is a no-op
+        if (balancerMapListener != null) {
+            EntryListener<URI, Collection<URI>> entryListener = balancerMapListeners.remove(balancerMapListener);
+            if (entryListener != null) {
+                IMap<URI, Collection<URI>> balancerMap = collectionsFactory.getMap(BALANCER_MAP_NAME);
+                balancerMap.removeEntryListener(entryListener);
+            }
+        }
     }
 
     @Override
@@ -257,4 +281,32 @@ public class StandaloneClusterContext implements ClusterContext {
             return InstanceType.ID_GENERATOR;
         }
     }
+
+    private static final class BalancerMapEntryListener implements EntryListener<URI, Collection<URI>> {
+        private final BalancerMapListener listener;
+
+        BalancerMapEntryListener(BalancerMapListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void entryAdded(EntryEvent<URI, Collection<URI>> event) {
+            listener.balancerEntryAdded(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<URI, Collection<URI>> event) {
+            listener.balancerEntryRemoved(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<URI, Collection<URI>> event) {
+            listener.balancerEntryUpdated(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<URI, Collection<URI>> event) {
+            listener.balancerEntryRemoved(event.getKey(), event.getValue());
+        }
+    }
 }
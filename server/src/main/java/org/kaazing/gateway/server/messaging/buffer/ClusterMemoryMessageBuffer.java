@@ -21,11 +21,18 @@
 
 package org.kaazing.gateway.server.messaging.buffer;
 
+import static java.lang.System.getProperty;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ITopic;
 import com.hazelcast.core.MessageListener;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import org.kaazing.gateway.service.messaging.MessagingMessage;
 import org.kaazing.gateway.service.messaging.buffer.MessageBuffer;
 import org.kaazing.gateway.service.messaging.buffer.MessageBufferEntry;
@@ -33,14 +40,31 @@ import org.kaazing.gateway.service.messaging.buffer.MessageBufferListener;
 import org.kaazing.gateway.util.GL;
 import org.kaazing.gateway.util.Utils;
 
+/**
+ * Message buffer replicated to the other cluster members over a topic.
+ *
+ * By default every entry is published as soon as it is added.  When the system property
+ * <tt>org.kaazing.gateway.server.messaging.buffer.REPLICATION_BATCH_SIZE</tt> is greater than 1, entries are
+ * instead coalesced into a {@link MessageBufferEntryBatch} that is published once it holds that many entries, or
+ * <tt>org.kaazing.gateway.server.messaging.buffer.REPLICATION_BATCH_DELAY</tt> milliseconds (default 2) after its
+ * first entry was added, whichever comes first.  Receivers apply each batch with a single write lock acquisition.
+ * Members accept both forms, whichever mode they publish with.
+ */
 public class ClusterMemoryMessageBuffer implements MessageBuffer, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    static final int REPLICATION_BATCH_SIZE =
+            Integer.parseInt(getProperty("org.kaazing.gateway.server.messaging.buffer.REPLICATION_BATCH_SIZE", "1"));
+
+    static final long REPLICATION_BATCH_DELAY =
+            Long.parseLong(getProperty("org.kaazing.gateway.server.messaging.buffer.REPLICATION_BATCH_DELAY", "2"));
+
     private String topicName;
 
-    private transient MessageBuffer buffer;
-    private transient ITopic<MessageBufferEntry> topic;
+    private transient MemoryMessageBuffer buffer;
+    private transient ITopic<Object> topic;
+    private transient BatchPublisher batchPublisher;
 
     private HazelcastInstance cluster;
 
@@ -71,13 +95,21 @@ public class ClusterMemoryMessageBuffer implements MessageBuffer, Serializable {
         buffer = new MemoryMessageBuffer(capacity);
         GL.debug("messaging", "Cluster message buffer listening on {}", topicName);
         topic = cluster.getTopic(topicName);
-        topic.addMessageListener(new MessageListener<MessageBufferEntry>() {
+        batchPublisher = (REPLICATION_BATCH_SIZE > 1) ? new BatchPublisher() : null;
+        topic.addMessageListener(new MessageListener<Object>() {
             @Override
-            public void onMessage(MessageBufferEntry entry) {
-                if (entry == null) {
+            public void onMessage(Object message) {
+                if (message == null) {
                     GL.debug("messaing", "Received null entry");
                     return;
                 }
+                if (message instanceof MessageBufferEntryBatch) {
+                    MessageBufferEntryBatch batch = (MessageBufferEntryBatch) message;
+                    GL.debug("messaging", "Received message entry batch {}", batch);
+                    buffer.setYounger(batch);
+                    return;
+                }
+                MessageBufferEntry entry = (MessageBufferEntry) message;
                 int id = entry.getId();
                 if (id > buffer.getYoungestId()) {
                     GL.debug("messaging", "Received message entry {}", entry);
@@ -92,6 +124,9 @@ public class ClusterMemoryMessageBuffer implements MessageBuffer, Serializable {
     @Override
     public MessageBufferEntry add(MessagingMessage message) {
         GL.debug("messaging", "Received message {}", message);
+        if (batchPublisher != null) {
+            return batchPublisher.add(message);
+        }
         MessageBufferEntry entry = buffer.add(message);
         if (entry != null) {
             topic.publish(entry);
@@ -147,4 +182,51 @@ public class ClusterMemoryMessageBuffer implements MessageBuffer, Serializable {
         return sb.toString();
     }
 
+    private final class BatchPublisher implements Runnable {
+
+        private MessageBufferEntryBatch batch;
+        private ScheduledFuture<?> publishFuture;
+
+        // note: entries are added to the buffer and the batch together, so batches are published in id order
+        synchronized MessageBufferEntry add(MessagingMessage message) {
+            MessageBufferEntry entry = buffer.add(message);
+            if (batch == null) {
+                batch = new MessageBufferEntryBatch(REPLICATION_BATCH_SIZE);
+                publishFuture = BatchScheduler.INSTANCE.schedule(this, REPLICATION_BATCH_DELAY, MILLISECONDS);
+            }
+            batch.add(entry.getId(), entry.getMessage());
+            if (batch.size() >= REPLICATION_BATCH_SIZE) {
+                publishFuture.cancel(false);
+                publish();
+            }
+            return entry;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (batch != null) {
+                publish();
+            }
+        }
+
+        private void publish() {
+            MessageBufferEntryBatch batch = this.batch;
+            this.batch = null;
+            publishFuture = null;
+            topic.publish(batch);
+        }
+    }
+
+    // note: only created when batching is enabled
+    private static final class BatchScheduler {
+        static final ScheduledExecutorService INSTANCE = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ClusterMemoryMessageBuffer-replication");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
 }
@@ -89,6 +89,35 @@ public class MemoryMessageBuffer implements MessageBuffer {
         }
     }
 
+    /**
+     * Sets the entries of the batch that are younger than the youngest entry in this buffer, with a single
+     * acquisition of the write lock.
+     *
+     * @return the number of entries set
+     */
+    public int setYounger(MessageBufferEntryBatch batch) {
+        writeLock.lock();
+        try {
+            int youngestId = nextId - 1;
+            int count = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                int index = batch.getId(i);
+                if (index > youngestId) {
+                    if (nextId <= index) {
+                        nextId = index + 1;
+                    }
+                    MessageBufferEntry m = new MessageBufferEntry(index, batch.getMessage(i));
+                    messages[index % capacity] = m;
+                    listenerSupport.messageAdded(m);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     @Override
     public MessageBufferEntry get(int id) {
         if (id < 1) {
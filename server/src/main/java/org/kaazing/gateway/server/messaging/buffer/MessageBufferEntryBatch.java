@@ -0,0 +1,250 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import com.hazelcast.nio.DataSerializable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import org.kaazing.gateway.server.messaging.DefaultMessagingMessage;
+import org.kaazing.gateway.service.messaging.MessagingMessage;
+
+/**
+ * Message buffer entries published to the cluster together, in the order they were added.
+ *
+ * Entries are written with a compact binary encoding rather than Java serialization: message ids, strings and
+ * byte arrays are written as UTF-8 or raw bytes with a length prefix, and primitive wrapper payloads and attribute
+ * values are written as tagged primitives.  Any other value falls back to Java serialization, so must be
+ * Serializable.  Messages are read back as {@link DefaultMessagingMessage}s.
+ */
+public class MessageBufferEntryBatch implements DataSerializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_BYTES = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_OBJECT = 7;
+
+    private int[] ids;
+    private MessagingMessage[] messages;
+    private int size;
+
+    // used by the cluster to read batches
+    public MessageBufferEntryBatch() {
+        this(8);
+    }
+
+    public MessageBufferEntryBatch(int capacity) {
+        ids = new int[capacity];
+        messages = new MessagingMessage[capacity];
+    }
+
+    public void add(int id, MessagingMessage message) {
+        if (size == ids.length) {
+            int capacity = Math.max(size * 2, 8);
+            ids = Arrays.copyOf(ids, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+        }
+        ids[size] = id;
+        messages[size] = message;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public MessagingMessage getMessage(int index) {
+        return messages[index];
+    }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            MessagingMessage message = messages[i];
+            out.writeInt(ids[i]);
+            writeString(out, message.getId());
+            writeValue(out, message.getPayload());
+
+            int attributeCount = 0;
+            for (Iterator<?> attributes = message.attributes().iterator(); attributes.hasNext(); attributes.next()) {
+                attributeCount++;
+            }
+            out.writeInt(attributeCount);
+            for (Map.Entry<String, Object> attribute : message.attributes()) {
+                writeString(out, attribute.getKey());
+                writeValue(out, attribute.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        int count = in.readInt();
+        ids = new int[count];
+        messages = new MessagingMessage[count];
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            DefaultMessagingMessage message = new DefaultMessagingMessage();
+            message.setId(readString(in));
+            message.setPayload(readValue(in));
+
+            int attributeCount = in.readInt();
+            for (int j = 0; j < attributeCount; j++) {
+                message.setAttribute(readString(in), readValue(in));
+            }
+            add(id, message);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[size=").append(size);
+        if (size > 0) {
+            sb.append(",ids=").append(ids[0]).append("..").append(ids[size - 1]);
+        }
+        sb.append(']');
+        return sb.toString();
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        }
+        else {
+            // note: DataOutput.writeUTF is limited to 64K bytes
+            byte[] bytes = value.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        }
+        else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        }
+        else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(TYPE_BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream objects = new ObjectOutputStream(bytes);
+            objects.writeObject(value);
+            objects.close();
+            out.writeByte(TYPE_OBJECT);
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_BYTES:
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return bytes;
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_BOOLEAN:
+            return in.readBoolean();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_OBJECT:
+            byte[] serialized = new byte[in.readInt()];
+            in.readFully(serialized);
+            ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(serialized));
+            try {
+                return objects.readObject();
+            }
+            catch (ClassNotFoundException e) {
+                throw new IOException("Unable to read message buffer entry value", e);
+            }
+            finally {
+                objects.close();
+            }
+        default:
+            throw new IOException("Unexpected message buffer entry value type: " + type);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.kaazing.gateway.service.messaging.MessagingMessage;
+import org.kaazing.gateway.service.messaging.buffer.MessageBuffer;
+import org.kaazing.gateway.service.messaging.buffer.MessageBufferEntry;
+import org.kaazing.gateway.service.messaging.buffer.MessageBufferListener;
+
+/**
+ * Message buffer for one writer and many readers, where reads never take a lock.
+ *
+ * Each slot holds the entry most recently written to it, and the entry carries its own id, so a reader can tell
+ * when the slot it reads has since been reused for a younger entry.  The writer stores the entry in its slot before
+ * it publishes the new youngest id, so readers that see an id also see its entry.  Writers are serialized with
+ * each other (a cluster buffer is written by local publishers and by replication), but never wait for readers.
+ * Listeners are notified while the writer lock is held, so they see entries in the order they were written.
+ */
+public class RingMessageBuffer implements MessageBuffer {
+
+    private final MessageBufferListenerSupport listenerSupport;
+    private final AtomicReferenceArray<MessageBufferEntry> slots;
+    private final int capacity;
+
+    // only written while holding the writer lock, volatile so readers see the entries before it
+    private volatile int nextId;
+
+    public RingMessageBuffer(int capacity) {
+        listenerSupport = new MessageBufferListenerSupport();
+        this.capacity = capacity;
+        slots = new AtomicReferenceArray<>(capacity);
+        nextId = 1;
+    }
+
+    @Override
+    public MessageBufferEntry add(MessagingMessage message) {
+        MessageBufferEntry m;
+        synchronized (slots) {
+            int id = nextId;
+            m = new MessageBufferEntry(id, message);
+            slots.lazySet(id % capacity, m);
+            nextId = id + 1;
+            listenerSupport.messageAdded(m);
+        }
+        return m;
+    }
+
+    @Override
+    public MessageBufferEntry set(int index, MessagingMessage message) {
+        MessageBufferEntry m = new MessageBufferEntry(index, message);
+        synchronized (slots) {
+            slots.lazySet(index % capacity, m);
+            if (nextId <= index) {
+                nextId = index + 1;
+            }
+            listenerSupport.messageAdded(m);
+        }
+        return m;
+    }
+
+    @Override
+    public MessageBufferEntry get(int id) {
+        if (id < 1) {
+            return null;
+        }
+        int nextId = this.nextId;
+        if (id >= nextId || id < (nextId - capacity)) {
+            return null;
+        }
+        MessageBufferEntry message = slots.get(id % capacity);
+        return (message != null && message.getId() == id) ? message : null;
+    }
+
+    @Override
+    public int getYoungestId() {
+        return nextId - 1;
+    }
+
+    @Override
+    public int getOldestId() {
+        int id = nextId - capacity;
+        return (id < 1) ? 1 : id;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public void addMessageBufferListener(MessageBufferListener listener) {
+        listenerSupport.addMessageBufferListener(listener);
+    }
+
+    @Override
+    public void removeMessageBufferListener(MessageBufferListener listener) {
+        listenerSupport.removeMessageBufferListener(listener);
+    }
+
+}
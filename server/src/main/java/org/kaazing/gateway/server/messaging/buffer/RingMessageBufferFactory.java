@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import static java.lang.System.getProperty;
+
+import org.kaazing.gateway.service.messaging.buffer.MessageBufferFactory;
+
+/**
+ * Creates {@link RingMessageBuffer}s.  Used in place of {@link MemoryMessageBufferFactory} when the system property
+ * <tt>org.kaazing.gateway.server.messaging.buffer.RING_BUFFER=true</tt> is set.
+ */
+public class RingMessageBufferFactory implements MessageBufferFactory {
+
+    public static final boolean RING_BUFFER =
+            Boolean.valueOf(getProperty("org.kaazing.gateway.server.messaging.buffer.RING_BUFFER", "false"));
+
+    @Override
+    public RingMessageBuffer createMessageBuffer(int capacity) {
+        return new RingMessageBuffer(capacity);
+    }
+
+}
@@ -219,6 +219,14 @@ public class AcceptOptionsTest {
         expectParseFailure("ssl.encryption", "badvalue");
     }
 
+    @Test
+    public void testSslSessionCacheOptions() throws Exception {
+        expectSuccess("ssl.session.cache.size", "20000", TransportOptionNames.SSL_SESSION_CACHE_SIZE, 20000);
+        expectSuccess("ssl.session.cache.size", "0", TransportOptionNames.SSL_SESSION_CACHE_SIZE, 0);
+        expectSuccess("ssl.session.timeout", "10 minutes", TransportOptionNames.SSL_SESSION_TIMEOUT, 600);
+        expectSuccess("ssl.session.timeout", "30 seconds", TransportOptionNames.SSL_SESSION_TIMEOUT, 30);
+    }
+
     @Test(expected = GatewayConfigParserException.class)
     public void testNegativeHttpKeepaliveTimeout() throws Exception {
         File configFile = null;
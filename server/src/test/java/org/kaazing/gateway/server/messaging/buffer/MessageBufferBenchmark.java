@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.server.messaging.DefaultMessagingMessage;
+import org.kaazing.gateway.service.messaging.MessagingMessage;
+import org.kaazing.gateway.service.messaging.buffer.MessageBuffer;
+
+/**
+ * Compares the locking and ring message buffers with one writer and a growing number of readers, each reader
+ * repeatedly catching up from the last id it has read (as a client resuming from a sequence id would).
+ *
+ * Run with: java -cp ... org.kaazing.gateway.server.messaging.buffer.MessageBufferBenchmark
+ */
+public class MessageBufferBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final int[] READER_COUNTS = { 1, 4, 16 };
+    private static final long DURATION_MILLIS = 2000L;
+
+    public static void main(String... args) throws Exception {
+        for (int readerCount : READER_COUNTS) {
+            // warm up
+            run(new MemoryMessageBuffer(CAPACITY), readerCount);
+            run(new RingMessageBuffer(CAPACITY), readerCount);
+
+            report("locking", readerCount, run(new MemoryMessageBuffer(CAPACITY), readerCount));
+            report("ring", readerCount, run(new RingMessageBuffer(CAPACITY), readerCount));
+        }
+    }
+
+    private static long[] run(final MessageBuffer buffer, int readerCount) throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong reads = new AtomicLong();
+        final CountDownLatch started = new CountDownLatch(readerCount + 1);
+
+        Thread[] readers = new Thread[readerCount];
+        for (int i = 0; i < readerCount; i++) {
+            readers[i] = new Thread("reader-" + i) {
+                @Override
+                public void run() {
+                    long count = 0L;
+                    int lastId = 0;
+                    started.countDown();
+                    while (running.get()) {
+                        int youngestId = buffer.getYoungestId();
+                        for (int id = Math.max(lastId + 1, buffer.getOldestId()); id <= youngestId; id++) {
+                            if (buffer.get(id) != null) {
+                                count++;
+                            }
+                        }
+                        lastId = youngestId;
+                    }
+                    reads.addAndGet(count);
+                }
+            };
+            readers[i].start();
+        }
+
+        final AtomicLong writes = new AtomicLong();
+        Thread writer = new Thread("writer") {
+            @Override
+            public void run() {
+                MessagingMessage message = new DefaultMessagingMessage();
+                long count = 0L;
+                started.countDown();
+                while (running.get()) {
+                    buffer.add(message);
+                    count++;
+                }
+                writes.set(count);
+            }
+        };
+        writer.start();
+
+        started.await();
+        Thread.sleep(DURATION_MILLIS);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        return new long[] { writes.get(), reads.get() };
+    }
+
+    private static void report(String name, int readerCount, long[] counts) {
+        double seconds = DURATION_MILLIS / 1000.0;
+        System.out.println(String.format("%-8s readers=%-3d writes/sec=%,14.0f reads/sec=%,14.0f",
+                name, readerCount, counts[0] / seconds, counts[1] / seconds));
+    }
+
+}
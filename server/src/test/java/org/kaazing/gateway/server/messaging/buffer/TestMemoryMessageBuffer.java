@@ -24,6 +24,7 @@ package org.kaazing.gateway.server.messaging.buffer;
 import org.junit.Test;
 import org.kaazing.gateway.server.messaging.DefaultMessagingMessage;
 import org.kaazing.gateway.service.messaging.buffer.MessageBuffer;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -126,4 +127,26 @@ public class TestMemoryMessageBuffer {
 
     }
 
+    @Test
+    public void testSetYounger() throws Exception {
+
+        MemoryMessageBuffer buffer = new MemoryMessageBuffer(10);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(new DefaultMessagingMessage());
+        }
+
+        MessageBufferEntryBatch batch = new MessageBufferEntryBatch(4);
+        DefaultMessagingMessage older = new DefaultMessagingMessage();
+        DefaultMessagingMessage younger = new DefaultMessagingMessage();
+        batch.add(4, older);
+        batch.add(7, younger);
+        batch.add(6, younger);
+
+        assertEquals(2, buffer.setYounger(batch));
+        assertEquals(7, buffer.getYoungestId());
+        assertTrue(buffer.get(4).getMessage() != older);
+        assertTrue(buffer.get(6).getMessage() == younger);
+        assertTrue(buffer.get(7).getMessage() == younger);
+    }
+
 }
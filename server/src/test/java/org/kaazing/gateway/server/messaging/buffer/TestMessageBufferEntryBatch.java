@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.URI;
+import org.junit.Test;
+import org.kaazing.gateway.server.messaging.DefaultMessagingMessage;
+import org.kaazing.gateway.service.messaging.MessagingMessage;
+
+public class TestMessageBufferEntryBatch {
+
+    @Test
+    public void testWriteAndReadData() throws Exception {
+        DefaultMessagingMessage first = new DefaultMessagingMessage();
+        first.setId("first");
+        first.setPayload(new byte[] { 1, 2, 3 });
+        first.setAttribute("count", 42);
+        first.setAttribute("sequence", 7L);
+        first.setAttribute("durable", true);
+        first.setAttribute("destination", URI.create("/topic/destination"));
+
+        DefaultMessagingMessage second = new DefaultMessagingMessage();
+        second.setPayload("payload \u00e9");
+        second.setAttribute("priority", 0.5d);
+        second.setAttribute("empty", null);
+
+        MessageBufferEntryBatch batch = new MessageBufferEntryBatch(1);
+        batch.add(11, first);
+        batch.add(12, second);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        batch.writeData(new DataOutputStream(bytes));
+        MessageBufferEntryBatch copy = new MessageBufferEntryBatch();
+        copy.readData(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(2, copy.size());
+        assertEquals(11, copy.getId(0));
+        assertEquals(12, copy.getId(1));
+
+        MessagingMessage firstCopy = copy.getMessage(0);
+        assertEquals("first", firstCopy.getId());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) firstCopy.getPayload());
+        assertEquals(42, firstCopy.getAttribute("count"));
+        assertEquals(7L, firstCopy.getAttribute("sequence"));
+        assertEquals(true, firstCopy.getAttribute("durable"));
+        assertEquals(URI.create("/topic/destination"), firstCopy.getAttribute("destination"));
+
+        MessagingMessage secondCopy = copy.getMessage(1);
+        assertNull(secondCopy.getId());
+        assertEquals("payload \u00e9", secondCopy.getPayload());
+        assertEquals(0.5d, secondCopy.getAttribute("priority"));
+        assertNull(secondCopy.getAttribute("empty"));
+    }
+
+}
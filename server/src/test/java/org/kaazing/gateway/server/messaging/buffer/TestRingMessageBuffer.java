@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.server.messaging.buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.kaazing.gateway.server.messaging.DefaultMessagingMessage;
+import org.kaazing.gateway.service.messaging.buffer.MessageBuffer;
+import org.kaazing.gateway.service.messaging.buffer.MessageBufferEntry;
+
+public class TestRingMessageBuffer {
+
+    @Test
+    public void testBuffer() throws Exception {
+
+        MessageBuffer buffer = new RingMessageBuffer(10);
+        for (int i = 0; i < 20; i++) {
+            buffer.add(new DefaultMessagingMessage());
+        }
+
+        assertNull(buffer.get(-1));
+        assertNull(buffer.get(0));
+        assertNull(buffer.get(10));
+        assertNull(buffer.get(21));
+
+        assertNotNull(buffer.get(11));
+        assertEquals(11, buffer.get(11).getId());
+        assertNotNull(buffer.get(20));
+        assertEquals(20, buffer.get(20).getId());
+
+        assertEquals(20, buffer.getYoungestId());
+        assertEquals(11, buffer.getOldestId());
+    }
+
+    @Test
+    public void testSetBeyondYoungest() throws Exception {
+
+        MessageBuffer buffer = new RingMessageBuffer(10);
+        buffer.add(new DefaultMessagingMessage());
+        buffer.set(15, new DefaultMessagingMessage());
+
+        assertEquals(15, buffer.getYoungestId());
+        assertEquals(15, buffer.get(15).getId());
+
+        // slot of id 5 still holds id 15, and id 1 is too old
+        assertNull(buffer.get(5));
+        assertNull(buffer.get(1));
+    }
+
+    @Test
+    public void testReadersSeeOnlyMatchingEntries() throws Exception {
+
+        final RingMessageBuffer buffer = new RingMessageBuffer(16);
+        final int count = 200000;
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                int youngestId = 0;
+                while (youngestId < count) {
+                    youngestId = buffer.getYoungestId();
+                    for (int id = buffer.getOldestId(); id <= youngestId; id++) {
+                        MessageBufferEntry entry = buffer.get(id);
+                        if (entry != null && entry.getId() != id) {
+                            failure.set("Read entry " + entry.getId() + " for id " + id);
+                            return;
+                        }
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        for (int i = 0; i < count; i++) {
+            buffer.add(new DefaultMessagingMessage());
+        }
+        reader.join();
+
+        assertNull(failure.get());
+        assertTrue(buffer.get(count) != null);
+    }
+
+}
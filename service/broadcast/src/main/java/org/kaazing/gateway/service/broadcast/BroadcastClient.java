@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+
+import org.kaazing.gateway.transport.BridgeSession;
+
+/**
+ * Per-client broadcast state: the cached transport session used to measure write backlog, and the
+ * slow consumer policy state.  Policy state is only accessed while holding the client monitor.
+ */
+final class BroadcastClient {
+
+    private final IoSession session;
+    private volatile TransportSessionRef transportSessionRef;
+
+    boolean slow;
+    Object conflated;
+    Deque<Object> queued;
+    boolean gap;
+    boolean drainScheduled;
+    WriteFuture lastWriteFuture;
+
+    BroadcastClient(IoSession session) {
+        this.session = session;
+    }
+
+    IoSession getSession() {
+        return session;
+    }
+
+    WriteFuture write(Object message) {
+        WriteFuture future = session.write(message);
+        lastWriteFuture = future;
+        return future;
+    }
+
+    Deque<Object> queued() {
+        if (queued == null) {
+            queued = new ArrayDeque<>();
+        }
+        return queued;
+    }
+
+    long getScheduledWriteBytes(Logger logger) {
+        return getTransportSession(logger).getScheduledWriteBytes();
+    }
+
+    /**
+     * Returns the root transport session (e.g. TCP) of the client.  The root found by the last complete walk of the
+     * parent chain is reused until it is closing or the direct parent of the client session has changed, as it does
+     * when an emulated (e.g. WSEB) session reconnects.
+     */
+    IoSession getTransportSession(Logger logger) {
+        IoSession directParent = (session instanceof BridgeSession) ? ((BridgeSession)session).getParent() : null;
+        TransportSessionRef transportSessionRef = this.transportSessionRef;
+        if (transportSessionRef != null && transportSessionRef.directParent == directParent &&
+                !transportSessionRef.transportSession.isClosing()) {
+            return transportSessionRef.transportSession;
+        }
+        this.transportSessionRef = null;
+
+        IoSession session = this.session;
+        IoSession parent = directParent;
+        while (session instanceof BridgeSession) {
+            if (parent == null) { // parent can occasionally be null (e.g. on a WsebSession from Flash client)
+                if (logger.isDebugEnabled()) {
+                    logger.debug(String.format("Null parent on session %s, ancestor of client session %s", session, this.session));
+                }
+                // incomplete chain, try again next time
+                return session;
+            }
+            session = parent;
+            parent = (session instanceof BridgeSession) ? ((BridgeSession)session).getParent() : null;
+        }
+
+        this.transportSessionRef = new TransportSessionRef(directParent, session);
+        return session;
+    }
+
+    @Override
+    public String toString() {
+        return session.toString();
+    }
+
+    private static final class TransportSessionRef {
+        final IoSession directParent;
+        final IoSession transportSession;
+
+        TransportSessionRef(IoSession directParent, IoSession transportSession) {
+            this.directParent = directParent;
+            this.transportSession = transportSession;
+        }
+    }
+}
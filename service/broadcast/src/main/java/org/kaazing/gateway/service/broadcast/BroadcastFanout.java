@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.util.ConcurrentHashSet;
+
+import org.kaazing.gateway.transport.bridge.CachingMessageEncoder;
+import org.kaazing.mina.core.session.IoSessionEx;
+
+/**
+ * Fans broadcast messages out to clients grouped by I/O worker thread and by encoded protocol stack.
+ *
+ * Each message results in one batch task per I/O worker rather than one cross-thread write per client.
+ * The batch runs on the worker thread itself, so the per-thread transport encoding cache in
+ * {@link org.kaazing.gateway.transport.bridge.Message} is populated once per worker and protocol stack,
+ * and every client in the group is written the same shared encoded buffer.
+ */
+final class BroadcastFanout {
+
+    interface ClientWriter {
+        void write(BroadcastClient client, Object message);
+    }
+
+    private static final Executor IMMEDIATE_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final ConcurrentMap<Thread, WorkerGroup> workerGroups;
+    private final WorkerGroup unalignedGroup;
+    private final ConcurrentMap<IoSession, Membership> memberships;
+
+    BroadcastFanout() {
+        this.workerGroups = new ConcurrentHashMap<>();
+        this.unalignedGroup = new WorkerGroup(IMMEDIATE_EXECUTOR);
+        this.memberships = new ConcurrentHashMap<>();
+    }
+
+    BroadcastClient add(IoSession session) {
+        BroadcastClient client = new BroadcastClient(session);
+        WorkerGroup workerGroup = unalignedGroup;
+        Object stackKey = CachingMessageEncoder.IO_MESSAGE_ENCODER;
+
+        if (session instanceof IoSessionEx) {
+            IoSessionEx clientEx = (IoSessionEx) session;
+            stackKey = CachingMessageEncoder.getMessageEncoder(clientEx);
+
+            Thread ioThread = clientEx.getIoThread();
+            Executor ioExecutor = clientEx.getIoExecutor();
+            if (ioThread != null && ioExecutor != null) {
+                workerGroup = workerGroups.get(ioThread);
+                if (workerGroup == null) {
+                    WorkerGroup newWorkerGroup = new WorkerGroup(ioExecutor);
+                    workerGroup = workerGroups.putIfAbsent(ioThread, newWorkerGroup);
+                    if (workerGroup == null) {
+                        workerGroup = newWorkerGroup;
+                    }
+                }
+            }
+        }
+
+        Membership membership = new Membership(client, workerGroup, workerGroup.stackClients(stackKey));
+        Membership oldMembership = memberships.putIfAbsent(session, membership);
+        if (oldMembership != null) {
+            return oldMembership.client;
+        }
+
+        membership.stackClients.add(client);
+        workerGroup.size.incrementAndGet();
+        return client;
+    }
+
+    BroadcastClient remove(IoSession session) {
+        Membership membership = memberships.remove(session);
+        if (membership == null) {
+            return null;
+        }
+
+        if (membership.stackClients.remove(membership.client)) {
+            membership.workerGroup.size.decrementAndGet();
+        }
+        return membership.client;
+    }
+
+    int size() {
+        return memberships.size();
+    }
+
+    int getWorkerGroupCount() {
+        return workerGroups.size();
+    }
+
+    /**
+     * Writes the message to every client, one batch per I/O worker.
+     *
+     * Batches for the calling thread (and for clients without I/O thread alignment) run immediately, others
+     * are queued on their worker and run in submission order, preserving per-client message order.
+     */
+    void fanout(Object message, ClientWriter writer) {
+        Thread currentThread = Thread.currentThread();
+        for (Map.Entry<Thread, WorkerGroup> entry : workerGroups.entrySet()) {
+            WorkerGroup workerGroup = entry.getValue();
+            if (workerGroup.size.get() > 0) {
+                if (entry.getKey() == currentThread) {
+                    workerGroup.write(message, writer);
+                }
+                else {
+                    workerGroup.executor.execute(new FanoutBatch(workerGroup, message, writer));
+                }
+            }
+        }
+
+        if (unalignedGroup.size.get() > 0) {
+            unalignedGroup.write(message, writer);
+        }
+    }
+
+    private static final class WorkerGroup {
+        private final Executor executor;
+        private final ConcurrentMap<Object, Set<BroadcastClient>> stacks;
+        private final AtomicInteger size;
+
+        WorkerGroup(Executor executor) {
+            this.executor = executor;
+            this.stacks = new ConcurrentHashMap<>();
+            this.size = new AtomicInteger();
+        }
+
+        Set<BroadcastClient> stackClients(Object stackKey) {
+            Set<BroadcastClient> stackClients = stacks.get(stackKey);
+            if (stackClients == null) {
+                Set<BroadcastClient> newStackClients = new ConcurrentHashSet<>();
+                stackClients = stacks.putIfAbsent(stackKey, newStackClients);
+                if (stackClients == null) {
+                    stackClients = newStackClients;
+                }
+            }
+            return stackClients;
+        }
+
+        void write(Object message, ClientWriter writer) {
+            // note: clients on the same stack are written consecutively so they share one cached encoding
+            for (Map.Entry<Object, Set<BroadcastClient>> entry : stacks.entrySet()) {
+                for (BroadcastClient client : entry.getValue()) {
+                    writer.write(client, message);
+                }
+            }
+        }
+    }
+
+    private static final class Membership {
+        private final BroadcastClient client;
+        private final WorkerGroup workerGroup;
+        private final Set<BroadcastClient> stackClients;
+
+        Membership(BroadcastClient client, WorkerGroup workerGroup, Set<BroadcastClient> stackClients) {
+            this.client = client;
+            this.workerGroup = workerGroup;
+            this.stackClients = stackClients;
+        }
+    }
+
+    private static final class FanoutBatch implements Runnable {
+        private final WorkerGroup workerGroup;
+        private final Object message;
+        private final ClientWriter writer;
+
+        FanoutBatch(WorkerGroup workerGroup, Object message, ClientWriter writer) {
+            this.workerGroup = workerGroup;
+            this.message = message;
+            this.writer = writer;
+        }
+
+        @Override
+        public void run() {
+            workerGroup.write(message, writer);
+        }
+    }
+}
@@ -30,24 +30,33 @@ import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.util.LoggingUtils;
 import org.slf4j.Logger;
 
-import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.gateway.transport.bridge.Message;
+import org.kaazing.gateway.transport.io.IoMessage;
 import org.kaazing.gateway.transport.io.filter.IoMessageCodecFilter;
+import org.kaazing.mina.core.buffer.IoBufferEx;
 
 public class BroadcastListenHandler extends IoHandlerAdapter {
 
     private final Collection<IoSession> clients;
+    private final BroadcastFanout fanout;
+    private final BroadcastFanout.ClientWriter clientWriter;
     private final IoMessageCodecFilter codec;
     private final boolean disconnectClientsOnReconnect;
-    private final long maximumScheduledWriteBytes;
     private final Logger logger;
-	
-	public BroadcastListenHandler(Collection<IoSession> clients, boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, Logger logger) {
+
+    BroadcastListenHandler(Collection<IoSession> clients, BroadcastFanout fanout, boolean disconnectClientsOnReconnect,
+                           final SlowConsumerPolicy slowConsumerPolicy, Logger logger) {
 		this.clients = clients;
+		this.fanout = fanout;
+		this.clientWriter = new BroadcastFanout.ClientWriter() {
+		    @Override
+		    public void write(BroadcastClient client, Object message) {
+		        slowConsumerPolicy.write(client, message);
+		    }
+		};
 		this.codec = new IoMessageCodecFilter();
 		this.disconnectClientsOnReconnect = disconnectClientsOnReconnect;
 		this.logger = logger;
-		this.maximumScheduledWriteBytes = maximumScheduledWriteBytes;
 	}
 
 	@Override
@@ -70,19 +79,18 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
 	public void messageReceived(IoSession session, Object message) throws Exception {
         if (message instanceof IoBuffer) {
 			IoBuffer buf = (IoBuffer) message;
-			for (IoSession client : clients) {
-			    writeOrClose(client, buf);
-			}
+			// wrap as a cacheable message so each worker encodes it once per protocol stack
+			IoMessage ioMessage = new IoMessage((IoBufferEx) buf.duplicate());
+			ioMessage.initCache();
+			fanout.fanout(ioMessage, clientWriter);
 			buf.skip(buf.remaining());
 		}
 		else {
 	        if (message instanceof Message) {
 	            ((Message)message).initCache();
 	        }
-	        
-			for (IoSession client : clients) {
-			    writeOrClose(client, message);
-			}
+
+			fanout.fanout(message, clientWriter);
 		}
 	}
  
@@ -91,41 +99,4 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
         LoggingUtils.log(logger, cause);
     }
 
-    private void writeOrClose(IoSession client, Object message) {
-        long scheduledWriteBytes = getScheduledWriteBytes(client);
-        if (logger.isDebugEnabled()) {
-            logger.debug(String.format("BroadcastListenHandler: session %d: scheduledWriteBytes = %d", client.getId(), scheduledWriteBytes));
-        }
-
-        if (!client.isClosing()) {
-            if (scheduledWriteBytes > maximumScheduledWriteBytes) {
-                if (logger.isInfoEnabled()) {
-                    String logMessage = String.format("Closing client session %s because scheduled write bytes %d exceeds the configured limit of %d",
-                            client, scheduledWriteBytes, maximumScheduledWriteBytes); 
-                    logger.info(logMessage);
-                }
-                client.close(true); 
-                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
-            }
-            else {
-                client.write(message);
-            }
-        }
-    }
-
-    private long getScheduledWriteBytes(IoSession client) {
-        IoSession session = client;
-        while (session instanceof BridgeSession) {
-            IoSession parent = ((BridgeSession)session).getParent();
-            if (parent == null) { // parent can occasionally be null (e.g. on a WsebSession from Flash client)
-                if (logger.isDebugEnabled()) {
-                    logger.debug(String.format("Null parent on session %s, ancestor of client session %s", session, client));
-                }
-                break;
-            }
-            session = parent; 
-        }
-        return session.getScheduledWriteBytes();
-    }
-
 }
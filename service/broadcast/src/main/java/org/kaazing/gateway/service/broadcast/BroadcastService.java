@@ -30,6 +30,8 @@ import static org.kaazing.gateway.util.Utils.parsePositiveInteger;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,12 +50,13 @@ import org.slf4j.LoggerFactory;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.ServiceProperties;
+import org.kaazing.gateway.service.ServiceStatistics;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 
 /**
  * Gateway service of type "broadcast".
  */
-public class BroadcastService implements Service {
+public class BroadcastService implements Service, ServiceStatistics {
 
     private final Logger logger = LoggerFactory.getLogger("service.broadcast");
     // FIXME: make this a logically named logger that does not look like a classname
@@ -63,6 +66,10 @@ public class BroadcastService implements Service {
     // services
     private static final String BROADCAST_SERVICE_MAXIMUM_PENDING_BYTES = "org.kaazing.gateway.server.service.broadcast.MAXIMUM_PENDING_BYTES";
     private static final String BROADCAST_SERVICE_DISCONNECT_CLIENTS_ON_RECONNECT = "org.kaazing.gateway.server.service.broadcast.DISCONNECT_CLIENTS_ON_RECONNECT"; // true or false
+    private static final String BROADCAST_SERVICE_SLOW_CONSUMER_POLICY = "org.kaazing.gateway.server.service.broadcast.SLOW_CONSUMER_POLICY"; // close, conflate, drop-oldest or skip
+    private static final String BROADCAST_SERVICE_RESUME_PENDING_BYTES = "org.kaazing.gateway.server.service.broadcast.RESUME_PENDING_BYTES";
+    private static final String BROADCAST_SERVICE_MAXIMUM_QUEUED_MESSAGES = "org.kaazing.gateway.server.service.broadcast.MAXIMUM_QUEUED_MESSAGES";
+    private static final String BROADCAST_SERVICE_GAP_MARKER = "org.kaazing.gateway.server.service.broadcast.GAP_MARKER";
     // FIXME: end of remove me
 
     private ScheduledExecutorService scheduler;
@@ -118,7 +125,27 @@ public class BroadcastService implements Service {
             gatewayLogger.info(String.format("Broadcast service: limiting maximum scheduled write bytes to %d",
                     maximumScheduledWriteBytes));
         }
-        this.handler = new BroadcastServiceHandler(disconnectClientsOnReconnect, maximumScheduledWriteBytes,
+        SlowConsumerPolicy.Kind slowConsumerPolicyKind = SlowConsumerPolicy.Kind.fromName(
+                BROADCAST_SERVICE_SLOW_CONSUMER_POLICY,
+                configuration.getProperty(BROADCAST_SERVICE_SLOW_CONSUMER_POLICY, "close"));
+        long resumeScheduledWriteBytes = parsePositiveInteger(
+                BROADCAST_SERVICE_RESUME_PENDING_BYTES,
+                configuration.getProperty(BROADCAST_SERVICE_RESUME_PENDING_BYTES),
+                maximumScheduledWriteBytes / 2);
+        long maximumQueuedMessages = parsePositiveInteger(
+                BROADCAST_SERVICE_MAXIMUM_QUEUED_MESSAGES,
+                configuration.getProperty(BROADCAST_SERVICE_MAXIMUM_QUEUED_MESSAGES),
+                64);
+        String gapMarker = configuration.getProperty(BROADCAST_SERVICE_GAP_MARKER);
+        SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.newSlowConsumerPolicy(slowConsumerPolicyKind,
+                maximumScheduledWriteBytes, resumeScheduledWriteBytes, (int) Math.min(maximumQueuedMessages, Integer.MAX_VALUE),
+                gapMarker, serviceContext.getLogger());
+        if (slowConsumerPolicyKind != SlowConsumerPolicy.Kind.CLOSE) {
+            gatewayLogger.info(String.format("Broadcast service: applying \"%s\" slow consumer policy, resuming at %d scheduled write bytes",
+                    slowConsumerPolicy.getName(), resumeScheduledWriteBytes));
+        }
+
+        this.handler = new BroadcastServiceHandler(disconnectClientsOnReconnect, slowConsumerPolicy,
                 serviceContext.getLogger());
 
         Collection<URI> connectURIs = serviceContext.getConnects();
@@ -189,6 +216,12 @@ public class BroadcastService implements Service {
         scheduler.shutdownNow();
     }
 
+    @Override
+    public Map<String, Number> getStatistics() {
+        BroadcastServiceHandler handler = this.handler;
+        return (handler != null) ? handler.getStatistics() : Collections.<String, Number>emptyMap();
+    }
+
     private final class ConnectTask implements Runnable {
         private final AtomicReference<IoSession> session;
 
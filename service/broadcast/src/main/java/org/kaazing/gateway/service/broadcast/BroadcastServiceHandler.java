@@ -24,6 +24,7 @@ package org.kaazing.gateway.service.broadcast;
 import java.nio.channels.ClosedChannelException;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.service.IoHandler;
@@ -39,15 +40,19 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
 
     private final IoFilter codec;
     private final Collection<IoSession> clients;
+    private final BroadcastFanout fanout;
+    private final SlowConsumerPolicy slowConsumerPolicy;
     private final IoHandler handler;
     private final Logger logger;
     private IoSession connectSession;
 
-    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, Logger logger)
+    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, SlowConsumerPolicy slowConsumerPolicy, Logger logger)
             throws Exception {
         this.clients = new ConcurrentHashSet<>();
-        this.handler = new BroadcastListenHandler(Collections.unmodifiableCollection(clients),
-                disconnectClientsOnReconnect, maximumScheduledWriteBytes, logger);
+        this.fanout = new BroadcastFanout();
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.handler = new BroadcastListenHandler(Collections.unmodifiableCollection(clients), fanout,
+                disconnectClientsOnReconnect, slowConsumerPolicy, logger);
         this.codec = new IoMessageCodecFilter();
         this.logger = logger;
     }
@@ -64,6 +69,10 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
         return handler;
     }
 
+    Map<String, Number> getStatistics() {
+        return slowConsumerPolicy.getStatistics();
+    }
+
     @Override
     public void exceptionCaught(IoSession session, Throwable cause)
             throws Exception {
@@ -83,6 +92,7 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
     public void sessionOpened(IoSession session) throws Exception {
         session.getFilterChain().addLast("io", codec);
         clients.add(session);
+        fanout.add(session);
     }
 
     @Override
@@ -92,5 +102,9 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
         }
 
         clients.remove(session);
+        BroadcastClient client = fanout.remove(session);
+        if (client != null) {
+            slowConsumerPolicy.clientRemoved(client);
+        }
     }
 }
\ No newline at end of file
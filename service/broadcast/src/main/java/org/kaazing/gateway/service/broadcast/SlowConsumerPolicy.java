@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+
+import org.kaazing.gateway.transport.io.IoMessage;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+
+/**
+ * Decides what happens to a broadcast client whose transport write backlog exceeds the configured maximum.
+ *
+ * All policies except "close" use hysteresis: a client becomes slow above the maximum scheduled write bytes,
+ * and only resumes normal delivery once its backlog drops to the resume threshold.
+ */
+abstract class SlowConsumerPolicy {
+
+    enum Kind {
+        CLOSE("close"), CONFLATE("conflate"), DROP_OLDEST("drop-oldest"), SKIP("skip");
+
+        private final String policyName;
+
+        Kind(String policyName) {
+            this.policyName = policyName;
+        }
+
+        static Kind fromName(String valueName, String name) {
+            for (Kind kind : values()) {
+                if (kind.policyName.equalsIgnoreCase(name)) {
+                    return kind;
+                }
+            }
+            String message = String.format("Invalid value \"%s\" for %s, must be one of \"close\", \"conflate\", "
+                    + "\"drop-oldest\" or \"skip\"", name, valueName);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    protected final long maximumScheduledWriteBytes;
+    protected final long resumeScheduledWriteBytes;
+    protected final SlowConsumerStatistics statistics;
+    protected final Logger logger;
+
+    private final Kind kind;
+
+    protected SlowConsumerPolicy(Kind kind, long maximumScheduledWriteBytes, long resumeScheduledWriteBytes, Logger logger) {
+        if (resumeScheduledWriteBytes > maximumScheduledWriteBytes) {
+            throw new IllegalArgumentException(String.format(
+                    "Resume scheduled write bytes %d must not exceed maximum scheduled write bytes %d",
+                    resumeScheduledWriteBytes, maximumScheduledWriteBytes));
+        }
+        this.kind = kind;
+        this.maximumScheduledWriteBytes = maximumScheduledWriteBytes;
+        this.resumeScheduledWriteBytes = resumeScheduledWriteBytes;
+        this.statistics = new SlowConsumerStatistics();
+        this.logger = logger;
+    }
+
+    static SlowConsumerPolicy newSlowConsumerPolicy(Kind kind, long maximumScheduledWriteBytes,
+            long resumeScheduledWriteBytes, int maximumQueuedMessages, String gapMarker, Logger logger) {
+        switch (kind) {
+        case CLOSE:
+            return new ClosePolicy(maximumScheduledWriteBytes, logger);
+        case CONFLATE:
+            return new ConflatePolicy(maximumScheduledWriteBytes, resumeScheduledWriteBytes, logger);
+        case DROP_OLDEST:
+            return new DropOldestPolicy(maximumScheduledWriteBytes, resumeScheduledWriteBytes, maximumQueuedMessages,
+                    gapMarker, logger);
+        case SKIP:
+            return new SkipPolicy(maximumScheduledWriteBytes, resumeScheduledWriteBytes, logger);
+        default:
+            throw new IllegalArgumentException("Unrecognized slow consumer policy: " + kind);
+        }
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    String getName() {
+        return kind.policyName;
+    }
+
+    Map<String, Number> getStatistics() {
+        return statistics.asMap(this);
+    }
+
+    final void write(BroadcastClient client, Object message) {
+        IoSession session = client.getSession();
+        if (session.isClosing()) {
+            return;
+        }
+
+        long scheduledWriteBytes = client.getScheduledWriteBytes(logger);
+        if (logger.isDebugEnabled()) {
+            logger.debug(String.format("BroadcastListenHandler: session %d: scheduledWriteBytes = %d", session.getId(), scheduledWriteBytes));
+        }
+
+        synchronized (client) {
+            write(client, message, scheduledWriteBytes);
+        }
+    }
+
+    final void clientRemoved(BroadcastClient client) {
+        synchronized (client) {
+            if (client.slow) {
+                client.slow = false;
+                statistics.slowClients.decrementAndGet();
+            }
+            client.conflated = null;
+            client.queued = null;
+        }
+    }
+
+    protected abstract void write(BroadcastClient client, Object message, long scheduledWriteBytes);
+
+    /**
+     * Delivers any messages held back while the client was slow, called with the client monitor held.
+     */
+    protected void deliverPending(BroadcastClient client) {
+    }
+
+    protected final void becomeSlow(BroadcastClient client, long scheduledWriteBytes) {
+        client.slow = true;
+        statistics.slowClients.incrementAndGet();
+        if (logger.isInfoEnabled()) {
+            logger.info(String.format("Applying \"%s\" slow consumer policy to client session %s because scheduled write bytes %d exceeds the configured limit of %d",
+                    getName(), client, scheduledWriteBytes, maximumScheduledWriteBytes));
+        }
+    }
+
+    protected final void resume(BroadcastClient client) {
+        client.slow = false;
+        statistics.slowClients.decrementAndGet();
+        statistics.resumedClients.incrementAndGet();
+        deliverPending(client);
+    }
+
+    /**
+     * Resumes the client as soon as its last write completes (draining the backlog), rather than waiting for the
+     * next broadcast message, so held back messages are not delayed when the feed is quiet.
+     */
+    protected final void scheduleDrain(final BroadcastClient client) {
+        WriteFuture lastWriteFuture = client.lastWriteFuture;
+        if (!client.drainScheduled && lastWriteFuture != null && !lastWriteFuture.isDone()) {
+            client.drainScheduled = true;
+            lastWriteFuture.addListener(new IoFutureListener<WriteFuture>() {
+                @Override
+                public void operationComplete(WriteFuture future) {
+                    synchronized (client) {
+                        client.drainScheduled = false;
+                        if (client.slow && !client.getSession().isClosing()
+                                && client.getScheduledWriteBytes(logger) <= resumeScheduledWriteBytes) {
+                            resume(client);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Closes slow clients, so they reconnect and resynchronize.
+     */
+    private static final class ClosePolicy extends SlowConsumerPolicy {
+
+        ClosePolicy(long maximumScheduledWriteBytes, Logger logger) {
+            super(Kind.CLOSE, maximumScheduledWriteBytes, maximumScheduledWriteBytes, logger);
+        }
+
+        @Override
+        protected void write(BroadcastClient client, Object message, long scheduledWriteBytes) {
+            if (scheduledWriteBytes > maximumScheduledWriteBytes) {
+                if (logger.isInfoEnabled()) {
+                    String logMessage = String.format("Closing client session %s because scheduled write bytes %d exceeds the configured limit of %d",
+                            client, scheduledWriteBytes, maximumScheduledWriteBytes);
+                    logger.info(logMessage);
+                }
+                statistics.closedClients.incrementAndGet();
+                client.getSession().close(true);
+                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
+            }
+            else {
+                client.write(message);
+            }
+        }
+    }
+
+    /**
+     * Holds back only the latest message while the client is slow.
+     */
+    private static final class ConflatePolicy extends SlowConsumerPolicy {
+
+        ConflatePolicy(long maximumScheduledWriteBytes, long resumeScheduledWriteBytes, Logger logger) {
+            super(Kind.CONFLATE, maximumScheduledWriteBytes, resumeScheduledWriteBytes, logger);
+        }
+
+        @Override
+        protected void write(BroadcastClient client, Object message, long scheduledWriteBytes) {
+            if (client.slow && scheduledWriteBytes <= resumeScheduledWriteBytes) {
+                resume(client);
+            }
+            else if (!client.slow && scheduledWriteBytes > maximumScheduledWriteBytes) {
+                becomeSlow(client, scheduledWriteBytes);
+            }
+
+            if (client.slow) {
+                if (client.conflated != null) {
+                    statistics.conflatedMessages.incrementAndGet();
+                }
+                client.conflated = message;
+                scheduleDrain(client);
+            }
+            else {
+                client.write(message);
+            }
+        }
+
+        @Override
+        protected void deliverPending(BroadcastClient client) {
+            Object conflated = client.conflated;
+            if (conflated != null) {
+                client.conflated = null;
+                client.write(conflated);
+            }
+        }
+    }
+
+    /**
+     * Queues a bounded number of messages while the client is slow, dropping the oldest, and precedes
+     * the queued messages with a gap marker (when configured) if any were dropped.
+     */
+    private static final class DropOldestPolicy extends SlowConsumerPolicy {
+        private final int maximumQueuedMessages;
+        private final IoMessage gapMarker;
+
+        DropOldestPolicy(long maximumScheduledWriteBytes, long resumeScheduledWriteBytes, int maximumQueuedMessages,
+                         String gapMarker, Logger logger) {
+            super(Kind.DROP_OLDEST, maximumScheduledWriteBytes, resumeScheduledWriteBytes, logger);
+            this.maximumQueuedMessages = maximumQueuedMessages;
+            this.gapMarker = (gapMarker != null) ? newGapMarker(gapMarker) : null;
+        }
+
+        @Override
+        protected void write(BroadcastClient client, Object message, long scheduledWriteBytes) {
+            if (client.slow && scheduledWriteBytes <= resumeScheduledWriteBytes) {
+                resume(client);
+            }
+            else if (!client.slow && scheduledWriteBytes > maximumScheduledWriteBytes) {
+                becomeSlow(client, scheduledWriteBytes);
+            }
+
+            if (client.slow) {
+                Deque<Object> queued = client.queued();
+                queued.addLast(message);
+                if (queued.size() > maximumQueuedMessages) {
+                    queued.removeFirst();
+                    client.gap = true;
+                    statistics.droppedMessages.incrementAndGet();
+                }
+                scheduleDrain(client);
+            }
+            else {
+                client.write(message);
+            }
+        }
+
+        @Override
+        protected void deliverPending(BroadcastClient client) {
+            if (client.gap) {
+                client.gap = false;
+                if (gapMarker != null) {
+                    client.write(gapMarker);
+                    statistics.gapMarkers.incrementAndGet();
+                }
+            }
+
+            Deque<Object> queued = client.queued;
+            if (queued != null) {
+                for (Object message = queued.pollFirst(); message != null; message = queued.pollFirst()) {
+                    client.write(message);
+                }
+            }
+        }
+
+        private static IoMessage newGapMarker(String gapMarker) {
+            ByteBuffer buf = ByteBuffer.wrap(gapMarker.getBytes(StandardCharsets.UTF_8));
+            IoMessage message = new IoMessage(SimpleBufferAllocator.BUFFER_ALLOCATOR.wrap(buf, FLAG_SHARED));
+            // shared by all clients, encoded once per I/O thread and protocol stack
+            message.initCache();
+            return message;
+        }
+    }
+
+    /**
+     * Skips messages while the client is slow.
+     */
+    private static final class SkipPolicy extends SlowConsumerPolicy {
+
+        SkipPolicy(long maximumScheduledWriteBytes, long resumeScheduledWriteBytes, Logger logger) {
+            super(Kind.SKIP, maximumScheduledWriteBytes, resumeScheduledWriteBytes, logger);
+        }
+
+        @Override
+        protected void write(BroadcastClient client, Object message, long scheduledWriteBytes) {
+            if (client.slow && scheduledWriteBytes <= resumeScheduledWriteBytes) {
+                resume(client);
+            }
+            else if (!client.slow && scheduledWriteBytes > maximumScheduledWriteBytes) {
+                becomeSlow(client, scheduledWriteBytes);
+            }
+
+            if (client.slow) {
+                statistics.skippedMessages.incrementAndGet();
+            }
+            else {
+                client.write(message);
+            }
+        }
+    }
+}
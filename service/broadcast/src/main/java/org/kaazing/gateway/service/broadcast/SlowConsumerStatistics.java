@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for the broadcast slow consumer policy, updated from the I/O threads.
+ */
+final class SlowConsumerStatistics {
+
+    final AtomicLong slowClients = new AtomicLong();
+    final AtomicLong closedClients = new AtomicLong();
+    final AtomicLong resumedClients = new AtomicLong();
+    final AtomicLong conflatedMessages = new AtomicLong();
+    final AtomicLong droppedMessages = new AtomicLong();
+    final AtomicLong skippedMessages = new AtomicLong();
+    final AtomicLong gapMarkers = new AtomicLong();
+
+    Map<String, Number> asMap(SlowConsumerPolicy policy) {
+        String prefix = "slowConsumer." + policy.getName() + ".";
+        Map<String, Number> statistics = new LinkedHashMap<>();
+        switch (policy.getKind()) {
+        case CLOSE:
+            statistics.put(prefix + "closedClients", closedClients.get());
+            break;
+        case CONFLATE:
+            statistics.put(prefix + "slowClients", slowClients.get());
+            statistics.put(prefix + "resumedClients", resumedClients.get());
+            statistics.put(prefix + "conflatedMessages", conflatedMessages.get());
+            break;
+        case DROP_OLDEST:
+            statistics.put(prefix + "slowClients", slowClients.get());
+            statistics.put(prefix + "resumedClients", resumedClients.get());
+            statistics.put(prefix + "droppedMessages", droppedMessages.get());
+            statistics.put(prefix + "gapMarkers", gapMarkers.get());
+            break;
+        case SKIP:
+            statistics.put(prefix + "slowClients", slowClients.get());
+            statistics.put(prefix + "resumedClients", resumedClients.get());
+            statistics.put(prefix + "skippedMessages", skippedMessages.get());
+            break;
+        default:
+            throw new IllegalStateException("Unrecognized slow consumer policy: " + policy.getKind());
+        }
+        return statistics;
+    }
+}
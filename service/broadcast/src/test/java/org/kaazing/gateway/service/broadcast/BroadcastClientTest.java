@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.service.broadcast;
+
+import static org.junit.Assert.assertSame;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kaazing.gateway.transport.BridgeSession;
+import org.kaazing.mina.core.session.DummySessionEx;
+
+public class BroadcastClientTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BroadcastClientTest.class);
+
+    @Test
+    public void shouldFindTransportSessionAgainAfterParentChanges() throws Exception {
+        Mockery context = new Mockery();
+        final BridgeSession session = context.mock(BridgeSession.class, "session");
+        final BridgeSession httpSession1 = context.mock(BridgeSession.class, "httpSession1");
+        final BridgeSession httpSession2 = context.mock(BridgeSession.class, "httpSession2");
+        final DummySessionEx tcpSession1 = new DummySessionEx();
+        final DummySessionEx tcpSession2 = new DummySessionEx();
+
+        context.checking(new Expectations() {
+            {
+                // reconnect attaches a new HTTP session on a new TCP connection
+                exactly(2).of(session).getParent(); will(returnValue(httpSession1));
+                exactly(2).of(session).getParent(); will(returnValue(httpSession2));
+                oneOf(httpSession1).getParent(); will(returnValue(tcpSession1));
+                oneOf(httpSession2).getParent(); will(returnValue(tcpSession2));
+            }
+        });
+
+        BroadcastClient client = new BroadcastClient(session);
+        assertSame(tcpSession1, client.getTransportSession(LOGGER));
+        assertSame(tcpSession1, client.getTransportSession(LOGGER));
+        assertSame(tcpSession2, client.getTransportSession(LOGGER));
+        assertSame(tcpSession2, client.getTransportSession(LOGGER));
+
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void shouldFindTransportSessionAgainAfterTransportSessionCloses() throws Exception {
+        Mockery context = new Mockery();
+        final BridgeSession session = context.mock(BridgeSession.class, "session");
+        final BridgeSession parent = context.mock(BridgeSession.class, "parent");
+        final DummySessionEx tcpSession1 = new DummySessionEx();
+        final DummySessionEx tcpSession2 = new DummySessionEx();
+
+        context.checking(new Expectations() {
+            {
+                exactly(2).of(session).getParent(); will(returnValue(parent));
+                oneOf(parent).getParent(); will(returnValue(tcpSession1));
+                oneOf(parent).getParent(); will(returnValue(tcpSession2));
+            }
+        });
+
+        BroadcastClient client = new BroadcastClient(session);
+        assertSame(tcpSession1, client.getTransportSession(LOGGER));
+        tcpSession1.close(true);
+        assertSame(tcpSession2, client.getTransportSession(LOGGER));
+
+        context.assertIsSatisfied();
+    }
+}
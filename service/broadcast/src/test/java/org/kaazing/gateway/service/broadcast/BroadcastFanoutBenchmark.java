@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.kaazing.gateway.transport.bridge.CachingMessageEncoder;
+import org.kaazing.gateway.transport.bridge.MessageEncoder;
+import org.kaazing.gateway.transport.io.IoMessage;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.DummySessionEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+
+/**
+ * Measures broadcast fan-out throughput, encodes and allocation as the subscriber count grows, comparing the
+ * per-worker batched fan-out against a per-client write dispatched to each client's I/O worker.
+ *
+ * Both modes frame each message with the same encoder.  The batched mode encodes through the session's
+ * {@link CachingMessageEncoder}, as the transport encoders do for a cached message, so each worker encodes a message
+ * once and writes the shared buffer to all of its clients.  The per-client mode models a raw buffer passing through
+ * each client's filter chain, encoding once per client.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.service.broadcast.BroadcastFanoutBenchmark
+ */
+public class BroadcastFanoutBenchmark {
+
+    private static final int WORKER_COUNT = 4;
+    private static final int[] SUBSCRIBER_COUNTS = { 100, 1000, 10000, 50000 };
+    private static final int MESSAGE_COUNT = 200;
+    private static final int PAYLOAD_SIZE = 256;
+
+    private static final LongAdder ENCODES = new LongAdder();
+    private static final LongAdder BYTES_WRITTEN = new LongAdder();
+
+    // frames the payload with a two byte length prefix, copying it as a transport encoder would
+    private static final MessageEncoder<IoMessage> FRAME_ENCODER = new MessageEncoder<IoMessage>() {
+        @Override
+        public IoBufferEx encode(IoBufferAllocatorEx<?> allocator, IoMessage message, int flags) {
+            ENCODES.increment();
+            ByteBuffer payload = message.getBuffer().buf();
+            ByteBuffer frame = allocator.allocate(payload.remaining() + 2, flags);
+            int start = frame.position();
+            frame.putShort((short) payload.remaining());
+            frame.put(payload.duplicate());
+            frame.limit(frame.position());
+            frame.position(start);
+            return allocator.wrap(frame, flags);
+        }
+    };
+
+    public static void main(String... args) throws Exception {
+        final Thread[] workerThreads = new Thread[WORKER_COUNT];
+        ExecutorService[] workers = new ExecutorService[WORKER_COUNT];
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            final int index = i;
+            workers[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    workerThreads[index] = new Thread(r, "worker-" + index);
+                    return workerThreads[index];
+                }
+            });
+            workers[i].submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+
+        for (int subscriberCount : SUBSCRIBER_COUNTS) {
+            BroadcastFanout fanout = new BroadcastFanout();
+            List<DummySessionEx> clients = new ArrayList<>(subscriberCount);
+            for (int i = 0; i < subscriberCount; i++) {
+                int index = i % WORKER_COUNT;
+                DummySessionEx client = new DummySessionEx(workerThreads[index], workers[index]);
+                clients.add(client);
+                fanout.add(client);
+            }
+
+            // warm up
+            runBatched(fanout, workers, MESSAGE_COUNT);
+            runPerClient(clients, workers, MESSAGE_COUNT);
+
+            report("batched", subscriberCount, runBatched(fanout, workers, MESSAGE_COUNT));
+            report("per-client", subscriberCount, runPerClient(clients, workers, MESSAGE_COUNT));
+        }
+
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    private static Result runBatched(BroadcastFanout fanout, ExecutorService[] workers, int messageCount)
+            throws Exception {
+        BroadcastFanout.ClientWriter writer = new BroadcastFanout.ClientWriter() {
+            @Override
+            public void write(BroadcastClient client, Object message) {
+                IoSessionEx session = (IoSessionEx) client.getSession();
+                CachingMessageEncoder cachingEncoder = CachingMessageEncoder.getMessageEncoder(session);
+                IoBufferEx frame = cachingEncoder.encode(FRAME_ENCODER, (IoMessage) message,
+                        session.getBufferAllocator(), FLAG_SHARED);
+                BYTES_WRITTEN.add(frame.remaining());
+            }
+        };
+
+        ENCODES.reset();
+        BYTES_WRITTEN.reset();
+        long allocatedBefore = allocatedBytes();
+        long startAt = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            IoMessage message = newMessage(i);
+            message.initCache();
+            fanout.fanout(message, writer);
+        }
+        drain(workers);
+        long elapsed = System.nanoTime() - startAt;
+        return new Result(messageCount, elapsed, allocatedBytes() - allocatedBefore, ENCODES.sum(),
+                BYTES_WRITTEN.sum());
+    }
+
+    private static Result runPerClient(List<DummySessionEx> clients, ExecutorService[] workers, int messageCount)
+            throws Exception {
+        ENCODES.reset();
+        BYTES_WRITTEN.reset();
+        long allocatedBefore = allocatedBytes();
+        long startAt = System.nanoTime();
+        for (int i = 0; i < messageCount; i++) {
+            final IoMessage message = newMessage(i);
+            for (final DummySessionEx client : clients) {
+                // models IoSession.write from a thread other than the client I/O thread
+                client.getIoExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        IoBufferEx frame = FRAME_ENCODER.encode(client.getBufferAllocator(), message, FLAG_NONE);
+                        BYTES_WRITTEN.add(frame.remaining());
+                    }
+                });
+            }
+        }
+        drain(workers);
+        long elapsed = System.nanoTime() - startAt;
+        return new Result(messageCount, elapsed, allocatedBytes() - allocatedBefore, ENCODES.sum(),
+                BYTES_WRITTEN.sum());
+    }
+
+    private static IoMessage newMessage(int sequence) {
+        ByteBuffer payload = BUFFER_ALLOCATOR.allocate(PAYLOAD_SIZE);
+        payload.putInt(sequence);
+        payload.clear();
+        return new IoMessage(BUFFER_ALLOCATOR.wrap(payload));
+    }
+
+    private static void drain(ExecutorService[] workers) throws Exception {
+        for (ExecutorService worker : workers) {
+            worker.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            long total = 0L;
+            for (long allocated : sunThreadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+                total += Math.max(allocated, 0L);
+            }
+            return total;
+        }
+        return -1L;
+    }
+
+    private static void report(String mode, int subscriberCount, Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        System.out.println(String.format("%-10s subscribers=%6d: %10.1f messages/sec, %12.1f deliveries/sec, "
+                + "%8.1f encodes/message, %12.1f bytes allocated/message, %12.1f bytes written/message",
+                mode, subscriberCount, result.messageCount / seconds, (double) result.messageCount * subscriberCount / seconds,
+                (double) result.encodes / result.messageCount, (double) result.allocatedBytes / result.messageCount,
+                (double) result.bytesWritten / result.messageCount));
+    }
+
+    private static final class Result {
+        private final int messageCount;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+        private final long encodes;
+        private final long bytesWritten;
+
+        Result(int messageCount, long elapsedNanos, long allocatedBytes, long encodes, long bytesWritten) {
+            this.messageCount = messageCount;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.encodes = encodes;
+            this.bytesWritten = bytesWritten;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.session.IoSession;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.mina.core.session.DummySessionEx;
+
+public class BroadcastFanoutTest {
+
+    private ExecutorService[] workers;
+    private Thread[] workerThreads;
+
+    @Before
+    public void setUp() throws Exception {
+        workers = new ExecutorService[2];
+        workerThreads = new Thread[2];
+        for (int i = 0; i < workers.length; i++) {
+            final int index = i;
+            workers[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    workerThreads[index] = new Thread(r, "worker-" + index);
+                    return workerThreads[index];
+                }
+            });
+            // force thread creation
+            workers[i].submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).get();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldWriteEachClientOnItsWorkerThread() throws Exception {
+        BroadcastFanout fanout = new BroadcastFanout();
+        List<IoSession> clients = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int index = i % workers.length;
+            IoSession client = new DummySessionEx(workerThreads[index], workers[index]);
+            clients.add(client);
+            fanout.add(client);
+        }
+        assertEquals(10, fanout.size());
+        assertEquals(2, fanout.getWorkerGroupCount());
+
+        final CountDownLatch latch = new CountDownLatch(10);
+        final List<String> failures = new ArrayList<>();
+        fanout.fanout("message", new BroadcastFanout.ClientWriter() {
+            @Override
+            public void write(BroadcastClient client, Object message) {
+                if (Thread.currentThread() != ((DummySessionEx) client.getSession()).getIoThread()) {
+                    synchronized (failures) {
+                        failures.add(client + " written on " + Thread.currentThread());
+                    }
+                }
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(new ArrayList<String>(), failures);
+    }
+
+    @Test
+    public void shouldPreserveMessageOrderPerClient() throws Exception {
+        BroadcastFanout fanout = new BroadcastFanout();
+        final IoSession client = new DummySessionEx(workerThreads[0], workers[0]);
+        fanout.add(client);
+
+        final List<Object> received = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(100);
+        BroadcastFanout.ClientWriter writer = new BroadcastFanout.ClientWriter() {
+            @Override
+            public void write(BroadcastClient broadcastClient, Object message) {
+                assertSame(client, broadcastClient.getSession());
+                received.add(message);
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            fanout.fanout(i, writer);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, received.get(i));
+        }
+    }
+
+    @Test
+    public void shouldWriteInlineForCallingWorker() throws Exception {
+        final BroadcastFanout fanout = new BroadcastFanout();
+        final IoSession localClient = new DummySessionEx(workerThreads[0], workers[0]);
+        final IoSession remoteClient = new DummySessionEx(workerThreads[1], workers[1]);
+        fanout.add(localClient);
+        fanout.add(remoteClient);
+
+        final List<IoSession> written = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final BroadcastFanout.ClientWriter writer = new BroadcastFanout.ClientWriter() {
+            @Override
+            public void write(BroadcastClient client, Object message) {
+                synchronized (written) {
+                    written.add(client.getSession());
+                }
+                latch.countDown();
+            }
+        };
+
+        boolean writtenInline = workers[0].submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                fanout.fanout("message", writer);
+                synchronized (written) {
+                    return written.contains(localClient);
+                }
+            }
+        }).get();
+
+        assertTrue(writtenInline);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldNotWriteRemovedClient() throws Exception {
+        BroadcastFanout fanout = new BroadcastFanout();
+        IoSession client = new DummySessionEx();
+        BroadcastClient broadcastClient = fanout.add(client);
+        assertSame(broadcastClient, fanout.add(client));
+        assertEquals(1, fanout.size());
+        assertSame(broadcastClient, fanout.remove(client));
+        assertNull(fanout.remove(client));
+        assertEquals(0, fanout.size());
+
+        final List<BroadcastClient> written = new ArrayList<>();
+        fanout.fanout("message", new BroadcastFanout.ClientWriter() {
+            @Override
+            public void write(BroadcastClient client, Object message) {
+                written.add(client);
+            }
+        });
+        assertEquals(0, written.size());
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.broadcast;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kaazing.gateway.transport.io.IoMessage;
+import org.kaazing.mina.core.session.DummySessionEx;
+
+public class SlowConsumerPolicyTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowConsumerPolicyTest.class);
+
+    private DummySessionEx session;
+    private List<WriteRequest> writeRequests;
+    private BroadcastClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        session = new DummySessionEx();
+        writeRequests = new ArrayList<>();
+        // hold on to write requests, so the test decides when each write completes
+        session.getFilterChain().addFirst("capture", new IoFilterAdapter() {
+            @Override
+            public void filterWrite(NextFilter nextFilter, IoSession session, WriteRequest writeRequest) {
+                writeRequests.add(writeRequest);
+            }
+        });
+        client = new BroadcastClient(session);
+    }
+
+    @Test
+    public void shouldCloseSlowConsumer() throws Exception {
+        SlowConsumerPolicy policy = newPolicy(SlowConsumerPolicy.Kind.CLOSE);
+
+        policy.write(client, "m1");
+        session.setScheduledWriteBytes(200);
+        policy.write(client, "m2");
+
+        assertEquals(Arrays.<Object>asList("m1"), written());
+        assertTrue(session.isClosing());
+        assertEquals(1L, policy.getStatistics().get("slowConsumer.close.closedClients"));
+    }
+
+    @Test
+    public void shouldConflateToLatestMessageAndResumeWhenDrained() throws Exception {
+        SlowConsumerPolicy policy = newPolicy(SlowConsumerPolicy.Kind.CONFLATE);
+
+        policy.write(client, "m1");
+        session.setScheduledWriteBytes(200);
+        policy.write(client, "m2");
+        policy.write(client, "m3");
+        assertEquals(Arrays.<Object>asList("m1"), written());
+
+        // backlog drains below the resume threshold as the last write completes
+        session.setScheduledWriteBytes(10);
+        writeRequests.get(0).getFuture().setWritten();
+        assertEquals(Arrays.<Object>asList("m1", "m3"), written());
+
+        Map<String, Number> statistics = policy.getStatistics();
+        assertEquals(0L, statistics.get("slowConsumer.conflate.slowClients"));
+        assertEquals(1L, statistics.get("slowConsumer.conflate.resumedClients"));
+        assertEquals(1L, statistics.get("slowConsumer.conflate.conflatedMessages"));
+    }
+
+    @Test
+    public void shouldDropOldestAndWriteGapMarker() throws Exception {
+        SlowConsumerPolicy policy = SlowConsumerPolicy.newSlowConsumerPolicy(SlowConsumerPolicy.Kind.DROP_OLDEST,
+                100, 50, 2, "GAP", LOGGER);
+
+        policy.write(client, "m1");
+        session.setScheduledWriteBytes(200);
+        policy.write(client, "m2");
+        policy.write(client, "m3");
+        policy.write(client, "m4");
+        assertEquals(1, writeRequests.size());
+
+        session.setScheduledWriteBytes(10);
+        policy.write(client, "m5");
+
+        List<Object> written = written();
+        assertEquals(5, written.size());
+        assertEquals("m1", written.get(0));
+        IoMessage gapMarker = (IoMessage) written.get(1);
+        assertEquals("GAP", gapMarker.getBuffer().getString(StandardCharsets.UTF_8.newDecoder()));
+        assertEquals(Arrays.<Object>asList("m3", "m4", "m5"), written.subList(2, 5));
+
+        Map<String, Number> statistics = policy.getStatistics();
+        assertEquals(1L, statistics.get("slowConsumer.drop-oldest.droppedMessages"));
+        assertEquals(1L, statistics.get("slowConsumer.drop-oldest.gapMarkers"));
+    }
+
+    @Test
+    public void shouldSkipWithHysteresis() throws Exception {
+        SlowConsumerPolicy policy = newPolicy(SlowConsumerPolicy.Kind.SKIP);
+
+        session.setScheduledWriteBytes(200);
+        policy.write(client, "m1");
+        // below maximum but above resume threshold, still skipped
+        session.setScheduledWriteBytes(80);
+        policy.write(client, "m2");
+        session.setScheduledWriteBytes(40);
+        policy.write(client, "m3");
+
+        assertEquals(Arrays.<Object>asList("m3"), written());
+        assertFalse(session.isClosing());
+        Map<String, Number> statistics = policy.getStatistics();
+        assertEquals(2L, statistics.get("slowConsumer.skip.skippedMessages"));
+        assertEquals(1L, statistics.get("slowConsumer.skip.resumedClients"));
+    }
+
+    @Test
+    public void shouldReleaseSlowClientWhenRemoved() throws Exception {
+        SlowConsumerPolicy policy = newPolicy(SlowConsumerPolicy.Kind.SKIP);
+
+        session.setScheduledWriteBytes(200);
+        policy.write(client, "m1");
+        assertEquals(1L, policy.getStatistics().get("slowConsumer.skip.slowClients"));
+
+        policy.clientRemoved(client);
+        assertEquals(0L, policy.getStatistics().get("slowConsumer.skip.slowClients"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownPolicy() throws Exception {
+        SlowConsumerPolicy.Kind.fromName("policy", "unknown");
+    }
+
+    private SlowConsumerPolicy newPolicy(SlowConsumerPolicy.Kind kind) {
+        return SlowConsumerPolicy.newSlowConsumerPolicy(kind, 100, 50, 64, null, LOGGER);
+    }
+
+    private List<Object> written() {
+        List<Object> written = new ArrayList<>();
+        for (WriteRequest writeRequest : writeRequests) {
+            written.add(writeRequest.getMessage());
+        }
+        return written;
+    }
+}
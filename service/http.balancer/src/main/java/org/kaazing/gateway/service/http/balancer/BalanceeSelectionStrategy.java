@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.balancer;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Strategies for picking one of the available balancees, configured with the balancer service property
+ * <tt>selection.strategy</tt>.
+ *
+ * Each strategy is given the latest known live session count of every balancee, indexed like the balancee list,
+ * and returns the index of the selected balancee.
+ */
+enum BalanceeSelectionStrategy {
+
+    /**
+     * Picks a balancee uniformly at random, ignoring load.
+     */
+    RANDOM("random") {
+        @Override
+        int select(AtomicIntegerArray loads, Random random) {
+            return random.nextInt(loads.length());
+        }
+    },
+
+    /**
+     * Picks the balancee with the fewest sessions, breaking ties at random.
+     */
+    LEAST_CONNECTIONS("least-connections") {
+        @Override
+        int select(AtomicIntegerArray loads, Random random) {
+            int size = loads.length();
+            int selected = 0;
+            int selectedLoad = loads.get(0);
+            int ties = 1;
+            for (int i = 1; i < size; i++) {
+                int load = loads.get(i);
+                if (load < selectedLoad) {
+                    selected = i;
+                    selectedLoad = load;
+                    ties = 1;
+                }
+                else if (load == selectedLoad && random.nextInt(++ties) == 0) {
+                    // each of the equally loaded balancees seen so far is kept with the same probability
+                    selected = i;
+                }
+            }
+            return selected;
+        }
+    },
+
+    /**
+     * Picks a balancee at random, weighted by how far its session count is below that of the busiest balancee,
+     * so that lightly loaded balancees are preferred without starving the others.
+     */
+    WEIGHTED_RANDOM("weighted-random") {
+        @Override
+        int select(AtomicIntegerArray loads, Random random) {
+            int size = loads.length();
+            int[] snapshot = new int[size];
+            int maximum = 0;
+            for (int i = 0; i < size; i++) {
+                snapshot[i] = Math.max(loads.get(i), 0);
+                maximum = Math.max(maximum, snapshot[i]);
+            }
+
+            long totalWeight = 0L;
+            for (int i = 0; i < size; i++) {
+                totalWeight += weight(maximum, snapshot[i]);
+            }
+
+            long target = (long) (random.nextDouble() * totalWeight);
+            for (int i = 0; i < size; i++) {
+                target -= weight(maximum, snapshot[i]);
+                if (target < 0L) {
+                    return i;
+                }
+            }
+            return size - 1;
+        }
+
+        private long weight(int maximum, int load) {
+            return (long) maximum - load + 1L;
+        }
+    },
+
+    /**
+     * Picks two distinct balancees at random and selects the less loaded of the two.
+     */
+    POWER_OF_TWO_CHOICES("power-of-two-choices") {
+        @Override
+        int select(AtomicIntegerArray loads, Random random) {
+            int size = loads.length();
+            if (size == 1) {
+                return 0;
+            }
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            return (loads.get(second) < loads.get(first)) ? second : first;
+        }
+    };
+
+    private final String name;
+
+    BalanceeSelectionStrategy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the index of the selected balancee.  There is always at least one balancee.
+     */
+    abstract int select(AtomicIntegerArray loads, Random random);
+
+    /**
+     * Returns true if this strategy needs the balancee session counts.
+     */
+    boolean isLoadAware() {
+        return this != RANDOM;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    static BalanceeSelectionStrategy fromName(String propertyName, String name) {
+        if (name == null) {
+            return RANDOM;
+        }
+        for (BalanceeSelectionStrategy strategy : values()) {
+            if (strategy.name.equalsIgnoreCase(name.trim())) {
+                return strategy;
+            }
+        }
+        String message = String.format("Invalid value \"%s\" for %s, must be one of \"random\", \"least-connections\", "
+                + "\"weighted-random\" or \"power-of-two-choices\"", name, propertyName);
+        throw new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.balancer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.kaazing.gateway.resource.address.Protocol;
+import org.kaazing.gateway.service.cluster.BalancerMapListener;
+import org.kaazing.gateway.service.cluster.MemberId;
+import org.kaazing.gateway.service.cluster.MembershipEventListener;
+import org.kaazing.gateway.service.messaging.collections.CollectionsFactory;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.util.GL;
+
+/**
+ * Immutable per-node view of the balancee URIs for the accept URIs of a balancer service.
+ *
+ * Balance requests read the current snapshot without locking or touching the cluster.  The snapshot is rebuilt
+ * from the cluster balancer map whenever the balancer map entry of one of our accept URIs changes, or when cluster
+ * membership changes, and is published with a single volatile write.
+ *
+ * The snapshot also holds the live session count each balancee last published to the cluster balancee load map.
+ * Load aware selection strategies read those counts, which are refreshed on a fixed interval by
+ * {@link #refreshLoads()} rather than per request.  Between refreshes each selection adds one to the count of the
+ * selected balancee, so that a burst of requests is not all sent to the same balancee.
+ */
+final class BalanceeSnapshot implements BalancerMapListener, MembershipEventListener {
+
+    private static final Balancees EMPTY = new Balancees(Collections.<URI>emptyList(), Collections.<URI>emptyList(),
+            new AtomicIntegerArray(0), new AtomicIntegerArray(0));
+
+    private final Collection<URI> accepts;
+    private final CollectionsFactory collectionsFactory;
+    private final TransportFactory transportFactory;
+    private final BalanceeSelectionStrategy strategy;
+
+    private volatile Balancees balancees = EMPTY;
+
+    BalanceeSnapshot(Collection<URI> accepts, CollectionsFactory collectionsFactory, TransportFactory transportFactory) {
+        this(accepts, collectionsFactory, transportFactory, BalanceeSelectionStrategy.RANDOM);
+    }
+
+    BalanceeSnapshot(Collection<URI> accepts, CollectionsFactory collectionsFactory, TransportFactory transportFactory,
+            BalanceeSelectionStrategy strategy) {
+        this.accepts = new ArrayList<>(accepts);
+        this.collectionsFactory = collectionsFactory;
+        this.transportFactory = transportFactory;
+        this.strategy = strategy;
+    }
+
+    BalanceeSelectionStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns the current balancee URIs, either the clear or the secure ones.  The returned list is unmodifiable.
+     */
+    List<URI> getBalanceeURIs(boolean secure) {
+        Balancees balancees = this.balancees;
+        return secure ? balancees.secure : balancees.clear;
+    }
+
+    /**
+     * Selects one of the current balancee URIs with the configured strategy, or returns null if there are none.
+     */
+    URI selectBalanceeURI(boolean secure) {
+        Balancees balancees = this.balancees;
+        List<URI> balanceeURIs = secure ? balancees.secure : balancees.clear;
+        if (balanceeURIs.isEmpty()) {
+            return null;
+        }
+
+        AtomicIntegerArray loads = secure ? balancees.secureLoads : balancees.clearLoads;
+        int selected = strategy.select(loads, ThreadLocalRandom.current());
+        loads.incrementAndGet(selected);
+        return balanceeURIs.get(selected);
+    }
+
+    /**
+     * Returns the session count currently assumed for a balancee, or -1 if it is not one of the current balancees.
+     */
+    int getLoad(URI balanceeURI) {
+        Balancees balancees = this.balancees;
+        int index = balancees.clear.indexOf(balanceeURI);
+        if (index != -1) {
+            return balancees.clearLoads.get(index);
+        }
+        index = balancees.secure.indexOf(balanceeURI);
+        return (index != -1) ? balancees.secureLoads.get(index) : -1;
+    }
+
+    /**
+     * Re-reads the session counts of the current balancees from the cluster balancee load map.
+     */
+    synchronized void refreshLoads() {
+        Balancees balancees = this.balancees;
+        if (collectionsFactory == null || balancees == EMPTY || !strategy.isLoadAware()) {
+            return;
+        }
+
+        Map<URI, Integer> loads = getLoads();
+        this.balancees = new Balancees(balancees.clear, balancees.secure,
+                readLoads(loads, balancees.clear), readLoads(loads, balancees.secure));
+    }
+
+    /**
+     * Rebuilds the snapshot from the cluster balancer map.
+     */
+    synchronized void refresh() {
+        if (collectionsFactory == null) {
+            GL.info("ha", "Returning empty balancee URIs list: cluster context collections factory is null");
+            balancees = EMPTY;
+            return;
+        }
+
+        List<URI> clear = new ArrayList<>();
+        List<URI> secure = new ArrayList<>();
+
+        // Get the map of balance URIs to accept URIs from the cluster.
+        Map<URI, Collection<URI>> balancers = collectionsFactory.getMap(HttpBalancerService.BALANCER_MAP_NAME);
+
+        // For my accept URIs, look up the map to get the balancee URIs for which I am balancing.
+        for (URI balancerAccept : accepts) {
+            Collection<URI> balanceesForAccept = balancers.get(balancerAccept);
+            GL.debug("ha", String.format("Found balancee URIs %s for accept URI %s", balanceesForAccept, balancerAccept));
+
+            if (balanceesForAccept != null) {
+                for (URI balanceeURI : balanceesForAccept) {
+                    // Pick only clear or secure balancees as appropriate.
+                    Protocol protocol = transportFactory.getProtocol(balanceeURI);
+                    if (protocol == null) {
+                        GL.warn("ha", "Ignoring balancee URI {} with unknown scheme", balanceeURI);
+                    }
+                    else if (protocol.isSecure()) {
+                        secure.add(balanceeURI);
+                    }
+                    else {
+                        clear.add(balanceeURI);
+                    }
+                }
+            }
+        }
+
+        Map<URI, Integer> loads = getLoads();
+        balancees = new Balancees(Collections.unmodifiableList(clear), Collections.unmodifiableList(secure),
+                readLoads(loads, clear), readLoads(loads, secure));
+    }
+
+    @Override
+    public void balancerEntryAdded(URI balancerURI, Collection<URI> balanceeURIs) {
+        balancerEntryChanged(balancerURI);
+    }
+
+    @Override
+    public void balancerEntryRemoved(URI balancerURI, Collection<URI> balanceeURIs) {
+        balancerEntryChanged(balancerURI);
+    }
+
+    @Override
+    public void balancerEntryUpdated(URI balancerURI, Collection<URI> balanceeURIs) {
+        balancerEntryChanged(balancerURI);
+    }
+
+    @Override
+    public void memberAdded(MemberId newMember) {
+        refresh();
+    }
+
+    @Override
+    public void memberRemoved(MemberId removedMember) {
+        refresh();
+    }
+
+    private void balancerEntryChanged(URI balancerURI) {
+        // note: the event value is not used, so that an out of date event cannot leave a stale snapshot
+        if (accepts.contains(balancerURI)) {
+            refresh();
+        }
+    }
+
+    private Map<URI, Integer> getLoads() {
+        if (!strategy.isLoadAware()) {
+            return Collections.emptyMap();
+        }
+        return collectionsFactory.getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+    }
+
+    private static AtomicIntegerArray readLoads(Map<URI, Integer> loads, List<URI> balanceeURIs) {
+        // note: a balancee that has not published its load yet (typically just started) counts as idle
+        AtomicIntegerArray result = new AtomicIntegerArray(balanceeURIs.size());
+        for (int i = 0; i < balanceeURIs.size(); i++) {
+            Integer load = loads.get(balanceeURIs.get(i));
+            if (load != null) {
+                result.set(i, load);
+            }
+        }
+        return result;
+    }
+
+    private static final class Balancees {
+        private final List<URI> clear;
+        private final List<URI> secure;
+        private final AtomicIntegerArray clearLoads;
+        private final AtomicIntegerArray secureLoads;
+
+        Balancees(List<URI> clear, List<URI> secure, AtomicIntegerArray clearLoads, AtomicIntegerArray secureLoads) {
+            this.clear = clear;
+            this.secure = secure;
+            this.clearLoads = clearLoads;
+            this.secureLoads = secureLoads;
+        }
+    }
+}
@@ -21,12 +21,18 @@
 
 package org.kaazing.gateway.service.http.balancer;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.kaazing.gateway.util.Utils.parseTimeInterval;
+
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
 import javax.annotation.Resource;
 
@@ -38,7 +44,9 @@ import org.kaazing.gateway.resource.address.URLUtils;
 import org.kaazing.gateway.service.AcceptOptionsContext;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.ServiceProperties;
 import org.kaazing.gateway.service.cluster.ClusterContext;
+import org.kaazing.gateway.service.messaging.collections.CollectionsFactory;
 import org.kaazing.gateway.transport.BridgeSessionInitializer;
 import org.kaazing.gateway.transport.BridgeSessionInitializerAdapter;
 import org.kaazing.gateway.transport.TransportFactory;
@@ -56,14 +64,22 @@ import org.kaazing.gateway.transport.wsn.WsnSession;
 public class HttpBalancerService implements Service {
     public static final String BALANCER_MAP_NAME = "balancerMap";
     public static final String MEMBERID_BALANCER_MAP_NAME = "memberIdBalancerMap";
+    public static final String BALANCEE_LOAD_MAP_NAME = "balanceeLoadMap";
+    public static final String LOAD_AWARE_BALANCER_MAP_NAME = "loadAwareBalancerMap";
+
+    private static final String SELECTION_STRATEGY = "selection.strategy";
+    private static final String LOAD_REFRESH_INTERVAL = "load.refresh.interval";
 
     private static final AttributeKey BALANCEES_KEY = new AttributeKey(HttpBalancerService.class, "balancees");
 
+    private BalanceeSnapshot balanceeSnapshot;
     private WsebBalancerServiceHandler wsebHandler;
     private WsnBalancerServiceHandler wsnHandler;
     private ServiceContext serviceContext;
     private ClusterContext clusterContext;
     private TransportFactory transportFactory;
+    private long loadRefreshInterval;
+    private ScheduledFuture<?> loadRefresh;
 
     public HttpBalancerService() {
     }
@@ -86,29 +102,54 @@ public class HttpBalancerService implements Service {
     @Override
     public void init(ServiceContext serviceContext) throws Exception {
         this.serviceContext = serviceContext;
+        CollectionsFactory collectionsFactory = (clusterContext != null) ? clusterContext.getCollectionsFactory() : null;
+        ServiceProperties properties = serviceContext.getProperties();
+        BalanceeSelectionStrategy strategy =
+                BalanceeSelectionStrategy.fromName(SELECTION_STRATEGY, properties.get(SELECTION_STRATEGY));
+        loadRefreshInterval = parseTimeInterval(properties.get(LOAD_REFRESH_INTERVAL), MILLISECONDS, "1s");
+        balanceeSnapshot = new BalanceeSnapshot(serviceContext.getAccepts(), collectionsFactory, transportFactory, strategy);
         wsebHandler = new WsebBalancerServiceHandler();
-        wsebHandler.setAccepts(serviceContext.getAccepts());
-        wsebHandler.setClusterContext(clusterContext);
+        wsebHandler.setBalanceeSnapshot(balanceeSnapshot);
         wsnHandler = new WsnBalancerServiceHandler();
-
-        // Register the Gateway's connection capabilities with the handlers so that session counts are tracked
-        wsebHandler.setTransportFactory(transportFactory);
     }
 
     @Override
     public void start() throws Exception {
+        // keep the balancee snapshot up to date with the cluster, so that balance requests never need a cluster lock
+        if (clusterContext != null) {
+            clusterContext.addBalancerMapListener(balanceeSnapshot);
+            clusterContext.addMembershipEventListener(balanceeSnapshot);
+        }
+        balanceeSnapshot.refresh();
+
+        // balancee session counts are re-read on a fixed interval, never per balance request
+        if (clusterContext != null && balanceeSnapshot.getStrategy().isLoadAware() && loadRefreshInterval > 0) {
+            // balancees only publish their session counts once a load aware balancer has registered their balance URI
+            Map<URI, String> loadAwareBalancerMap = clusterContext.getCollectionsFactory().getMap(LOAD_AWARE_BALANCER_MAP_NAME);
+            for (URI balanceURI : serviceContext.getAccepts()) {
+                loadAwareBalancerMap.put(balanceURI, balanceeSnapshot.getStrategy().getName());
+            }
+
+            ScheduledExecutorService scheduler = serviceContext.getSchedulerProvider().getScheduler("balancer_load", false);
+            loadRefresh = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    balanceeSnapshot.refreshLoads();
+                }
+            }, loadRefreshInterval, loadRefreshInterval, MILLISECONDS);
+        }
+
         final BridgeSessionInitializer<ConnectFuture> wsBalancerSessionInitializer = new BridgeSessionInitializerAdapter<ConnectFuture>() {
 
             private final BridgeSessionInitializer<ConnectFuture> preUpgradeHttpSessionInitializer = new BridgeSessionInitializerAdapter<ConnectFuture>() {
                 @Override
                 public void initializeSession(IoSession session, ConnectFuture future) {
                     HttpAcceptSession httpSession = (HttpAcceptSession) session;
-                    List<URI> availableBalanceeURIs = wsebHandler.getBalanceeURIs(httpSession.isSecure());
+                    URI selectedBalanceeURI = balanceeSnapshot.selectBalanceeURI(httpSession.isSecure());
                     List<URI> selectedBalanceeURIs = null;
-                    if (availableBalanceeURIs.isEmpty()) {
+                    if (selectedBalanceeURI == null) {
                         selectedBalanceeURIs = Collections.emptyList();
                     } else {
-                        URI selectedBalanceeURI = availableBalanceeURIs.get((int) (Math.random() * availableBalanceeURIs.size()));
                         selectedBalanceeURIs = new ArrayList<>(1);
                         selectedBalanceeURIs.add(selectedBalanceeURI);
                     }
@@ -143,6 +184,16 @@ public class HttpBalancerService implements Service {
     public void stop() throws Exception {
         quiesce();
 
+        if (loadRefresh != null) {
+            loadRefresh.cancel(false);
+            loadRefresh = null;
+        }
+
+        if (clusterContext != null && balanceeSnapshot != null) {
+            clusterContext.removeBalancerMapListener(balanceeSnapshot);
+            clusterContext.removeMembershipEventListener(balanceeSnapshot);
+        }
+
         if (serviceContext != null) {
             for (IoSession session : serviceContext.getActiveSessions()) {
                 session.close(true);
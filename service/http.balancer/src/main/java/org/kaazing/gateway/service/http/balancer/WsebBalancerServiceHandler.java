@@ -22,48 +22,23 @@
 package org.kaazing.gateway.service.http.balancer;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.Lock;
 
-import org.kaazing.gateway.resource.address.Protocol;
-import org.kaazing.gateway.service.cluster.ClusterContext;
-import org.kaazing.gateway.service.messaging.collections.CollectionsFactory;
 import org.kaazing.gateway.transport.IoHandlerAdapter;
-import org.kaazing.gateway.transport.TransportFactory;
 import org.kaazing.gateway.transport.http.HttpAcceptSession;
 import org.kaazing.gateway.transport.http.HttpStatus;
 import org.kaazing.gateway.transport.wseb.WsebAcceptor;
 import org.kaazing.gateway.util.GL;
 
 class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
-    private Collection<URI> accepts;
-    private ClusterContext clusterContext;
-    private TransportFactory transportFactory;
+    private BalanceeSnapshot balanceeSnapshot;
 
     WsebBalancerServiceHandler() {
     }
 
-    Collection<URI> getAccepts() {
-        return accepts;
-    }
-
-    void setAccepts(Collection<URI> accepts) {
-        this.accepts = new ArrayList<>(accepts);
-    }
-
-    ClusterContext getClusterContext() {
-        return clusterContext;
-    }
-
-    void setClusterContext(ClusterContext clusterContext) {
-        this.clusterContext = clusterContext;
-    }
-
-    public void setTransportFactory(TransportFactory transportFactory) {
-        this.transportFactory = transportFactory;
+    void setBalanceeSnapshot(BalanceeSnapshot balanceeSnapshot) {
+        this.balanceeSnapshot = balanceeSnapshot;
     }
 
     @Override
@@ -74,15 +49,13 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
 
     @Override
     protected void doSessionOpened(HttpAcceptSession session) throws Exception {
-        List<URI> availableBalanceeURIs = getBalanceeURIs(session.isSecure());
+        URI selectedBalanceeURI = selectBalanceeURI(session.isSecure());
 
-        if (availableBalanceeURIs.isEmpty()) {
+        if (selectedBalanceeURI == null) {
             GL.debug("ha", "Rejected {} request for URI \"{}\" on session {}: no available balancee URI was found",
                         session.getMethod(), session.getRequestURI(), session);
             session.setStatus(HttpStatus.CLIENT_NOT_FOUND);
         } else {
-
-            URI selectedBalanceeURI = availableBalanceeURIs.get((int) (Math.random() * availableBalanceeURIs.size()));
             GL.info("ha", "Selected Balancee URI: {}", selectedBalanceeURI);
 
             URI requestURI = session.getRequestURI();
@@ -115,62 +88,19 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
     }
 
     List<URI> getBalanceeURIs(boolean secure) {
-        List<URI> balanceeURIs = new ArrayList<>();
-
-        CollectionsFactory collectionsFactory = null;
-        if (clusterContext != null) {
-            collectionsFactory = clusterContext.getCollectionsFactory();
+        BalanceeSnapshot balanceeSnapshot = this.balanceeSnapshot;
+        if (balanceeSnapshot == null) {
+            return Collections.emptyList();
         }
-
-        if (accepts != null &&
-            collectionsFactory != null) {
-
-            Lock mapLock = getLock(HttpBalancerService.MEMBERID_BALANCER_MAP_NAME);
-            try {
-                mapLock.lock();
-                // Get the map of balance URIs to accept URIs from the cluster.
-                Map<URI, Collection<URI>> balancers = collectionsFactory.getMap(HttpBalancerService.BALANCER_MAP_NAME);
-
-                // For my accept URIs, look up the map to get the balancee URIs for which I am balancing.
-                for (URI balancerAccept : accepts) {
-                    Collection<URI> balanceesForAccept = balancers.get(balancerAccept);
-                    GL.debug("ha", String.format("Found balancee URIs %s for accept URI %s", balanceesForAccept, balancerAccept));
-
-                    if (balanceesForAccept != null) {
-                        for (URI balanceeURI : balanceesForAccept) {
-                            // Pick only clear or secure balancees as appropriate.
-                            Protocol protocol = transportFactory.getProtocol(balanceeURI);
-                            if (secure == protocol.isSecure()) {
-                                balanceeURIs.add(balanceeURI);
-                            }
-                        }
-                    }
-                }
-            } finally {
-                mapLock.unlock();
-            }
-
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("Returning empty balancee URIs list: ");
-
-            if (accepts == null) {
-                sb.append("accepts are null, ");
-            }
-
-            if (clusterContext.getCollectionsFactory() == null) {
-                sb.append("cluster context collections factory is null");
-            }
-
-            GL.info("ha", sb.toString());
-        }
-
-        return balanceeURIs;
+        return balanceeSnapshot.getBalanceeURIs(secure);
     }
 
-
-    public Lock getLock(Object obj) {
-        return clusterContext.getLock(obj);
+    URI selectBalanceeURI(boolean secure) {
+        BalanceeSnapshot balanceeSnapshot = this.balanceeSnapshot;
+        if (balanceeSnapshot == null) {
+            return null;
+        }
+        return balanceeSnapshot.selectBalanceeURI(secure);
     }
 
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.balancer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class BalanceeSelectionStrategyTest {
+    private static final int SELECTIONS = 10000;
+
+    @Test
+    public void shouldDefaultToRandom() {
+        assertEquals(BalanceeSelectionStrategy.RANDOM, BalanceeSelectionStrategy.fromName("selection.strategy", null));
+        assertFalse(BalanceeSelectionStrategy.RANDOM.isLoadAware());
+    }
+
+    @Test
+    public void shouldParseStrategyNames() {
+        for (BalanceeSelectionStrategy strategy : BalanceeSelectionStrategy.values()) {
+            assertEquals(strategy, BalanceeSelectionStrategy.fromName("selection.strategy", strategy.getName()));
+            assertEquals(strategy,
+                    BalanceeSelectionStrategy.fromName("selection.strategy", " " + strategy.getName().toUpperCase() + " "));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownStrategy() {
+        BalanceeSelectionStrategy.fromName("selection.strategy", "round-robin");
+    }
+
+    @Test
+    public void shouldSelectOnlyBalancee() {
+        for (BalanceeSelectionStrategy strategy : BalanceeSelectionStrategy.values()) {
+            assertEquals(0, strategy.select(new AtomicIntegerArray(new int[] { 42 }), new Random(1)));
+        }
+    }
+
+    @Test
+    public void randomShouldIgnoreLoad() {
+        int[] counts = select(BalanceeSelectionStrategy.RANDOM, new int[] { 0, 1000, 1000 }, false);
+        for (int count : counts) {
+            assertTrue(count > SELECTIONS / 4);
+        }
+    }
+
+    @Test
+    public void leastConnectionsShouldSelectLeastLoaded() {
+        Random random = new Random(1);
+        AtomicIntegerArray loads = new AtomicIntegerArray(new int[] { 7, 3, 9, 5 });
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1, BalanceeSelectionStrategy.LEAST_CONNECTIONS.select(loads, random));
+        }
+    }
+
+    @Test
+    public void leastConnectionsShouldBreakTiesAtRandom() {
+        int[] counts = select(BalanceeSelectionStrategy.LEAST_CONNECTIONS, new int[] { 2, 2, 2, 5 }, false);
+        assertTrue(counts[0] > SELECTIONS / 4);
+        assertTrue(counts[1] > SELECTIONS / 4);
+        assertTrue(counts[2] > SELECTIONS / 4);
+        assertEquals(0, counts[3]);
+    }
+
+    @Test
+    public void weightedRandomShouldPreferLightlyLoaded() {
+        int[] counts = select(BalanceeSelectionStrategy.WEIGHTED_RANDOM, new int[] { 0, 900, 900 }, false);
+        assertTrue(counts[0] > counts[1] * 10);
+        assertTrue(counts[0] > counts[2] * 10);
+        assertTrue(counts[1] > 0);
+    }
+
+    @Test
+    public void weightedRandomShouldBeUniformWhenBalanced() {
+        int[] counts = select(BalanceeSelectionStrategy.WEIGHTED_RANDOM, new int[] { 5, 5, 5, 5 }, false);
+        for (int count : counts) {
+            assertTrue(count > SELECTIONS / 5);
+        }
+    }
+
+    @Test
+    public void powerOfTwoChoicesShouldNeverSelectMostLoaded() {
+        int[] counts = select(BalanceeSelectionStrategy.POWER_OF_TWO_CHOICES, new int[] { 1, 2, 3, 100 }, false);
+        assertEquals(0, counts[3]);
+        assertTrue(counts[0] > counts[1]);
+        assertTrue(counts[1] > counts[2]);
+    }
+
+    @Test
+    public void loadAwareStrategiesShouldEvenOutRestartedBalancee() {
+        // a freshly restarted balancee with no sessions next to two busy ones, counting each selection as a session
+        BalanceeSelectionStrategy[] strategies = { BalanceeSelectionStrategy.LEAST_CONNECTIONS,
+                BalanceeSelectionStrategy.WEIGHTED_RANDOM, BalanceeSelectionStrategy.POWER_OF_TWO_CHOICES };
+        for (BalanceeSelectionStrategy strategy : strategies) {
+            int[] loads = { 0, 3000, 3000 };
+            int[] counts = select(strategy, loads, true);
+            assertTrue(strategy.getName(), counts[0] > SELECTIONS / 2);
+        }
+    }
+
+    private static int[] select(BalanceeSelectionStrategy strategy, int[] initialLoads, boolean countSelections) {
+        Random random = new Random(7);
+        AtomicIntegerArray loads = new AtomicIntegerArray(initialLoads);
+        int[] counts = new int[initialLoads.length];
+        for (int i = 0; i < SELECTIONS; i++) {
+            int selected = strategy.select(loads, random);
+            counts[selected]++;
+            if (countSelections) {
+                loads.incrementAndGet(selected);
+            }
+        }
+        return counts;
+    }
+}
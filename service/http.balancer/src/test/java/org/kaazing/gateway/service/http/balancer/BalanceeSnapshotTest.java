@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.balancer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.service.messaging.collections.CollectionsFactory;
+import org.kaazing.gateway.service.messaging.collections.MemoryCollectionsFactory;
+import org.kaazing.gateway.transport.TransportFactory;
+
+public class BalanceeSnapshotTest {
+    private static final URI BALANCER_URI = URI.create("ws://balancer.example.com:8000/echo");
+    private static final int THREADS = 4;
+    private static final long MEASUREMENT_MILLIS = 250;
+    // far below what a lock-free snapshot sustains, so only a regression to per-request locking or I/O trips it
+    private static final long MIN_REQUESTS_PER_SECOND = 10000;
+
+    private CollectionsFactory collectionsFactory;
+    private TransportFactory transportFactory;
+    private Map<URI, Collection<URI>> balancerMap;
+    private BalanceeSnapshot snapshot;
+
+    @Before
+    public void setUp() {
+        collectionsFactory = new MemoryCollectionsFactory();
+        transportFactory = TransportFactory.newTransportFactory(Collections.<String, Object>emptyMap());
+        balancerMap = collectionsFactory.getMap(HttpBalancerService.BALANCER_MAP_NAME);
+        snapshot = new BalanceeSnapshot(Collections.singletonList(BALANCER_URI), collectionsFactory, transportFactory);
+    }
+
+    @Test
+    public void shouldSeparateClearAndSecureBalancees() throws Exception {
+        balancerMap.put(BALANCER_URI, balancees(3));
+        snapshot.refresh();
+
+        assertEquals(3, snapshot.getBalanceeURIs(false).size());
+        assertEquals(3, snapshot.getBalanceeURIs(true).size());
+        for (URI balanceeURI : snapshot.getBalanceeURIs(true)) {
+            assertEquals("wss", balanceeURI.getScheme());
+        }
+    }
+
+    @Test
+    public void shouldRefreshWhenBalancerEntryChanges() throws Exception {
+        balancerMap.put(BALANCER_URI, balancees(1));
+        snapshot.refresh();
+        assertEquals(1, snapshot.getBalanceeURIs(false).size());
+
+        Set<URI> balancees = balancees(3);
+        balancerMap.put(BALANCER_URI, balancees);
+        snapshot.balancerEntryUpdated(BALANCER_URI, balancees);
+        assertEquals(3, snapshot.getBalanceeURIs(false).size());
+
+        balancerMap.remove(BALANCER_URI);
+        snapshot.balancerEntryRemoved(BALANCER_URI, balancees);
+        assertTrue(snapshot.getBalanceeURIs(false).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreOtherBalancerEntries() throws Exception {
+        URI otherBalancerURI = URI.create("ws://other.example.com:8000/echo");
+        balancerMap.put(BALANCER_URI, balancees(1));
+        snapshot.refresh();
+
+        balancerMap.put(BALANCER_URI, balancees(5));
+        snapshot.balancerEntryAdded(otherBalancerURI, balancees(2));
+        assertEquals(1, snapshot.getBalanceeURIs(false).size());
+
+        snapshot.memberAdded(null);
+        assertEquals(5, snapshot.getBalanceeURIs(false).size());
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutCollectionsFactory() throws Exception {
+        BalanceeSnapshot snapshot = new BalanceeSnapshot(Collections.singletonList(BALANCER_URI), null, transportFactory);
+        snapshot.refresh();
+        assertTrue(snapshot.getBalanceeURIs(false).isEmpty());
+    }
+
+    @Test
+    public void shouldSelectLeastLoadedBalancee() throws Exception {
+        Map<URI, Integer> loadMap = collectionsFactory.getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+        BalanceeSnapshot snapshot = new BalanceeSnapshot(Collections.singletonList(BALANCER_URI), collectionsFactory,
+                transportFactory, BalanceeSelectionStrategy.LEAST_CONNECTIONS);
+        URI restarted = URI.create("ws://member2.example.com:8001/echo");
+        balancerMap.put(BALANCER_URI, balancees(3));
+        loadMap.put(URI.create("ws://member1.example.com:8001/echo"), 10);
+        loadMap.put(URI.create("ws://member3.example.com:8001/echo"), 10);
+        snapshot.refresh();
+
+        // the restarted member has not published a load yet, and gets every request until it catches up
+        for (int i = 0; i < 10; i++) {
+            assertEquals(restarted, snapshot.selectBalanceeURI(false));
+        }
+        assertEquals(10, snapshot.getLoad(restarted));
+        assertEquals(-1, snapshot.getLoad(URI.create("ws://member4.example.com:8001/echo")));
+    }
+
+    @Test
+    public void shouldRefreshLoadsOnlyWhenAsked() throws Exception {
+        Map<URI, Integer> loadMap = collectionsFactory.getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+        BalanceeSnapshot snapshot = new BalanceeSnapshot(Collections.singletonList(BALANCER_URI), collectionsFactory,
+                transportFactory, BalanceeSelectionStrategy.POWER_OF_TWO_CHOICES);
+        URI balancee = URI.create("ws://member1.example.com:8001/echo");
+        balancerMap.put(BALANCER_URI, balancees(2));
+        snapshot.refresh();
+        assertEquals(0, snapshot.getLoad(balancee));
+
+        loadMap.put(balancee, 25);
+        assertEquals(0, snapshot.getLoad(balancee));
+
+        snapshot.refreshLoads();
+        assertEquals(25, snapshot.getLoad(balancee));
+        assertEquals(2, snapshot.getBalanceeURIs(false).size());
+    }
+
+    @Test
+    public void shouldNotReadLoadsForRandomSelection() throws Exception {
+        Map<URI, Integer> loadMap = collectionsFactory.getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+        URI balancee = URI.create("ws://member1.example.com:8001/echo");
+        balancerMap.put(BALANCER_URI, balancees(1));
+        loadMap.put(balancee, 25);
+        snapshot.refresh();
+        snapshot.refreshLoads();
+
+        assertEquals(0, snapshot.getLoad(balancee));
+        assertEquals(balancee, snapshot.selectBalanceeURI(false));
+    }
+
+    @Test
+    public void shouldSelectNothingWithoutBalancees() throws Exception {
+        snapshot.refresh();
+        assertNull(snapshot.selectBalanceeURI(false));
+        assertNull(snapshot.selectBalanceeURI(true));
+    }
+
+    @Test
+    public void shouldSustainMinimumBalanceRequestRate() throws Exception {
+        for (int members : new int[] { 1, 3, 5 }) {
+            Set<URI> balancees = balancees(members);
+            balancerMap.put(BALANCER_URI, balancees);
+            snapshot.balancerEntryUpdated(BALANCER_URI, balancees);
+
+            long requestsPerSecond = balance(snapshot) * 1000 / MEASUREMENT_MILLIS;
+            assertTrue(String.format("%d member(s): %d balance requests/sec with %d threads", members, requestsPerSecond,
+                    THREADS), requestsPerSecond >= MIN_REQUESTS_PER_SECOND);
+        }
+    }
+
+    // issues balance requests from several threads for the measurement interval, returning the number issued
+    private static long balance(final BalanceeSnapshot snapshot) throws InterruptedException {
+        final AtomicLong requests = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MEASUREMENT_MILLIS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread("balance-" + i) {
+                @Override
+                public void run() {
+                    long count = 0;
+                    while (System.nanoTime() < deadline) {
+                        URI selected = snapshot.selectBalanceeURI(false);
+                        if (selected != null) {
+                            count++;
+                        }
+                    }
+                    requests.addAndGet(count);
+                    done.countDown();
+                }
+            }.start();
+        }
+        done.await();
+        return requests.get();
+    }
+
+    private static Set<URI> balancees(int members) {
+        Set<URI> balancees = new HashSet<>();
+        for (int i = 1; i <= members; i++) {
+            balancees.add(URI.create(String.format("ws://member%d.example.com:8001/echo", i)));
+            balancees.add(URI.create(String.format("wss://member%d.example.com:9001/echo", i)));
+        }
+        return balancees;
+    }
+}
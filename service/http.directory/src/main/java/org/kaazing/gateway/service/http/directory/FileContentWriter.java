@@ -0,0 +1,296 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_DIRECT;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_POOLED;
+import static org.kaazing.mina.core.buffer.IoBufferPool.POOLED_ALLOCATION;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.apache.mina.core.file.DefaultFileRegion;
+import org.apache.mina.core.future.CloseFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.session.IoSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.netty.socket.nio.NioSocketChannelIoSession;
+
+/**
+ * Writes file content to an HTTP response without loading the whole file into heap.
+ *
+ * Responses over plain TCP that are not gzipped are written as a file region, which the I/O worker transfers
+ * with FileChannel.transferTo (sendfile where available).  Otherwise (for example over SSL) the file is read in
+ * chunks, and the next chunk is read only once an earlier one has been written, so memory use per response
+ * is bounded by {@link #CHUNK_SIZE} * {@link #MAXIMUM_CHUNKS_IN_FLIGHT} regardless of file size.  Chunks use
+ * pooled direct buffers when pooled allocation is enabled.
+ */
+final class FileContentWriter {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    static final int MAXIMUM_CHUNKS_IN_FLIGHT = 2;
+
+    private static final Logger logger = LoggerFactory.getLogger("service.http.directory");
+
+    private FileContentWriter() {
+    }
+
+    /**
+     * Returns true if file content can be transferred directly from the file to the socket for this response.
+     */
+    static boolean isTransferToSupported(HttpAcceptSession session) {
+        if ("gzip".equalsIgnoreCase(session.getWriteHeader("Content-Encoding"))) {
+            return false;
+        }
+
+        // SSL (and any other bridge) sessions sit between HTTP and TCP, and must see every byte
+        IoSession parent = session.getParent();
+        return parent instanceof NioSocketChannelIoSession;
+    }
+
+    /**
+     * Writes count bytes of the file starting at position, then closes the session (completing the response).
+     * The file is closed once written, or when the session closes.
+     */
+    static void write(HttpAcceptSession session, FileChannel file, long position, long count) throws IOException {
+        if (count == 0L) {
+            close(file);
+            session.close(false);
+            return;
+        }
+
+        write(session, file, new long[] { position }, new long[] { count }, null, null);
+    }
+
+    /**
+     * Writes a multipart/byteranges body for the ranges of the file, then closes the session.
+     * Only the requested bytes are read from the file.
+     */
+    static void write(HttpAcceptSession session, FileChannel file, List<HttpByteRange> ranges, String boundary,
+            String contentType, long contentLength) throws IOException {
+        int size = ranges.size();
+        long[] positions = new long[size];
+        long[] counts = new long[size];
+        byte[][] partHeaders = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            HttpByteRange range = ranges.get(i);
+            positions[i] = range.first;
+            counts[i] = range.length();
+            partHeaders[i] = range.getPartHeader(boundary, contentType, contentLength);
+        }
+
+        write(session, file, positions, counts, partHeaders, HttpByteRange.getTrailer(boundary));
+    }
+
+    /**
+     * Returns the number of bytes in a multipart/byteranges body for the ranges.
+     */
+    static long getMultipartLength(List<HttpByteRange> ranges, String boundary, String contentType, long contentLength) {
+        long length = HttpByteRange.getTrailer(boundary).length;
+        for (HttpByteRange range : ranges) {
+            length += range.getPartHeader(boundary, contentType, contentLength).length + range.length();
+        }
+        return length;
+    }
+
+    private static void write(HttpAcceptSession session, final FileChannel file, long[] positions, long[] counts,
+            byte[][] prefixes, byte[] suffix) throws IOException {
+        closeOnSessionClose(session, file);
+
+        if (isTransferToSupported(session)) {
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            WriteFuture future = null;
+            for (int i = 0; i < positions.length; i++) {
+                if (prefixes != null) {
+                    session.write(allocator.wrap(ByteBuffer.wrap(prefixes[i])));
+                }
+                future = session.write(new DefaultFileRegion(file, positions[i], counts[i]));
+            }
+            if (suffix != null) {
+                future = session.write(allocator.wrap(ByteBuffer.wrap(suffix)));
+            }
+            future.addListener(new IoFutureListener<WriteFuture>() {
+                @Override
+                public void operationComplete(WriteFuture future) {
+                    close(file);
+                }
+            });
+            session.close(false);
+        }
+        else {
+            new ChunkedFileWrite(session, file, positions, counts, prefixes, suffix).writeChunks();
+        }
+    }
+
+    private static void closeOnSessionClose(HttpAcceptSession session, final FileChannel file) {
+        session.getCloseFuture().addListener(new IoFutureListener<CloseFuture>() {
+            @Override
+            public void operationComplete(CloseFuture future) {
+                close(file);
+            }
+        });
+    }
+
+    private static void close(FileChannel file) {
+        try {
+            file.close();
+        }
+        catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Unable to close file channel", e);
+            }
+        }
+    }
+
+    private static final class ChunkedFileWrite implements IoFutureListener<WriteFuture> {
+        private final HttpAcceptSession session;
+        private final FileChannel file;
+        private final long[] positions;
+        private final long[] counts;
+        private final byte[][] prefixes;
+        private final byte[] suffix;
+        private final int flags;
+
+        // current segment, with the read position and end of its file range
+        private int segment;
+        private long position;
+        private long end;
+        private boolean prefixWritten;
+        private boolean suffixWritten;
+        private int chunksInFlight;
+        private boolean writing;
+
+        ChunkedFileWrite(HttpAcceptSession session, FileChannel file, long[] positions, long[] counts,
+                byte[][] prefixes, byte[] suffix) {
+            this.session = session;
+            this.file = file;
+            this.positions = positions;
+            this.counts = counts;
+            this.prefixes = prefixes;
+            this.suffix = suffix;
+            this.flags = POOLED_ALLOCATION ? FLAG_DIRECT | FLAG_POOLED : FLAG_NONE;
+            this.position = positions[0];
+            this.end = positions[0] + counts[0];
+            this.prefixWritten = (prefixes == null);
+            this.suffixWritten = (suffix == null);
+        }
+
+        @Override
+        public void operationComplete(WriteFuture future) {
+            chunksInFlight--;
+
+            if (!future.isWritten()) {
+                close(file);
+                return;
+            }
+
+            // note: writes that complete synchronously are picked up by the enclosing writeChunks loop
+            if (!writing) {
+                try {
+                    writeChunks();
+                }
+                catch (IOException e) {
+                    logger.warn(String.format("Unable to read file content for %s", session.getRequestURI()), e);
+                    close(file);
+                    session.close(true);
+                }
+            }
+        }
+
+        void writeChunks() throws IOException {
+            writing = true;
+            try {
+                IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+                while (chunksInFlight < MAXIMUM_CHUNKS_IN_FLIGHT && !isComplete() && !session.isClosing()) {
+                    ByteBuffer buf;
+                    int bufFlags;
+                    if (!prefixWritten) {
+                        buf = ByteBuffer.wrap(prefixes[segment]);
+                        bufFlags = FLAG_NONE;
+                        prefixWritten = true;
+                    }
+                    else if (position < end) {
+                        int size = (int) Math.min(CHUNK_SIZE, end - position);
+                        buf = allocator.allocate(size, flags);
+                        bufFlags = flags;
+                        int start = buf.position();
+                        readFully(buf, position);
+                        buf.position(start);
+                        position += size;
+                    }
+                    else if (segment + 1 < positions.length) {
+                        segment++;
+                        position = positions[segment];
+                        end = position + counts[segment];
+                        prefixWritten = (prefixes == null);
+                        continue;
+                    }
+                    else {
+                        buf = ByteBuffer.wrap(suffix);
+                        bufFlags = FLAG_NONE;
+                        suffixWritten = true;
+                    }
+
+                    chunksInFlight++;
+                    WriteFuture future = session.write(allocator.wrap(buf, bufFlags));
+                    if (isComplete()) {
+                        // last chunk queued, complete the response once it has been written
+                        session.close(false);
+                    }
+                    future.addListener(this);
+                }
+            }
+            finally {
+                writing = false;
+            }
+
+            if (isComplete() && chunksInFlight == 0) {
+                close(file);
+            }
+        }
+
+        private boolean isComplete() {
+            return segment + 1 == positions.length && prefixWritten && position == end && suffixWritten;
+        }
+
+        private void readFully(ByteBuffer buf, long position) throws IOException {
+            long readPosition = position;
+            while (buf.hasRemaining()) {
+                int read = file.read(buf, readPosition);
+                if (read == -1) {
+                    throw new EOFException(String.format("File truncated at %d bytes while writing %s",
+                            readPosition, session.getRequestURI()));
+                }
+                readPosition += read;
+            }
+        }
+    }
+}
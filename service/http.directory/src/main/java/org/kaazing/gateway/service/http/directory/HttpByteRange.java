@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Satisfiable byte range of a representation, as requested by the HTTP Range header (RFC 7233).
+ */
+final class HttpByteRange {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    // more range specifiers than this is treated as abuse, and the Range header is ignored
+    static final int MAXIMUM_RANGES = 64;
+
+    private static final Comparator<HttpByteRange> FIRST_BYTE_ORDER = new Comparator<HttpByteRange>() {
+        @Override
+        public int compare(HttpByteRange range1, HttpByteRange range2) {
+            return Long.compare(range1.first, range2.first);
+        }
+    };
+
+    final long first;
+    final long last;
+
+    HttpByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long length() {
+        return last - first + 1;
+    }
+
+    String getContentRange(long contentLength) {
+        return String.format("bytes %d-%d/%d", first, last, contentLength);
+    }
+
+    /**
+     * Parses a Range header value against a representation of the given length.
+     *
+     * Overlapping and adjacent ranges are coalesced, and the result is ordered by first byte.
+     *
+     * @return the satisfiable ranges, an empty list if none are satisfiable, or null if the header
+     *         is syntactically invalid (and must be ignored)
+     */
+    static List<HttpByteRange> parse(String rangeHeader, long contentLength) {
+        if (rangeHeader == null || !rangeHeader.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+
+        String[] specifiers = rangeHeader.substring(6).split(",");
+        if (specifiers.length > MAXIMUM_RANGES) {
+            return null;
+        }
+
+        List<HttpByteRange> ranges = new ArrayList<>(specifiers.length);
+        for (String specifier : specifiers) {
+            specifier = specifier.trim();
+            int dashAt = specifier.indexOf('-');
+            if (dashAt == -1) {
+                return null;
+            }
+
+            String firstValue = specifier.substring(0, dashAt).trim();
+            String lastValue = specifier.substring(dashAt + 1).trim();
+            try {
+                if (firstValue.isEmpty()) {
+                    // suffix range, last N bytes
+                    long suffixLength = parseBytePosition(lastValue);
+                    if (suffixLength > 0L && contentLength > 0L) {
+                        ranges.add(new HttpByteRange(Math.max(0L, contentLength - suffixLength), contentLength - 1));
+                    }
+                }
+                else {
+                    long first = parseBytePosition(firstValue);
+                    long last = lastValue.isEmpty() ? Long.MAX_VALUE : parseBytePosition(lastValue);
+                    if (last < first) {
+                        return null;
+                    }
+                    if (first < contentLength) {
+                        ranges.add(new HttpByteRange(first, Math.min(last, contentLength - 1)));
+                    }
+                }
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return coalesce(ranges);
+    }
+
+    static String newBoundary() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    /**
+     * Returns the delimiter and headers preceding this range in a multipart/byteranges body.
+     */
+    byte[] getPartHeader(String boundary, String contentType, long contentLength) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("\r\n--").append(boundary).append("\r\n");
+        if (contentType != null) {
+            builder.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        builder.append("Content-Range: ").append(getContentRange(contentLength)).append("\r\n\r\n");
+        return builder.toString().getBytes(US_ASCII);
+    }
+
+    static byte[] getTrailer(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HttpByteRange [%d-%d]", first, last);
+    }
+
+    private static long parseBytePosition(String value) {
+        // note: Long.parseLong accepts a leading sign, which is not valid here
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0))) {
+            throw new NumberFormatException(value);
+        }
+        return Long.parseLong(value);
+    }
+
+    private static List<HttpByteRange> coalesce(List<HttpByteRange> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+
+        Collections.sort(ranges, FIRST_BYTE_ORDER);
+        List<HttpByteRange> coalesced = new ArrayList<>(ranges.size());
+        HttpByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            HttpByteRange next = ranges.get(i);
+            if (next.first <= current.last + 1) {
+                current = new HttpByteRange(current.first, Math.max(current.last, next.last));
+            }
+            else {
+                coalesced.add(current);
+                current = next;
+            }
+        }
+        coalesced.add(current);
+        return coalesced;
+    }
+}
@@ -21,30 +21,52 @@
 
 package org.kaazing.gateway.service.http.directory;
 
+import static org.kaazing.gateway.util.Utils.parseBoolean;
+import static org.kaazing.gateway.util.Utils.parseDataSize;
+import static org.kaazing.gateway.util.Utils.parsePositiveInteger;
+
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.annotation.Resource;
 
 import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.ServiceProperties;
+import org.kaazing.gateway.service.ServiceStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Gateway service of type "directory".
  */
-public class HttpDirectoryService implements Service {
+public class HttpDirectoryService implements Service, ServiceStatistics {
     private final Logger logger = LoggerFactory.getLogger("service.directory");
 
+    private static final String FILE_CACHE_ENABLED = "org.kaazing.gateway.server.service.directory.FILE_CACHE_ENABLED";
+    private static final String FILE_CACHE_MAXIMUM_FILES = "org.kaazing.gateway.server.service.directory.FILE_CACHE_MAXIMUM_FILES";
+    private static final String FILE_CACHE_MAXIMUM_SIZE = "org.kaazing.gateway.server.service.directory.FILE_CACHE_MAXIMUM_SIZE"; // e.g. 32m
+    private static final String FILE_CACHE_MAXIMUM_FILE_SIZE = "org.kaazing.gateway.server.service.directory.FILE_CACHE_MAXIMUM_FILE_SIZE"; // e.g. 1m
+
     private HttpDirectoryServiceHandler handler;
     private ServiceContext serviceContext;
+    private Properties configuration;
 
     public HttpDirectoryService() {
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
     @Override
     public String getType() {
         return "directory";
@@ -108,9 +130,33 @@ public class HttpDirectoryService implements Service {
             handler.setIndexes(true);
         }
 
+        handler.setFileCache(newFileCache());
+
         // Register the Gateway's connection capabilities with the handler so that session counts are tracked
     }
 
+    private HttpFileCache newFileCache() throws IOException {
+        Properties configuration = (this.configuration != null) ? this.configuration : new Properties();
+
+        boolean enabled = parseBoolean(FILE_CACHE_ENABLED, configuration.getProperty(FILE_CACHE_ENABLED), false);
+        if (!enabled) {
+            return null;
+        }
+
+        long maximumFiles = parsePositiveInteger(FILE_CACHE_MAXIMUM_FILES,
+                configuration.getProperty(FILE_CACHE_MAXIMUM_FILES), 1024);
+        int maximumSize = parseDataSize(configuration.getProperty(FILE_CACHE_MAXIMUM_SIZE, "32m"));
+        int maximumFileSize = parseDataSize(configuration.getProperty(FILE_CACHE_MAXIMUM_FILE_SIZE, "1m"));
+
+        return new HttpFileCache((int) Math.min(maximumFiles, Integer.MAX_VALUE), maximumSize, maximumFileSize);
+    }
+
+    @Override
+    public Map<String, Number> getStatistics() {
+        HttpFileCache fileCache = (handler != null) ? handler.getFileCache() : null;
+        return (fileCache != null) ? fileCache.getStatistics() : Collections.<String, Number>emptyMap();
+    }
+
     /**
      * Converts a location in the gateway configuration file into a file relative to a specified root directory.
      * 
@@ -162,5 +208,9 @@ public class HttpDirectoryService implements Service {
 
     @Override
     public void destroy() throws Exception {
+        HttpFileCache fileCache = (handler != null) ? handler.getFileCache() : null;
+        if (fileCache != null) {
+            fileCache.close();
+        }
     }
 }
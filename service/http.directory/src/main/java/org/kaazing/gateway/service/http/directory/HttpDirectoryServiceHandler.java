@@ -21,16 +21,21 @@
 
 package org.kaazing.gateway.service.http.directory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.TreeMap;
 
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.http.directory.HttpFileCache.CachedFile;
 import org.kaazing.gateway.transport.IoHandlerAdapter;
 import org.kaazing.gateway.transport.http.HttpAcceptSession;
 import org.kaazing.gateway.transport.http.HttpHeaders;
@@ -48,6 +53,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
     private String welcomeFile;
     private File errorPagesDir;
     private boolean indexes;
+    private HttpFileCache fileCache;
 
     HttpDirectoryServiceHandler() {
     }
@@ -88,6 +94,14 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         this.indexes = indexes;
     }
 
+    void setFileCache(HttpFileCache fileCache) {
+        this.fileCache = fileCache;
+    }
+
+    HttpFileCache getFileCache() {
+        return fileCache;
+    }
+
     @Override
     public void doSessionCreated(HttpAcceptSession session) throws Exception {
     	// NOOP no license check needed
@@ -119,6 +133,16 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         // get relative path from service path
         String pathInfo = session.getPathInfo().getPath();
 
+        // serve cached files without resolving the request again (the cache drops entries whose files change),
+        // except that directory requests without a trailing slash must still be redirected
+        if (fileCache != null) {
+            CachedFile cachedFile = fileCache.get(pathInfo);
+            if (cachedFile != null && (!cachedFile.welcomeFile || session.getRequestURI().getPath().endsWith("/"))) {
+                writeCachedFile(session, method, cachedFile);
+                return;
+            }
+        }
+
         // construct file reference from configured base directory
         File requestFile = new File(baseDir, "/" + pathInfo);
 
@@ -157,6 +181,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         // or a directory listing as appropriate. This is done in a separate set
         // from the redirect to allow bad requests to be detected before possibly
         // generating a directory listing.
+        boolean welcomeFileRequested = false;
         if (requestFile.isDirectory()) {
             boolean generateIndex = usingIndexes();
             if (welcomeFile != null) {
@@ -169,6 +194,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
                 // welcome file.
                 if (testWelcomeFile.exists() || !generateIndex) {
                     requestFile = testWelcomeFile;
+                    welcomeFileRequested = true;
                     generateIndex = false;
                 }
             }
@@ -193,7 +219,16 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
             return;
         }
 
-        
+        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
+
+        if (fileCache != null) {
+            CachedFile cachedFile = fileCache.load(pathInfo, requestFile, contentType, welcomeFileRequested);
+            if (cachedFile != null) {
+                writeCachedFile(session, method, cachedFile);
+                return;
+            }
+        }
+
         // check to see if the file has been modified sense last request
         String etag = HttpUtils.getETagHeaderValue(requestFile);
         boolean modified = HttpUtils.hasBeenModified(session, etag, requestFile);
@@ -206,28 +241,184 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         }
 
         // add cached content file headers.
-        HttpUtils.addLastModifiedHeader(session, requestFile);
+        String lastModified = HttpUtils.getLastModifiedHeaderValue(requestFile.lastModified());
+        session.setWriteHeader("Last-Modified", lastModified);
         HttpUtils.addExpiresHeader(session);
         session.setWriteHeader("ETag", etag);
 
         // add the content type, based on file extension.
-        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
         if (contentType != null) {
             session.setWriteHeader("Content-Type", contentType);
         }
 
-        // get io buffer for file
-        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
-        IoBufferEx buf = HttpUtils.getBufferForFile(allocator, requestFile);
+        writeFile(session, method, requestFile, etag, lastModified, contentType);
+    }
+
+    private void writeCachedFile(HttpAcceptSession session, HttpMethod method, CachedFile cachedFile) throws IOException {
+        // note: range requests are served from the identity representation
+        boolean gzipped = cachedFile.gzippedContent != null && acceptsGzip(session) &&
+                session.getReadHeader("Range") == null;
+        String etag = gzipped ? cachedFile.gzippedETag : cachedFile.etag;
+
+        // content depends on Accept-Encoding when a gzipped variant exists
+        if (cachedFile.gzippedContent != null) {
+            session.setWriteHeader("Vary", "Accept-Encoding");
+        }
 
-        // add content length
-        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Integer.toString(buf.remaining()));
+        // check to see if the file has been modified sense last request
+        if (!HttpUtils.hasBeenModified(session, etag, cachedFile.lastModified)) {
+            session.setWriteHeader("ETag", etag);
+            session.setStatus(HttpStatus.REDIRECT_NOT_MODIFIED);
+            session.close(false);
+            return;
+        }
+
+        session.setWriteHeader("Last-Modified", cachedFile.lastModifiedHeader);
+        HttpUtils.addExpiresHeader(session);
+        session.setWriteHeader("ETag", etag);
+        if (cachedFile.contentType != null) {
+            session.setWriteHeader("Content-Type", cachedFile.contentType);
+        }
+
+        byte[] content = gzipped ? cachedFile.gzippedContent : cachedFile.content;
+        if (content == null) {
+            // too large to cache content
+            writeFile(session, method, cachedFile.file, etag, cachedFile.lastModifiedHeader, cachedFile.contentType);
+            return;
+        }
+
+        if (gzipped) {
+            session.setWriteHeader("Content-Encoding", "gzip");
+        }
+        session.setWriteHeader("Accept-Ranges", "bytes");
+
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        List<HttpByteRange> ranges = gzipped ? null :
+            getRanges(session, method, etag, cachedFile.lastModifiedHeader, cachedFile.lastModified, content.length);
+        if (ranges == null) {
+            session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Integer.toString(content.length));
+
+            // HEAD responses exclude content
+            if (method != HttpMethod.HEAD) {
+                session.write(allocator.wrap(ByteBuffer.wrap(content)));
+            }
+        }
+        else if (ranges.isEmpty()) {
+            setRangeNotSatisfiable(session, content.length);
+        }
+        else if (ranges.size() == 1) {
+            HttpByteRange range = ranges.get(0);
+            setPartialContent(session, range.getContentRange(content.length), range.length());
+            session.write(allocator.wrap(ByteBuffer.wrap(content, (int) range.first, (int) range.length())));
+        }
+        else {
+            String boundary = HttpByteRange.newBoundary();
+            ByteArrayOutputStream multipart = new ByteArrayOutputStream();
+            for (HttpByteRange range : ranges) {
+                multipart.write(range.getPartHeader(boundary, cachedFile.contentType, content.length));
+                multipart.write(content, (int) range.first, (int) range.length());
+            }
+            multipart.write(HttpByteRange.getTrailer(boundary));
 
-        // write buffer and close session
-        session.write(buf);
+            setMultipartContent(session, boundary, multipart.size());
+            session.write(allocator.wrap(ByteBuffer.wrap(multipart.toByteArray())));
+        }
         session.close(false);
     }
 
+    private void writeFile(HttpAcceptSession session, HttpMethod method, File requestFile, String etag,
+            String lastModified, String contentType) throws IOException {
+        // open file once, so content length and content are consistent
+        FileChannel file = new FileInputStream(requestFile).getChannel();
+        long length = file.size();
+
+        session.setWriteHeader("Accept-Ranges", "bytes");
+
+        List<HttpByteRange> ranges = getRanges(session, method, etag, lastModified, requestFile.lastModified(), length);
+        if (ranges == null) {
+            // add content length
+            session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Long.toString(length));
+
+            // HEAD responses exclude content
+            if (method == HttpMethod.HEAD) {
+                file.close();
+                session.close(false);
+                return;
+            }
+
+            // write file content without buffering the whole file, then close session
+            FileContentWriter.write(session, file, 0L, length);
+        }
+        else if (ranges.isEmpty()) {
+            file.close();
+            setRangeNotSatisfiable(session, length);
+            session.close(false);
+        }
+        else if (ranges.size() == 1) {
+            // read only the requested range from the file
+            HttpByteRange range = ranges.get(0);
+            setPartialContent(session, range.getContentRange(length), range.length());
+            FileContentWriter.write(session, file, range.first, range.length());
+        }
+        else {
+            String boundary = HttpByteRange.newBoundary();
+            setMultipartContent(session, boundary,
+                    FileContentWriter.getMultipartLength(ranges, boundary, contentType, length));
+            FileContentWriter.write(session, file, ranges, boundary, contentType, length);
+        }
+    }
+
+    /**
+     * Returns the ranges requested by a GET request, or null if the full content should be sent
+     * (no Range header, an invalid one, or an If-Range validator that does not match).
+     */
+    private static List<HttpByteRange> getRanges(HttpAcceptSession session, HttpMethod method, String etag,
+            String lastModified, long lastModifiedMillis, long length) {
+        if (method != HttpMethod.GET) {
+            return null;
+        }
+
+        List<HttpByteRange> ranges = HttpByteRange.parse(session.getReadHeader("Range"), length);
+        if (ranges != null) {
+            String ifRange = session.getReadHeader("If-Range");
+            if (ifRange != null && !matchesIfRange(ifRange, etag, lastModified, lastModifiedMillis)) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns true if the If-Range validator matches the current representation by strong comparison
+     * (RFC 7233 section 3.2).  Weak entity tags never match.  A Last-Modified date only matches when it is a strong
+     * validator, meaning the file was last modified more than one second ago, so it cannot have changed again
+     * within the same second.
+     */
+    static boolean matchesIfRange(String ifRange, String etag, String lastModified, long lastModifiedMillis) {
+        if (ifRange.startsWith("W/") || ifRange.startsWith("\"")) {
+            return etag != null && !etag.startsWith("W/") && ifRange.equals(etag);
+        }
+        return ifRange.equals(lastModified) && System.currentTimeMillis() - lastModifiedMillis > 1000L;
+    }
+
+    private static void setPartialContent(HttpAcceptSession session, String contentRange, long contentLength) {
+        session.setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+        session.setWriteHeader("Content-Range", contentRange);
+        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+    }
+
+    private static void setMultipartContent(HttpAcceptSession session, String boundary, long contentLength) {
+        session.setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+        session.setWriteHeader("Content-Type", "multipart/byteranges; boundary=" + boundary);
+        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+    }
+
+    private static void setRangeNotSatisfiable(HttpAcceptSession session, long length) {
+        session.setStatus(HttpStatus.CLIENT_REQUEST_RANGE_NOT_SATISFIABLE);
+        session.setWriteHeader("Content-Range", "bytes */" + length);
+        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, "0");
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -242,6 +433,28 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         return sb.toString();
     }
     
+    private static boolean acceptsGzip(HttpAcceptSession session) {
+        String acceptEncoding = session.getReadHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            if ("gzip".equalsIgnoreCase(parameters[0].trim())) {
+                // gzip is acceptable unless explicitly given a zero quality value
+                for (int i = 1; i < parameters.length; i++) {
+                    String parameter = parameters[i].trim();
+                    if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void reportError(HttpAcceptSession session, HttpStatus status) throws IOException {
         session.setStatus(status);
         if (errorPagesDir != null && errorPagesDir.exists()) {
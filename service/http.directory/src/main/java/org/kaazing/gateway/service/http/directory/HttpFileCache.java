@@ -0,0 +1,470 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.kaazing.gateway.transport.http.HttpUtils;
+
+/**
+ * Bounded cache of resolved files for the directory service, keyed by request path.
+ *
+ * Each entry holds the response metadata (ETag, Last-Modified and Content-Type header values) and, for files no
+ * larger than the configured maximum file size, the file content plus a pre-gzipped variant for compressible
+ * content types.  Entries are evicted least recently used first once either the entry or the byte limit is
+ * exceeded.
+ *
+ * Hits are served without touching the file system.  Instead, a WatchService watches the canonical directory
+ * containing each cached file, plus the canonical directory containing each symbolic link on the way to it, and
+ * entries are invalidated when any of those directories reports a change (so swapping a symbolic link or replacing
+ * the file invalidates the entry).  An overflow invalidates every entry.
+ */
+final class HttpFileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger("service.http.directory");
+
+    // compressing tiny files is not worth the Content-Encoding and Vary headers
+    private static final int MINIMUM_GZIP_SIZE = 256;
+
+    private final int maximumFiles;
+    private final long maximumBytes;
+    private final long maximumFileSize;
+
+    private final WatchService watcher;
+    private final ConcurrentMap<Path, WatchKey> watchedDirectories;
+    private final ConcurrentMap<String, CachedFile> entries;
+    private final AtomicLong invalidations;
+    private final AtomicLong accessClock;
+    private final AtomicLong bytesCached;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private volatile boolean closed;
+
+    HttpFileCache(int maximumFiles, long maximumBytes, long maximumFileSize) throws IOException {
+        this.maximumFiles = maximumFiles;
+        this.maximumBytes = maximumBytes;
+        this.maximumFileSize = maximumFileSize;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.watchedDirectories = new ConcurrentHashMap<>();
+        this.entries = new ConcurrentHashMap<>();
+        this.invalidations = new AtomicLong();
+        this.accessClock = new AtomicLong();
+        this.bytesCached = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+
+        Thread watcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchDirectories();
+            }
+        }, "http.directory-file-cache");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Returns the cached file for the request path, or null if not cached.
+     */
+    CachedFile get(String requestPath) {
+        CachedFile cachedFile = entries.get(requestPath);
+        if (cachedFile != null) {
+            cachedFile.lastAccess = accessClock.incrementAndGet();
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return cachedFile;
+    }
+
+    /**
+     * Reads the file metadata (and content, if small enough) and caches it for the request path.
+     *
+     * @return the loaded file, or null if the file is not a regular file or its directories cannot be watched
+     */
+    CachedFile load(String requestPath, File file, String contentType, boolean welcomeFile) throws IOException {
+        if (closed) {
+            return null;
+        }
+
+        // watch before reading, so that changes made while reading still invalidate the entry
+        Path[] directories = resolveDirectories(file.toPath().toAbsolutePath());
+        for (Path directory : directories) {
+            if (!watch(directory)) {
+                return null;
+            }
+        }
+        long invalidation = invalidations.get();
+
+        Path path = file.toPath().toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long length = attributes.size();
+        String etag = HttpUtils.getETagHeaderValue(file, lastModified);
+        String lastModifiedHeader = HttpUtils.getLastModifiedHeaderValue(lastModified);
+
+        byte[] content = null;
+        byte[] gzippedContent = null;
+        if (length <= maximumFileSize && length <= maximumBytes) {
+            content = Files.readAllBytes(path);
+            if (isCompressible(contentType) && content.length >= MINIMUM_GZIP_SIZE) {
+                byte[] gzipped = gzip(content);
+                if (gzipped.length < content.length) {
+                    gzippedContent = gzipped;
+                }
+            }
+        }
+
+        CachedFile cachedFile = new CachedFile(file, directories, length, lastModified, etag, lastModifiedHeader,
+                contentType, welcomeFile, content, gzippedContent);
+        cachedFile.lastAccess = accessClock.incrementAndGet();
+
+        CachedFile oldCachedFile = entries.put(requestPath, cachedFile);
+        bytesCached.addAndGet(cachedFile.size() - ((oldCachedFile != null) ? oldCachedFile.size() : 0L));
+
+        // note: the watcher counts an invalidation before removing entries, so an entry put while it
+        //       was removing entries is either removed by the watcher or by the check below
+        if (closed || invalidations.get() != invalidation || !isWatched(directories)) {
+            remove(requestPath, cachedFile);
+        }
+        else {
+            evict();
+        }
+
+        return cachedFile;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getBytesCached() {
+        return bytesCached.get();
+    }
+
+    int getFilesCached() {
+        return entries.size();
+    }
+
+    Map<String, Number> getStatistics() {
+        long hitCount = getHits();
+        long missCount = getMisses();
+        long requestCount = hitCount + missCount;
+
+        Map<String, Number> statistics = new LinkedHashMap<>();
+        statistics.put("fileCache.hits", hitCount);
+        statistics.put("fileCache.misses", missCount);
+        statistics.put("fileCache.hitRatio", (requestCount != 0L) ? (double) hitCount / requestCount : 0.0d);
+        statistics.put("fileCache.filesCached", getFilesCached());
+        statistics.put("fileCache.bytesCached", getBytesCached());
+        return statistics;
+    }
+
+    void close() {
+        closed = true;
+        invalidateAll();
+        watchedDirectories.clear();
+
+        try {
+            watcher.close();
+        }
+        catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Unable to close file cache watch service", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical directories to watch for the file: the directory containing each symbolic link on the
+     * way to the file (including the file itself), and the directory finally containing the file.
+     */
+    static Path[] resolveDirectories(Path file) throws IOException {
+        Set<Path> directories = new LinkedHashSet<>();
+
+        Path resolved = file.getRoot();
+        for (Path name : file) {
+            String segment = name.toString();
+            if (".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                // note: resolved is canonical, so its parent is too
+                Path parent = resolved.getParent();
+                resolved = (parent != null) ? parent : resolved;
+                continue;
+            }
+
+            Path next = resolved.resolve(name);
+            if (Files.isSymbolicLink(next)) {
+                directories.add(resolved);
+                next = next.toRealPath();
+            }
+            resolved = next;
+        }
+
+        Path directory = resolved.getParent();
+        if (directory != null) {
+            directories.add(directory);
+        }
+        return directories.toArray(new Path[directories.size()]);
+    }
+
+    private boolean watch(Path directory) {
+        WatchKey watchedKey = watchedDirectories.get(directory);
+        if (watchedKey != null && watchedKey.isValid()) {
+            return true;
+        }
+
+        try {
+            // note: registering a directory again returns the same key
+            WatchKey key = directory.register(watcher, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedDirectories.put(directory, key);
+            return true;
+        }
+        catch (IOException | ClosedWatchServiceException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(String.format("Unable to watch %s, files in this directory will not be cached", directory), e);
+            }
+            return false;
+        }
+    }
+
+    private boolean isWatched(Path[] directories) {
+        for (Path directory : directories) {
+            WatchKey key = watchedDirectories.get(directory);
+            if (key == null || !key.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void watchDirectories() {
+        try {
+            for (;;) {
+                WatchKey key = watcher.take();
+                Path directory = (Path) key.watchable();
+
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    overflow |= (event.kind() == OVERFLOW);
+                }
+
+                if (!key.reset()) {
+                    // directory no longer accessible, watch again when a file in it is next cached
+                    watchedDirectories.remove(directory, key);
+                }
+
+                if (overflow) {
+                    invalidateAll();
+                }
+                else {
+                    invalidate(directory);
+                }
+            }
+        }
+        catch (ClosedWatchServiceException e) {
+            // cache closed
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void invalidate(Path directory) {
+        invalidations.incrementAndGet();
+
+        List<String> invalidPaths = new ArrayList<>();
+        for (Map.Entry<String, CachedFile> entry : entries.entrySet()) {
+            if (entry.getValue().isWatching(directory)) {
+                invalidPaths.add(entry.getKey());
+            }
+        }
+        for (String invalidPath : invalidPaths) {
+            CachedFile cachedFile = entries.get(invalidPath);
+            if (cachedFile != null && cachedFile.isWatching(directory)) {
+                remove(invalidPath, cachedFile);
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        invalidations.incrementAndGet();
+
+        for (Map.Entry<String, CachedFile> entry : entries.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void remove(String requestPath, CachedFile cachedFile) {
+        if (entries.remove(requestPath, cachedFile)) {
+            bytesCached.addAndGet(-cachedFile.size());
+        }
+    }
+
+    private void evict() {
+        while (entries.size() > maximumFiles || bytesCached.get() > maximumBytes) {
+            // note: eviction only scans when a limit is exceeded, entries are bounded by maximumFiles
+            String eldestPath = null;
+            CachedFile eldest = null;
+            for (Map.Entry<String, CachedFile> entry : entries.entrySet()) {
+                CachedFile cachedFile = entry.getValue();
+                if (eldest == null || cachedFile.lastAccess < eldest.lastAccess) {
+                    eldestPath = entry.getKey();
+                    eldest = cachedFile;
+                }
+            }
+            if (eldest == null) {
+                break;
+            }
+            remove(eldestPath, eldest);
+        }
+    }
+
+    static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        String mimeType = contentType.toLowerCase();
+        return mimeType.startsWith("text/") ||
+               mimeType.contains("javascript") ||
+               mimeType.contains("json") ||
+               mimeType.contains("xml");
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        try {
+            gzip.write(content);
+        }
+        finally {
+            gzip.close();
+        }
+        return out.toByteArray();
+    }
+
+    static final class CachedFile {
+        final File file;
+        final Path[] directories;
+        final long length;
+        final long lastModified;
+        final String etag;
+        final String gzippedETag;
+        final String lastModifiedHeader;
+        final String contentType;
+        final boolean welcomeFile;
+
+        // note: null when the file is too large to cache content
+        final byte[] content;
+        final byte[] gzippedContent;
+
+        volatile long lastAccess;
+
+        CachedFile(File file, Path[] directories, long length, long lastModified, String etag,
+                String lastModifiedHeader, String contentType, boolean welcomeFile, byte[] content,
+                byte[] gzippedContent) {
+            this.file = file;
+            this.directories = directories;
+            this.length = (content != null) ? content.length : length;
+            this.lastModified = lastModified;
+            this.etag = etag;
+            // ETags must differ between representations, insert suffix before closing quote
+            this.gzippedETag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+            this.lastModifiedHeader = lastModifiedHeader;
+            this.contentType = contentType;
+            this.welcomeFile = welcomeFile;
+            this.content = content;
+            this.gzippedContent = gzippedContent;
+        }
+
+        boolean isCompressible() {
+            return HttpFileCache.isCompressible(contentType);
+        }
+
+        boolean isWatching(Path directory) {
+            for (Path watchedDirectory : directories) {
+                if (watchedDirectory.equals(directory)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long size() {
+            long size = 0L;
+            if (content != null) {
+                size += content.length;
+            }
+            if (gzippedContent != null) {
+                size += gzippedContent.length;
+            }
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CachedFile [%s, length=%d, content=%s, gzipped=%s]", file, length,
+                    content != null, gzippedContent != null);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.mina.core.future.DefaultCloseFuture;
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.test.util.MethodExecutionTrace;
+
+public class FileContentWriterTest {
+    @Rule
+    public TestRule testExecutionTrace = new MethodExecutionTrace();
+
+    private Mockery mockery;
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setup() throws Exception {
+        mockery = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+            }
+        };
+
+        // spans several chunks, with a partial last chunk
+        content = new byte[FileContentWriter.CHUNK_SIZE * 2 + 1234];
+        new Random(0L).nextBytes(content);
+        file = File.createTempFile("FileContentWriterTest", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void teardown() {
+        file.delete();
+    }
+
+    @Test
+    public void shouldWriteChunksWhenTransferToNotSupported() throws Exception {
+        final HttpAcceptSession session = mockery.mock(HttpAcceptSession.class);
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getWriteHeader("Content-Encoding");
+                will(returnValue(null));
+                allowing(session).getParent();
+                will(returnValue(null));
+                allowing(session).getRequestURI();
+                will(returnValue(URI.create("/file.bin")));
+                allowing(session).getCloseFuture();
+                will(returnValue(new DefaultCloseFuture(session)));
+                allowing(session).getBufferAllocator();
+                will(returnValue(BUFFER_ALLOCATOR));
+                allowing(session).isClosing();
+                will(returnValue(false));
+                exactly(3).of(session).write(with(any(IoBufferEx.class)));
+                will(new CustomAction("write chunk") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        IoBufferEx buf = (IoBufferEx) invocation.getParameter(0);
+                        byte[] chunk = new byte[buf.remaining()];
+                        buf.get(chunk);
+                        written.write(chunk);
+                        return DefaultWriteFuture.newWrittenFuture(session);
+                    }
+                });
+                oneOf(session).close(false);
+            }
+        });
+
+        FileChannel channel = new FileInputStream(file).getChannel();
+        FileContentWriter.write(session, channel, 0L, content.length);
+
+        mockery.assertIsSatisfied();
+        assertArrayEquals(content, written.toByteArray());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void shouldWriteMultipartRangesWhenTransferToNotSupported() throws Exception {
+        final HttpAcceptSession session = mockery.mock(HttpAcceptSession.class);
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getWriteHeader("Content-Encoding");
+                will(returnValue(null));
+                allowing(session).getParent();
+                will(returnValue(null));
+                allowing(session).getRequestURI();
+                will(returnValue(URI.create("/file.bin")));
+                allowing(session).getCloseFuture();
+                will(returnValue(new DefaultCloseFuture(session)));
+                allowing(session).getBufferAllocator();
+                will(returnValue(BUFFER_ALLOCATOR));
+                allowing(session).isClosing();
+                will(returnValue(false));
+                allowing(session).write(with(any(IoBufferEx.class)));
+                will(new CustomAction("write chunk") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        IoBufferEx buf = (IoBufferEx) invocation.getParameter(0);
+                        byte[] chunk = new byte[buf.remaining()];
+                        buf.get(chunk);
+                        written.write(chunk);
+                        return DefaultWriteFuture.newWrittenFuture(session);
+                    }
+                });
+                oneOf(session).close(false);
+            }
+        });
+
+        // second range spans chunks
+        long length = content.length;
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=10-19,1000-" + (FileContentWriter.CHUNK_SIZE + 1999), length);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (HttpByteRange range : ranges) {
+            expected.write(range.getPartHeader("boundary", "text/plain", length));
+            expected.write(content, (int) range.first, (int) range.length());
+        }
+        expected.write(HttpByteRange.getTrailer("boundary"));
+
+        FileChannel channel = new FileInputStream(file).getChannel();
+        FileContentWriter.write(session, channel, ranges, "boundary", "text/plain", length);
+
+        mockery.assertIsSatisfied();
+        assertArrayEquals(expected.toByteArray(), written.toByteArray());
+        assertEquals(expected.size(), FileContentWriter.getMultipartLength(ranges, "boundary", "text/plain", length));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void shouldCloseSessionForEmptyContent() throws Exception {
+        final HttpAcceptSession session = mockery.mock(HttpAcceptSession.class);
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getCloseFuture();
+                will(returnValue(new DefaultCloseFuture(session)));
+                oneOf(session).close(false);
+            }
+        });
+
+        FileChannel channel = new FileInputStream(file).getChannel();
+        FileContentWriter.write(session, channel, 0L, 0L);
+
+        mockery.assertIsSatisfied();
+        assertFalse(channel.isOpen());
+    }
+}
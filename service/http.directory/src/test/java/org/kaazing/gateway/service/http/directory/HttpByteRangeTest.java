@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class HttpByteRangeTest {
+
+    @Test
+    public void shouldParseSingleRange() {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=100-199", 1000L);
+        assertEquals(1, ranges.size());
+        assertEquals(100L, ranges.get(0).first);
+        assertEquals(199L, ranges.get(0).last);
+        assertEquals("bytes 100-199/1000", ranges.get(0).getContentRange(1000L));
+    }
+
+    @Test
+    public void shouldParseOpenEndedAndSuffixRanges() {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=900-", 1000L);
+        assertEquals(900L, ranges.get(0).first);
+        assertEquals(999L, ranges.get(0).last);
+
+        ranges = HttpByteRange.parse("bytes=-100", 1000L);
+        assertEquals(900L, ranges.get(0).first);
+        assertEquals(999L, ranges.get(0).last);
+
+        ranges = HttpByteRange.parse("bytes=-5000", 1000L);
+        assertEquals(0L, ranges.get(0).first);
+        assertEquals(999L, ranges.get(0).last);
+    }
+
+    @Test
+    public void shouldTruncateLastBytePositionToLength() {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=500-5000", 1000L);
+        assertEquals(500L, ranges.get(0).first);
+        assertEquals(999L, ranges.get(0).last);
+    }
+
+    @Test
+    public void shouldCoalesceOverlappingAndAdjacentRanges() {
+        List<HttpByteRange> ranges = HttpByteRange.parse("bytes=500-599, 0-99, 100-149, 550-700", 1000L);
+        assertEquals(2, ranges.size());
+        assertEquals(0L, ranges.get(0).first);
+        assertEquals(149L, ranges.get(0).last);
+        assertEquals(500L, ranges.get(1).first);
+        assertEquals(700L, ranges.get(1).last);
+    }
+
+    @Test
+    public void shouldReturnEmptyWhenUnsatisfiable() {
+        assertTrue(HttpByteRange.parse("bytes=1000-1999", 1000L).isEmpty());
+        assertTrue(HttpByteRange.parse("bytes=-0", 1000L).isEmpty());
+        assertTrue(HttpByteRange.parse("bytes=0-", 0L).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreInvalidRanges() {
+        assertNull(HttpByteRange.parse(null, 1000L));
+        assertNull(HttpByteRange.parse("items=0-1", 1000L));
+        assertNull(HttpByteRange.parse("bytes=5-1", 1000L));
+        assertNull(HttpByteRange.parse("bytes=a-b", 1000L));
+        assertNull(HttpByteRange.parse("bytes=+1-2", 1000L));
+        assertNull(HttpByteRange.parse("bytes=1", 1000L));
+        assertNull(HttpByteRange.parse("bytes=-", 1000L));
+    }
+
+    @Test
+    public void shouldIgnoreTooManyRanges() {
+        StringBuilder rangeHeader = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= HttpByteRange.MAXIMUM_RANGES; i++) {
+            rangeHeader.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        assertNull(HttpByteRange.parse(rangeHeader.toString(), 1000L));
+    }
+}
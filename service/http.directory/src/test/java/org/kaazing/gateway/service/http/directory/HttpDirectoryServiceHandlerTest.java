@@ -21,6 +21,8 @@
 
 package org.kaazing.gateway.service.http.directory;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -101,4 +103,45 @@ public class HttpDirectoryServiceHandlerTest {
         }
         mockery.assertIsSatisfied();
     }
+
+    @Test
+    public void shouldNotMatchIfRangeWithWeakETag() {
+        String etag = "W/\"2a-1000\"";
+        long lastModified = System.currentTimeMillis() - 60000L;
+        String lastModifiedHeader = "Thu, 01 Jan 2015 00:00:00 GMT";
+
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange(etag, etag, lastModifiedHeader, lastModified));
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange("\"2a-1000\"", etag, lastModifiedHeader, lastModified));
+    }
+
+    @Test
+    public void shouldMatchIfRangeWithStrongETag() {
+        String etag = "\"2a-1000\"";
+        long lastModified = System.currentTimeMillis() - 60000L;
+        String lastModifiedHeader = "Thu, 01 Jan 2015 00:00:00 GMT";
+
+        assertTrue(HttpDirectoryServiceHandler.matchesIfRange(etag, etag, lastModifiedHeader, lastModified));
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange("W/" + etag, etag, lastModifiedHeader, lastModified));
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange("\"2a-2000\"", etag, lastModifiedHeader, lastModified));
+    }
+
+    @Test
+    public void shouldMatchIfRangeWithStrongLastModified() {
+        String etag = "W/\"2a-1000\"";
+        long lastModified = System.currentTimeMillis() - 60000L;
+        String lastModifiedHeader = "Thu, 01 Jan 2015 00:00:00 GMT";
+
+        assertTrue(HttpDirectoryServiceHandler.matchesIfRange(lastModifiedHeader, etag, lastModifiedHeader, lastModified));
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange("Fri, 02 Jan 2015 00:00:00 GMT", etag,
+                lastModifiedHeader, lastModified));
+    }
+
+    @Test
+    public void shouldNotMatchIfRangeWithWeakLastModified() {
+        String etag = "W/\"2a-1000\"";
+        long lastModified = System.currentTimeMillis();
+        String lastModifiedHeader = "Thu, 01 Jan 2015 00:00:00 GMT";
+
+        assertFalse(HttpDirectoryServiceHandler.matchesIfRange(lastModifiedHeader, etag, lastModifiedHeader, lastModified));
+    }
 }
@@ -355,4 +355,30 @@ public class HttpDirectoryServiceIT {
         robot.finish();
     }
 
+    // /////////////////// RANGE ///////////////////////
+
+    @Specification("range/get.single.range")
+    @Test(timeout = 5000)
+    public void testGetSingleRange() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("range/get.unsatisfiable.range")
+    @Test(timeout = 5000)
+    public void testGetUnsatisfiableRange() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("range/get.if.range.weak.etag")
+    @Test(timeout = 5000)
+    public void testGetIfRangeWithWeakETag() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("range/get.if.range.date.mismatch")
+    @Test(timeout = 5000)
+    public void testGetIfRangeWithDateMismatch() throws Exception {
+        robot.finish();
+    }
+
 }
@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.kaazing.gateway.service.http.directory.HttpFileCache.CachedFile;
+
+public class HttpFileCacheTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private File directory;
+    private HttpFileCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("HttpFileCacheTest").toFile();
+        cache = new HttpFileCache(2, 64 * 1024, 16 * 1024);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.close();
+        delete(directory);
+    }
+
+    @Test
+    public void shouldCacheContentWithGzippedVariant() throws Exception {
+        File file = newFile("index.html", repeat("<p>hello, world</p>", 100));
+
+        assertNull(cache.get("/index.html"));
+        CachedFile loaded = cache.load("/index.html", file, "text/html", false);
+        CachedFile cached = cache.get("/index.html");
+
+        assertSame(loaded, cached);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), cached.content);
+        assertNotNull(cached.gzippedContent);
+        assertArrayEquals(cached.content, gunzip(cached.gzippedContent));
+        assertTrue(!cached.etag.equals(cached.gzippedETag));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertEquals(cached.size(), cache.getBytesCached());
+    }
+
+    @Test
+    public void shouldNotGzipIncompressibleContent() throws Exception {
+        File file = newFile("image.png", repeat("x", 1024));
+
+        CachedFile cached = cache.load("/image.png", file, "image/png", false);
+
+        assertNotNull(cached.content);
+        assertNull(cached.gzippedContent);
+    }
+
+    @Test
+    public void shouldCacheMetadataOnlyForLargeFiles() throws Exception {
+        File file = newFile("large.txt", repeat("x", 32 * 1024));
+
+        CachedFile cached = cache.load("/large.txt", file, "text/plain", false);
+
+        assertSame(cached, cache.get("/large.txt"));
+        assertNull(cached.content);
+        assertEquals(32 * 1024, cached.length);
+        assertEquals(0L, cache.getBytesCached());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        File a = newFile("a.txt", "a");
+        File b = newFile("b.txt", "b");
+        File c = newFile("c.txt", "c");
+
+        cache.load("/a.txt", a, "text/plain", false);
+        cache.load("/b.txt", b, "text/plain", false);
+        cache.get("/a.txt");
+        cache.load("/c.txt", c, "text/plain", false);
+
+        assertEquals(2, cache.getFilesCached());
+        assertNotNull(cache.get("/a.txt"));
+        assertNull(cache.get("/b.txt"));
+        assertNotNull(cache.get("/c.txt"));
+    }
+
+    @Test
+    public void shouldRevalidateWhenFileChanges() throws Exception {
+        File file = newFile("index.html", "before");
+        cache.load("/index.html", file, "text/html", false);
+        assertNotNull(cache.get("/index.html"));
+
+        Files.write(file.toPath(), "after".getBytes(UTF_8));
+
+        awaitInvalidated();
+        assertNull(cache.get("/index.html"));
+        assertEquals(0, cache.getFilesCached());
+        assertEquals(0L, cache.getBytesCached());
+    }
+
+    @Test
+    public void shouldRevalidateWhenModifiedTimeChanges() throws Exception {
+        File file = newFile("index.html", "before");
+        cache.load("/index.html", file, "text/html", false);
+
+        // same size, new modified time
+        Files.write(file.toPath(), "after!".getBytes(UTF_8));
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 2000L));
+
+        awaitInvalidated();
+        assertNull(cache.get("/index.html"));
+    }
+
+    @Test
+    public void shouldRevalidateWhenFileDeleted() throws Exception {
+        File file = newFile("index.html", "before");
+        cache.load("/index.html", file, "text/html", false);
+
+        assertTrue(file.delete());
+
+        awaitInvalidated();
+        assertNull(cache.get("/index.html"));
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void shouldRevalidateWhenSymbolicLinkChanges() throws Exception {
+        File release1 = newDirectory("release1");
+        File release2 = newDirectory("release2");
+        File index1 = newFile(release1, "index.html", "release1");
+        File index2 = newFile(release2, "index.html", "release2");
+        Files.setLastModifiedTime(index2.toPath(), Files.getLastModifiedTime(index1.toPath()));
+
+        Path current = new File(directory, "current").toPath();
+        try {
+            Files.createSymbolicLink(current, release1.toPath());
+        }
+        catch (UnsupportedOperationException | IOException e) {
+            // symbolic links not supported on this file system
+            return;
+        }
+
+        File file = new File(current.toFile(), "index.html");
+        cache.load("/index.html", file, "text/html", false);
+        assertNotNull(cache.get("/index.html"));
+
+        // swap the parent directory, same size and modified time
+        Files.delete(current);
+        Files.createSymbolicLink(current, release2.toPath());
+
+        awaitInvalidated();
+        assertNull(cache.get("/index.html"));
+        CachedFile cached = cache.load("/index.html", file, "text/html", false);
+        assertArrayEquals("release2".getBytes(UTF_8), cached.content);
+    }
+
+    @Test
+    public void shouldNotInvalidateForChangesInOtherDirectories() throws Exception {
+        File other = newDirectory("other");
+        File file = newFile(other, "index.html", "before");
+        CachedFile loaded = cache.load("/index.html", file, "text/html", false);
+
+        // changes elsewhere do not invalidate the entry
+        newFile("unrelated.txt", "unrelated");
+        Thread.sleep(200L);
+
+        assertSame(loaded, cache.get("/index.html"));
+    }
+
+    @Test
+    public void shouldWatchDirectoriesContainingSymbolicLinks() throws Exception {
+        File release = newDirectory("release");
+        File index = newFile(release, "index.html", "release");
+
+        Path current = new File(directory, "current").toPath();
+        try {
+            Files.createSymbolicLink(current, release.toPath());
+        }
+        catch (UnsupportedOperationException | IOException e) {
+            // symbolic links not supported on this file system
+            return;
+        }
+
+        Path[] directories = HttpFileCache.resolveDirectories(new File(current.toFile(), "index.html").toPath());
+
+        assertArrayEquals(new Path[] { directory.toPath().toRealPath(), release.toPath().toRealPath() }, directories);
+        assertArrayEquals(new Path[] { release.toPath().toRealPath() },
+                HttpFileCache.resolveDirectories(index.toPath().toAbsolutePath()));
+    }
+
+    private File newFile(String name, String content) throws IOException {
+        return newFile(directory, name, content);
+    }
+
+    private static File newFile(File directory, String name, String content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        return file;
+    }
+
+    private File newDirectory(String name) throws IOException {
+        return Files.createDirectory(new File(directory, name).toPath()).toFile();
+    }
+
+    // note: the watch service reports changes asynchronously
+    private void awaitInvalidated() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30000L;
+        while (cache.getFilesCached() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+    }
+
+    private static void delete(File file) {
+        // note: does not follow symbolic links
+        if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                for (File child : files) {
+                    delete(child);
+                }
+            }
+        }
+        file.delete();
+    }
+
+    private static String repeat(String s, int count) {
+        char[] chars = new char[s.length() * count];
+        for (int i = 0; i < count; i++) {
+            s.getChars(0, s.length(), chars, i * s.length());
+        }
+        return new String(chars);
+    }
+
+    private static byte[] gunzip(byte[] gzipped) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int length;
+        while ((length = in.read(buf)) != -1) {
+            out.write(buf, 0, length);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
@@ -63,19 +63,28 @@ public abstract class AbstractProxyAcceptHandler extends AbstractProxyHandler {
     }
 
     public void initServiceConnectManager(BridgeServiceFactory bridgeServiceFactory) {
-        URI connectURI = connectURIs.iterator().next();
         serviceConnectManager = new ServiceConnectManager(getServiceContext(), getConnectHandler(),
-                bridgeServiceFactory, connectURI, getMaximumRecoveryInterval(), getPreparedConnectionCount());
+                bridgeServiceFactory, connectURIs, getUpstreamSelectionStrategy(), getMaximumRecoveryInterval(),
+                getPreparedConnectionCount(), getMinimumPreparedConnectionCount(), getMaximumPreparedConnectionCount());
     }
 
     public void startServiceConnectManager() {
         serviceConnectManager.start();
     }
 
+    public void stopServiceConnectManager() {
+        serviceConnectManager.stop();
+    }
+
     public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
         return serviceConnectManager.getNextConnectFuture(connectInitializer);
     }
 
+    public ConnectFuture getNextConnectFuture(IoSession acceptSession,
+                                              final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        return serviceConnectManager.getNextConnectFuture(acceptSession, connectInitializer);
+    }
+
     @Override
     public void sessionOpened(IoSession session) {
         // guarantee strongly-typed buffers; this is the accept-side so the
@@ -58,6 +58,9 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
     private int thresholdPendingBytes;
     private int maximumRecoveryInterval = 0;
     private int preparedConnectionCount = 0;
+    private int minimumPreparedConnectionCount = -1; // defaults to preparedConnectionCount
+    private int maximumPreparedConnectionCount = -1; // defaults to preparedConnectionCount
+    private UpstreamSelectionStrategy upstreamSelectionStrategy = UpstreamSelectionStrategy.ROUND_ROBIN;
 
     @Override
     public void exceptionCaught(IoSession session, Throwable cause) throws Exception {
@@ -165,6 +168,34 @@ public abstract class AbstractProxyHandler extends IoHandlerAdapter {
         return preparedConnectionCount;
     }
 
+    public void setPreparedConnectionCountBounds(int minimumPreparedConnectionCount, int maximumPreparedConnectionCount) {
+        this.minimumPreparedConnectionCount = minimumPreparedConnectionCount;
+        this.maximumPreparedConnectionCount = maximumPreparedConnectionCount;
+        if ( LOGGER.isDebugEnabled() ) {
+            LOGGER.debug("Proxy handler " + this + ": prepared.connection.count.minimum=" + minimumPreparedConnectionCount
+                    + ", prepared.connection.count.maximum=" + maximumPreparedConnectionCount + ".");
+        }
+    }
+
+    public int getMinimumPreparedConnectionCount() {
+        return minimumPreparedConnectionCount < 0 ? preparedConnectionCount : minimumPreparedConnectionCount;
+    }
+
+    public int getMaximumPreparedConnectionCount() {
+        return maximumPreparedConnectionCount < 0 ? preparedConnectionCount : maximumPreparedConnectionCount;
+    }
+
+    public void setUpstreamSelectionStrategy(UpstreamSelectionStrategy upstreamSelectionStrategy) {
+        this.upstreamSelectionStrategy = upstreamSelectionStrategy;
+        if ( LOGGER.isDebugEnabled() ) {
+            LOGGER.debug("Proxy handler " + this + ": connect.strategy=" + upstreamSelectionStrategy.getName() + ".");
+        }
+    }
+
+    public UpstreamSelectionStrategy getUpstreamSelectionStrategy() {
+        return upstreamSelectionStrategy;
+    }
+
     // called by connect listener in proxy service handler
     protected void flushQueuedMessages(IoSession session, AttachedSessionManager attachedSessionManager) {
         Queue<Object> messageQueue = getMessageQueue(session);
@@ -23,6 +23,7 @@ package org.kaazing.gateway.service.proxy;
 
 import static org.kaazing.gateway.service.util.ServiceUtils.getOptionalDataSizeProperty;
 import static org.kaazing.gateway.service.util.ServiceUtils.getOptionalIntProperty;
+import static org.kaazing.gateway.service.util.ServiceUtils.getOptionalProperty;
 
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -42,11 +43,15 @@ public abstract class AbstractProxyService<HandlerType extends AbstractProxyHand
     private static final String PROPERTY_MAXIMUM_PENDING_BYTES = "maximum.pending.bytes";
     private static final String PROPERTY_MAXIMUM_RECOVERY_INTERVAL = "maximum.recovery.interval";
     private static final String PROPERTY_PREPARED_CONNECTION_COUNT = "prepared.connection.count";
+    private static final String PROPERTY_PREPARED_CONNECTION_COUNT_MINIMUM = "prepared.connection.count.minimum";
+    private static final String PROPERTY_PREPARED_CONNECTION_COUNT_MAXIMUM = "prepared.connection.count.maximum";
     private static final String PROPERTY_MAXIMUM_TRANSFERRED_BYTES = "internal.maximum.transferred.bytes";
+    private static final String PROPERTY_CONNECT_STRATEGY = "connect.strategy";
     private static final int PROPERTY_MAXIMUM_PENDING_BYTES_DEFAULT = 64000;
     private static final int PROPERTY_MAXIMUM_RECOVERY_INTERVAL_DEFAULT = 0;
     private static final int PROPERTY_PREPARED_CONNECTION_COUNT_DEFAULT = 0;
     private static final int PROPERTY_MAXIMUM_TRANSFERRED_BYTES_DEFAULT = -1;
+    private static final String PROPERTY_CONNECT_STRATEGY_DEFAULT = "round-robin";
     
     protected HandlerType handler;
     private ServiceContext serviceContext;
@@ -66,13 +71,20 @@ public abstract class AbstractProxyService<HandlerType extends AbstractProxyHand
         int maximumPendingBytes = getOptionalDataSizeProperty(properties, PROPERTY_MAXIMUM_PENDING_BYTES, PROPERTY_MAXIMUM_PENDING_BYTES_DEFAULT);
         int maximumRecoveryInterval = getOptionalIntProperty(properties, PROPERTY_MAXIMUM_RECOVERY_INTERVAL, PROPERTY_MAXIMUM_RECOVERY_INTERVAL_DEFAULT);
         int preparedConnectionCount = getOptionalIntProperty(properties, PROPERTY_PREPARED_CONNECTION_COUNT, PROPERTY_PREPARED_CONNECTION_COUNT_DEFAULT);
+        // the connection pools only adapt their size if the maximum is configured above the minimum
+        int minimumPreparedConnectionCount = getOptionalIntProperty(properties, PROPERTY_PREPARED_CONNECTION_COUNT_MINIMUM, preparedConnectionCount);
+        int maximumPreparedConnectionCount = getOptionalIntProperty(properties, PROPERTY_PREPARED_CONNECTION_COUNT_MAXIMUM, preparedConnectionCount);
         int maximumTransferredBytes = getOptionalDataSizeProperty(properties, PROPERTY_MAXIMUM_TRANSFERRED_BYTES, PROPERTY_MAXIMUM_TRANSFERRED_BYTES_DEFAULT);
+        UpstreamSelectionStrategy upstreamSelectionStrategy = UpstreamSelectionStrategy.fromName(PROPERTY_CONNECT_STRATEGY,
+                getOptionalProperty(properties, PROPERTY_CONNECT_STRATEGY, PROPERTY_CONNECT_STRATEGY_DEFAULT));
         handler = createHandler();
         handler.setServiceContext(serviceContext);
         handler.setMaximumPendingBytes(maximumPendingBytes);
         handler.setMaximumTransferredBytes(maximumTransferredBytes);
         handler.setMaximumRecoveryInterval(maximumRecoveryInterval);
         handler.setPreparedConnectionCount(preparedConnectionCount);
+        handler.setPreparedConnectionCountBounds(minimumPreparedConnectionCount, maximumPreparedConnectionCount);
+        handler.setUpstreamSelectionStrategy(upstreamSelectionStrategy);
     }
 
     @Override
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.proxy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts backend connect latencies in power-of-two millisecond buckets.  Bucket 0 counts connects that took less
+ * than 1ms, bucket i counts connects that took [2^(i-1), 2^i) ms, and the last bucket counts everything slower.
+ */
+final class ConnectLatencyHistogram {
+    static final int BUCKET_COUNT = 16;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long latencyNanos) {
+        counts.incrementAndGet(getBucket(TimeUnit.NANOSECONDS.toMillis(latencyNanos)));
+    }
+
+    long[] getCounts() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    static int getBucket(long latencyMillis) {
+        if (latencyMillis <= 0) {
+            return 0;
+        }
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(latencyMillis), BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return the exclusive upper bound of the bucket in milliseconds, or Long.MAX_VALUE for the last bucket
+     */
+    static long getBucketLimit(int bucket) {
+        return bucket < BUCKET_COUNT - 1 ? 1L << bucket : Long.MAX_VALUE;
+    }
+}
@@ -24,6 +24,7 @@ package org.kaazing.gateway.service.proxy;
 import java.net.URI;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -38,15 +39,33 @@ import org.apache.mina.core.session.IoSessionInitializer;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.proxy.ServiceConnectManager.HeartbeatFilter;
 
+/**
+ * The prepared (pre-established) connections to one upstream for one I/O thread.
+ *
+ * The pool keeps a target number of prepared connections.  With fixed sizing the target is the configured count.
+ * With adaptive sizing (a maximum above the minimum) the target is recomputed by {@link #adapt(long)} from the
+ * request rate and the connect latency seen by this pool: enough connections to serve the requests expected while
+ * one connection is being established, with headroom for bursts, growing quickly when requests find the pool empty
+ * and shrinking gradually while it is idle.
+ */
 class ConnectionPool {
     private static final AttributeKey CONNECT_FUTURE_KEY = new AttributeKey(ServiceConnectManager.class, "connectFutureKey");
-    
+
+    // weight of the latest window in the moving averages of request rate and connect latency
+    private static final double AVERAGE_WEIGHT = 0.5;
+
+    // prepared connections per connection expected to be needed while one connect completes
+    private static final int BURST_HEADROOM = 2;
+
     private final ServiceContext serviceContext;
     private final AbstractProxyHandler connectHandler;
     private final URI connectURI;
     private final HeartbeatFilter heartbeatFilter;
     private final IoFutureListener<ConnectFuture> connectListener;
-    private final int preparedConnectionCount;
+    private final ConnectLatencyHistogram connectLatencies;
+    private final int minimumPreparedConnectionCount;
+    private final int maximumPreparedConnectionCount;
+    private volatile int preparedConnectionCount;
 
     private final AtomicInteger currentPreparedConnectionCount;
     private final PreConnectFilter preConnectFilter;
@@ -54,21 +73,48 @@ class ConnectionPool {
     private final ConnectFutures connectFutures;
     private boolean active = false;
 
+    // statistics, only mutated by the owning I/O thread, volatile so other threads can read them
+    private volatile long hits;
+    private volatile long misses;
+    private volatile long connectLatency;
+
+    // state of the last adaptation
+    private double requestRate;
+    private long lastAdaptTime;
+    private long lastAdaptRequests;
+    private long lastAdaptMisses;
+
     /**
      * hearbeatFilter the only parameter that can be null
      */
     ConnectionPool(ServiceContext serviceContext, AbstractProxyHandler connectHandler, URI connectURI, HeartbeatFilter heartbeatFilter,
             IoFutureListener<ConnectFuture> connectListener, int preparedConnectionCount, boolean isThreadAligned) {
+        this(serviceContext, connectHandler, connectURI, heartbeatFilter, connectListener, new ConnectLatencyHistogram(),
+                preparedConnectionCount, preparedConnectionCount, preparedConnectionCount, isThreadAligned);
+    }
+
+    /**
+     * hearbeatFilter the only parameter that can be null
+     */
+    ConnectionPool(ServiceContext serviceContext, AbstractProxyHandler connectHandler, URI connectURI, HeartbeatFilter heartbeatFilter,
+            IoFutureListener<ConnectFuture> connectListener, ConnectLatencyHistogram connectLatencies,
+            int preparedConnectionCount, int minimumPreparedConnectionCount, int maximumPreparedConnectionCount,
+            boolean isThreadAligned) {
         this.serviceContext = serviceContext;
         this.connectHandler = connectHandler;
         this.connectURI = connectURI;
         this.heartbeatFilter = heartbeatFilter;
         this.connectListener = connectListener;
-        this.preparedConnectionCount = preparedConnectionCount;
+        this.connectLatencies = connectLatencies;
+        this.minimumPreparedConnectionCount = minimumPreparedConnectionCount;
+        this.maximumPreparedConnectionCount = maximumPreparedConnectionCount;
+        this.preparedConnectionCount = Math.max(minimumPreparedConnectionCount,
+                Math.min(preparedConnectionCount, maximumPreparedConnectionCount));
         preConnectFlag = new AtomicBoolean(false);
         currentPreparedConnectionCount = new AtomicInteger(0);
         preConnectFilter = new PreConnectFilter(this);
-        connectFutures = ConnectFutures.createConnectFutures(preparedConnectionCount, isThreadAligned);
+        connectFutures = ConnectFutures.createConnectFutures(maximumPreparedConnectionCount, isThreadAligned);
+        lastAdaptTime = System.nanoTime();
     }
 
     void start() {
@@ -81,17 +127,15 @@ class ConnectionPool {
     ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
         ConnectFuture future = connectFutures.pollFirstEntry();
         if (future == null) {
+            misses++;
             future = doConnect(false, connectInitializer);
         } else {
+            hits++;
             currentPreparedConnectionCount.decrementAndGet();
 
             // No longer a pre-connect, remove the pre-connect filter which is responsible for cleaning up zombie pre-connects
             IoSession connectSession = future.getSession();
-            IoFilterChain filterChain = connectSession.getFilterChain();
-            if (filterChain.contains("PreConnectFilter")) {
-                filterChain.remove("PreConnectFilter");
-                connectSession.removeAttribute(CONNECT_FUTURE_KEY);
-            }
+            removePreConnectFilter(connectSession);
 
             if (connectInitializer != null) {
                 connectInitializer.initializeSession(connectSession, future);
@@ -101,6 +145,80 @@ class ConnectionPool {
         return future;
     }
 
+    boolean isAdaptive() {
+        return maximumPreparedConnectionCount > minimumPreparedConnectionCount;
+    }
+
+    /**
+     * Recomputes the target number of prepared connections from the requests and connects since the last call,
+     * then prepares more connections or closes idle ones to meet it.  Must be called on the owning I/O thread,
+     * at a regular interval.
+     */
+    void adapt(long nanoTime) {
+        long elapsed = nanoTime - lastAdaptTime;
+        if (!isAdaptive() || !isActive() || elapsed <= 0) {
+            return;
+        }
+
+        long requests = hits + misses;
+        long windowRequests = requests - lastAdaptRequests;
+        long windowMisses = misses - lastAdaptMisses;
+        lastAdaptTime = nanoTime;
+        lastAdaptRequests = requests;
+        lastAdaptMisses = misses;
+
+        double windowRate = windowRequests * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        requestRate = AVERAGE_WEIGHT * windowRate + (1 - AVERAGE_WEIGHT) * requestRate;
+
+        // requests expected to arrive while one connection is being established
+        double expected = requestRate * connectLatency / TimeUnit.SECONDS.toNanos(1);
+        int demand = (int) Math.min(Math.round(BURST_HEADROOM * expected), maximumPreparedConnectionCount);
+
+        int target = preparedConnectionCount;
+        if (windowMisses > 0) {
+            // requests found the pool empty, grow by at least the shortfall
+            target = (int) Math.max(demand, Math.min(target + windowMisses, maximumPreparedConnectionCount));
+        }
+        else if (demand < target) {
+            // shrink gradually, halving the distance to the demand each time
+            target -= (target - demand + 1) / 2;
+        }
+        else {
+            target = demand;
+        }
+        target = Math.max(minimumPreparedConnectionCount, Math.min(target, maximumPreparedConnectionCount));
+
+        if (target != preparedConnectionCount) {
+            boolean grow = target > preparedConnectionCount;
+            preparedConnectionCount = target;
+            if (grow) {
+                fillPreConnects();
+            }
+            else {
+                closeExcessPreConnects();
+            }
+        }
+    }
+
+    int getPreparedConnectionCount() {
+        return preparedConnectionCount;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the moving average of the connect latency in nanoseconds, 0 until a connect has completed
+     */
+    long getConnectLatency() {
+        return connectLatency;
+    }
+
     private void fillPreConnects() {
         if (preConnectFlag.compareAndSet(false, true)) {
             if (currentPreparedConnectionCount.get() < preparedConnectionCount) {
@@ -112,6 +230,29 @@ class ConnectionPool {
         }
     }
 
+    // Close prepared connections beyond the target, connections that are still being established are trimmed
+    // the next time the pool adapts
+    private void closeExcessPreConnects() {
+        while (currentPreparedConnectionCount.get() > preparedConnectionCount) {
+            ConnectFuture future = connectFutures.pollFirstEntry();
+            if (future == null) {
+                break;
+            }
+            currentPreparedConnectionCount.decrementAndGet();
+            IoSession connectSession = future.getSession();
+            removePreConnectFilter(connectSession);
+            connectSession.close(false);
+        }
+    }
+
+    private void removePreConnectFilter(IoSession connectSession) {
+        IoFilterChain filterChain = connectSession.getFilterChain();
+        if (filterChain.contains("PreConnectFilter")) {
+            filterChain.remove("PreConnectFilter");
+            connectSession.removeAttribute(CONNECT_FUTURE_KEY);
+        }
+    }
+
     private boolean isActive() {
         return active;
     }
@@ -146,6 +287,7 @@ class ConnectionPool {
     }
 
     private ConnectFuture doConnect(final boolean preconnected, final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        final long connectStart = System.nanoTime();
         ConnectFuture future = serviceContext.connect(connectURI, connectHandler, new IoSessionInitializer<ConnectFuture>() {
             @Override
             public void initializeSession(IoSession connectSession, ConnectFuture future) {
@@ -163,6 +305,7 @@ class ConnectionPool {
             @Override
             public void operationComplete(ConnectFuture future) {
                 if ( future.isConnected() ) {
+                    recordConnectLatency(System.nanoTime() - connectStart);
                     if (preconnected) {
                         // Add the future as an attribute so if the connection goes down it can be removed from the map.
                         addConnectFuture(future);
@@ -181,6 +324,13 @@ class ConnectionPool {
         return future;
     }
 
+    // note: connects normally complete on the owning I/O thread, an update lost to a race only skews the average
+    private void recordConnectLatency(long latency) {
+        connectLatencies.record(latency);
+        long average = connectLatency;
+        connectLatency = average == 0 ? latency : (long) (AVERAGE_WEIGHT * latency + (1 - AVERAGE_WEIGHT) * average);
+    }
+
     static class PreConnectFilter extends IoFilterAdapter {
         private final ConnectionPool connectManager;
         
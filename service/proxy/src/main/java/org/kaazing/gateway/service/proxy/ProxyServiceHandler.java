@@ -70,7 +70,7 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
             // see commented ProxyConnectManager below for implementation hint.
             // Note: simpler to randomize order into a copy before initial connect, then consume until no connectURI
             // alternatives left
-            ConnectFuture future = getNextConnectFuture(new IoSessionInitializer<ConnectFuture>() {
+            ConnectFuture future = getNextConnectFuture(acceptSession, new IoSessionInitializer<ConnectFuture>() {
                 @Override
                 public void initializeSession(IoSession connectSession, ConnectFuture future) {
                     if (acceptSession.isClosing()) {
@@ -126,7 +126,7 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
                 IoSession connectedSession = future.getSession();
 
                 if (logger.isTraceEnabled()) {
-                    logger.trace("Connected to " + getConnectURIs().iterator().next() + " ["+acceptSession+"->"+connectedSession+"]");
+                    logger.trace("Connected to " + connectedSession.getRemoteAddress() + " ["+acceptSession+"->"+connectedSession+"]");
                 }
                 if (acceptSession == null || acceptSession.isClosing()) {
                     connectedSession.close(true);
@@ -142,7 +142,7 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
                     }
                 }
             } else {
-                logger.warn("Connection to " + getConnectURIs().iterator().next() + " failed ["+acceptSession+"->]");
+                logger.warn("Connection to " + getConnectURIs() + " failed ["+acceptSession+"->]");
                 acceptSession.close(true);
             }
         }
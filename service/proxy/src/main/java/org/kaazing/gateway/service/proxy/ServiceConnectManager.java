@@ -23,8 +23,17 @@ package org.kaazing.gateway.service.proxy;
 
 import static java.lang.String.format;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
@@ -36,6 +45,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.service.IoHandlerAdapter;
@@ -45,6 +55,7 @@ import org.jboss.netty.channel.socket.Worker;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.transport.BridgeAcceptor;
 import org.kaazing.gateway.transport.BridgeServiceFactory;
+import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.gateway.transport.Transport;
 import org.kaazing.gateway.transport.TransportFactory;
 import org.kaazing.gateway.transport.nio.internal.NioSocketAcceptor;
@@ -57,32 +68,53 @@ import org.slf4j.Logger;
  * ServiceConnectManager (one per service, owned by the proxy service handler):
  * - connectHandler (AbstractProxyHandler)
  * - schedulerProvider
- * - ConnectManager
- *   - ConnectFutures
- *     - ConnectFuture (many)
- *       - ConnectListener (1 per ConnectFuture)
- * - HeartbeatFilter
- *   - ServiceHeartBeat
- *     - HeartbeatHandler
+ * - Upstream (one per connect URI)
+ *   - ConnectionPool (one per I/O thread)
+ *     - ConnectFutures
+ *       - ConnectFuture (many)
+ *         - ConnectListener (1 per ConnectFuture)
+ *   - HeartbeatFilter
+ *     - ServiceHeartBeat
+ *       - HeartbeatHandler
  *
+ * Each upstream has its own health, driven by its connects and heartbeat.  An upstream whose connect fails is
+ * ejected from selection and heartbeat-probed until it accepts connections again.  The service is only quiesced
+ * when every upstream has been ejected.  Without a heartbeat (maximum.recovery.interval of 0) upstreams are
+ * never ejected, since nothing would bring them back.
+ *
+ * With prepared.connection.count.maximum above prepared.connection.count.minimum the connection pools size
+ * themselves: each pool is adapted once per {@link #PREPARED_CONNECTION_ADAPT_INTERVAL} seconds, on its own I/O
+ * thread, from the request rate and connect latency it has seen (see {@link ConnectionPool#adapt(long)}).
  */
 public final class ServiceConnectManager {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // points on the consistent hash ring per upstream, enough to spread clients evenly over a few upstreams
+    private static final int HASH_RING_POINTS_PER_UPSTREAM = 128;
+
+    // how often adaptive connection pools are resized, in seconds
+    static final int PREPARED_CONNECTION_ADAPT_INTERVAL = 1;
+
     private final ServiceContext serviceCtx;
     private final AbstractProxyHandler connectHandler;
-    private final URI connectURI;
+    private final Upstream[] upstreams;
+    private final UpstreamSelectionStrategy strategy;
+    private final AtomicInteger nextUpstream = new AtomicInteger(0);
     private final AtomicBoolean serviceConnected = new AtomicBoolean(true);
     private final SchedulerProvider schedulerProvider;
 
-    // The heartbeat is a runnable task that is owned by the service connect manager.
-    // We should only have at most one of these running at a given time.
-    private ServiceHeartbeat heartbeat;
+    // consistent hash ring, sorted by hash (only for the consistent-hash strategy)
+    private final int[] ringHashes;
+    private final Upstream[] ringUpstreams;
 
     private final Logger logger;
     private final int interval;
     private final NioSocketAcceptor tcpAcceptor;
 
-    private HeartbeatFilter heartbeatFilter;
     private int preparedConnectionCount;
+    private int minimumPreparedConnectionCount;
+    private int maximumPreparedConnectionCount;
+    private ScheduledFuture<?> adaptTask;
 
     // some statistics provided by the ServiceConnectManager
     private AtomicLong lastSuccessfulConnectTime = new AtomicLong(0);
@@ -92,8 +124,7 @@ public final class ServiceConnectManager {
     private AtomicInteger heartbeatPingCount = new AtomicInteger(0);
     private AtomicInteger heartbeatPingSuccesses = new AtomicInteger(0);
     private AtomicInteger heartbeatPingFailures = new AtomicInteger(0);
-
-    private final ThreadLocal<ConnectionPool> connectionPool = new VicariousThreadLocal<>();
+    private final ConnectLatencyHistogram connectLatencies = new ConnectLatencyHistogram();
 
     public ServiceConnectManager(ServiceContext service,
                                  AbstractProxyHandler connectHandler,
@@ -101,9 +132,41 @@ public final class ServiceConnectManager {
                                  URI connectURI,
                                  int interval,
                                  final int preparedConnectionCount) {
+        this(service, connectHandler, bridgeServiceFactory, Collections.singletonList(connectURI),
+                UpstreamSelectionStrategy.ROUND_ROBIN, interval, preparedConnectionCount);
+    }
+
+    public ServiceConnectManager(ServiceContext service,
+                                 AbstractProxyHandler connectHandler,
+                                 BridgeServiceFactory bridgeServiceFactory,
+                                 Collection<URI> connectURIs,
+                                 UpstreamSelectionStrategy strategy,
+                                 int interval,
+                                 final int preparedConnectionCount) {
+        this(service, connectHandler, bridgeServiceFactory, connectURIs, strategy, interval, preparedConnectionCount,
+                preparedConnectionCount, preparedConnectionCount);
+    }
+
+    /**
+     * Creates a manager whose connection pools adapt between the minimum and maximum prepared connection counts,
+     * starting from preparedConnectionCount.  The pools have a fixed size if the minimum and maximum are equal.
+     */
+    public ServiceConnectManager(ServiceContext service,
+                                 AbstractProxyHandler connectHandler,
+                                 BridgeServiceFactory bridgeServiceFactory,
+                                 Collection<URI> connectURIs,
+                                 UpstreamSelectionStrategy strategy,
+                                 int interval,
+                                 final int preparedConnectionCount,
+                                 int minimumPreparedConnectionCount,
+                                 int maximumPreparedConnectionCount) {
+        if (connectURIs == null || connectURIs.isEmpty()) {
+            throw new IllegalArgumentException("At least one connect URI is required");
+        }
+
         this.serviceCtx = service;
         this.connectHandler = connectHandler;
-        this.connectURI = connectURI;
+        this.strategy = strategy;
         this.schedulerProvider = service.getSchedulerProvider();
         this.logger = service.getLogger();
         this.interval = interval;
@@ -121,6 +184,7 @@ public final class ServiceConnectManager {
         // connections are pre-established when the other end connects). If prepare.connection.count is 0 then we must
         // leave it as such to avoid breaking stomp.proxy service and broadcast service (which explicitly pre-establish
         // their backend connections themselves and don't need any more connections than that prepared in advance).
+        // Note: the prepared connection count applies to each upstream.
         int workerCount = service.getProcessorCount();
         assert workerCount > 0;
         this.preparedConnectionCount = preparedConnectionCount;
@@ -137,100 +201,143 @@ public final class ServiceConnectManager {
                               serviceCtx.getServiceType(), preparedConnectionCount));
         }
 
-        if (interval > 0) {
-            heartbeatFilter = new HeartbeatFilter(interval);
-        } else {
-            heartbeatFilter = null;
+        // the same holds for the bounds of adaptive connection pools
+        if (minimumPreparedConnectionCount > maximumPreparedConnectionCount) {
+            throw new IllegalArgumentException(String.format(
+                    "prepared.connection.count.minimum %d is greater than prepared.connection.count.maximum %d",
+                    minimumPreparedConnectionCount, maximumPreparedConnectionCount));
+        }
+        this.minimumPreparedConnectionCount = atLeastWorkerCount(minimumPreparedConnectionCount, workerCount);
+        this.maximumPreparedConnectionCount = atLeastWorkerCount(maximumPreparedConnectionCount, workerCount);
+        if (isAdaptive() && logger.isDebugEnabled()) {
+            logger.debug(String.format("%s service adapting prepared connections between %d and %d",
+                    serviceCtx.getServiceType(), this.minimumPreparedConnectionCount, this.maximumPreparedConnectionCount));
+        }
+
+        List<Upstream> upstreamList = new ArrayList<>(connectURIs.size());
+        for (URI connectURI : connectURIs) {
+            upstreamList.add(new Upstream(connectURI));
+        }
+        upstreams = upstreamList.toArray(new Upstream[upstreamList.size()]);
+
+        if (strategy == UpstreamSelectionStrategy.CONSISTENT_HASH && upstreams.length > 1) {
+            long[] points = new long[upstreams.length * HASH_RING_POINTS_PER_UPSTREAM];
+            for (int i = 0; i < upstreams.length; i++) {
+                for (int j = 0; j < HASH_RING_POINTS_PER_UPSTREAM; j++) {
+                    int hash = hash(upstreams[i].connectURI + "#" + j);
+                    // sort by hash, keeping the upstream index in the low bits
+                    points[i * HASH_RING_POINTS_PER_UPSTREAM + j] = ((long) hash << 32) | i;
+                }
+            }
+            Arrays.sort(points);
+            ringHashes = new int[points.length];
+            ringUpstreams = new Upstream[points.length];
+            for (int i = 0; i < points.length; i++) {
+                ringHashes[i] = (int) (points[i] >> 32);
+                ringUpstreams[i] = upstreams[(int) points[i]];
+            }
+        }
+        else {
+            ringHashes = null;
+            ringUpstreams = null;
         }
     }
 
     // Start the connection manager so that any pre-connections are established.
     public void start() {
-        IoFutureListener<ConnectFuture> tmpConnectListener;
-        if (interval > 0) {
-            tmpConnectListener = new IoFutureListener<ConnectFuture>() {
-                @Override
-                public void operationComplete(ConnectFuture future) {
-                    heartbeatFilter.setServiceConnected(future.isConnected());
-                    updateConnectTimes(future.isConnected());
-                }
-            };
-        } else {
-            tmpConnectListener = new IoFutureListener<ConnectFuture>() {
+        start(upstreams);
+
+        if (isAdaptive() && adaptTask == null) {
+            ScheduledExecutorService executor = schedulerProvider.getScheduler("ServiceConnectManager-adapt", false);
+            adaptTask = executor.scheduleWithFixedDelay(new Runnable() {
                 @Override
-                public void operationComplete(ConnectFuture future) {
-                    updateConnectTimes(future.isConnected());
+                public void run() {
+                    adaptConnectionPools();
                 }
-            };
+            }, PREPARED_CONNECTION_ADAPT_INTERVAL, PREPARED_CONNECTION_ADAPT_INTERVAL, TimeUnit.SECONDS);
         }
-        final IoFutureListener<ConnectFuture> connectListener = tmpConnectListener;
+    }
+
+    // Stop resizing adaptive connection pools.
+    public void stop() {
+        if (adaptTask != null) {
+            adaptTask.cancel(false);
+            adaptTask = null;
+        }
+    }
 
+    private void start(final Upstream... startUpstreams) {
         // set a connection pool with GT 0 prepared connections in every worker thread as an optimization
         Worker[] workers = tcpAcceptor.getWorkers();
         assert preparedConnectionCount == 0 || preparedConnectionCount >= workers.length : "Prepared connection count must be 0, or >= number of IO threads";
-        int minCountPerThread = preparedConnectionCount / workers.length;
-        int remainder = preparedConnectionCount % workers.length;
-        for (Worker worker : workers) {
-            final int count = remainder-- > 0 ? minCountPerThread + 1 : minCountPerThread;
-            FutureTask<ConnectionPool> startConnectionPoolTask = new FutureTask<>(new Callable<ConnectionPool>() {
+        for (int i = 0; i < workers.length; i++) {
+            final int count = countPerWorker(preparedConnectionCount, workers.length, i);
+            final int minimumCount = countPerWorker(minimumPreparedConnectionCount, workers.length, i);
+            final int maximumCount = countPerWorker(maximumPreparedConnectionCount, workers.length, i);
+            FutureTask<Void> startConnectionPoolTask = new FutureTask<>(new Callable<Void>() {
 
                 @Override
-                public ConnectionPool call() {
-                    ConnectionPool currentPool = connectionPool.get();
-                    if (currentPool == null) {
-                        // the first time the pool is started is needs to be created, subsequent times it should just be started
-                        // without re-creating.
-                        currentPool = new ConnectionPool(serviceCtx, connectHandler, connectURI, heartbeatFilter,
-                                connectListener, count, true);
-                        connectionPool.set(currentPool);
+                public Void call() {
+                    for (Upstream upstream : startUpstreams) {
+                        // do not prepare connections to an upstream that is known to be down, the heartbeat
+                        // starts its pools again once it has recovered
+                        if (upstream.isHealthy()) {
+                            upstream.startConnectionPool(count, minimumCount, maximumCount);
+                        }
                     }
-                    currentPool.start();
-                    return currentPool;
+                    return null;
                 }
 
             });
-            worker.executeInIoThread(startConnectionPoolTask);
+            workers[i].executeInIoThread(startConnectionPoolTask);
         }
     }
 
-    public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
-        ConnectionPool pool = connectionPool.get();
-        if (pool == null) {
-            FutureTask<ConnectFuture> delegateGetConnectFuture = new FutureTask<>(new Callable<ConnectFuture>() {
-
+    private void adaptConnectionPools() {
+        for (Worker worker : tcpAcceptor.getWorkers()) {
+            worker.executeInIoThread(new Runnable() {
                 @Override
-                public ConnectFuture call() {
-                    ConnectionPool delegatePool = connectionPool.get();
-                    if (delegatePool != null) {
-                        return delegatePool.getNextConnectFuture(connectInitializer);
+                public void run() {
+                    long now = System.nanoTime();
+                    for (Upstream upstream : upstreams) {
+                        ConnectionPool pool = upstream.connectionPool.get();
+                        if (pool != null) {
+                            pool.adapt(now);
+                        }
                     }
-                    return null;
                 }
             });
+        }
+    }
 
-            // try to reschedule on an IO Thread
-            Worker[] workers = tcpAcceptor.getWorkers();
-            int randomWorker = (int)(Math.random() * workers.length);
-            workers[randomWorker].executeInIoThread(delegateGetConnectFuture);
-            try {
-                return delegateGetConnectFuture.get();
-            } catch (ExecutionException executionEX) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug(format("Failed to get connectFuture to %s from delegate connection pool due to exception", connectURI), executionEX);
-                } else {
-                    logger.warn(format("Failed to get ConnectFuture to %s from delegate connection pool due to exception %s", connectURI, executionEX));
-                }
-                return null;
-            } catch (InterruptedException interruptedEx) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug(format("Failed to get connectFuture to %s from delegate connection pool due to exception", connectURI), interruptedEx);
-                } else {
-                    logger.warn(format("Failed to get ConnectFuture to %s from delegate connection pool due to exception %s", connectURI, interruptedEx));
-                }
-                return null;
-            }
+    private boolean isAdaptive() {
+        return maximumPreparedConnectionCount > minimumPreparedConnectionCount;
+    }
+
+    // the share of a service-wide connection count for one I/O thread, the remainder going to the first threads
+    private static int countPerWorker(int count, int workerCount, int workerIndex) {
+        return count / workerCount + (workerIndex < count % workerCount ? 1 : 0);
+    }
+
+    private static int atLeastWorkerCount(int count, int workerCount) {
+        return count > 0 && count < workerCount ? workerCount : count;
+    }
+
+    public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        return getNextConnectFuture(null, connectInitializer);
+    }
+
+    /**
+     * Returns a connect future to the upstream selected for the given accept session, which may be null.
+     */
+    public ConnectFuture getNextConnectFuture(IoSession acceptSession,
+                                              final IoSessionInitializer<ConnectFuture> connectInitializer) {
+        final Upstream upstream = selectUpstream(acceptSession);
+        ConnectFuture future = upstream.getNextConnectFuture(connectInitializer);
+        if (future != null) {
+            upstream.trackOutstanding(future);
         }
-        return pool.getNextConnectFuture(connectInitializer);
+        return future;
     }
 
     // for unit test use
@@ -238,12 +345,309 @@ public final class ServiceConnectManager {
         return preparedConnectionCount;
     }
 
+    // for unit test use
+    int getMinimumPreparedConnectionCount() {
+        return minimumPreparedConnectionCount;
+    }
+
+    // for unit test use
+    int getMaximumPreparedConnectionCount() {
+        return maximumPreparedConnectionCount;
+    }
+
+    // for unit test use
+    Upstream[] getUpstreams() {
+        return upstreams;
+    }
+
+    Upstream selectUpstream(IoSession acceptSession) {
+        if (upstreams.length == 1) {
+            return upstreams[0];
+        }
+
+        switch (strategy) {
+        case LEAST_OUTSTANDING:
+            return selectLeastOutstanding();
+        case CONSISTENT_HASH:
+            String clientAddress = getClientAddress(acceptSession);
+            return (clientAddress != null) ? selectConsistentHash(hash(clientAddress)) : selectRoundRobin();
+        case ROUND_ROBIN:
+        default:
+            return selectRoundRobin();
+        }
+    }
+
+    Upstream selectConsistentHash(int hash) {
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+
+        // walk clockwise to the first healthy upstream
+        for (int i = 0; i < ringUpstreams.length; i++) {
+            Upstream upstream = ringUpstreams[(index + i) % ringUpstreams.length];
+            if (upstream.isHealthy()) {
+                return upstream;
+            }
+        }
+
+        // every upstream is down, so try the one owning the hash anyway
+        return ringUpstreams[index % ringUpstreams.length];
+    }
+
+    private Upstream selectRoundRobin() {
+        int offset = nextUpstream.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[(offset + i) % upstreams.length];
+            if (upstream.isHealthy()) {
+                return upstream;
+            }
+        }
+
+        // every upstream is down, so spread the attempts over all of them
+        return upstreams[offset % upstreams.length];
+    }
+
+    private Upstream selectLeastOutstanding() {
+        // start from a rotating offset so that equally loaded upstreams take turns
+        int offset = nextUpstream.getAndIncrement() & Integer.MAX_VALUE;
+        Upstream selected = null;
+        int selectedOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < upstreams.length; i++) {
+            Upstream upstream = upstreams[(offset + i) % upstreams.length];
+            int outstanding = upstream.getOutstandingCount();
+            if (upstream.isHealthy() && outstanding < selectedOutstanding) {
+                selected = upstream;
+                selectedOutstanding = outstanding;
+            }
+        }
+        return (selected != null) ? selected : upstreams[offset % upstreams.length];
+    }
+
+    private static String getClientAddress(IoSession session) {
+        if (session == null) {
+            return null;
+        }
+
+        // the client address is on the transport session at the bottom of the bridge session chain
+        IoSession transportSession = session;
+        while (transportSession instanceof BridgeSession) {
+            IoSession parent = ((BridgeSession) transportSession).getParent();
+            if (parent == null) {
+                break;
+            }
+            transportSession = parent;
+        }
+
+        SocketAddress remoteAddress = transportSession.getRemoteAddress();
+        if (remoteAddress instanceof InetSocketAddress) {
+            InetSocketAddress inetAddress = (InetSocketAddress) remoteAddress;
+            return (inetAddress.getAddress() != null) ? inetAddress.getAddress().getHostAddress() : inetAddress.getHostName();
+        }
+        return (remoteAddress != null) ? remoteAddress.toString() : null;
+    }
+
+    // FNV-1a, with a final mix so that similar keys (such as adjacent IP addresses) spread over the ring
+    static int hash(String key) {
+        int hash = 0x811c9dc5;
+        for (byte b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
     /**
-     * A single instance of this filter is set on every outgoing connection. It is in charge of making sure
-     * we periodically establish a connection (and close it immediately) if there are no (permanent)
-     * connections open.
+     * Called whenever the health of an upstream changes.  The service is quiesced when the last healthy upstream
+     * goes down, and started again as soon as one of them recovers.
+     */
+    private void upstreamHealthChanged() {
+        boolean anyHealthy = false;
+        for (Upstream upstream : upstreams) {
+            anyHealthy |= upstream.isHealthy();
+        }
+
+        if (serviceConnected.compareAndSet(!anyHealthy, anyHealthy)) {
+            if (!anyHealthy) {
+                // if the connection state was changed to disconnected, then unbind the service
+                try {
+                    if ( logger.isTraceEnabled() ) {
+                        logger.trace(format("Quiescing service with connect uris '%s'.", Arrays.toString(upstreams)));
+                    }
+                    serviceCtx.getService().quiesce();
+                    if ( logger.isTraceEnabled() ) {
+                        logger.trace(format("Quiesced service with connect uris '%s'.", Arrays.toString(upstreams)));
+                    }
+
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            } else {
+                // if the connection state was changed to connected, then rebind the service
+                try {
+                    if ( logger.isTraceEnabled() ) {
+                        logger.trace(format("Starting service with connect uris '%s'.", Arrays.toString(upstreams)));
+                    }
+                    serviceCtx.getService().start();
+                    if ( logger.isTraceEnabled() ) {
+                        logger.trace(format("Started service with connect uris '%s'.", Arrays.toString(upstreams)));
+                    }
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * One connect URI of the service, with its own thread-aligned connection pools, heartbeat and health.
+     */
+    final class Upstream {
+        private final URI connectURI;
+        private final ThreadLocal<ConnectionPool> connectionPool = new VicariousThreadLocal<>();
+        private final List<ConnectionPool> connectionPools = new CopyOnWriteArrayList<>();
+        private final HeartbeatFilter heartbeatFilter;
+        private final IoFutureListener<ConnectFuture> connectListener;
+        private final AtomicBoolean healthy = new AtomicBoolean(true);
+        private final AtomicInteger outstandingCount = new AtomicInteger(0);
+        private final IoFutureListener<ConnectFuture> outstandingConnectListener;
+        private final IoFutureListener<CloseFuture> outstandingCloseListener;
+
+        private Upstream(URI connectURI) {
+            this.connectURI = connectURI;
+
+            if (interval > 0) {
+                heartbeatFilter = new HeartbeatFilter(this, interval);
+                connectListener = new IoFutureListener<ConnectFuture>() {
+                    @Override
+                    public void operationComplete(ConnectFuture future) {
+                        heartbeatFilter.setServiceConnected(future.isConnected());
+                        updateConnectTimes(future.isConnected());
+                    }
+                };
+            } else {
+                heartbeatFilter = null;
+                connectListener = new IoFutureListener<ConnectFuture>() {
+                    @Override
+                    public void operationComplete(ConnectFuture future) {
+                        updateConnectTimes(future.isConnected());
+                    }
+                };
+            }
+
+            outstandingCloseListener = new IoFutureListener<CloseFuture>() {
+                @Override
+                public void operationComplete(CloseFuture future) {
+                    outstandingCount.decrementAndGet();
+                }
+            };
+            outstandingConnectListener = new IoFutureListener<ConnectFuture>() {
+                @Override
+                public void operationComplete(ConnectFuture future) {
+                    if (future.isConnected()) {
+                        future.getSession().getCloseFuture().addListener(outstandingCloseListener);
+                    }
+                    else {
+                        outstandingCount.decrementAndGet();
+                    }
+                }
+            };
+        }
+
+        URI getConnectURI() {
+            return connectURI;
+        }
+
+        boolean isHealthy() {
+            return healthy.get();
+        }
+
+        int getOutstandingCount() {
+            return outstandingCount.get();
+        }
+
+        // must be called on an I/O thread
+        private void startConnectionPool(int count, int minimumCount, int maximumCount) {
+            ConnectionPool currentPool = connectionPool.get();
+            if (currentPool == null) {
+                // the first time the pool is started is needs to be created, subsequent times it should just be started
+                // without re-creating.
+                currentPool = new ConnectionPool(serviceCtx, connectHandler, connectURI, heartbeatFilter,
+                        connectListener, connectLatencies, count, minimumCount, maximumCount, true);
+                connectionPool.set(currentPool);
+                connectionPools.add(currentPool);
+            }
+            currentPool.start();
+        }
+
+        private void start() {
+            ServiceConnectManager.this.start(this);
+        }
+
+        private void trackOutstanding(ConnectFuture future) {
+            outstandingCount.incrementAndGet();
+            future.addListener(outstandingConnectListener);
+        }
+
+        private ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
+            ConnectionPool pool = connectionPool.get();
+            if (pool == null) {
+                FutureTask<ConnectFuture> delegateGetConnectFuture = new FutureTask<>(new Callable<ConnectFuture>() {
+
+                    @Override
+                    public ConnectFuture call() {
+                        ConnectionPool delegatePool = connectionPool.get();
+                        if (delegatePool != null) {
+                            return delegatePool.getNextConnectFuture(connectInitializer);
+                        }
+                        return null;
+                    }
+                });
+
+                // try to reschedule on an IO Thread
+                Worker[] workers = tcpAcceptor.getWorkers();
+                int randomWorker = (int)(Math.random() * workers.length);
+                workers[randomWorker].executeInIoThread(delegateGetConnectFuture);
+                try {
+                    return delegateGetConnectFuture.get();
+                } catch (ExecutionException executionEX) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(format("Failed to get connectFuture to %s from delegate connection pool due to exception", connectURI), executionEX);
+                    } else {
+                        logger.warn(format("Failed to get ConnectFuture to %s from delegate connection pool due to exception %s", connectURI, executionEX));
+                    }
+                    return null;
+                } catch (InterruptedException interruptedEx) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(format("Failed to get connectFuture to %s from delegate connection pool due to exception", connectURI), interruptedEx);
+                    } else {
+                        logger.warn(format("Failed to get ConnectFuture to %s from delegate connection pool due to exception %s", connectURI, interruptedEx));
+                    }
+                    return null;
+                }
+            }
+            return pool.getNextConnectFuture(connectInitializer);
+        }
+
+        @Override
+        public String toString() {
+            return connectURI.toString();
+        }
+    }
+
+    /**
+     * A single instance of this filter is set on every outgoing connection to an upstream. It is in charge of making
+     * sure we periodically establish a connection (and close it immediately) if there are no (permanent)
+     * connections open to that upstream.
      */
     class HeartbeatFilter extends IoFilterAdapter {
+        private final Upstream upstream;
+        private final ServiceHeartbeat heartbeat;
         private final AtomicInteger sessionCount = new AtomicInteger(0);
         private final IoFutureListener<ConnectFuture> connectListener = new IoFutureListener<ConnectFuture>() {
             @Override
@@ -252,8 +656,9 @@ public final class ServiceConnectManager {
             }
         };
 
-        private HeartbeatFilter(int interval) {
-            heartbeat = new ServiceHeartbeat(interval);
+        private HeartbeatFilter(Upstream upstream, int interval) {
+            this.upstream = upstream;
+            heartbeat = new ServiceHeartbeat(this, interval);
             heartbeat.schedule(interval);
         }
 
@@ -271,7 +676,7 @@ public final class ServiceConnectManager {
             if (sessionCount.getAndIncrement() == 0) {
                 // there is at least one session now, cancel the heartbeat
                 if (logger.isTraceEnabled()) {
-                    logger.trace(format("First session connected to service, cancelling heartbeat for %s", connectURI));
+                    logger.trace(format("First session connected to service, cancelling heartbeat for %s", upstream));
                 }
                 cancelHeartbeat();
             }
@@ -295,7 +700,7 @@ public final class ServiceConnectManager {
         }
 
         /**
-         * This method is called whenever we connect (preconnect, regular connect or heartbeat)
+         * This method is called whenever we connect to the upstream (preconnect, regular connect or heartbeat)
          */
         void setServiceConnected(boolean successfullyConnected, boolean isHeartbeat) {
             if (successfullyConnected) {
@@ -306,23 +711,16 @@ public final class ServiceConnectManager {
                 heartbeatPingFailures.incrementAndGet();
                 heartbeatPingResult.set(false);
             }
-            boolean changedConnectionState = serviceConnected.compareAndSet(!successfullyConnected, successfullyConnected);
+            boolean changedConnectionState = upstream.healthy.compareAndSet(!successfullyConnected, successfullyConnected);
 
             if (changedConnectionState) {
                 if (!successfullyConnected) {
-                    // if the connection state was changed to disconnected, then unbind the service and start the heartbeat
-                    try {
-                        if ( logger.isTraceEnabled() ) {
-                            logger.trace(format("Quiescing service with connect uri '%s'.", connectURI));
-                        }
-                        serviceCtx.getService().quiesce();
-                        if ( logger.isTraceEnabled() ) {
-                            logger.trace(format("Quiesced service with connect uri '%s'.", connectURI));
-                        }
-
-                    } catch (Exception ex) {
-                        throw new RuntimeException(ex);
+                    // eject the upstream from selection and start the heartbeat
+                    if (logger.isInfoEnabled()) {
+                        logger.info(format("Unable to connect to %s for %s service, ejecting it until it recovers",
+                                upstream, serviceCtx.getServiceType()));
                     }
+                    upstreamHealthChanged();
                     heartbeat.schedule();
                 } else {
                     // Are there active connections?  If so, no need to keep the heartbeat running.
@@ -330,35 +728,39 @@ public final class ServiceConnectManager {
                         heartbeat.cancel();
                     }
 
-                    // if the connection state was changed to connected, then rebind the service
-                    try {
-                        if ( logger.isTraceEnabled() ) {
-                            logger.trace(format("Starting service with connect uri '%s'.", connectURI));
-                        }
-                        serviceCtx.getService().start();
-                        if ( logger.isTraceEnabled() ) {
-                            logger.trace(format("Started service with connect uri '%s'.", connectURI));
-                        }
-                    } catch (Exception ex) {
-                        throw new RuntimeException(ex);
+                    if (logger.isInfoEnabled()) {
+                        logger.info(format("Connected to %s for %s service again, restoring it", upstream,
+                                serviceCtx.getServiceType()));
+                    }
+
+                    // if this is the first upstream to recover the service is started again, which restarts every
+                    // connection pool, otherwise only this upstream's connection pools need restarting
+                    boolean serviceWasConnected = serviceConnected.get();
+                    upstreamHealthChanged();
+                    if (serviceWasConnected) {
+                        upstream.start();
                     }
                 }
             } else if (successfullyConnected && isHeartbeat) {
-                ServiceConnectManager.this.start();
+                upstream.start();
             }
         }
     }
 
     private class ServiceHeartbeat implements Runnable {
+        private final HeartbeatFilter heartbeatFilter;
+        private final URI connectURI;
         private final int interval;
         private final AtomicReference<ScheduledFuture<?>> heartbeatTask;
         private final HeartbeatHandler handler;
         private final AtomicInteger nextDelay;
         private final ScheduledExecutorService executor;
 
-        private ServiceHeartbeat(int interval) {
+        private ServiceHeartbeat(HeartbeatFilter heartbeatFilter, int interval) {
+            this.heartbeatFilter = heartbeatFilter;
+            this.connectURI = heartbeatFilter.upstream.connectURI;
             this.interval = interval;
-            handler = new HeartbeatHandler();
+            handler = new HeartbeatHandler(heartbeatFilter.upstream);
             heartbeatTask = new AtomicReference<>();
             nextDelay = new AtomicInteger(interval);
             executor = ServiceConnectManager.this.schedulerProvider.getScheduler("ServiceHeartbeat", false);
@@ -467,6 +869,12 @@ public final class ServiceConnectManager {
     }
 
     private class HeartbeatHandler extends IoHandlerAdapter {
+        private final Upstream upstream;
+
+        private HeartbeatHandler(Upstream upstream) {
+            this.upstream = upstream;
+        }
+
         @Override
         public void sessionOpened(IoSession session) throws Exception {
             session.close(false);
@@ -477,7 +885,7 @@ public final class ServiceConnectManager {
             // either case the service might not have been quiesced then started again, which prevents the pre-connects (aka
             // prepared connections) from being fulfilled.  Give the ServiceConnectManager a chance to fulfill pre-connects
             // now, and if there are no pre-connects or they are already fulfilled then this will be a no-op.
-            ServiceConnectManager.this.start();
+            upstream.start();
         }
     }
 
@@ -518,11 +926,64 @@ public final class ServiceConnectManager {
     }
 
     public boolean isHeartbeatRunning() {
-        if (heartbeat == null) {
-            return false;
+        for (Upstream upstream : upstreams) {
+            HeartbeatFilter heartbeatFilter = upstream.heartbeatFilter;
+            if (heartbeatFilter != null && heartbeatFilter.heartbeat.heartbeatTask.get() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the connect URIs of the upstreams that are currently healthy.
+     */
+    public List<URI> getHealthyConnectURIs() {
+        List<URI> connectURIs = new ArrayList<>(upstreams.length);
+        for (Upstream upstream : upstreams) {
+            if (upstream.isHealthy()) {
+                connectURIs.add(upstream.connectURI);
+            }
+        }
+        return connectURIs;
+    }
+
+    /**
+     * Returns the number of prepared connections the connection pools currently aim to keep, over all upstreams
+     * and I/O threads.  This only changes over time for adaptive connection pools.
+     */
+    public int getPreparedConnectionTarget() {
+        int target = 0;
+        for (Upstream upstream : upstreams) {
+            for (ConnectionPool pool : upstream.connectionPools) {
+                target += pool.getPreparedConnectionCount();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns the fraction of connect requests that were served by a prepared connection, 0 if there were none.
+     */
+    public double getPreparedConnectionHitRate() {
+        long hits = 0;
+        long requests = 0;
+        for (Upstream upstream : upstreams) {
+            for (ConnectionPool pool : upstream.connectionPools) {
+                long poolHits = pool.getHits();
+                hits += poolHits;
+                requests += poolHits + pool.getMisses();
+            }
         }
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
 
-        return heartbeat.heartbeatTask.get() != null;
+    /**
+     * Returns the number of successful backend connects per latency bucket.  Bucket 0 counts connects that took less
+     * than 1ms, bucket i connects that took [2^(i-1), 2^i) ms, and the last bucket all slower connects.
+     */
+    public long[] getConnectLatencyHistogram() {
+        return connectLatencies.getCounts();
     }
 
     private void updateConnectTimes(boolean connected) {
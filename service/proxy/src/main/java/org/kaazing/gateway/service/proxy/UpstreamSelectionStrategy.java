@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.proxy;
+
+/**
+ * How a proxy service with several <tt>connect</tt> URIs chooses the upstream for each new proxied connection,
+ * configured with the service property <tt>connect.strategy</tt>.  Upstreams that have been ejected by the
+ * heartbeat are skipped by every strategy.
+ */
+public enum UpstreamSelectionStrategy {
+
+    /**
+     * Each upstream in turn.
+     */
+    ROUND_ROBIN("round-robin"),
+
+    /**
+     * The upstream with the fewest connections currently handed out by this service.
+     */
+    LEAST_OUTSTANDING("least-outstanding"),
+
+    /**
+     * An upstream chosen by consistent hashing of the client IP address, so that a client keeps using the same
+     * upstream while it is healthy, and only clients of an ejected upstream are moved elsewhere.
+     */
+    CONSISTENT_HASH("consistent-hash");
+
+    private final String name;
+
+    UpstreamSelectionStrategy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static UpstreamSelectionStrategy fromName(String valueName, String name) {
+        for (UpstreamSelectionStrategy strategy : values()) {
+            if (strategy.name.equalsIgnoreCase(name)) {
+                return strategy;
+            }
+        }
+        String message = String.format("Invalid value \"%s\" for %s, must be one of \"round-robin\", "
+                + "\"least-outstanding\" or \"consistent-hash\"", name, valueName);
+        throw new IllegalArgumentException(message);
+    }
+}
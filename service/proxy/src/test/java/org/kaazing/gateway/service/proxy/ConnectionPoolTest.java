@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.service.proxy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.future.DefaultConnectFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.session.DummySession;
+import org.apache.mina.core.session.IoSessionInitializer;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Test;
+import org.kaazing.gateway.service.ServiceContext;
+
+public class ConnectionPoolTest {
+    private static final URI CONNECT_URI = URI.create("tcp://backend.example.com:5672");
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void adaptivePoolShouldGrowOnMissesAndShrinkWhenIdle() throws Exception {
+        AtomicInteger connects = new AtomicInteger();
+        ConnectionPool pool = newConnectionPool(connects, true, 0, 0, 8);
+        pool.start();
+        long now = System.nanoTime();
+
+        // requests find the pool empty
+        for (int i = 0; i < 3; i++) {
+            pool.getNextConnectFuture(null);
+        }
+        assertEquals(3, pool.getMisses());
+        assertEquals(3, connects.get());
+
+        pool.adapt(now + SECOND);
+        assertEquals(3, pool.getPreparedConnectionCount());
+        assertEquals(6, connects.get());
+
+        pool.getNextConnectFuture(null);
+        assertEquals(1, pool.getHits());
+
+        // no more requests, the pool shrinks back to the minimum
+        pool.adapt(now + 2 * SECOND);
+        assertEquals(1, pool.getPreparedConnectionCount());
+        pool.adapt(now + 3 * SECOND);
+        assertEquals(0, pool.getPreparedConnectionCount());
+    }
+
+    @Test
+    public void adaptivePoolShouldStayWithinBounds() throws Exception {
+        AtomicInteger connects = new AtomicInteger();
+        ConnectionPool pool = newConnectionPool(connects, false, 2, 1, 4);
+        pool.start();
+        long now = System.nanoTime();
+
+        // connects never complete, so every request misses
+        for (int i = 0; i < 20; i++) {
+            pool.getNextConnectFuture(null);
+        }
+        pool.adapt(now + SECOND);
+        assertEquals(4, pool.getPreparedConnectionCount());
+
+        for (int i = 2; i < 10; i++) {
+            pool.adapt(now + i * SECOND);
+        }
+        assertEquals(1, pool.getPreparedConnectionCount());
+    }
+
+    @Test
+    public void fixedPoolShouldNotAdapt() throws Exception {
+        AtomicInteger connects = new AtomicInteger();
+        ConnectionPool pool = newConnectionPool(connects, false, 2, 2, 2);
+        pool.start();
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 5; i++) {
+            pool.getNextConnectFuture(null);
+        }
+        pool.adapt(now + SECOND);
+        assertEquals(2, pool.getPreparedConnectionCount());
+        assertEquals(5, pool.getMisses());
+        assertEquals(7, connects.get());
+    }
+
+    @Test
+    public void latencyHistogramShouldUsePowerOfTwoBuckets() {
+        assertEquals(0, ConnectLatencyHistogram.getBucket(0));
+        assertEquals(1, ConnectLatencyHistogram.getBucket(1));
+        assertEquals(2, ConnectLatencyHistogram.getBucket(3));
+        assertEquals(3, ConnectLatencyHistogram.getBucket(4));
+        assertEquals(ConnectLatencyHistogram.BUCKET_COUNT - 1, ConnectLatencyHistogram.getBucket(Long.MAX_VALUE));
+
+        ConnectLatencyHistogram histogram = new ConnectLatencyHistogram();
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(1, histogram.getCounts()[3]);
+    }
+
+    // creates a pool whose connects either complete immediately or never complete
+    @SuppressWarnings("unchecked")
+    private static ConnectionPool newConnectionPool(final AtomicInteger connects, final boolean fulfilled, int count,
+            int minimumCount, int maximumCount) {
+        Mockery context = new Mockery() {{
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }};
+        final AbstractProxyHandler handler = context.mock(AbstractProxyHandler.class);
+        final ServiceContext service = context.mock(ServiceContext.class);
+
+        context.checking(new Expectations() {
+            {
+                allowing(service).connect(with(CONNECT_URI), with(handler), with(any(IoSessionInitializer.class)));
+                will(new CustomAction("return next future") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        connects.incrementAndGet();
+                        DefaultConnectFuture future = new DefaultConnectFuture();
+                        if (fulfilled) {
+                            future.setSession(new DummySession());  // fulfills the connect future
+                        }
+                        return future;
+                    }
+                });
+            }
+        });
+
+        IoFutureListener<ConnectFuture> connectListener = new IoFutureListener<ConnectFuture>() {
+            @Override
+            public void operationComplete(ConnectFuture future) {
+            }
+        };
+        return new ConnectionPool(service, handler, CONNECT_URI, null, connectListener, new ConnectLatencyHistogram(),
+                count, minimumCount, maximumCount, true);
+    }
+}
@@ -21,19 +21,28 @@
 
 package org.kaazing.gateway.service.proxy;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.DefaultConnectFuture;
 import org.apache.mina.core.session.DummySession;
 import org.apache.mina.core.session.IoSessionInitializer;
@@ -54,6 +63,9 @@ import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.slf4j.Logger;
 
 public class ServiceConnectManagerTest {
+    private static final URI BACKEND_1 = URI.create("tcp://backend1.example.com:5672");
+    private static final URI BACKEND_2 = URI.create("tcp://backend2.example.com:5672");
+    private static final URI BACKEND_3 = URI.create("tcp://backend3.example.com:5672");
 
     @SuppressWarnings("unchecked")
     @Test
@@ -414,6 +426,118 @@ public class ServiceConnectManagerTest {
         context.assertIsSatisfied();
     }
 
+    @Test
+    public void roundRobinShouldSpreadConnectsOverUpstreams() throws Exception {
+        final List<URI> connected = Collections.synchronizedList(new ArrayList<URI>());
+        ServiceConnectManager manager = newStartedServiceConnectManager(asList(BACKEND_1, BACKEND_2),
+                UpstreamSelectionStrategy.ROUND_ROBIN, connected);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(manager.getNextConnectFuture(null).isConnected());
+        }
+
+        assertEquals(asList(BACKEND_1, BACKEND_2, BACKEND_1, BACKEND_2), connected);
+    }
+
+    @Test
+    public void leastOutstandingShouldPreferUpstreamWithFewestConnections() throws Exception {
+        final List<URI> connected = Collections.synchronizedList(new ArrayList<URI>());
+        ServiceConnectManager manager = newStartedServiceConnectManager(asList(BACKEND_1, BACKEND_2),
+                UpstreamSelectionStrategy.LEAST_OUTSTANDING, connected);
+
+        ConnectFuture first = manager.getNextConnectFuture(null);
+        ConnectFuture second = manager.getNextConnectFuture(null);
+        ConnectFuture third = manager.getNextConnectFuture(null);
+        assertEquals(asList(BACKEND_1, BACKEND_2, BACKEND_1), connected);
+        assertEquals(2, manager.getUpstreams()[0].getOutstandingCount());
+        assertEquals(1, manager.getUpstreams()[1].getOutstandingCount());
+
+        first.getSession().close(true);
+        third.getSession().close(true);
+        assertEquals(0, manager.getUpstreams()[0].getOutstandingCount());
+
+        manager.getNextConnectFuture(null);
+        assertEquals(BACKEND_1, connected.get(3));
+        assertTrue(second.isConnected());
+    }
+
+    @Test
+    public void consistentHashShouldKeepClientOnSameUpstream() throws Exception {
+        final List<URI> connected = Collections.synchronizedList(new ArrayList<URI>());
+        ServiceConnectManager manager = newStartedServiceConnectManager(asList(BACKEND_1, BACKEND_2, BACKEND_3),
+                UpstreamSelectionStrategy.CONSISTENT_HASH, connected);
+
+        Set<URI> used = new HashSet<>();
+        for (int i = 1; i <= 30; i++) {
+            DummySession acceptSession = new DummySession();
+            acceptSession.setRemoteAddress(new InetSocketAddress(InetAddress.getByName("10.0.0." + i), 40000 + i));
+
+            manager.getNextConnectFuture(acceptSession, null);
+            URI upstream = connected.get(connected.size() - 1);
+            manager.getNextConnectFuture(acceptSession, null);
+            assertEquals(upstream, connected.get(connected.size() - 1));
+            used.add(upstream);
+        }
+
+        assertEquals(3, used.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownConnectStrategy() {
+        UpstreamSelectionStrategy.fromName("connect.strategy", "random");
+    }
+
+    // creates and starts a manager with a single I/O thread and no prepared connections, recording each connect URI
+    @SuppressWarnings("unchecked")
+    private static ServiceConnectManager newStartedServiceConnectManager(List<URI> connectURIs,
+            UpstreamSelectionStrategy strategy, final List<URI> connected) throws Exception {
+        Mockery context = new Mockery() {{
+            setImposteriser(ClassImposteriser.INSTANCE);
+        }};
+        context.setThreadingPolicy(new Synchroniser());
+        final AbstractProxyHandler handler = context.mock(AbstractProxyHandler.class);
+        final ServiceContext service = context.mock(ServiceContext.class);
+        final Logger logger = context.mock(Logger.class);
+        final BridgeServiceFactory bridgeServiceFactory = context.mock(BridgeServiceFactory.class);
+        final TransportFactory transportFactory = context.mock(TransportFactory.class);
+        final Transport transport = context.mock(Transport.class);
+        final NioSocketAcceptor acceptor = context.mock(NioSocketAcceptor.class);
+        final Worker worker = context.mock(Worker.class, "worker");
+        final CompletionService<Throwable> executor = new ExecutorCompletionService<>(Executors.newFixedThreadPool(1));
+
+        context.checking(new Expectations() {
+            {
+                allowing(service).getLogger(); will(returnValue(logger));
+                allowing(service).getSchedulerProvider(); will(returnValue(null));
+                allowing(service).getProcessorCount(); will(returnValue(1));
+                allowing(logger).isDebugEnabled(); will(returnValue(false));
+                allowing(logger).isWarnEnabled(); will(returnValue(false));
+                allowing(logger).isTraceEnabled(); will(returnValue(false));
+                allowing(bridgeServiceFactory).getTransportFactory(); will(returnValue(transportFactory));
+                allowing(transportFactory).getTransport("tcp"); will(returnValue(transport));
+                allowing(transport).getAcceptor(); will(returnValue(acceptor));
+                allowing(acceptor).getWorkers(); will(returnValue(new Worker[] { worker }));
+                allowing(worker).executeInIoThread(with(any(Runnable.class))); will(new ExecuteRunnable(executor));
+                allowing(service).connect(with(any(URI.class)), with(handler), with(any(IoSessionInitializer.class)));
+                will(new CustomAction("return next future (fulfilled)") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        connected.add((URI) invocation.getParameter(0));
+                        DefaultConnectFuture future = new DefaultConnectFuture();
+                        future.setSession(new DummySession());  // fulfills the connect future
+                        return future;
+                    }
+                });
+            }
+        });
+
+        ServiceConnectManager manager = new ServiceConnectManager(service, handler, bridgeServiceFactory, connectURIs,
+                strategy, 0 /*interval*/, 0 /*prepared connections*/);
+        manager.start();
+        assertNull(executor.take().get());
+        return manager;
+    }
+
     private static class ExecuteRunnable extends CustomAction {
         private final CompletionService<Throwable> completionService;
 
@@ -36,8 +36,8 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URI;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -59,7 +59,7 @@ import org.kaazing.gateway.transport.NextProtocolBindings;
 import org.kaazing.gateway.transport.NextProtocolBindings.NextProtocolBinding;
 import org.kaazing.gateway.transport.NextProtocolFilter;
 import org.kaazing.gateway.transport.SocketAddressFactory;
-import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
 import org.kaazing.mina.core.future.DefaultUnbindFuture;
 import org.kaazing.mina.core.future.UnbindFuture;
 import org.slf4j.Logger;
@@ -88,6 +88,13 @@ public abstract class AbstractBioAcceptor<T extends SocketAddress> implements Br
         return bindings.isEmpty();
     }
 
+    /**
+     * Returns the number of connections dispatched to each next protocol by this acceptor (protocol name -> count).
+     */
+    public Map<String, Long> getDispatchCounts() {
+        return bindings.getDispatchCounts();
+    }
+
     protected final void init() {
         socketAddressFactory = initSocketAddressFactory();
         bridgeServiceFactory = initBridgeServiceFactory();
@@ -115,7 +122,8 @@ public abstract class AbstractBioAcceptor<T extends SocketAddress> implements Br
                     sessionCreated0(session);
                 }
                 else {
-                    Collection<ProtocolDispatcher> dispatchers = bridgeServiceFactory.getTransportFactory().getProtocolDispatchers().values();
+                    ProtocolDispatcherTrie dispatchers =
+                            nioBinding.getProtocolDispatchers(bridgeServiceFactory.getTransportFactory().getProtocolDispatchers());
 
                     // sessionCreated will be sent down pipeline again when next-protocol has been determined
                     NextProtocolFilter nextProtocol = new NextProtocolFilter(dispatchers) {
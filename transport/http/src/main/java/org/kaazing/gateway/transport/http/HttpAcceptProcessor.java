@@ -25,6 +25,7 @@ import static java.lang.String.valueOf;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.INJECTABLE_HEADERS;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_LENGTH;
 
+import org.apache.mina.core.file.FileRegion;
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.filterchain.IoFilterChain.Entry;
 import org.apache.mina.core.future.CloseFuture;
@@ -292,6 +293,24 @@ public class HttpAcceptProcessor extends BridgeAcceptProcessor<DefaultHttpSessio
         }
     }
 
+    @Override
+    protected WriteFuture flushNow(DefaultHttpSession session, IoSessionEx parent, FileRegion region,
+            IoFilterChain filterChain, WriteRequest request) {
+        CommitFuture commitFuture = session.commit();
+        if (!commitFuture.isCommitted()) {
+            session.suspendWrite();
+            commitFuture.addListener(WRITE_RESUMER);
+            return null;
+        }
+
+        // file bytes are written verbatim, so content must be neither chunked nor gzipped
+        // note: the codec filter on the parent (if any) passes file regions through unencoded
+        if (session.isChunked() || session.isGzipped()) {
+            throw new IllegalStateException("File regions cannot be written to a chunked or gzipped HTTP response");
+        }
+        return flushNowInternal(parent, region, null, filterChain, request);
+    }
+
     private static final class WriteResumer implements IoFutureListener<CommitFuture> {
         @Override
         public void operationComplete(CommitFuture future) {
@@ -27,7 +27,6 @@ import java.net.URI;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -194,6 +193,9 @@ public class HttpBindings extends Bindings<HttpBinding> {
 
         private final ConcurrentNavigableMap<String, Binding> bindingsByPath;
 
+        // index of bindingsByPath for longest prefix lookup, updated while holding the HttpBinding monitor
+        private final HttpPathTrie<Binding> bindingsByPathPrefix;
+
         @Override
         public int hashCode() {
             int hashCode = super.hashCode();
@@ -244,6 +246,7 @@ public class HttpBindings extends Bindings<HttpBinding> {
         HttpBinding(ResourceAddress bindAddress) {
             super(bindAddress);
             bindingsByPath = new ConcurrentSkipListMap<>(PATH_ASCENDING);
+            bindingsByPathPrefix = new HttpPathTrie<>();
         }
         
         boolean isEmpty() {
@@ -255,30 +258,32 @@ public class HttpBindings extends Bindings<HttpBinding> {
         }
 
         Binding get(String path)  {
-            NavigableSet<String> paths = bindingsByPath.navigableKeySet();
-            NavigableSet<String> candidatePaths = paths.headSet(path, true);
-
-            for (Iterator<String> $i = candidatePaths.descendingIterator(); $i.hasNext(); ) {
-                String candidatePath = $i.next();
-                if (path.startsWith(candidatePath)) {
-                    return bindingsByPath.get(candidatePath);
-                }
-            }
-            
-            return null;
+            return bindingsByPathPrefix.longestMatch(path);
         }
 
         Binding put(String path, Binding binding)  {
-            return bindingsByPath.putIfAbsent(path, binding);
+            synchronized (this) {
+                Binding oldBinding = bindingsByPath.putIfAbsent(path, binding);
+                if (oldBinding == null) {
+                    bindingsByPathPrefix.put(path, binding);
+                }
+                return oldBinding;
+            }
         }
 
         boolean remove(String path, Binding binding)  {
-            if ( binding == (bindingsByPath.get(path))) {
-                if ( binding.decrementReferenceCount() == 0 ) {
-                    return bindingsByPath.remove(path, binding);
+            synchronized (this) {
+                if ( binding == (bindingsByPath.get(path))) {
+                    if ( binding.decrementReferenceCount() == 0 ) {
+                        boolean removed = bindingsByPath.remove(path, binding);
+                        if (removed) {
+                            bindingsByPathPrefix.remove(path);
+                        }
+                        return removed;
+                    }
                 }
+                return false;
             }
-            return false;
         }
     }
 }
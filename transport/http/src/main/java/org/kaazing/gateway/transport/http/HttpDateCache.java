@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats HTTP date header values (RFC 822 dates in GMT), caching the value of the current second.
+ *
+ * Date and Expires headers are set to the current time on many responses, so the value is formatted once per
+ * second and shared, along with its ASCII bytes for the response encoder.  Formatting is thread-safe.
+ */
+public final class HttpDateCache {
+
+    private static final DateFormat RFC822_FORMAT_PATTERN =
+            new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+    static {
+        RFC822_FORMAT_PATTERN.setTimeZone(TimeZone.getTimeZone("GMT"));
+    }
+
+    private static volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, null);
+
+    private HttpDateCache() {
+    }
+
+    /**
+     * Returns the date header value for the time, reusing the cached value if it is in the same second.
+     */
+    public static String formatDate(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        CachedDate cached = cachedDate;
+        if (cached.second != second) {
+            cached = new CachedDate(second, format(second * 1000L));
+            // note: only replace a value for an earlier second, as a late thread may be formatting an older time
+            if (second > cachedDate.second) {
+                cachedDate = cached;
+            }
+        }
+        return cached.value;
+    }
+
+    /**
+     * Returns the ASCII bytes of the value if it is the cached date header value, otherwise null.
+     */
+    public static byte[] getBytes(String value) {
+        CachedDate cached = cachedDate;
+        return (cached.value == value) ? cached.bytes : null;
+    }
+
+    /**
+     * Formats the date header value for the time, without caching.
+     */
+    public static String format(long millis) {
+        synchronized (RFC822_FORMAT_PATTERN) {
+            return RFC822_FORMAT_PATTERN.format(millis);
+        }
+    }
+
+    private static final class CachedDate {
+        final long second;
+        final String value;
+        final byte[] bytes;
+
+        CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+            this.bytes = (value != null) ? toAsciiBytes(value) : null;
+        }
+
+        private static byte[] toAsciiBytes(String value) {
+            byte[] bytes = new byte[value.length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) value.charAt(i);
+            }
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Segment-aware prefix trie of HTTP paths, used to find the longest bound path that is a prefix of a request path.
+ *
+ * A bound path matches a request path when it equals the request path, or when it is a prefix that ends on a
+ * segment boundary, so "/foo" matches "/foo" and "/foo/bar" but not "/foobar", and "/" matches every absolute path.
+ * Lookups walk one node per request path segment and never lock or allocate.  Updates must be serialized
+ * by the caller, and are published to concurrent lookups through copy-on-write child arrays.
+ */
+final class HttpPathTrie<V> {
+
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+    private final Node<V> root = new Node<>("");
+
+    /**
+     * Returns the value of the longest bound path matching the request path, or null if none matches.
+     */
+    V longestMatch(String path) {
+        int length = path.length();
+        Node<V> node = root;
+        V match = node.value;
+
+        for (int start = startOf(path); start <= length; ) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            // a bound path ending in a slash matches any request path continuing from that slash
+            if (start < end) {
+                Node<V> trailingSlash = node.child(path, start, start);
+                if (trailingSlash != null && trailingSlash.value != null) {
+                    match = trailingSlash.value;
+                }
+            }
+
+            Node<V> child = node.child(path, start, end);
+            if (child == null) {
+                break;
+            }
+            if (child.value != null) {
+                match = child.value;
+            }
+
+            node = child;
+            start = end + 1;
+        }
+
+        return match;
+    }
+
+    /**
+     * Associates the value with the bound path, replacing any previous value.  Not thread safe with other updates.
+     */
+    void put(String path, V value) {
+        Node<V> node = root;
+        int length = path.length();
+        for (int start = startOf(path); start <= length && !isRoot(path); ) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            Node<V> child = node.child(path, start, end);
+            if (child == null) {
+                child = new Node<>(path.substring(start, end));
+                node.addChild(child);
+            }
+
+            node = child;
+            start = end + 1;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Removes the value for the bound path, pruning nodes that no longer lead to a value.  Not thread safe with
+     * other updates.
+     *
+     * @return true if the bound path had a value
+     */
+    boolean remove(String path) {
+        Deque<Node<V>> ancestors = new ArrayDeque<>();
+        Node<V> node = root;
+        int length = path.length();
+        for (int start = startOf(path); start <= length && !isRoot(path); ) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = length;
+            }
+
+            Node<V> child = node.child(path, start, end);
+            if (child == null) {
+                return false;
+            }
+
+            ancestors.push(node);
+            node = child;
+            start = end + 1;
+        }
+
+        if (node.value == null) {
+            return false;
+        }
+        node.value = null;
+
+        while (!ancestors.isEmpty() && node.value == null && node.children.length == 0) {
+            Node<V> parent = ancestors.pop();
+            parent.removeChild(node);
+            node = parent;
+        }
+        return true;
+    }
+
+    private static boolean isRoot(String path) {
+        return path.isEmpty();
+    }
+
+    private static int startOf(String path) {
+        return (!path.isEmpty() && path.charAt(0) == '/') ? 1 : 0;
+    }
+
+    private static int compare(String segment, String path, int start, int end) {
+        int segmentLength = segment.length();
+        int regionLength = end - start;
+        int limit = Math.min(segmentLength, regionLength);
+        for (int i = 0; i < limit; i++) {
+            int comparison = segment.charAt(i) - path.charAt(start + i);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return segmentLength - regionLength;
+    }
+
+    private static final class Node<V> {
+        private final String segment;
+
+        // sorted by segment, replaced (never mutated) on update
+        private volatile Node<V>[] children;
+        private volatile V value;
+
+        @SuppressWarnings("unchecked")
+        Node(String segment) {
+            this.segment = segment;
+            this.children = (Node<V>[]) NO_CHILDREN;
+        }
+
+        Node<V> child(String path, int start, int end) {
+            Node<V>[] children = this.children;
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int comparison = compare(children[mid].segment, path, start, end);
+                if (comparison < 0) {
+                    low = mid + 1;
+                }
+                else if (comparison > 0) {
+                    high = mid - 1;
+                }
+                else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<V> child) {
+            Node<V>[] children = this.children;
+            int index = 0;
+            while (index < children.length && children[index].segment.compareTo(child.segment) < 0) {
+                index++;
+            }
+
+            @SuppressWarnings("unchecked")
+            Node<V>[] newChildren = (Node<V>[]) new Node<?>[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            this.children = newChildren;
+        }
+
+        void removeChild(Node<V> child) {
+            Node<V>[] children = this.children;
+            for (int index = 0; index < children.length; index++) {
+                if (children[index] == child) {
+                    @SuppressWarnings("unchecked")
+                    Node<V>[] newChildren = (Node<V>[]) new Node<?>[children.length - 1];
+                    System.arraycopy(children, 0, newChildren, 0, index);
+                    System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+                    this.children = newChildren;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Node [segment=%s, value=%s, children=%d]", segment, value, children.length);
+        }
+    }
+}
@@ -51,7 +51,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.TimeZone;
 
 import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.transport.SslUtils;
@@ -89,11 +88,6 @@ public class HttpUtils {
 		new SimpleDateFormat("d MMM yyyy HH:mm:ss z", Locale.ENGLISH)
 	};
 	
-	private static final DateFormat RFC822_FORMAT_PATTERN = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
-	static {
-		RFC822_FORMAT_PATTERN.setTimeZone(TimeZone.getTimeZone("GMT"));
-	}
-
     public static String getHostDomain(HttpRequestMessage httpRequest) {
 	    String host = httpRequest.getHeader("Host");
 	    int index = host.indexOf(':');
@@ -140,7 +134,7 @@ public class HttpUtils {
 	}
 	
 	public static String formatDateHeader(long millis) {
-		return RFC822_FORMAT_PATTERN.format(millis);
+		return HttpDateCache.formatDate(millis);
 	}
 
 	public static void fileRequested(IoBufferAllocatorEx<?> allocator, HttpRequestMessage httpRequest, HttpResponseMessage httpResponse,
@@ -165,8 +159,8 @@ public class HttpUtils {
 				out.flip();
 				
 				httpResponse.setHeader("ETag", etag);
-				httpResponse.setHeader("Last-Modified", RFC822_FORMAT_PATTERN.format(requestFile.lastModified()));
-				httpResponse.setHeader("Expires", RFC822_FORMAT_PATTERN.format(System.currentTimeMillis()));
+				httpResponse.setHeader("Last-Modified", HttpDateCache.format(requestFile.lastModified()));
+				httpResponse.setHeader("Expires", formatDateHeader(System.currentTimeMillis()));
 				httpResponse.setContent(new HttpContentMessage(out, true));
 
 				// Note: callers are responsible for adding the Content-Type header,
@@ -201,8 +195,8 @@ public class HttpUtils {
                 out.flip();
                 
                 httpSession.setWriteHeader("ETag", etag);
-                httpSession.setWriteHeader("Last-Modified", RFC822_FORMAT_PATTERN.format(requestFile.lastModified()));
-                httpSession.setWriteHeader("Expires", RFC822_FORMAT_PATTERN.format(System.currentTimeMillis()));
+                httpSession.setWriteHeader("Last-Modified", HttpDateCache.format(requestFile.lastModified()));
+                httpSession.setWriteHeader("Expires", formatDateHeader(System.currentTimeMillis()));
                 httpSession.suspendWrite();
                 httpSession.write(out);
                 httpSession.shutdownWrite();
@@ -242,8 +236,23 @@ public class HttpUtils {
 		return hasBeenModified(requestFile, etag, ifNoneMatch, ifModifiedSince);
 	}
 
+	public static boolean hasBeenModified(HttpSession session, String etag, long lastModified) {
+		String ifNoneMatch = session.getReadHeader("If-None-Match");
+		String ifModifiedSince = session.getReadHeader("If-Modified-Since");
+		return hasBeenModified(lastModified, etag, ifNoneMatch, ifModifiedSince);
+	}
+
 	private static boolean hasBeenModified(File requestFile,
 			String eTag, String ifNoneMatch, String ifModifiedSince) {
+		// note: only stat the file when the If-Modified-Since header needs it
+		boolean needsLastModified = (ifNoneMatch == null || "*".equals(ifNoneMatch)) &&
+				ifModifiedSince != null && ifModifiedSince.length() != 0;
+		long lastModified = needsLastModified ? requestFile.lastModified() : 0L;
+		return hasBeenModified(lastModified, eTag, ifNoneMatch, ifModifiedSince);
+	}
+
+	private static boolean hasBeenModified(long lastModified,
+			String eTag, String ifNoneMatch, String ifModifiedSince) {
 		// "*" indicates skip ETag check, just use if-modified-since semantics, if present
 		if (ifNoneMatch != null && !"*".equals(ifNoneMatch)) {
 			// if ETag match is found, then not modified
@@ -263,7 +272,6 @@ public class HttpUtils {
 			return true;
 		}
 		
-		long lastModified = requestFile.lastModified();
 		Date ifModifiedSinceDate = null;
 		
 		// parse date format
@@ -293,16 +301,23 @@ public class HttpUtils {
 	
 	public static void addLastModifiedHeader(HttpSession session, File requestFile) {
 		long lastModified = requestFile.lastModified();
-		session.setWriteHeader("Last-Modified", RFC822_FORMAT_PATTERN.format(lastModified));
+		session.setWriteHeader("Last-Modified", getLastModifiedHeaderValue(lastModified));
+	}
+
+	public static String getLastModifiedHeaderValue(long lastModified) {
+		return HttpDateCache.format(lastModified);
 	}
 	
 	public static void addExpiresHeader(HttpSession session) {
 		long currentTimeMillis = System.currentTimeMillis();
-		session.setWriteHeader("Expires", RFC822_FORMAT_PATTERN.format(currentTimeMillis));
+		session.setWriteHeader("Expires", formatDateHeader(currentTimeMillis));
 	}
 	
 	public static String getETagHeaderValue(File requestFile) {
-		long lastModified = requestFile.lastModified();
+		return getETagHeaderValue(requestFile, requestFile.lastModified());
+	}
+
+	public static String getETagHeaderValue(File requestFile, long lastModified) {
 		String absolutePath = requestFile.getAbsolutePath();
 		
 		// construct the MDS hash
@@ -21,40 +21,215 @@
 
 package org.kaazing.gateway.transport.http.bridge.filter;
 
+import static java.lang.System.getProperty;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
 
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 
+/**
+ * Writes gzip Content-Encoding content as raw deflate blocks, following the gzip header written with the response.
+ *
+ * Each write is compressed on its own with a pooled {@link Deflater} and sync-flushed, so the encoded bytes do not
+ * depend on what was written before and can be cached and shared by every session writing the same message.
+ * Content smaller than {@link #MINIMUM_SIZE} is written as a stored (uncompressed) block instead.  Downstreams
+ * that write many messages use a {@link HttpGzipStream}, which keeps the deflater history between writes.
+ *
+ * The compression level and minimum size are set with the system properties
+ * <tt>org.kaazing.gateway.transport.http.GZIP_COMPRESSION_LEVEL</tt> (default 6) and
+ * <tt>org.kaazing.gateway.transport.http.GZIP_MINIMUM_SIZE</tt> (default 256 bytes).
+ */
 public class HttpGzipEncoder implements HttpContentWriter {
-	
+
+    public static final int COMPRESSION_LEVEL =
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.http.GZIP_COMPRESSION_LEVEL", "6"));
+
+    public static final int MINIMUM_SIZE =
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.http.GZIP_MINIMUM_SIZE", "256"));
+
+    // idle deflaters kept per thread, each holds a few hundred KB of native memory
+    private static final int MAXIMUM_POOLED_DEFLATERS = 8;
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private static final ThreadLocal<Deque<Deflater>> DEFLATERS = new VicariousThreadLocal<Deque<Deflater>>() {
+        @Override
+        protected Deque<Deflater> initialValue() {
+            return new ArrayDeque<>(MAXIMUM_POOLED_DEFLATERS);
+        }
+    };
+
+    private static final ThreadLocal<byte[][]> SCRATCH = new VicariousThreadLocal<byte[][]>() {
+        @Override
+        protected byte[][] initialValue() {
+            // input, output
+            return new byte[][] { EMPTY_BYTES, EMPTY_BYTES };
+        }
+    };
+
+    private static final LongAdder CONTENT_BYTES = new LongAdder();
+    private static final LongAdder ENCODED_BYTES = new LongAdder();
+
     @Override
     public IoBufferEx write(IoBufferEx source, IoBufferAllocatorEx<?> allocator) {
-        return writeGzipped(source, allocator);
+        int remaining = source.remaining();
+        if (remaining == 0) {
+            return source;
+        }
+
+        IoBufferEx padding = writePadding(source, allocator);
+        if (padding != null) {
+            return padding;
+        }
+
+        if (remaining >= MINIMUM_SIZE) {
+            Deflater deflater = acquireDeflater();
+            try {
+                int length = deflate(deflater, source.buf());
+                // incompressible content is better off stored, if it fits in a single stored block
+                if (length < remaining + GZIP_PREFIX_SIZE || remaining > MAXIMUM_STORED_SIZE) {
+                    return wrapDeflated(length, remaining, source.isShared(), allocator);
+                }
+            }
+            finally {
+                releaseDeflater(deflater);
+            }
+        }
+
+        return writeStored(source, allocator);
     }
-    
-    public static final int GZIP_PREFIX_SIZE = 5;
 
-    /*
-     * Gzipped Transfer-Encoding (trivial passthrough)
+    /**
+     * @return the number of content bytes written with gzip Content-Encoding
+     */
+    public static long getContentBytes() {
+        return CONTENT_BYTES.sum();
+    }
+
+    /**
+     * @return the number of bytes the gzip-encoded content was written as, excluding gzip headers
      */
-	private static IoBufferEx writeGzipped(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
+    public static long getEncodedBytes() {
+        return ENCODED_BYTES.sum();
+    }
+
+    public static final int GZIP_PREFIX_SIZE = 5;
+
+    // the length of a stored block is an unsigned 16-bit integer
+    private static final int MAXIMUM_STORED_SIZE = 0xffff;
+
+    // Writes the pre-compressed form of padding that is shared by all sessions, or returns null for other content
+    static IoBufferEx writePadding(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
         ByteBuffer source = sourceIoBuf.buf();
-        int position = source.position();
-        int remaining = source.remaining();
-        if (remaining == 0) {
-        	return sourceIoBuf;
-        }
         // TODO: consider ability to share
         if (source.hasArray() && source.array() == SSE_4K_PADDING_BYTES) {
+            record(SSE_4K_PADDING_BYTES.length, GZIPPED_SSE_4K_PADDING_BYTES.length);
             return allocator.wrap(ByteBuffer.wrap(GZIPPED_SSE_4K_PADDING_BYTES));
         }
         if (source.hasArray() && source.array() == WSEB_4K_PADDING_BYTES) {
+            record(WSEB_4K_PADDING_BYTES.length, GZIPPED_WSEB_4K_PADDING_BYTES.length);
             return allocator.wrap(ByteBuffer.wrap(GZIPPED_WSEB_4K_PADDING_BYTES));
         }
-        
-        // We don't implement Gzip - instead simply prepend gzip preamble
+        return null;
+    }
+
+    static Deflater acquireDeflater() {
+        Deflater deflater = DEFLATERS.get().pollFirst();
+        return deflater != null ? deflater : new Deflater(COMPRESSION_LEVEL, true);
+    }
+
+    static void releaseDeflater(Deflater deflater) {
+        Deque<Deflater> deflaters = DEFLATERS.get();
+        if (deflaters.size() < MAXIMUM_POOLED_DEFLATERS) {
+            deflater.reset();
+            deflaters.offerFirst(deflater);
+        }
+        else {
+            deflater.end();
+        }
+    }
+
+    /*
+     * Compresses the source (without consuming it) and sync-flushes the deflater, so the output ends on a byte
+     * boundary.  Returns the length of the output, which is held in a thread-local array until the next call.
+     */
+    static int deflate(Deflater deflater, ByteBuffer source) {
+        byte[][] scratch = SCRATCH.get();
+        int remaining = source.remaining();
+
+        if (source.hasArray()) {
+            deflater.setInput(source.array(), source.arrayOffset() + source.position(), remaining);
+        }
+        else {
+            byte[] input = scratch[0];
+            if (input.length < remaining) {
+                input = new byte[remaining];
+                scratch[0] = input;
+            }
+            source.duplicate().get(input, 0, remaining);
+            deflater.setInput(input, 0, remaining);
+        }
+
+        // enough for most content, deflate expands incompressible content by 5 bytes per 16K block plus flush marker
+        byte[] output = scratch[1];
+        int bound = remaining + (remaining >> 10) + 64;
+        if (output.length < bound) {
+            output = new byte[bound];
+            scratch[1] = output;
+        }
+
+        int length = 0;
+        while (true) {
+            length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+            if (length < output.length) {
+                break;
+            }
+            output = Arrays.copyOf(output, output.length * 2);
+            scratch[1] = output;
+        }
+        // do not keep a reference to the content
+        deflater.setInput(EMPTY_BYTES);
+        return length;
+    }
+
+    // Copies the output of the last deflate into a new buffer
+    static IoBufferEx wrapDeflated(int length, int contentLength, boolean shared, IoBufferAllocatorEx<?> allocator) {
+        record(contentLength, length);
+        ByteBuffer buf = allocator.allocate(length);
+        int offset = buf.position();
+        buf.put(SCRATCH.get()[1], 0, length);
+        buf.flip();
+        buf.position(offset);
+        return allocator.wrap(buf, shared ? FLAG_SHARED : FLAG_NONE);
+    }
+
+    private static void record(int contentLength, int encodedLength) {
+        CONTENT_BYTES.add(contentLength);
+        ENCODED_BYTES.add(encodedLength);
+    }
+
+    /*
+     * Gzipped Transfer-Encoding (stored block, no compression)
+     */
+	static IoBufferEx writeStored(IoBufferEx sourceIoBuf, IoBufferAllocatorEx<?> allocator) {
+        ByteBuffer source = sourceIoBuf.buf();
+        int position = source.position();
+        int remaining = source.remaining();
+        if (remaining == 0) {
+        	return sourceIoBuf;
+        }
+        record(remaining, remaining + GZIP_PREFIX_SIZE);
+
+        // Prepend the stored block header
         if (position >= GZIP_PREFIX_SIZE) {
             // Note: duplicate first to support parallel encoding (atomic race condition)
             ByteBuffer newSource = source.duplicate();
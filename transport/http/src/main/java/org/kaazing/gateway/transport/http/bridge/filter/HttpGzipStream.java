@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import java.util.zip.Deflater;
+
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+/**
+ * Writes the gzip Content-Encoding content of one response, compressing every write with the same {@link Deflater}
+ * so that messages on a streaming downstream (long-polling, SSE) compress against the ones written before them.
+ * Each write is sync-flushed, so it can be decoded as soon as it is received.
+ *
+ * Nothing is compressed until at least {@link HttpGzipEncoder#MINIMUM_SIZE} bytes have been written, so short
+ * responses are written as stored blocks.  The deflater is taken from the per-thread pool on first use and returned
+ * by {@link #end()}.  Not thread safe, each instance belongs to the encoder of one session.
+ */
+final class HttpGzipStream implements HttpContentWriter {
+
+    private Deflater deflater;
+    private long written;
+    private boolean resetRequired;
+
+    @Override
+    public IoBufferEx write(IoBufferEx source, IoBufferAllocatorEx<?> allocator) {
+        int remaining = source.remaining();
+        if (remaining == 0) {
+            return source;
+        }
+
+        if (deflater == null) {
+            // until the deflater has history, content can be written without it
+            IoBufferEx padding = HttpGzipEncoder.writePadding(source, allocator);
+            if (padding != null) {
+                written += remaining;
+                return padding;
+            }
+            if (written + remaining < HttpGzipEncoder.MINIMUM_SIZE) {
+                written += remaining;
+                return HttpGzipEncoder.writeStored(source, allocator);
+            }
+            deflater = HttpGzipEncoder.acquireDeflater();
+        }
+        else if (resetRequired) {
+            deflater.reset();
+        }
+        resetRequired = false;
+
+        written += remaining;
+        int length = HttpGzipEncoder.deflate(deflater, source.buf());
+        return HttpGzipEncoder.wrapDeflated(length, remaining, false, allocator);
+    }
+
+    /**
+     * Called when content was written to the response without this stream, which the deflater history must not
+     * refer back across.
+     */
+    void reset() {
+        resetRequired = true;
+    }
+
+    /**
+     * Returns the deflater to the pool, at the end of the response.
+     */
+    void end() {
+        if (deflater != null) {
+            HttpGzipEncoder.releaseDeflater(deflater);
+            deflater = null;
+        }
+    }
+}
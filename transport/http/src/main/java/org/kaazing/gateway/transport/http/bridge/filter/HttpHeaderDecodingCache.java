@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+
+/**
+ * Per-connection cache of decoded header names and values.
+ *
+ * Well-known header names are matched directly from the bytes of the request to interned constants, and the
+ * names and values of earlier requests on the same connection are reused when the bytes are identical.  Long
+ * polling clients send nearly the same request head every few seconds, so most headers are then decoded
+ * without allocating any strings.
+ *
+ * Not thread-safe, use one cache per decoder.
+ */
+final class HttpHeaderDecodingCache {
+
+    static final String[] WELL_KNOWN_NAMES = {
+        "Accept", "Accept-Charset", "Accept-Encoding", "Accept-Language", "Authorization", "Cache-Control",
+        "Connection", "Content-Length", "Content-Type", "Cookie", "DNT", "Date", "Host", "If-Modified-Since",
+        "If-None-Match", "Last-Event-ID", "Origin", "Pragma", "Range", "Referer", "Sec-WebSocket-Extensions",
+        "Sec-WebSocket-Key", "Sec-WebSocket-Protocol", "Sec-WebSocket-Version", "TE", "Transfer-Encoding",
+        "Upgrade", "Upgrade-Insecure-Requests", "User-Agent", "Via", "X-Accept-Commands", "X-Create-Encoding",
+        "X-Forwarded-For", "X-Next-Protocol", "X-Origin", "X-Requested-With", "X-Sequence-No",
+        "X-WebSocket-Extensions", "X-WebSocket-Version"
+    };
+
+    static final int MAXIMUM_NAMES = 64;
+    static final int MAXIMUM_VALUES = 64;
+    static final int MAXIMUM_VALUE_LENGTH = 4096;
+
+    private static final Entry[] WELL_KNOWN_ENTRIES = new Entry[WELL_KNOWN_NAMES.length];
+    static {
+        for (int i = 0; i < WELL_KNOWN_NAMES.length; i++) {
+            String name = WELL_KNOWN_NAMES[i];
+            WELL_KNOWN_ENTRIES[i] = new Entry(name, toBytes(name), null);
+        }
+    }
+
+    // names learned on this connection, and the last value seen for each name
+    private final Entry[] names = new Entry[MAXIMUM_NAMES];
+    private int nameCount;
+    private final Entry[] values = new Entry[MAXIMUM_VALUES];
+    private int valueCount;
+
+    /**
+     * Returns the header name for the remaining bytes of the buffer, or null if it is not known yet.
+     * The buffer position is not changed.
+     */
+    String getName(IoBuffer buffer) {
+        Entry entry = find(WELL_KNOWN_ENTRIES, WELL_KNOWN_ENTRIES.length, null, buffer);
+        if (entry == null) {
+            entry = find(names, nameCount, null, buffer);
+        }
+        return (entry != null) ? entry.name : null;
+    }
+
+    /**
+     * Remembers a header name decoded from the remaining bytes of the buffer.
+     */
+    void putName(String name, IoBuffer buffer) {
+        if (nameCount < names.length && name.length() == buffer.remaining()) {
+            names[nameCount++] = new Entry(name, toBytes(buffer), null);
+        }
+    }
+
+    /**
+     * Adds the values last decoded for the header from the same bytes, returning false if there are none.
+     * The buffer position is not changed.
+     */
+    boolean addValues(String name, IoBuffer buffer, List<String> headerValues) {
+        Entry entry = find(values, valueCount, name, buffer);
+        if (entry == null) {
+            return false;
+        }
+        for (String value : entry.values) {
+            headerValues.add(value);
+        }
+        return true;
+    }
+
+    /**
+     * Remembers the values decoded for the header from the remaining bytes of the buffer, replacing any values
+     * remembered for an earlier request.
+     */
+    void putValues(String name, IoBuffer buffer, String[] headerValues) {
+        if (buffer.remaining() > MAXIMUM_VALUE_LENGTH) {
+            return;
+        }
+
+        Entry entry = new Entry(name, toBytes(buffer), headerValues);
+        for (int i = 0; i < valueCount; i++) {
+            if (values[i].name.equals(name)) {
+                values[i] = entry;
+                return;
+            }
+        }
+        if (valueCount < values.length) {
+            values[valueCount++] = entry;
+        }
+    }
+
+    private static Entry find(Entry[] entries, int count, String name, IoBuffer buffer) {
+        int position = buffer.position();
+        int length = buffer.remaining();
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries[i];
+            if (entry.bytes.length == length && (name == null || entry.name.equals(name))
+                    && matches(entry.bytes, buffer, position)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] bytes, IoBuffer buffer, int position) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != buffer.get(position + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toBytes(IoBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        int position = buffer.position();
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return bytes;
+    }
+
+    private static byte[] toBytes(String name) {
+        byte[] bytes = new byte[name.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) name.charAt(i);
+        }
+        return bytes;
+    }
+
+    private static final class Entry {
+        final String name;
+        final byte[] bytes;
+        final String[] values;
+
+        Entry(String name, byte[] bytes, String[] values) {
+            this.name = name;
+            this.bytes = bytes;
+            this.values = values;
+        }
+    }
+}
@@ -81,6 +81,7 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
 
 	private final CharsetDecoder asciiDecoder = US_ASCII.newDecoder();
 	private final CharsetDecoder utf8Decoder = UTF_8.newDecoder();
+	private final HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
 
 	// use list to preserve header value ordering
 	private Map<String, List<String>> headers;
@@ -108,7 +109,14 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
 		    if (buffer == null || !buffer.hasRemaining()) {
 		        throw new ProtocolDecoderException("Invalid header name in the request");
 		    }
-			lastHeaderName = buffer.getString(asciiDecoder);
+			String name = cache.getName(buffer);
+			if (name == null) {
+			    int position = buffer.position();
+			    name = buffer.getString(asciiDecoder);
+			    buffer.position(position);
+			    cache.putName(name, buffer);
+			}
+			lastHeaderName = name;
 			return AFTER_READ_HEADER_NAME;
 		}
 	};
@@ -124,22 +132,35 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
         @Override
         protected DecodingState finishDecode(IoBuffer buffer,
                                              ProtocolDecoderOutput out) throws Exception {
-            String value = buffer.getString(utf8Decoder);
             List<String> values = headers.get(lastHeaderName);
             if (values == null) {
                 values = new ArrayList<>();
                 headers.put(lastHeaderName, values);
             }
 
+            // reuse the values decoded for an earlier request on this connection when the bytes are the same
+            if (cache.addValues(lastHeaderName, buffer, values)) {
+                return AFTER_READ_HEADER_VALUE;
+            }
+
+            int position = buffer.position();
+            String value = buffer.getString(utf8Decoder);
+            String[] separatedValues;
             if (COMMA_SEPARATED_HEADERS.contains(lastHeaderName)) {
                 // multiple values for the same header has comma separator
-                String[] separatedValues = value.split(",");
-                for (String separatedValue : separatedValues) {
-                    values.add(separatedValue.trim());
+                separatedValues = value.split(",");
+                for (int i = 0; i < separatedValues.length; i++) {
+                    separatedValues[i] = separatedValues[i].trim();
                 }
             } else {
-                values.add(value);
+                separatedValues = new String[] { value };
+            }
+
+            for (String separatedValue : separatedValues) {
+                values.add(separatedValue);
             }
+            buffer.position(position);
+            cache.putValues(lastHeaderName, buffer, separatedValues);
 
             return AFTER_READ_HEADER_VALUE;
         }
@@ -29,6 +29,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +38,7 @@ import org.apache.mina.filter.codec.ProtocolEncoderAdapter;
 import org.apache.mina.filter.codec.ProtocolEncoderOutput;
 import org.kaazing.gateway.transport.bridge.CachingMessageEncoder;
 import org.kaazing.gateway.transport.bridge.MessageEncoder;
+import org.kaazing.gateway.transport.http.HttpDateCache;
 import org.kaazing.gateway.transport.http.bridge.HttpContentMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpStartMessage;
@@ -60,12 +62,31 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
     private static final String HEADER_BYTES_PATTERN = "%s: ";
 	protected static final byte[] HEADER_CONTENT_LENGTH_BYTES = format(HEADER_BYTES_PATTERN, HEADER_CONTENT_LENGTH).getBytes();
 
+	// pre-encoded "<name>: " for common header names (read only once initialized)
+	private static final Map<String, byte[]> HEADER_NAME_BYTES = new HashMap<>();
+	static {
+		String[] headerNames = {
+			"Access-Control-Allow-Credentials", "Access-Control-Allow-Headers", "Access-Control-Allow-Origin",
+			"Cache-Control", "Connection", "Content-Encoding", "Content-Length", "Content-Type", "Date", "ETag",
+			"Expires", "Host", "Last-Modified", "Location", "Pragma", "Sec-WebSocket-Accept",
+			"Sec-WebSocket-Extensions", "Sec-WebSocket-Protocol", "Server", "Transfer-Encoding", "Upgrade",
+			"User-Agent", "Vary", "WWW-Authenticate", "X-Content-Type-Options", "X-Next-Protocol", "X-Origin",
+			"X-WebSocket-Extensions", "X-WebSocket-Protocol"
+		};
+		for (String headerName : headerNames) {
+			HEADER_NAME_BYTES.put(headerName, format(HEADER_BYTES_PATTERN, headerName).getBytes());
+		}
+	}
+
 	private static final Charset US_ASCII = Charset.forName("US-ASCII");
 
 	protected final CachingMessageEncoder cachingEncoder;
 	protected final IoBufferAllocatorEx<?> allocator;
 	protected final CharsetEncoder asciiEncoder;
 
+	// gzip stream of the response being written, if it has gzip Content-Encoding
+	private HttpGzipStream gzipStream;
+
 	protected static final HttpChunkedEncoder chunkedEncoder = new HttpChunkedEncoder();
 	protected static final HttpGzipEncoder gzipEncoder = new HttpGzipEncoder();
 
@@ -110,43 +131,41 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
     protected final void encodeContent(IoSessionEx session, final HttpContentMessage httpContent, IoBufferEx buf,
             final boolean isChunked, final boolean isGzipped) throws CharacterCodingException {
 
+        IoBufferEx content = encodeContent(httpContent, isChunked, isGzipped);
+        if (content.hasRemaining()) {
+            buf.put(content.buf().duplicate());
+        }
+
+        // Write out zero chunk if needed
+        if (isChunked && httpContent.isComplete()) {
+            buf.put(ByteBuffer.wrap(ZERO_CHUNK_BYTES));
+        }
+    }
+
+    /**
+     * Returns the content as it is written after the start of the message, without the terminating zero chunk.
+     * The returned buffer may be the content of the message itself, so callers must not change its position.
+     */
+    protected final IoBufferEx encodeContent(final HttpContentMessage httpContent, final boolean isChunked,
+            final boolean isGzipped) {
+
         if (!isGzipped && !isChunked) {
-            IoBufferEx content = httpContent.asBuffer();
-            if (content.hasRemaining()) {
-                buf.put(content.buf().duplicate());
-            }
+            return httpContent.asBuffer();
         }
-        else {
-            MessageEncoder<HttpContentMessage> contentMessageEncoder;
-            if (isGzipped) {
-                if (isChunked) {
-                    contentMessageEncoder = HttpContentMessageEncoder.CHUNKED_GZIPPED;
-                }
-                else {
-                    contentMessageEncoder = HttpContentMessageEncoder.GZIPPED;
-                }
-            }
-            else { // must be chunked
-                contentMessageEncoder = HttpContentMessageEncoder.CHUNKED;
-            }
 
-            IoBufferEx content;
-            if (httpContent.hasCache()) {
-                content = cachingEncoder.encode(contentMessageEncoder, httpContent, allocator, FLAG_NONE);
+        MessageEncoder<HttpContentMessage> contentMessageEncoder;
+        if (isGzipped) {
+            if (isChunked) {
+                contentMessageEncoder = HttpContentMessageEncoder.CHUNKED_GZIPPED;
             }
             else {
-                content = contentMessageEncoder.encode(allocator, httpContent, FLAG_NONE);
-            }
-
-            if (content.hasRemaining()) {
-                buf.put(content.buf().duplicate());
-            }
-
-            // Write out zero chunk if needed
-            if (isChunked && httpContent.isComplete()) {
-                buf.put(ByteBuffer.wrap(ZERO_CHUNK_BYTES));
+                contentMessageEncoder = HttpContentMessageEncoder.GZIPPED;
             }
         }
+        else { // must be chunked
+            contentMessageEncoder = HttpContentMessageEncoder.CHUNKED;
+        }
+        return encodeContent(contentMessageEncoder, httpContent, isChunked, isGzipped);
     }
     
 	protected final void encodeContent(IoSessionEx session, final HttpContentMessage httpContent, ProtocolEncoderOutput out,
@@ -174,13 +193,7 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
 				contentMessageEncoder = HttpContentMessageEncoder.CHUNKED;
 			}
 
-			IoBufferEx content;
-			if (httpContent.hasCache()) {
-				content = cachingEncoder.encode(contentMessageEncoder, httpContent, allocator, FLAG_NONE);
-			}
-			else {
-				content = contentMessageEncoder.encode(allocator, httpContent, FLAG_NONE);
-			}
+			IoBufferEx content = encodeContent(contentMessageEncoder, httpContent, isChunked, isGzipped);
 
 			if (content.hasRemaining()) {
 				out.write(content);
@@ -193,6 +206,60 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
 		}
 	}
 
+    private IoBufferEx encodeContent(MessageEncoder<HttpContentMessage> contentMessageEncoder,
+            HttpContentMessage httpContent, boolean isChunked, boolean isGzipped) {
+        IoBufferEx content;
+        if (isGzipped && gzipStream != null && !httpContent.hasCache()) {
+            // content written by this session only, compress it with the history of the response
+            content = httpContent.asBuffer();
+            if (content.hasRemaining()) {
+                content = gzipStream.write(content, allocator);
+            }
+            if (isChunked && content.hasRemaining()) {
+                content = chunkedEncoder.write(content, allocator);
+            }
+        }
+        else {
+            if (isGzipped && gzipStream != null && httpContent.asBuffer().hasRemaining()) {
+                // shared content is compressed on its own, later writes must not refer back across it
+                gzipStream.reset();
+            }
+
+            if (httpContent.hasCache()) {
+                content = cachingEncoder.encode(contentMessageEncoder, httpContent, allocator, FLAG_NONE);
+            }
+            else {
+                content = contentMessageEncoder.encode(allocator, httpContent, FLAG_NONE);
+            }
+        }
+
+        if (isGzipped && httpContent.isComplete()) {
+            endGzipStream();
+        }
+        return content;
+    }
+
+    /**
+     * Starts the gzip stream of a response, called when the gzip header is written.
+     */
+    protected final void startGzipStream() {
+        endGzipStream();
+        gzipStream = new HttpGzipStream();
+    }
+
+    private void endGzipStream() {
+        if (gzipStream != null) {
+            gzipStream.end();
+            gzipStream = null;
+        }
+    }
+
+    @Override
+    public void dispose(IoSession session) throws Exception {
+        endGzipStream();
+        super.dispose(session);
+    }
+
 	protected final void encodeHeaders(IoSessionEx session, T httpStart, IoBufferEx buf) throws CharacterCodingException {
 		for (Map.Entry<String, List<String>> entry : httpStart.getHeaders().entrySet()) {
 			String headerName = entry.getKey();
@@ -212,13 +279,51 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
 
 	protected final void encodeHeader(IoBufferEx buf, String headerName,
 			String headerValue) throws CharacterCodingException {
-		buf.putString(headerName, asciiEncoder);
-		buf.put(COLON_BYTES);
-		buf.put(SPACE_BYTES);
-		buf.putString(headerValue, asciiEncoder);
+		byte[] headerNameBytes = HEADER_NAME_BYTES.get(headerName);
+		if (headerNameBytes != null) {
+			buf.put(headerNameBytes);
+		}
+		else {
+			putAscii(buf, headerName);
+			buf.put(COLON_BYTES);
+			buf.put(SPACE_BYTES);
+		}
+
+		// Date and Expires values for the current second are already encoded
+		byte[] dateBytes = HttpDateCache.getBytes(headerValue);
+		if (dateBytes != null) {
+			buf.put(dateBytes);
+		}
+		else {
+			putAscii(buf, headerValue);
+		}
 		buf.put(CRLF_BYTES);
 	}
 
+	/**
+	 * Writes the string as ASCII, copying characters directly when the buffer has room and falling back to the
+	 * charset encoder otherwise (for example to report characters that are not ASCII).
+	 */
+	protected final void putAscii(IoBufferEx buf, String value) throws CharacterCodingException {
+		int length = value.length();
+		ByteBuffer nioBuf = buf.buf();
+		if (nioBuf.remaining() >= length) {
+			int position = nioBuf.position();
+			for (int i = 0; i < length; i++) {
+				char ch = value.charAt(i);
+				if (ch > 0x7f) {
+					nioBuf.position(position);
+					buf.putString(value, asciiEncoder);
+					return;
+				}
+				nioBuf.put((byte) ch);
+			}
+		}
+		else {
+			buf.putString(value, asciiEncoder);
+		}
+	}
+
 	protected void encodeContentLength(IoSessionEx session,
 			T httpStart, IoBufferEx buf) throws CharacterCodingException {
 
@@ -236,7 +341,7 @@ abstract class HttpMessageEncoder<T extends HttpStartMessage> extends ProtocolEn
                 int contentLength = data.remaining();
 
                 buf.put(HEADER_CONTENT_LENGTH_BYTES);
-                buf.putString(Integer.toString(contentLength), asciiEncoder);
+                putAscii(buf, Integer.toString(contentLength));
                 buf.put(CRLF_BYTES);
             }
         }
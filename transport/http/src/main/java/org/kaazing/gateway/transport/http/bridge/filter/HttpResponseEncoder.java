@@ -22,9 +22,11 @@
 package org.kaazing.gateway.transport.http.bridge.filter;
 
 import static org.kaazing.gateway.transport.bridge.CachingMessageEncoder.IO_MESSAGE_ENCODER;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
 
 import org.apache.mina.filter.codec.ProtocolEncoderException;
 import org.apache.mina.filter.codec.ProtocolEncoderOutput;
@@ -40,9 +42,12 @@ import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 
 public final class HttpResponseEncoder extends HttpMessageEncoder<HttpResponseMessage> {
 
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
     private static final byte[] COOKIE_HEADER_BYTES = "Set-Cookie: ".getBytes();
     private static final byte[] COOKIE_COMMENT_BYTES = "; Comment=".getBytes();
     private static final byte[] COOKIE_DOMAIN_BYTES = "; Domain=".getBytes();
@@ -51,7 +56,18 @@ public final class HttpResponseEncoder extends HttpMessageEncoder<HttpResponseMe
     private static final byte[] COOKIE_SECURE_BYTES = "; Secure".getBytes();
     private static final byte[] COOKIE_VERSION_BYTES = "; Version=".getBytes();
 
+    // pre-encoded status lines with the default reason, indexed by status ordinal
+    private static final byte[][] HTTP_1_0_STATUS_LINES = encodeStatusLines("HTTP/1.0");
+    private static final byte[][] HTTP_1_1_STATUS_LINES = encodeStatusLines("HTTP/1.1");
 
+    // response heads are encoded here first, so that each is written out with a single exact size allocation
+    static final int MAXIMUM_RETAINED_HEAD_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<IoBufferEx> HEAD_BUFFER = new VicariousThreadLocal<IoBufferEx>() {
+        @Override
+        protected IoBufferEx initialValue() {
+            return BUFFER_ALLOCATOR.wrap(BUFFER_ALLOCATOR.allocate(1024)).setAutoExpander(BUFFER_ALLOCATOR);
+        }
+    };
 
     public HttpResponseEncoder(IoBufferAllocatorEx<?> allocator) {
         this(IO_MESSAGE_ENCODER, allocator);
@@ -82,24 +98,47 @@ public final class HttpResponseEncoder extends HttpMessageEncoder<HttpResponseMe
         
         boolean isGzipped = HttpUtils.isGzipped(httpResponse);
         boolean isChunked = HttpUtils.isChunked(httpResponse);
-            ByteBuffer nioBuf = allocator.allocate(1024);
-            IoBufferEx buf = allocator.wrap(nioBuf).setAutoExpander(allocator);
-            int allocatedPos = buf.position();
-        encodeResponseLine(httpResponse.getVersion(), httpResponse.getStatus(), httpResponse.getReason(), buf);
-        encodeHeaders(session, httpResponse, buf);
+        IoBufferEx head = HEAD_BUFFER.get();
+        head.clear();
+        encodeResponseLine(httpResponse.getVersion(), httpResponse.getStatus(), httpResponse.getReason(), head);
+        encodeHeaders(session, httpResponse, head);
 
         // Insert GZIP Start of Frame if necessary
         if (isGzipped) {
-            buf.put(HttpGzipEncoder.GZIP_START_OF_FRAME_BYTES);
+            head.put(HttpGzipEncoder.GZIP_START_OF_FRAME_BYTES);
+            startGzipStream();
         }
 
+        head.flip();
+
+        // content is copied once, straight into the buffer written out, never through the head buffer
         HttpContentMessage httpContent = httpResponse.getContent();
+        IoBufferEx content = null;
+        boolean isZeroChunk = false;
+        int size = head.remaining();
         if (httpContent != null) {
-            encodeContent(session, httpContent, buf, isChunked, isGzipped);
+            content = encodeContent(httpContent, isChunked, isGzipped);
+            isZeroChunk = isChunked && httpContent.isComplete();
+            size += content.remaining() + (isZeroChunk ? ZERO_CHUNK_BYTES.length : 0);
+        }
+
+        ByteBuffer nioBuf = allocator.allocate(size);
+        IoBufferEx buf = allocator.wrap(nioBuf);
+        int allocatedPos = buf.position();
+        buf.put(head.buf());
+        if (content != null && content.hasRemaining()) {
+            buf.put(content.buf().duplicate());
+        }
+        if (isZeroChunk) {
+            buf.put(ZERO_CHUNK_BYTES);
         }
-            
         buf.flip();
-            buf.position(allocatedPos);
+        buf.position(allocatedPos);
+
+        if (head.capacity() > MAXIMUM_RETAINED_HEAD_CAPACITY) {
+            // do not hold on to the buffer of an unusually large head
+            HEAD_BUFFER.remove();
+        }
         out.write(buf);
 
     }
@@ -109,6 +148,17 @@ public final class HttpResponseEncoder extends HttpMessageEncoder<HttpResponseMe
         assert version != null : "version required in response";
         assert status != null : "status required in response";
         
+        if (reason == null || reason.equals(status.reason())) {
+            switch (version) {
+            case HTTP_1_0:
+                buf.put(HTTP_1_0_STATUS_LINES[status.ordinal()]);
+                return;
+            case HTTP_1_1:
+                buf.put(HTTP_1_1_STATUS_LINES[status.ordinal()]);
+                return;
+            }
+        }
+
         switch (version) {
         case HTTP_1_0:
             buf.put(HTTP_1_0_BYTES);
@@ -119,17 +169,27 @@ public final class HttpResponseEncoder extends HttpMessageEncoder<HttpResponseMe
         }
 
         buf.put(SPACE_BYTES);
-        buf.putString(Integer.toString(status.code()), asciiEncoder);
+        putAscii(buf, status.toString());
 
         if (reason == null) {
             reason = status.reason();
         }
         
         buf.put(SPACE_BYTES);
-        buf.putString(reason, asciiEncoder);
+        putAscii(buf, reason);
         buf.put(CRLF_BYTES);
     }
 
+    private static byte[][] encodeStatusLines(String version) {
+        HttpStatus[] statuses = HttpStatus.values();
+        byte[][] statusLines = new byte[statuses.length][];
+        for (HttpStatus status : statuses) {
+            String statusLine = String.format("%s %d %s\r\n", version, status.code(), status.reason());
+            statusLines[status.ordinal()] = statusLine.getBytes(US_ASCII);
+        }
+        return statusLines;
+    }
+
     @Override
   protected void encodeContentLength(
     IoSessionEx session,
@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.http;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Measures HttpBinding path lookup latency with the segment trie against the previous sorted map scan,
+ * at 10, 100, 1000 and 10000 bindings on the same host and port.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.transport.http.HttpBindingsBenchmark [lookups]
+ */
+public class HttpBindingsBenchmark {
+
+    private static final int[] BINDING_COUNTS = { 10, 100, 1000, 10000 };
+
+    // copy of the comparator used by HttpBinding.bindingsByPath
+    private static final Comparator<String> PATH_ASCENDING = new Comparator<String>() {
+        @Override
+        public int compare(String path1, String path2) {
+            String[] segments1 = path1.split("/");
+            String[] segments2 = path2.split("/");
+
+            int nSegments = Math.min(segments1.length, segments2.length);
+            int comparison = 0;
+            for (int i = 0; i < nSegments; i++) {
+                if (comparison != 0) {
+                    break;
+                }
+                comparison = segments1[i].compareTo(segments2[i]);
+            }
+
+            if (comparison == 0) {
+                return (segments1.length - segments2.length);
+            }
+            return comparison;
+        }
+    };
+
+    public static void main(String... args) throws Exception {
+        int lookups = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+
+        System.out.println("bindings,trie ns/lookup,scan ns/lookup");
+        for (int bindingCount : BINDING_COUNTS) {
+            String[] requestPaths = requestPaths(bindingCount, 1024);
+
+            HttpPathTrie<String> trie = new HttpPathTrie<>();
+            ConcurrentNavigableMap<String, String> map = new ConcurrentSkipListMap<>(PATH_ASCENDING);
+            for (int i = 0; i < bindingCount; i++) {
+                String path = servicePath(i);
+                trie.put(path, path);
+                map.put(path, path);
+            }
+
+            // warm up
+            runTrie(trie, requestPaths, lookups);
+            runScan(map, requestPaths, Math.min(lookups, 20000));
+
+            double trieNanos = runTrie(trie, requestPaths, lookups);
+            double scanNanos = runScan(map, requestPaths, Math.min(lookups, 20000));
+            System.out.println(String.format("%d,%.1f,%.1f", bindingCount, trieNanos, scanNanos));
+        }
+    }
+
+    private static String servicePath(int index) {
+        return String.format("/tenant%d/service%d", index % 16, index);
+    }
+
+    private static String[] requestPaths(int bindingCount, int size) {
+        Random random = new Random(0L);
+        String[] requestPaths = new String[size];
+        for (int i = 0; i < size; i++) {
+            // typical emulated WebSocket request below the bound service path
+            requestPaths[i] = servicePath(random.nextInt(bindingCount)) + "/;e/ub/" + Integer.toHexString(random.nextInt());
+        }
+        return requestPaths;
+    }
+
+    private static double runTrie(HttpPathTrie<String> trie, String[] requestPaths, int lookups) {
+        int misses = 0;
+        long startAt = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (trie.longestMatch(requestPaths[i & (requestPaths.length - 1)]) == null) {
+                misses++;
+            }
+        }
+        long elapsed = System.nanoTime() - startAt;
+        assertNoMisses(misses);
+        return (double) elapsed / lookups;
+    }
+
+    private static double runScan(ConcurrentNavigableMap<String, String> map, String[] requestPaths, int lookups) {
+        int misses = 0;
+        long startAt = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            if (scan(map, requestPaths[i & (requestPaths.length - 1)]) == null) {
+                misses++;
+            }
+        }
+        long elapsed = System.nanoTime() - startAt;
+        assertNoMisses(misses);
+        return (double) elapsed / lookups;
+    }
+
+    // previous HttpBinding.get(String) implementation
+    private static String scan(ConcurrentNavigableMap<String, String> map, String path) {
+        NavigableSet<String> candidatePaths = map.navigableKeySet().headSet(path, true);
+        for (Iterator<String> $i = candidatePaths.descendingIterator(); $i.hasNext(); ) {
+            String candidatePath = $i.next();
+            if (path.startsWith(candidatePath)) {
+                return map.get(candidatePath);
+            }
+        }
+        return null;
+    }
+
+    private static void assertNoMisses(int misses) {
+        if (misses != 0) {
+            throw new IllegalStateException(misses + " lookups did not match a binding");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class HttpDateCacheTest {
+
+    // Sun, 06 Nov 1994 08:49:37 GMT (RFC 2616 example)
+    private static final long EXAMPLE_MILLIS = 784111777000L;
+
+    @Test
+    public void shouldFormatDate() throws Exception {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDateCache.format(EXAMPLE_MILLIS));
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDateCache.formatDate(EXAMPLE_MILLIS + 999L));
+    }
+
+    @Test
+    public void shouldReuseValueWithinSecond() throws Exception {
+        long now = (System.currentTimeMillis() / 1000L) * 1000L;
+        String value = HttpDateCache.formatDate(now);
+
+        assertSame(value, HttpDateCache.formatDate(now + 500L));
+        assertArrayEquals(value.getBytes(Charset.forName("US-ASCII")), HttpDateCache.getBytes(value));
+    }
+
+    @Test
+    public void shouldNotReplaceCurrentValueWithEarlierSecond() throws Exception {
+        long now = (System.currentTimeMillis() / 1000L) * 1000L;
+        String value = HttpDateCache.formatDate(now);
+        String earlier = HttpDateCache.formatDate(now - 1000L);
+
+        assertNotSame(value, earlier);
+        assertSame(value, HttpDateCache.formatDate(now));
+    }
+
+    @Test
+    public void shouldNotReturnBytesForOtherValues() throws Exception {
+        String value = HttpDateCache.formatDate(System.currentTimeMillis());
+
+        assertNull(HttpDateCache.getBytes(new String(value)));
+        assertNull(HttpDateCache.getBytes("Sun, 06 Nov 1994 08:49:37 GMT"));
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class HttpPathTrieTest {
+
+    @Test
+    public void shouldMatchLongestPrefixOnSegmentBoundary() throws Exception {
+        HttpPathTrie<String> trie = new HttpPathTrie<>();
+        trie.put("/foo", "foo");
+        trie.put("/foo/baz", "baz");
+        trie.put("/bar/fiz", "fiz");
+
+        assertEquals("foo", trie.longestMatch("/foo"));
+        assertEquals("foo", trie.longestMatch("/foo/"));
+        assertEquals("foo", trie.longestMatch("/foo/bar"));
+        assertEquals("baz", trie.longestMatch("/foo/baz"));
+        assertEquals("baz", trie.longestMatch("/foo/baz/extra/extra"));
+        assertEquals("fiz", trie.longestMatch("/bar/fiz/extra"));
+        assertNull(trie.longestMatch("/"));
+        assertNull(trie.longestMatch("/foobar"));
+        assertNull(trie.longestMatch("/bar"));
+        assertNull(trie.longestMatch("/bar/fizz"));
+    }
+
+    @Test
+    public void shouldMatchRootAndTrailingSlash() throws Exception {
+        HttpPathTrie<String> trie = new HttpPathTrie<>();
+        trie.put("/", "root");
+        trie.put("/foo/", "foo/");
+
+        assertEquals("root", trie.longestMatch("/"));
+        assertEquals("root", trie.longestMatch("/extra"));
+        assertEquals("root", trie.longestMatch("/foo"));
+        assertEquals("foo/", trie.longestMatch("/foo/"));
+        assertEquals("foo/", trie.longestMatch("/foo/bar"));
+    }
+
+    @Test
+    public void shouldRemoveAndPrune() throws Exception {
+        HttpPathTrie<String> trie = new HttpPathTrie<>();
+        trie.put("/foo", "foo");
+        trie.put("/foo/bar/baz", "baz");
+
+        assertFalse(trie.remove("/foo/bar"));
+        assertTrue(trie.remove("/foo/bar/baz"));
+        assertFalse(trie.remove("/foo/bar/baz"));
+        assertEquals("foo", trie.longestMatch("/foo/bar/baz"));
+
+        assertTrue(trie.remove("/foo"));
+        assertNull(trie.longestMatch("/foo/bar/baz"));
+    }
+
+    @Test
+    public void shouldLookupWhileUpdating() throws Exception {
+        final HttpPathTrie<String> trie = new HttpPathTrie<>();
+        trie.put("/service", "service");
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    String match = trie.longestMatch("/service/resource");
+                    if (match == null) {
+                        failure.set("lost /service binding");
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        for (int i = 0; i < 10000; i++) {
+            trie.put("/service/resource", "resource");
+            trie.put("/service" + i, "other");
+            trie.remove("/service/resource");
+            trie.remove("/service" + i);
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+    }
+}
@@ -21,9 +21,13 @@
 
 package org.kaazing.gateway.transport.http.bridge.filter;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Inflater;
 
 import org.junit.Test;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
@@ -58,6 +62,51 @@ public class HttpContentFilterTest {
 		assertEquals(actual, expected);
 	}
 	
+	@Test
+	public void testWriteGzippedCompressesLargeContent() throws Exception {
+	    IoBufferAllocatorEx<?> allocator = SimpleBufferAllocator.BUFFER_ALLOCATOR;
+	    HttpGzipEncoder encoder = new HttpGzipEncoder();
+	    byte[] content = repeat("data: hello, world\n\n", 50);
+	    IoBufferEx buf = allocator.wrap(ByteBuffer.wrap(content));
+	    IoBufferEx actual = encoder.write(buf, allocator);
+
+	    assertTrue(actual.remaining() < content.length / 4);
+	    assertEquals(0, buf.position());
+	    Inflater inflater = new Inflater(true);
+	    assertArrayEquals(content, inflate(inflater, actual, content.length));
+	}
+
+	@Test
+	public void testWriteGzipStreamUsesHistory() throws Exception {
+	    IoBufferAllocatorEx<?> allocator = SimpleBufferAllocator.BUFFER_ALLOCATOR;
+	    HttpGzipStream stream = new HttpGzipStream();
+	    Inflater inflater = new Inflater(true);
+
+	    // short content is stored until the minimum size has been written
+	    byte[] first = "data: hello\n\n".getBytes();
+	    IoBufferEx actual = stream.write(allocator.wrap(ByteBuffer.wrap(first)), allocator);
+	    assertEquals(HttpGzipEncoder.GZIP_PREFIX_SIZE + first.length, actual.remaining());
+	    assertArrayEquals(first, inflate(inflater, actual, first.length));
+
+	    byte[] second = repeat("data: hello, world\n\n", 20);
+	    actual = stream.write(allocator.wrap(ByteBuffer.wrap(second)), allocator);
+	    assertArrayEquals(second, inflate(inflater, actual, second.length));
+
+	    // a repeat of earlier content compresses to a few back references
+	    actual = stream.write(allocator.wrap(ByteBuffer.wrap(second)), allocator);
+	    assertTrue(actual.remaining() < 32);
+	    assertArrayEquals(second, inflate(inflater, actual, second.length));
+
+	    // shared content written without the stream in between
+	    stream.reset();
+	    actual = new HttpGzipEncoder().write(allocator.wrap(ByteBuffer.wrap(second)), allocator);
+	    assertArrayEquals(second, inflate(inflater, actual, second.length));
+	    actual = stream.write(allocator.wrap(ByteBuffer.wrap(second)), allocator);
+	    assertArrayEquals(second, inflate(inflater, actual, second.length));
+
+	    stream.end();
+	}
+
 	@Test
 	public void testWriteChunked() throws Exception {
         IoBufferAllocatorEx<?> allocator = SimpleBufferAllocator.BUFFER_ALLOCATOR;
@@ -68,4 +117,22 @@ public class HttpContentFilterTest {
 		
 		assertEquals(actual, expected);
 	}
+
+	private static byte[] repeat(String text, int count) {
+	    StringBuilder builder = new StringBuilder();
+	    for (int i = 0; i < count; i++) {
+	        builder.append(text);
+	    }
+	    return builder.toString().getBytes();
+	}
+
+	private static byte[] inflate(Inflater inflater, IoBufferEx buf, int length) throws Exception {
+	    byte[] input = new byte[buf.remaining()];
+	    buf.buf().duplicate().get(input);
+	    inflater.setInput(input);
+	    byte[] output = new byte[length + 1];
+	    int inflated = inflater.inflate(output);
+	    assertTrue(inflater.needsInput());
+	    return Arrays.copyOf(output, inflated);
+	}
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolDecoderOutput;
+import org.apache.mina.filter.codec.statemachine.DecodingState;
+
+/**
+ * Measures decoding of realistic browser request headers (long polling SSE and WSEB requests), on a new
+ * connection (nothing cached yet) and on a connection that has already decoded the same headers once.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.transport.http.bridge.filter.HttpHeaderDecodingBenchmark [heads]
+ */
+public class HttpHeaderDecodingBenchmark {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private static final String[] REQUEST_HEADS = {
+        "Host: gateway.example.com:8000\r\n" +
+        "Connection: keep-alive\r\n" +
+        "Accept: text/event-stream\r\n" +
+        "Cache-Control: no-cache\r\n" +
+        "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) " +
+            "Chrome/46.0.2490.86 Safari/537.36\r\n" +
+        "Referer: http://www.example.com/stocks/index.html\r\n" +
+        "Accept-Encoding: gzip, deflate, sdch\r\n" +
+        "Accept-Language: en-US,en;q=0.8\r\n" +
+        "Cookie: JSESSIONID=1f3e9ad0c1b24d7e; theme=dark\r\n" +
+        "Last-Event-ID: 1042\r\n" +
+        "\r\n",
+
+        "Host: gateway.example.com:8000\r\n" +
+        "Connection: keep-alive\r\n" +
+        "Content-Length: 0\r\n" +
+        "Origin: http://www.example.com\r\n" +
+        "X-Requested-With: XMLHttpRequest\r\n" +
+        "User-Agent: Mozilla/5.0 (Macintosh; Intel Mac OS X 10.11; rv:42.0) Gecko/20100101 Firefox/42.0\r\n" +
+        "Content-Type: application/octet-stream\r\n" +
+        "Accept: */*\r\n" +
+        "Referer: http://www.example.com/chat/\r\n" +
+        "Accept-Encoding: gzip, deflate\r\n" +
+        "Accept-Language: en-US,en;q=0.5\r\n" +
+        "X-Sequence-No: 17\r\n" +
+        "X-Origin: http://www.example.com\r\n" +
+        "\r\n"
+    };
+
+    public static void main(String... args) throws Exception {
+        int heads = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+
+        for (int i = 0; i < REQUEST_HEADS.length; i++) {
+            byte[] head = REQUEST_HEADS[i].getBytes(US_ASCII);
+
+            // warm up
+            runNewConnections(head, heads);
+            runSameConnection(head, heads);
+
+            report("new connection", i, heads, runNewConnections(head, heads));
+            report("same connection", i, heads, runSameConnection(head, heads));
+        }
+    }
+
+    private static long[] runNewConnections(byte[] head, int heads) throws Exception {
+        // the decoders are created before measuring, so only header decoding is counted
+        DecodingState[] decoders = new DecodingState[heads];
+        for (int i = 0; i < heads; i++) {
+            decoders[i] = newDecoder();
+        }
+        return run(decoders, head);
+    }
+
+    private static long[] runSameConnection(byte[] head, int heads) throws Exception {
+        DecodingState decoder = newDecoder();
+        decoder.decode(wrap(head), OUTPUT);
+
+        DecodingState[] decoders = new DecodingState[heads];
+        for (int i = 0; i < heads; i++) {
+            decoders[i] = decoder;
+        }
+        return run(decoders, head);
+    }
+
+    private static long[] run(DecodingState[] decoders, byte[] head) throws Exception {
+        IoBuffer[] buffers = new IoBuffer[decoders.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = wrap(head);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < decoders.length; i++) {
+            decoders[i].decode(buffers[i], OUTPUT);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[] { elapsed, allocatedBytes() - allocated };
+    }
+
+    private static DecodingState newDecoder() {
+        return new HttpHeaderDecodingState(BUFFER_ALLOCATOR) {
+            @Override
+            protected DecodingState finishDecode(List<Object> childProducts, ProtocolDecoderOutput out) {
+                return null;
+            }
+        };
+    }
+
+    private static IoBuffer wrap(byte[] head) {
+        return (IoBuffer) BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(head));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static void report(String mode, int head, int heads, long[] result) {
+        System.out.println(String.format("%-15s head=%d: %7.1f ns/head, %7.1f bytes allocated/head",
+                mode, head, (double) result[0] / heads, (double) result[1] / heads));
+    }
+
+    private static final ProtocolDecoderOutput OUTPUT = new ProtocolDecoderOutput() {
+        @Override
+        public void write(Object message) {
+        }
+
+        @Override
+        public void flush(NextFilter nextFilter, IoSession session) {
+        }
+    };
+}
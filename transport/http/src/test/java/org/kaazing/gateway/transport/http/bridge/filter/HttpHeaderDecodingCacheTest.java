@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+
+public class HttpHeaderDecodingCacheTest {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void shouldMatchWellKnownNameToConstant() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+        IoBuffer buffer = wrap("Sec-WebSocket-Key");
+
+        assertSame("Sec-WebSocket-Key", cache.getName(buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void shouldNotMatchWellKnownNameInDifferentCase() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+
+        assertNull(cache.getName(wrap("sec-websocket-key")));
+    }
+
+    @Test
+    public void shouldRememberName() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+        String name = "X-Custom";
+
+        assertNull(cache.getName(wrap(name)));
+        cache.putName(name, wrap(name));
+        assertSame(name, cache.getName(wrap(name)));
+        assertNull(cache.getName(wrap("X-Custon")));
+    }
+
+    @Test
+    public void shouldReuseValuesForSameBytes() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+        String[] values = { "gzip", "deflate" };
+        cache.putValues("Accept-Encoding", wrap("gzip, deflate"), values);
+
+        List<String> headerValues = new ArrayList<>();
+        assertTrue(cache.addValues("Accept-Encoding", wrap("gzip, deflate"), headerValues));
+        assertEquals(Arrays.asList("gzip", "deflate"), headerValues);
+        assertSame(values[0], headerValues.get(0));
+
+        assertFalse(cache.addValues("Accept-Encoding", wrap("gzip"), headerValues));
+        assertFalse(cache.addValues("Content-Encoding", wrap("gzip, deflate"), headerValues));
+    }
+
+    @Test
+    public void shouldReplaceValuesForSameName() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+        cache.putValues("Last-Event-ID", wrap("41"), new String[] { "41" });
+        cache.putValues("Last-Event-ID", wrap("42"), new String[] { "42" });
+
+        List<String> headerValues = new ArrayList<>();
+        assertFalse(cache.addValues("Last-Event-ID", wrap("41"), headerValues));
+        assertTrue(cache.addValues("Last-Event-ID", wrap("42"), headerValues));
+        assertEquals(Arrays.asList("42"), headerValues);
+    }
+
+    @Test
+    public void shouldNotRememberLongValues() throws Exception {
+        HttpHeaderDecodingCache cache = new HttpHeaderDecodingCache();
+        char[] chars = new char[HttpHeaderDecodingCache.MAXIMUM_VALUE_LENGTH + 1];
+        Arrays.fill(chars, 'a');
+        String value = new String(chars);
+        cache.putValues("Cookie", wrap(value), new String[] { value });
+
+        assertFalse(cache.addValues("Cookie", wrap(value), new ArrayList<String>()));
+    }
+
+    private static IoBuffer wrap(String text) {
+        return (IoBuffer) BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(text.getBytes(US_ASCII)));
+    }
+}
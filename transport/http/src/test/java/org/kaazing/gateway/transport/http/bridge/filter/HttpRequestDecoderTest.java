@@ -24,6 +24,7 @@ package org.kaazing.gateway.transport.http.bridge.filter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
@@ -444,4 +445,43 @@ public class HttpRequestDecoderTest {
         assertFalse(in.hasRemaining());
     }
 
+    @Test
+    public void decodeRepeatedHeadersOnSameConnection() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        ProtocolDecoder decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+
+        ByteBuffer in = ByteBuffer.wrap(("GET /sse HTTP/1.1\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "Accept-Encoding: gzip, deflate\r\n" +
+                                         "X-Custom: first\r\n" +
+                                         "\r\n" +
+                                         "GET /sse HTTP/1.1\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "Accept-Encoding: gzip, deflate\r\n" +
+                                         "X-Custom: second\r\n" +
+                                         "x-custom: third\r\n" +
+                                         "\r\n").getBytes());
+
+        IoBufferEx buf = allocator.wrap(in);
+        decoder.decode(session, (IoBuffer) buf, session.getDecoderOutput());
+
+        HttpRequestMessage firstRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(Arrays.asList("gzip", "deflate"), firstRequest.getHeaderValues("Accept-Encoding"));
+        assertEquals(Arrays.asList("first"), firstRequest.getHeaderValues("X-Custom"));
+
+        HttpRequestMessage secondRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(Arrays.asList("example.com"), secondRequest.getHeaderValues("Host"));
+        assertEquals(Arrays.asList("gzip", "deflate"), secondRequest.getHeaderValues("Accept-Encoding"));
+        assertEquals(Arrays.asList("second", "third"), secondRequest.getHeaderValues("X-Custom"));
+        assertSame(firstRequest.getHeaderValues("Accept-Encoding").get(0),
+                   secondRequest.getHeaderValues("Accept-Encoding").get(0));
+
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+        decoder.finishDecode(session, session.getDecoderOutput());
+
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+        assertFalse(in.hasRemaining());
+    }
+
 }
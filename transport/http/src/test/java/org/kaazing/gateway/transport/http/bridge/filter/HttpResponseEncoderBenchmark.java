@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.lang.management.ManagementFactory;
+
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.filter.codec.ProtocolEncoderOutput;
+import org.kaazing.gateway.transport.http.HttpDateCache;
+import org.kaazing.gateway.transport.http.HttpStatus;
+import org.kaazing.gateway.transport.http.HttpVersion;
+import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
+
+/**
+ * Measures encoding of response heads typical of WSEB/SSE downstream responses and balancer redirects.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.transport.http.bridge.filter.HttpResponseEncoderBenchmark [responses]
+ */
+public class HttpResponseEncoderBenchmark {
+
+    public static void main(String... args) throws Exception {
+        int responses = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+
+        HttpResponseEncoder encoder = new HttpResponseEncoder(BUFFER_ALLOCATOR);
+
+        // warm up
+        run(encoder, "downstream", responses);
+        run(encoder, "redirect", responses);
+
+        report("downstream", responses, run(encoder, "downstream", responses));
+        report("redirect", responses, run(encoder, "redirect", responses));
+    }
+
+    private static long[] run(HttpResponseEncoder encoder, String kind, int responses) throws Exception {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < responses; i++) {
+            HttpResponseMessage httpResponse = "redirect".equals(kind) ? newRedirect() : newDownstream();
+            encoder.encode(null, httpResponse, OUTPUT);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new long[] { elapsed, allocatedBytes() - allocated };
+    }
+
+    private static HttpResponseMessage newDownstream() {
+        HttpResponseMessage httpResponse = new HttpResponseMessage();
+        httpResponse.setVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatus(HttpStatus.SUCCESS_OK);
+        httpResponse.setHeader("Content-Type", "text/event-stream");
+        httpResponse.setHeader("Cache-Control", "no-cache");
+        httpResponse.setHeader("Connection", "close");
+        httpResponse.setHeader("Date", HttpDateCache.formatDate(System.currentTimeMillis()));
+        httpResponse.setHeader("Expires", HttpDateCache.formatDate(System.currentTimeMillis()));
+        httpResponse.setHeader("Server", "Kaazing Gateway");
+        httpResponse.setContentLengthImplicit(true);
+        return httpResponse;
+    }
+
+    private static HttpResponseMessage newRedirect() {
+        HttpResponseMessage httpResponse = new HttpResponseMessage();
+        httpResponse.setVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatus(HttpStatus.REDIRECT_FOUND);
+        httpResponse.setHeader("Location", "http://node2.example.com:8001/echo/;e/cb?.kl=Y");
+        httpResponse.setHeader("Date", HttpDateCache.formatDate(System.currentTimeMillis()));
+        httpResponse.setHeader("Server", "Kaazing Gateway");
+        return httpResponse;
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+
+    private static void report(String kind, int responses, long[] result) {
+        System.out.println(String.format("%-10s %7.1f ns/response, %7.1f bytes allocated/response",
+                kind, (double) result[0] / responses, (double) result[1] / responses));
+    }
+
+    private static final ProtocolEncoderOutput OUTPUT = new ProtocolEncoderOutput() {
+        @Override
+        public void write(Object encodedMessage) {
+        }
+
+        @Override
+        public void mergeAll() {
+        }
+
+        @Override
+        public WriteFuture flush() {
+            return null;
+        }
+    };
+}
@@ -28,6 +28,7 @@ import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.apache.mina.filter.codec.ProtocolEncoder;
@@ -35,6 +36,7 @@ import org.apache.mina.filter.codec.ProtocolEncoderOutput;
 import org.junit.Test;
 import org.kaazing.gateway.transport.http.DefaultHttpCookie;
 import org.kaazing.gateway.transport.http.HttpCookie;
+import org.kaazing.gateway.transport.http.HttpDateCache;
 import org.kaazing.gateway.transport.http.HttpStatus;
 import org.kaazing.gateway.transport.http.HttpVersion;
 import org.kaazing.gateway.transport.http.bridge.HttpContentMessage;
@@ -72,6 +74,32 @@ public class HttpResponseEncoderTest {
 				     buf.getString(Charset.forName("UTF-8").newDecoder()));
 	}
 
+	@Test
+	public void encodeHttpResponseWithDateHeader() throws Exception {
+		ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new HttpResponseEncoder(allocator);
+		ProtocolEncoderOutput encoderOut = session.getEncoderOutput();
+
+		String date = HttpDateCache.formatDate(System.currentTimeMillis());
+		HttpResponseMessage httpResponse = new HttpResponseMessage();
+		httpResponse.setVersion(HttpVersion.HTTP_1_0);
+		httpResponse.setStatus(HttpStatus.CLIENT_NOT_FOUND);
+		httpResponse.setHeader("Date", date);
+		httpResponse.setHeader("X-Custom", "value");
+
+        encoder.encode(session, httpResponse, encoderOut);
+        encoderOut.mergeAll();
+
+		IoBufferEx buf = (IoBufferEx) session.getEncoderOutputQueue().poll();
+		assertEquals("HTTP/1.0 404 Not Found\r\n" +
+					 "Date: " + date + "\r\n" +
+					 "X-Custom: value\r\n" +
+				     "Content-Length: 0\r\n" +
+				     "\r\n",
+				     buf.getString(Charset.forName("UTF-8").newDecoder()));
+	}
+
 	@Test
 	public void encodeHttpResponseIncomplete() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
@@ -175,6 +203,37 @@ public class HttpResponseEncoderTest {
 				     buf.getString(Charset.forName("UTF-8").newDecoder()));
 	}
 
+    @Test
+    public void encodeHttpResponseLargeContent() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new HttpResponseEncoder(allocator);
+        ProtocolEncoderOutput encoderOut = session.getEncoderOutput();
+
+        HttpResponseMessage httpResponse = new HttpResponseMessage();
+        httpResponse.setVersion(HttpVersion.HTTP_1_1);
+        httpResponse.setStatus(HttpStatus.SUCCESS_OK);
+
+        byte[] contentBytes = new byte[HttpResponseEncoder.MAXIMUM_RETAINED_HEAD_CAPACITY * 2];
+        Arrays.fill(contentBytes, (byte) 'x');
+        IoBufferEx data = allocator.wrap(ByteBuffer.wrap(contentBytes));
+        httpResponse.setContent(new HttpContentMessage(data, true));
+
+        encoder.encode(session, httpResponse, encoderOut);
+        encoderOut.mergeAll();
+
+        byte[] headBytes = ("HTTP/1.1 200 OK\r\n" +
+                            "Content-Length: " + contentBytes.length + "\r\n" +
+                            "\r\n").getBytes();
+        IoBufferEx buf = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        IoBufferEx expected = allocator.wrap(allocator.allocate(headBytes.length + contentBytes.length));
+        expected.put(headBytes);
+        expected.put(contentBytes);
+        expected.flip();
+        assertEquals(expected, buf);
+        assertEquals(0, data.position());
+    }
+
 	@Test
 	public void encodeContent() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
@@ -37,8 +37,8 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.URI;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -76,7 +76,7 @@ import org.kaazing.gateway.transport.NextProtocolBindings.NextProtocolBinding;
 import org.kaazing.gateway.transport.NextProtocolFilter;
 import org.kaazing.gateway.transport.NioBindException;
 import org.kaazing.gateway.transport.ObjectLoggingFilter;
-import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.future.BindFuture;
@@ -149,6 +149,13 @@ public abstract class AbstractNioAcceptor implements BridgeAcceptor {
         return bindings.isEmpty();
     }
 
+    /**
+     * Returns the number of connections dispatched to each next protocol by this acceptor (protocol name -> count).
+     */
+    public Map<String, Long> getDispatchCounts() {
+        return bindings.getDispatchCounts();
+    }
+
     private final BridgeAcceptHandler tcpHandler = new BridgeAcceptHandler(this) {
         @Override
         public void sessionCreated(IoSession session) throws Exception {
@@ -177,7 +184,8 @@ public abstract class AbstractNioAcceptor implements BridgeAcceptor {
                 sessionCreated0(session);
             }
             else {
-                Collection<ProtocolDispatcher> dispatchers = bridgeServiceFactory.getTransportFactory().getProtocolDispatchers().values();
+                ProtocolDispatcherTrie dispatchers =
+                        nioBinding.getProtocolDispatchers(bridgeServiceFactory.getTransportFactory().getProtocolDispatchers());
 
                 // sessionCreated will be sent down pipeline again when next-protocol has been determined
                 NextProtocolFilter nextProtocol = new NextProtocolFilter(dispatchers) {
@@ -575,7 +583,8 @@ public abstract class AbstractNioAcceptor implements BridgeAcceptor {
                         NEXT_PROTOCOL_KEY.set(session, nextProtocolNames.first());
                     }
                     else {
-                        Collection<ProtocolDispatcher> dispatchers = bridgeServiceFactory.getTransportFactory().getProtocolDispatchers().values();
+                        ProtocolDispatcherTrie dispatchers =
+                                nextBinding.getProtocolDispatchers(bridgeServiceFactory.getTransportFactory().getProtocolDispatchers());
 
                         // sessionCreated will be sent down pipeline again when next-protocol has been determined
                         NextProtocolFilter nextProtocol = new NextProtocolFilter(dispatchers);
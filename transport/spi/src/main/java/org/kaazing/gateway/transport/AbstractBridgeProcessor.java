@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.mina.core.file.FileRegion;
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.future.WriteFuture;
@@ -160,6 +161,34 @@ public abstract class AbstractBridgeProcessor<T extends AbstractBridgeSession<?,
                     }
                 }
             }
+            else if (message instanceof FileRegion) {
+                FileRegion region = (FileRegion) message;
+                try {
+                    long remaining = region.getRemainingBytes();
+
+                    if (parent.isClosing()) {
+                        break;
+                    }
+
+                    // flush the file region out to the parent, without copying into a buffer
+                    WriteFuture flushFuture = flushNow(session, parent, region, filterChain, request);
+                    if (flushFuture == null) {
+                        break;
+                    }
+
+                    if (shouldAccountForWrittenBytes(session)) {
+                        session.increaseWrittenBytes((int) Math.min(remaining, Integer.MAX_VALUE), System.currentTimeMillis());
+                    }
+                }
+                catch (Exception e) {
+                    request.getFuture().setException(e);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(format("Exception while writing file region '%s'.", region), e);
+                    } else {
+                        logger.debug(format("Exception while writing file region '%s'.", region));
+                    }
+                }
+            }
             else {
                 throw new IllegalStateException("Don't know how to handle message of type '" + message.getClass().getName() + "'.  Are you missing a protocol encoder?");
             }
@@ -180,6 +209,14 @@ public abstract class AbstractBridgeProcessor<T extends AbstractBridgeSession<?,
 	    return flushNowInternal(parent, parentBuf, buf, filterChain, request);
 	}
 
+    /**
+     * Flushes a file region to the parent.  Only bridges that can pass the file bytes through unmodified (for example
+     * HTTP with a known content length over plain TCP) support file regions, the default rejects them.
+     */
+    protected WriteFuture flushNow(T session, IoSessionEx parent, FileRegion region, IoFilterChain filterChain, WriteRequest request) {
+        throw new IllegalStateException(format("%s does not support writing file regions", getClass().getSimpleName()));
+    }
+
 	protected static WriteFuture flushNowInternal(IoSessionEx parent, Object message, IoBufferEx resetBuf, IoFilterChain filterChain, WriteRequest request) {
 		WriteFuture parentFuture = parent.write(message);
 		attachMessageSentInternal(filterChain, resetBuf, request, parentFuture);
@@ -197,7 +234,9 @@ public abstract class AbstractBridgeProcessor<T extends AbstractBridgeSession<?,
     private static void attachMessageSentInternal(final IoFilterChain filterChain, final IoBufferEx resetBuf, final WriteRequest request, WriteFuture future) {
         if (future.isDone()) {
 			if (future.isWritten()) {
-			    resetBuf.reset();
+			    if (resetBuf != null) {
+			        resetBuf.reset();
+			    }
                 // Complete the future without firing the (largely useless) messageSent event, to gain performance
 			    setFutureWritten(filterChain, request.getFuture());
 				//filterChain.fireMessageSent(request);
@@ -209,7 +248,9 @@ public abstract class AbstractBridgeProcessor<T extends AbstractBridgeSession<?,
 				@Override
 				public void operationComplete(WriteFuture parentFuture) {
 					if (parentFuture.isWritten()) {
-		                resetBuf.reset();
+		                if (resetBuf != null) {
+		                    resetBuf.reset();
+		                }
                         // Complete the future without firing the (largely useless) messageSent event, to gain performance
 		                setFutureWritten(filterChain, request.getFuture());
 		                //filterChain.fireMessageSent(request);
@@ -24,17 +24,25 @@ package org.kaazing.gateway.transport;
 import static org.kaazing.gateway.resource.address.ResourceAddress.NEXT_PROTOCOL;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.kaazing.gateway.resource.address.Comparators;
 import org.kaazing.gateway.resource.address.ResourceAddress;
 import org.kaazing.gateway.transport.NextProtocolBindings.NextProtocolBinding;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
 
 public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
 
@@ -97,6 +105,21 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
         super.removeBinding0(address, binding);
     }
 
+    /**
+     * Returns the number of connections dispatched to each next protocol, summed over all bindings
+     * (protocol name -> count).
+     */
+    public Map<String, Long> getDispatchCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Entry<ResourceAddress, NextProtocolBinding> entry : entrySet()) {
+            for (Entry<String, Long> count : entry.getValue().getDispatchCounts().entrySet()) {
+                Long total = counts.get(count.getKey());
+                counts.put(count.getKey(), (total != null) ? total + count.getValue() : count.getValue());
+            }
+        }
+        return counts;
+    }
+
     public String toString() {
         Set<Entry<ResourceAddress, NextProtocolBinding>> entries = entrySet();
         if (entries.isEmpty()) {
@@ -125,10 +148,15 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
         private final ConcurrentNavigableMap<String, Binding> nextProtocols;
         private final AtomicReference<Binding> nullNextProtocol;
 
+        // incremented whenever nextProtocols changes, so the compiled dispatchers know when to compile again
+        private final AtomicInteger nextProtocolsVersion;
+        private volatile CompiledDispatchers compiledDispatchers;
+
         NextProtocolBinding(ResourceAddress bindAddress) {
             super(bindAddress);
             nextProtocols = new ConcurrentSkipListMap<>();
             nullNextProtocol = new AtomicReference<>();
+            nextProtocolsVersion = new AtomicInteger();
         }
 
         public Binding addBinding(Binding newBinding) {
@@ -151,6 +179,7 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
             Binding oldBinding = nextProtocols.putIfAbsent(nextProtocol, newBinding);
             if (oldBinding == null) {
                 newBinding.incrementReferenceCount();
+                nextProtocolsVersion.incrementAndGet();
             }
             else if (equivalent(newBinding, oldBinding)) {
                 oldBinding.incrementReferenceCount();
@@ -189,7 +218,11 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
                 binding = oldBinding;
             }
             if (binding.decrementReferenceCount() == 0) {
-                return nextProtocols.remove(nextProtocol, binding);
+                boolean removed = nextProtocols.remove(nextProtocol, binding);
+                if (removed) {
+                    nextProtocolsVersion.incrementAndGet();
+                }
+                return removed;
             }
             return false;
         }
@@ -202,6 +235,40 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
             return nextProtocols.keySet();
         }
 
+        /**
+         * Returns the dispatchers of the next protocols of this binding, compiled into a trie.  The trie is compiled
+         * again only after the next protocols change, and keeps counting dispatches across compilations.
+         *
+         * @param dispatchersByProtocolName  all available dispatchers (protocol name -> protocol dispatcher)
+         */
+        public ProtocolDispatcherTrie getProtocolDispatchers(Map<String, ProtocolDispatcher> dispatchersByProtocolName) {
+            CompiledDispatchers compiled = compiledDispatchers;
+            int version = nextProtocolsVersion.get();
+            if (compiled == null || compiled.version != version || compiled.dispatchersByProtocolName != dispatchersByProtocolName) {
+                List<ProtocolDispatcher> dispatchers = new ArrayList<>();
+                for (String nextProtocol : nextProtocols.keySet()) {
+                    ProtocolDispatcher dispatcher = dispatchersByProtocolName.get(nextProtocol);
+                    if (dispatcher != null) {
+                        dispatchers.add(dispatcher);
+                    }
+                }
+                ProtocolDispatcherTrie previous = (compiled != null) ? compiled.dispatchers : null;
+                compiled = new CompiledDispatchers(version, dispatchersByProtocolName,
+                        new ProtocolDispatcherTrie(dispatchers, previous));
+                compiledDispatchers = compiled;
+            }
+            return compiled.dispatchers;
+        }
+
+        /**
+         * Returns the number of connections dispatched to each next protocol of this binding (protocol name -> count),
+         * empty until the first connection needs its protocol detected.
+         */
+        public Map<String, Long> getDispatchCounts() {
+            CompiledDispatchers compiled = compiledDispatchers;
+            return (compiled != null) ? compiled.dispatchers.getDispatchCounts() : Collections.<String, Long>emptyMap();
+        }
+
         @Override
         public int hashCode() {
             int hashCode = super.hashCode();
@@ -254,6 +321,19 @@ public class NextProtocolBindings extends Bindings<NextProtocolBinding> {
             return sb.toString();
         }
 
+        private final class CompiledDispatchers {
+            private final int version;
+            private final Map<String, ProtocolDispatcher> dispatchersByProtocolName;
+            private final ProtocolDispatcherTrie dispatchers;
+
+            CompiledDispatchers(int version, Map<String, ProtocolDispatcher> dispatchersByProtocolName,
+                    ProtocolDispatcherTrie dispatchers) {
+                this.version = version;
+                this.dispatchersByProtocolName = dispatchersByProtocolName;
+                this.dispatchers = dispatchers;
+            }
+        }
+
         protected final boolean equals(NextProtocolBinding that) {
             return this.nullNextProtocol.equals(that.nullNextProtocol) && 
                     this.nextProtocols.equals(that.nextProtocols) && 
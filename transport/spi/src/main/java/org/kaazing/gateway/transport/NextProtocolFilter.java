@@ -29,12 +29,29 @@ import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.session.IoSession;
 
 import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie.Matcher;
 
+/**
+ * Detects the next protocol of a session from its first bytes, suspending inbound events until it is known.
+ *
+ * The discriminators of the dispatchers are matched with a {@link ProtocolDispatcherTrie}, byte by byte as they arrive,
+ * so a discriminator longer than the first message is matched across messages without copying them.
+ */
 public class NextProtocolFilter extends AbstractInboundEventFilter {
 
-    private final Collection<ProtocolDispatcher> dispatchers;
+    private final TypedAttributeKey<Matcher> matcherKey = new TypedAttributeKey<>(getClass(), "matcher");
+
+    private final ProtocolDispatcherTrie dispatchers;
 
     public NextProtocolFilter(Collection<ProtocolDispatcher> dispatchers) {
+        if (dispatchers == null) {
+            throw new NullPointerException("dispatchers");
+        }
+        this.dispatchers = new ProtocolDispatcherTrie(dispatchers);
+    }
+
+    public NextProtocolFilter(ProtocolDispatcherTrie dispatchers) {
         if (dispatchers == null) {
             throw new NullPointerException("dispatchers");
         }
@@ -43,20 +60,13 @@ public class NextProtocolFilter extends AbstractInboundEventFilter {
 
     @Override
     public void sessionOpened(NextFilter nextFilter, IoSession session) throws Exception {
-        switch (dispatchers.size()) {
-        case 0:
+        if (dispatchers.isEmpty()) {
             NEXT_PROTOCOL_KEY.set(session, null);
             session.getFilterChain().remove(this);
-            break;
-        case 1:
-            ProtocolDispatcher dispatcher = dispatchers.iterator().next();
-            String protocolName = dispatcher.getProtocolName();
-            NEXT_PROTOCOL_KEY.set(session, protocolName);
-            session.getFilterChain().remove(this);
-            break;
-        default:
+        }
+        else {
+            matcherKey.set(session, dispatchers.newMatcher());
             suspendInboundEvents(nextFilter, session);
-            break;
         }
 
         super.sessionOpened(nextFilter, session);
@@ -67,27 +77,47 @@ public class NextProtocolFilter extends AbstractInboundEventFilter {
 
         if (message instanceof IoBuffer) {
             IoBuffer buffer = (IoBuffer) message;
-            int initialByte = buffer.get(buffer.position()) & 0xff;
-
-            // TODO: consider multiple bytes
-            outer:
-            for (ProtocolDispatcher dispatcher : dispatchers) {
-                Collection<byte[]> discriminators = dispatcher.getDiscriminators();
-                for (byte[] discriminator : discriminators) {
-                    if (initialByte == discriminator[0]) {
-                        String protocolName = dispatcher.getProtocolName();
-                        NEXT_PROTOCOL_KEY.set(session, protocolName);
-                        break outer;
-                    }
-                }
+            Matcher matcher = matcherKey.get(session);
+            if (matcher == null) {
+                matcher = dispatchers.newMatcher();
+                matcherKey.set(session, matcher);
+                suspendInboundEvents(nextFilter, session);
             }
 
-            // force NEXT_PROTOCOL_KEY -> null if not detected (avoids stall and eventual out-of-memory)
-            flushInboundEvents(nextFilter, session);
-            session.getFilterChain().remove(this);
+            // capture this message, it is flushed in order once the next protocol is detected
+            super.messageReceived(nextFilter, session, message);
+
+            if (matcher.match(buffer)) {
+                nextProtocolDetected(nextFilter, session, matcher);
+            }
+            return;
         }
 
         // capture this message if still suspended, or pass through if not
         super.messageReceived(nextFilter, session, message);
     }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        Matcher matcher = matcherKey.get(session);
+        if (matcher != null) {
+            // closed part way through a discriminator, so go with the longest discriminator matched
+            matcher.complete();
+            nextProtocolDetected(nextFilter, session, matcher);
+        }
+
+        super.sessionClosed(nextFilter, session);
+    }
+
+    private void nextProtocolDetected(NextFilter nextFilter, IoSession session, Matcher matcher) throws Exception {
+        matcherKey.remove(session);
+        ProtocolDispatcher dispatcher = matcher.getDispatcher();
+        if (dispatcher != null) {
+            NEXT_PROTOCOL_KEY.set(session, dispatcher.getProtocolName());
+        }
+
+        // force NEXT_PROTOCOL_KEY -> null if not detected (avoids stall and eventual out-of-memory)
+        flushInboundEvents(nextFilter, session);
+        session.getFilterChain().remove(this);
+    }
 }
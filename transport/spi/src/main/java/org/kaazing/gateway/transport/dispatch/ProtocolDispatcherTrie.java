@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.dispatch;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.mina.core.buffer.IoBuffer;
+
+/**
+ * Byte-level trie of the discriminators of a set of protocol dispatchers, used to detect the next protocol from the
+ * first bytes received on a connection.
+ *
+ * A {@link Matcher} walks the trie one byte at a time as bytes arrive, so a discriminator split across several
+ * messages is matched without buffering or copying the partial prefix.  When one discriminator is a prefix of another,
+ * the longest one matched wins.  When two dispatchers share a discriminator, the dispatcher first in iteration order
+ * wins, as it did when dispatchers were scanned linearly.
+ *
+ * The trie also counts the connections dispatched to each protocol.  Tries are immutable apart from these counts, and
+ * may be shared by all connections of a binding.
+ */
+public final class ProtocolDispatcherTrie {
+
+    private final Node root;
+    private final Map<String, LongAdder> dispatchCounts;
+
+    public ProtocolDispatcherTrie(Collection<ProtocolDispatcher> dispatchers) {
+        this(dispatchers, null);
+    }
+
+    /**
+     * Compiles a trie for the dispatchers, carrying over the dispatch counts of a previous trie (if any).
+     */
+    public ProtocolDispatcherTrie(Collection<ProtocolDispatcher> dispatchers, ProtocolDispatcherTrie previous) {
+        Node root = new Node();
+        Map<String, LongAdder> dispatchCounts = new HashMap<>();
+        for (ProtocolDispatcher dispatcher : dispatchers) {
+            String protocolName = dispatcher.getProtocolName();
+            LongAdder dispatchCount = (previous != null) ? previous.dispatchCounts.get(protocolName) : null;
+            dispatchCounts.put(protocolName, (dispatchCount != null) ? dispatchCount : new LongAdder());
+
+            for (byte[] discriminator : dispatcher.getDiscriminators()) {
+                if (discriminator.length == 0) {
+                    throw new IllegalArgumentException(String.format("Empty discriminator for protocol %s", protocolName));
+                }
+                Node node = root;
+                for (byte b : discriminator) {
+                    node = node.newChild(b);
+                }
+                if (node.dispatcher == null) {
+                    node.dispatcher = dispatcher;
+                }
+            }
+        }
+        this.root = root;
+        this.dispatchCounts = dispatchCounts;
+    }
+
+    /**
+     * Returns true if there are no discriminators to match.
+     */
+    public boolean isEmpty() {
+        return root.isLeaf();
+    }
+
+    /**
+     * Returns a new matcher, starting from the first byte.
+     */
+    public Matcher newMatcher() {
+        return new Matcher(root);
+    }
+
+    /**
+     * Returns the number of connections dispatched to the protocol.
+     */
+    public long getDispatchCount(String protocolName) {
+        LongAdder dispatchCount = dispatchCounts.get(protocolName);
+        return (dispatchCount != null) ? dispatchCount.sum() : 0L;
+    }
+
+    /**
+     * Returns the number of connections dispatched to each protocol (protocol name -> count).
+     */
+    public Map<String, Long> getDispatchCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : dispatchCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private void dispatched(ProtocolDispatcher dispatcher) {
+        if (dispatcher != null) {
+            LongAdder dispatchCount = dispatchCounts.get(dispatcher.getProtocolName());
+            if (dispatchCount != null) {
+                dispatchCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Matches the first bytes of one connection, not thread-safe.
+     */
+    public final class Matcher {
+        private Node node;
+        private ProtocolDispatcher dispatcher;
+
+        private Matcher(Node root) {
+            this.node = root;
+        }
+
+        /**
+         * Continues the match with the remaining bytes of the buffer, without changing its position.
+         *
+         * @return true if the match is complete (see {@link #getDispatcher()}), false if more bytes are needed
+         */
+        public boolean match(IoBuffer buffer) {
+            if (node == null) {
+                return true;
+            }
+
+            for (int i = buffer.position(), limit = buffer.limit(); i < limit && !node.isLeaf(); i++) {
+                Node child = node.child(buffer.get(i));
+                if (child == null) {
+                    complete();
+                    return true;
+                }
+                node = child;
+                if (node.dispatcher != null) {
+                    dispatcher = node.dispatcher;
+                }
+            }
+
+            if (node.isLeaf()) {
+                complete();
+                return true;
+            }
+
+            // all bytes matched so far, a longer discriminator may still match
+            return false;
+        }
+
+        /**
+         * Completes the match with the bytes received so far, for example when the connection closes.
+         */
+        public void complete() {
+            if (node != null) {
+                node = null;
+                dispatched(dispatcher);
+            }
+        }
+
+        /**
+         * Returns the dispatcher of the longest discriminator matched, or null if none matched.
+         */
+        public ProtocolDispatcher getDispatcher() {
+            return dispatcher;
+        }
+    }
+
+    private static final class Node {
+        private Node[] children;
+        private ProtocolDispatcher dispatcher;
+
+        Node child(byte b) {
+            return (children != null) ? children[b & 0xff] : null;
+        }
+
+        Node newChild(byte b) {
+            if (children == null) {
+                children = new Node[256];
+            }
+            Node child = children[b & 0xff];
+            if (child == null) {
+                child = new Node();
+                children[b & 0xff] = child;
+            }
+            return child;
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.transport.NextProtocolBindings.NextProtocolBinding;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
+
+public class NextProtocolBindingsTest {
+
+    private final ResourceAddressFactory addressFactory = ResourceAddressFactory.newResourceAddressFactory();
+
+    @Test
+    public void shouldReportDispatchCountsPerBindingAndInTotal() throws Exception {
+        Map<String, ProtocolDispatcher> dispatchers = new HashMap<>();
+        dispatchers.put("http/1.1", new TestProtocolDispatcher("http/1.1", 'G'));
+        dispatchers.put("rtmp/1.0", new TestProtocolDispatcher("rtmp/1.0", (char) 0x03));
+
+        NextProtocolBindings bindings = new NextProtocolBindings();
+        ResourceAddress address8000 = bind(bindings, "tcp://localhost:8000", "http/1.1");
+        bind(bindings, "tcp://localhost:8000", "rtmp/1.0");
+        ResourceAddress address8001 = bind(bindings, "tcp://localhost:8001", "http/1.1");
+
+        NextProtocolBinding binding8000 = bindings.getProtocolBinding(address8000);
+        NextProtocolBinding binding8001 = bindings.getProtocolBinding(address8001);
+        assertTrue(binding8000.getDispatchCounts().isEmpty());
+
+        dispatch(binding8000.getProtocolDispatchers(dispatchers), "GET / HTTP/1.1");
+        dispatch(binding8000.getProtocolDispatchers(dispatchers), "\u0003");
+        dispatch(binding8000.getProtocolDispatchers(dispatchers), "\u0003");
+        dispatch(binding8001.getProtocolDispatchers(dispatchers), "GET / HTTP/1.1");
+
+        assertEquals(Long.valueOf(1L), binding8000.getDispatchCounts().get("http/1.1"));
+        assertEquals(Long.valueOf(2L), binding8000.getDispatchCounts().get("rtmp/1.0"));
+        assertEquals(Long.valueOf(1L), binding8001.getDispatchCounts().get("http/1.1"));
+
+        Map<String, Long> dispatchCounts = bindings.getDispatchCounts();
+        assertEquals(Long.valueOf(2L), dispatchCounts.get("http/1.1"));
+        assertEquals(Long.valueOf(2L), dispatchCounts.get("rtmp/1.0"));
+    }
+
+    private ResourceAddress bind(NextProtocolBindings bindings, String location, String nextProtocol) {
+        ResourceAddress bindAddress = addressFactory.newResourceAddress(URI.create(location), nextProtocol);
+        bindings.addBinding(new Bindings.Binding(bindAddress, new IoHandlerAdapter()));
+        return bindAddress;
+    }
+
+    private static void dispatch(ProtocolDispatcherTrie dispatchers, String bytes) throws Exception {
+        dispatchers.newMatcher().match(IoBuffer.wrap(bytes.getBytes("ISO-8859-1")));
+    }
+
+    private static final class TestProtocolDispatcher implements ProtocolDispatcher {
+        private final String protocolName;
+        private final Collection<byte[]> discriminators;
+
+        TestProtocolDispatcher(String protocolName, char discriminator) {
+            this.protocolName = protocolName;
+            this.discriminators = Collections.singletonList(new byte[] { (byte) discriminator });
+        }
+
+        @Override
+        public int compareTo(ProtocolDispatcher pd) {
+            return protocolDispatchComparator.compare(this, pd);
+        }
+
+        @Override
+        public String getProtocolName() {
+            return protocolName;
+        }
+
+        @Override
+        public Collection<byte[]> getDiscriminators() {
+            return discriminators;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.dispatch;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.junit.Test;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie.Matcher;
+
+public class ProtocolDispatcherTrieTest {
+
+    private final ProtocolDispatcher http = new TestProtocolDispatcher("http/1.1", "G", "g", "P", "p");
+    private final ProtocolDispatcher rtmp = new TestProtocolDispatcher("rtmp/1.0", "\u0003");
+    private final ProtocolDispatcher shortProtocol = new TestProtocolDispatcher("short", "ab");
+    private final ProtocolDispatcher longProtocol = new TestProtocolDispatcher("long", "abcd");
+
+    @Test
+    public void shouldMatchFirstByte() {
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(asList(http, rtmp));
+
+        assertSame(http, match(trie, "GET / HTTP/1.1"));
+        assertSame(http, match(trie, "post / HTTP/1.1"));
+        assertSame(rtmp, match(trie, "\u0003\u0000"));
+        assertNull(match(trie, "x"));
+        assertEquals(2, trie.getDispatchCount("http/1.1"));
+        assertEquals(1, trie.getDispatchCount("rtmp/1.0"));
+    }
+
+    @Test
+    public void shouldMatchAcrossBuffersWithoutConsumingThem() {
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(asList(shortProtocol, longProtocol));
+
+        Matcher matcher = trie.newMatcher();
+        IoBuffer first = wrap("abc");
+        assertFalse(matcher.match(first));
+        assertEquals(0, first.position());
+        assertTrue(matcher.match(wrap("d")));
+        assertSame(longProtocol, matcher.getDispatcher());
+
+        assertSame(shortProtocol, match(trie, "abcx"));
+        assertSame(shortProtocol, match(trie, "abx"));
+        assertNull(match(trie, "ax"));
+        assertEquals(1, trie.getDispatchCount("long"));
+        assertEquals(2, trie.getDispatchCount("short"));
+    }
+
+    @Test
+    public void shouldCompleteWithLongestMatchSoFar() {
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(asList(shortProtocol, longProtocol));
+
+        Matcher matcher = trie.newMatcher();
+        assertFalse(matcher.match(wrap("abc")));
+        matcher.complete();
+        assertSame(shortProtocol, matcher.getDispatcher());
+        assertTrue(matcher.match(wrap("d")));
+        assertSame(shortProtocol, matcher.getDispatcher());
+        assertEquals(1, trie.getDispatchCount("short"));
+    }
+
+    @Test
+    public void shouldPreferFirstDispatcherForSameDiscriminator() {
+        ProtocolDispatcher other = new TestProtocolDispatcher("other", "G");
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(asList(http, other));
+
+        assertSame(http, match(trie, "G"));
+    }
+
+    @Test
+    public void shouldCarryOverDispatchCounts() {
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(asList(http));
+        match(trie, "GET");
+
+        ProtocolDispatcherTrie newTrie = new ProtocolDispatcherTrie(asList(http, rtmp), trie);
+        match(newTrie, "GET");
+
+        assertEquals(2, newTrie.getDispatchCount("http/1.1"));
+        assertEquals(0, newTrie.getDispatchCount("rtmp/1.0"));
+        assertEquals(2, newTrie.getDispatchCounts().size());
+    }
+
+    @Test
+    public void shouldBeEmptyWithoutDispatchers() {
+        ProtocolDispatcherTrie trie = new ProtocolDispatcherTrie(Collections.<ProtocolDispatcher>emptyList());
+
+        assertTrue(trie.isEmpty());
+        assertNull(match(trie, "GET"));
+    }
+
+    private static ProtocolDispatcher match(ProtocolDispatcherTrie trie, String bytes) {
+        Matcher matcher = trie.newMatcher();
+        assertTrue(matcher.match(wrap(bytes)));
+        return matcher.getDispatcher();
+    }
+
+    private static IoBuffer wrap(String bytes) {
+        return IoBuffer.wrap(bytes(bytes));
+    }
+
+    private static byte[] bytes(String bytes) {
+        byte[] array = new byte[bytes.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = (byte) bytes.charAt(i);
+        }
+        return array;
+    }
+
+    private static final class TestProtocolDispatcher implements ProtocolDispatcher {
+        private final String protocolName;
+        private final Collection<byte[]> discriminators;
+
+        TestProtocolDispatcher(String protocolName, String... discriminators) {
+            this.protocolName = protocolName;
+            this.discriminators = new ArrayList<>();
+            for (String discriminator : discriminators) {
+                this.discriminators.add(bytes(discriminator));
+            }
+        }
+
+        @Override
+        public int compareTo(ProtocolDispatcher pd) {
+            return protocolDispatchComparator.compare(this, pd);
+        }
+
+        @Override
+        public String getProtocolName() {
+            return protocolName;
+        }
+
+        @Override
+        public Collection<byte[]> getDiscriminators() {
+            return discriminators;
+        }
+    }
+}
@@ -73,6 +73,9 @@ public class SseAcceptProcessor extends BridgeAcceptProcessor<SseSession> {
 
         IoFilterChain filterChain = session.getFilterChain();
 
+        // retain written events for Last-Event-ID resumption, if enabled
+        SseReplayBuffer replayBuffer = SseAcceptor.REPLAY_BUFFER_KEY.get(session);
+
         // TODO: thread safety
     	// multiple threads can trigger a reconnect on the same SseSession
         final AtomicBoolean reconnecting = new AtomicBoolean(false);
@@ -164,7 +167,16 @@ public class SseAcceptProcessor extends BridgeAcceptProcessor<SseSession> {
                     // resulting in a WriteToClosedSessionException and losing data
 
                     // convert from session+buffer to message
-                    if (buf instanceof SseBuffer) {
+                    if (replayBuffer != null) {
+                        // event ids differ per session, so the encoded message cannot be shared
+                        SseMessage sseMessage = new SseMessage();
+                        sseMessage.setData(buf);
+                        long eventId = replayBuffer.add(buf, System.currentTimeMillis());
+                        sseMessage.setId(Long.toString(eventId));
+                        // flush the buffer out to the session
+                        lastWrite = flushNowInternal(parent, sseMessage, buf, filterChain, request);
+                    }
+                    else if (buf instanceof SseBuffer) {
                         // reuse previously constructed message if available
                         SseBuffer sseBuffer = (SseBuffer)buf;
                         SseMessage sseMessage = sseBuffer.getMessage();
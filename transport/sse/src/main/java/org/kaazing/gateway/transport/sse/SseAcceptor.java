@@ -25,14 +25,21 @@ import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.mina.core.session.IdleStatus.WRITER_IDLE;
 import static org.kaazing.gateway.resource.address.ResourceAddress.TRANSPORT;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_BUFFER_CAPACITY;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_BUFFER_MAXIMUM_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_BUFFER_RETENTION;
 
 import java.net.URI;
+import java.util.List;
+import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.filterchain.IoFilterChain;
@@ -89,6 +96,7 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
     public static final AttributeKey CLIENT_BLOCK_PADDING_KEY = new AttributeKey(SseAcceptor.class, "clientBlockPadding");
     public static final AttributeKey TIMEOUT_FUTURE_KEY = new AttributeKey(SseAcceptor.class, "timeoutFuture");
     public static final AttributeKey BYTES_WRITTEN_ON_LAST_FLUSH_KEY = new AttributeKey(SseAcceptor.class, "bytesWrittenOnLastFlush");
+    static final TypedAttributeKey<SseReplayBuffer> REPLAY_BUFFER_KEY = new TypedAttributeKey<>(SseAcceptor.class, "replayBuffer");
 
     private static final DefaultTransportMetadata SSE_TRANSPORT_METADATA =
             new DefaultTransportMetadata(SseProtocol.NAME, SseSessionConfig.class);
@@ -107,6 +115,9 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
 
     private static final String LOGGER_NAME = String.format("transport.%s.accept", SseProtocol.NAME);
 
+    private static final String REPLAY_MBEAN_NAME =
+            "org.kaazing.gateway.server.management:root=transports,transport=sse,name=acceptor";
+
 	private final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
 
     private ScheduledExecutorService scheduler;
@@ -115,6 +126,13 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
 
     private BridgeServiceFactory bridgeServiceFactory;
     private ResourceAddressFactory resourceAddressFactory;
+    private Properties configuration = new Properties();
+    private MBeanServer mbeanServer;
+    private int replayCapacity;
+    private int replayMaximumSize;
+    private long replayRetentionMillis;
+    private SseReplayStatistics replayStatistics;
+    private ObjectName replayMBeanName;
 
     @Resource(name = "bridgeServiceFactory")
     public void setBridgeServiceFactory(BridgeServiceFactory bridgeServiceFactory) {
@@ -126,6 +144,22 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
         this.resourceAddressFactory = factory;
     }
 
+    /**
+     * Sets the configuration, including the Last-Event-ID replay buffer limits
+     * <tt>org.kaazing.gateway.transport.sse.REPLAY_BUFFER_CAPACITY</tt> (events per session, 0 disables replay),
+     * <tt>org.kaazing.gateway.transport.sse.REPLAY_BUFFER_MAXIMUM_SIZE</tt> (bytes per session) and
+     * <tt>org.kaazing.gateway.transport.sse.REPLAY_BUFFER_RETENTION</tt> (milliseconds).
+     */
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
+    @Resource(name = "mbeanServer")
+    public void setMBeanServer(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
     public SseAcceptor() {
         super(new DefaultSseSessionConfig());
     }
@@ -141,6 +175,30 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
         super.init();
 
         sseCodec = new SseAcceptCodecFilter();
+
+        replayCapacity = SSE_REPLAY_BUFFER_CAPACITY.getIntProperty(configuration);
+        replayMaximumSize = SSE_REPLAY_BUFFER_MAXIMUM_SIZE.getIntProperty(configuration);
+        replayRetentionMillis = Long.parseLong(SSE_REPLAY_BUFFER_RETENTION.getProperty(configuration));
+
+        replayStatistics = new SseReplayStatistics(replayCapacity > 0);
+        if (mbeanServer != null) {
+            try {
+                replayMBeanName = new ObjectName(REPLAY_MBEAN_NAME);
+                if (!mbeanServer.isRegistered(replayMBeanName)) {
+                    mbeanServer.registerMBean(replayStatistics, replayMBeanName);
+                }
+            } catch (Exception e) {
+                logger.warn("Unable to register SSE replay MBean", e);
+                replayMBeanName = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the Last-Event-ID replay statistics for this acceptor, or <tt>null</tt> before initialization.
+     */
+    public SseReplayStatistics getReplayStatistics() {
+        return replayStatistics;
     }
 
     @Override
@@ -219,6 +277,15 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
     @Override
     protected IoFuture dispose0() throws Exception {
         scheduler.shutdownNow();
+
+        if (replayMBeanName != null) {
+            try {
+                mbeanServer.unregisterMBean(replayMBeanName);
+            } catch (Exception e) {
+                logger.debug("Unable to unregister SSE replay MBean", e);
+            }
+        }
+
         return super.dispose0();
     }
 
@@ -348,6 +415,11 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
                                                            sseRemoteAddress,
                                                            allocator);
                     sseSession.setHandler(sseHandler);
+                    if (replayCapacity > 0) {
+                        SseReplayBuffer replayBuffer = new SseReplayBuffer(replayCapacity, replayMaximumSize,
+                                replayRetentionMillis, replayStatistics);
+                        REPLAY_BUFFER_KEY.set(sseSession, replayBuffer);
+                    }
                     return sseSession;
                 }
             });
@@ -530,6 +602,10 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
                 sseMessage.setLocation(httpRemoteURI.toString());
                 httpSession.write(sseMessage);
             }
+            else {
+                // resend events the client missed before the previous HTTP session closed
+                replayMissedEvents(httpSession);
+            }
 
             // attach now or attach after commit if header flush is required
             if (!useHttpStreaming) {
@@ -569,6 +645,37 @@ public class SseAcceptor extends AbstractBridgeAcceptor<SseSession, Binding> {
             // attach http session to sse session
             sseSession.attach(httpSession);
         }
+
+        private void replayMissedEvents(HttpAcceptSession httpSession) {
+            SseReplayBuffer replayBuffer = REPLAY_BUFFER_KEY.get(sseSession);
+            String lastEventId = httpSession.getReadHeader("Last-Event-ID");
+            if (replayBuffer == null || lastEventId == null) {
+                return;
+            }
+
+            long eventId;
+            try {
+                eventId = Long.parseLong(lastEventId);
+            }
+            catch (NumberFormatException e) {
+                // not an id assigned by this session, counted as a miss
+                eventId = -1L;
+            }
+
+            List<SseMessage> events = replayBuffer.getEventsAfter(eventId, httpSession.getBufferAllocator(),
+                    System.currentTimeMillis());
+
+            if (events != null) {
+                for (SseMessage event : events) {
+                    httpSession.write(event);
+                }
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(format("Resumed %s after event %s, replayed %d events (%s)", sseSession,
+                        lastEventId, (events != null) ? events.size() : 0, replayStatistics));
+            }
+        }
     }
 
     private URI locateSecureAcceptURI(HttpAcceptSession session) throws Exception {
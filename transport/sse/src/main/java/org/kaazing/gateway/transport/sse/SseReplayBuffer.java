@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.sse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kaazing.gateway.transport.sse.bridge.SseMessage;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+/**
+ * Bounded ring of the most recent data events written to an SSE session, so that a client reconnecting with a
+ * <tt>Last-Event-ID</tt> header is sent only the events it missed.
+ *
+ * Events are given sequential ids starting at 1 and are retained until the ring holds more than its capacity in
+ * events or its maximum size in bytes, or until they are older than the retention time.
+ * A resumption from a retained id (or from the latest id) counts as a hit, a resumption from an id that has been
+ * evicted or was never assigned counts as a miss.  Hits and misses are also counted by the acceptor statistics,
+ * if any.
+ *
+ * The limits are configured on the {@link SseAcceptor}, see {@link SseAcceptor#setConfiguration}.
+ */
+final class SseReplayBuffer {
+
+    private final int capacity;
+    private final int maximumSize;
+    private final long retentionMillis;
+    private final SseReplayStatistics statistics;
+
+    // retained events, oldest at head, with ids firstId to nextId - 1
+    private final byte[][] payloads;
+    private final long[] timestamps;
+    private int head;
+    private int count;
+    private int size;
+    private long firstId;
+    private long nextId;
+
+    private long hitCount;
+    private long missCount;
+
+    SseReplayBuffer(int capacity, int maximumSize, long retentionMillis) {
+        this(capacity, maximumSize, retentionMillis, null);
+    }
+
+    SseReplayBuffer(int capacity, int maximumSize, long retentionMillis, SseReplayStatistics statistics) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.maximumSize = maximumSize;
+        this.retentionMillis = retentionMillis;
+        this.statistics = statistics;
+        this.payloads = new byte[capacity][];
+        this.timestamps = new long[capacity];
+        this.firstId = 1L;
+        this.nextId = 1L;
+    }
+
+    /**
+     * Retains a copy of the remaining bytes of the event data, evicting older events as needed.
+     *
+     * @return the id of the event
+     */
+    synchronized long add(IoBufferEx data, long currentTimeMillis) {
+        long id = nextId++;
+
+        ByteBuffer buf = data.buf();
+        int length = buf.remaining();
+        if (length > maximumSize) {
+            // too large to retain, so resuming from any earlier id is a miss
+            clear();
+            firstId = nextId;
+            return id;
+        }
+
+        while (count == capacity || size + length > maximumSize) {
+            evictOldest();
+        }
+        evictExpired(currentTimeMillis);
+
+        byte[] payload = new byte[length];
+        buf.duplicate().get(payload);
+
+        int index = (head + count) % capacity;
+        payloads[index] = payload;
+        timestamps[index] = currentTimeMillis;
+        count++;
+        size += length;
+        return id;
+    }
+
+    /**
+     * Returns the retained events written after the event with the given id, oldest first.  If events after
+     * that id have already been evicted, the events still retained are returned.  Returns null if the id was
+     * never assigned by this buffer.
+     */
+    synchronized List<SseMessage> getEventsAfter(long lastEventId, IoBufferAllocatorEx<?> allocator,
+            long currentTimeMillis) {
+        evictExpired(currentTimeMillis);
+
+        if (lastEventId < 0L || lastEventId >= nextId) {
+            missCount++;
+            if (statistics != null) {
+                statistics.replayMissed(0);
+            }
+            return null;
+        }
+
+        long startId;
+        boolean hit = lastEventId + 1 >= firstId;
+        if (!hit) {
+            missCount++;
+            startId = firstId;
+        }
+        else {
+            hitCount++;
+            startId = lastEventId + 1;
+        }
+
+        int replayCount = (int) (nextId - startId);
+        if (statistics != null) {
+            if (hit) {
+                statistics.replayHit(replayCount);
+            }
+            else {
+                statistics.replayMissed(replayCount);
+            }
+        }
+
+        if (replayCount == 0) {
+            return Collections.emptyList();
+        }
+
+        List<SseMessage> events = new ArrayList<>(replayCount);
+        int offset = (int) (startId - firstId);
+        for (int i = offset; i < count; i++) {
+            byte[] payload = payloads[(head + i) % capacity];
+            SseMessage event = new SseMessage();
+            event.setData(allocator.wrap(ByteBuffer.wrap(payload)));
+            event.setId(Long.toString(firstId + i));
+            events.add(event);
+        }
+        return events;
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the fraction of resumptions that found the last event id in this buffer, or 0 if there were none.
+     */
+    synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return (total == 0L) ? 0.0 : (double) hitCount / total;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    private void evictExpired(long currentTimeMillis) {
+        long expiredBefore = currentTimeMillis - retentionMillis;
+        while (count > 0 && timestamps[head] < expiredBefore) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        size -= payloads[head].length;
+        payloads[head] = null;
+        head = (head + 1) % capacity;
+        count--;
+        firstId++;
+    }
+
+    private void clear() {
+        while (count > 0) {
+            evictOldest();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.sse;
+
+/**
+ * Management view of <tt>Last-Event-ID</tt> replay for the SSE sessions of an SSE acceptor.
+ */
+public interface SseReplayMXBean {
+
+    /**
+     * Returns true if SSE sessions retain written events for replay.
+     */
+    boolean isReplayEnabled();
+
+    /**
+     * Returns the number of resumptions whose last event id was still retained.
+     */
+    long getReplayHits();
+
+    /**
+     * Returns the number of resumptions whose last event id had been evicted or was never assigned.
+     */
+    long getReplayMisses();
+
+    /**
+     * Returns the fraction of resumptions that were hits, or 0 if there were none.
+     */
+    double getReplayHitRatio();
+
+    long getEventsReplayed();
+}
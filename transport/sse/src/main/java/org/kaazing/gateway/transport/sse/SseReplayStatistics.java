@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.sse;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replay counters shared by the replay buffers of one acceptor.
+ */
+public class SseReplayStatistics implements SseReplayMXBean {
+
+    private final boolean replayEnabled;
+    private final AtomicLong replayHits;
+    private final AtomicLong replayMisses;
+    private final AtomicLong eventsReplayed;
+
+    public SseReplayStatistics(boolean replayEnabled) {
+        this.replayEnabled = replayEnabled;
+        this.replayHits = new AtomicLong();
+        this.replayMisses = new AtomicLong();
+        this.eventsReplayed = new AtomicLong();
+    }
+
+    @Override
+    public boolean isReplayEnabled() {
+        return replayEnabled;
+    }
+
+    @Override
+    public long getReplayHits() {
+        return replayHits.get();
+    }
+
+    @Override
+    public long getReplayMisses() {
+        return replayMisses.get();
+    }
+
+    @Override
+    public double getReplayHitRatio() {
+        long hits = replayHits.get();
+        long total = hits + replayMisses.get();
+        return (total == 0L) ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public long getEventsReplayed() {
+        return eventsReplayed.get();
+    }
+
+    void replayHit(int eventCount) {
+        replayHits.incrementAndGet();
+        eventsReplayed.addAndGet(eventCount);
+    }
+
+    void replayMissed(int eventCount) {
+        replayMisses.incrementAndGet();
+        eventsReplayed.addAndGet(eventCount);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SseReplayStatistics [hits=%d, misses=%d, replayed=%d]",
+                getReplayHits(), getReplayMisses(), getEventsReplayed());
+    }
+}
@@ -24,26 +24,36 @@ package org.kaazing.gateway.transport.sse;
 import static java.lang.String.format;
 import static java.util.Collections.emptySet;
 import static org.jboss.netty.util.CharsetUtil.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.jmock.lib.script.ScriptedAction.perform;
 import static org.kaazing.gateway.resource.address.ResourceAddressFactory.newResourceAddressFactory;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.INJECTABLE_HEADERS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSE_REPLAY_BUFFER_CAPACITY;
 
+import java.net.Socket;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.session.IoSession;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
 import org.jmock.lib.concurrent.Synchroniser;
 import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.After;
@@ -175,4 +185,74 @@ public class SseAcceptorIT {
 
         robot.finish();
     }
+
+    @Specification("should.replay.missed.events.after.last.event.id")
+    @Test(timeout=10000)
+    public void shouldReplayMissedEventsAfterLastEventId() throws Exception {
+        Properties configuration = new Properties();
+        configuration.setProperty(SSE_REPLAY_BUFFER_CAPACITY.getPropertyName(), "8");
+        sseAcceptor.setConfiguration(configuration);
+
+        final IoHandler handler = mockery.mock(IoHandler.class);
+        final AtomicReference<SseSession> sessionRef = new AtomicReference<>();
+        final CountDownLatch opened = new CountDownLatch(1);
+
+        mockery.checking(new Expectations() {
+            {
+                oneOf(handler).sessionCreated(with(any(IoSession.class)));
+                oneOf(handler).sessionOpened(with(any(IoSession.class)));
+                will(new CustomAction("write first two events") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        SseSession session = (SseSession) invocation.getParameter(0);
+                        session.write(data("event1"));
+                        session.write(data("event2"));
+                        sessionRef.set(session);
+                        opened.countDown();
+                        return null;
+                    }
+                });
+                oneOf(handler).sessionClosed(with(any(IoSession.class)));
+            }
+        });
+
+        // bind the address behavior
+        sseAcceptor.bind(sseAddress, handler, null);
+
+        // once the client has received both events and disconnected, queue a third event and signal the client
+        Thread writer = new Thread("sse-replay-writer") {
+            @Override
+            public void run() {
+                try {
+                    opened.await();
+                    SseSession session = sessionRef.get();
+                    while (session.getWrittenBytes() < 12L || session.getParent() != null) {
+                        Thread.sleep(10L);
+                    }
+
+                    WriteFuture written = session.write(data("event3"));
+                    new Socket("localhost", 8001).close();
+
+                    written.awaitUninterruptibly(5, TimeUnit.SECONDS);
+                    session.close(false);
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+
+        robot.finish();
+
+        SseReplayStatistics statistics = sseAcceptor.getReplayStatistics();
+        assertEquals(1L, statistics.getReplayHits());
+        assertEquals(0L, statistics.getReplayMisses());
+        assertEquals(1L, statistics.getEventsReplayed());
+    }
+
+    private static IoBuffer data(String text) {
+        return SimpleBufferAllocator.BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(text.getBytes(UTF_8)));
+    }
 }
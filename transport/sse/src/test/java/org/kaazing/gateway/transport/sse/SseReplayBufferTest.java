@@ -0,0 +1,205 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.sse;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+import org.kaazing.gateway.transport.sse.bridge.SseMessage;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+public class SseReplayBufferTest {
+
+    @Test
+    public void shouldReplayEventsAfterLastEventId() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 1024, 30000L);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, replayBuffer.add(data("event" + i), 1000L));
+        }
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(3L, BUFFER_ALLOCATOR, 1000L);
+
+        assertEquals(2, events.size());
+        assertEquals("4", events.get(0).getId());
+        assertEquals("event4", text(events.get(0).getData()));
+        assertEquals("5", events.get(1).getId());
+        assertEquals("event5", text(events.get(1).getData()));
+        assertEquals(1L, replayBuffer.getHitCount());
+        assertEquals(0L, replayBuffer.getMissCount());
+    }
+
+    @Test
+    public void shouldReplayNothingAfterLatestEventId() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 1024, 30000L);
+        replayBuffer.add(data("event1"), 1000L);
+        replayBuffer.add(data("event2"), 1000L);
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(2L, BUFFER_ALLOCATOR, 1000L);
+
+        assertTrue(events.isEmpty());
+        assertEquals(1L, replayBuffer.getHitCount());
+    }
+
+    @Test
+    public void shouldNotModifyWrittenData() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 1024, 30000L);
+        IoBufferEx data = data("event1");
+
+        replayBuffer.add(data, 1000L);
+
+        assertEquals("event1", text(data));
+    }
+
+    @Test
+    public void shouldEvictOldestEventsBeyondCapacity() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(3, 1024, 30000L);
+        for (int i = 1; i <= 5; i++) {
+            replayBuffer.add(data("event" + i), 1000L);
+        }
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(1L, BUFFER_ALLOCATOR, 1000L);
+
+        assertEquals(3, replayBuffer.size());
+        assertEquals(3, events.size());
+        assertEquals("3", events.get(0).getId());
+        assertEquals(0L, replayBuffer.getHitCount());
+        assertEquals(1L, replayBuffer.getMissCount());
+    }
+
+    @Test
+    public void shouldEvictOldestEventsBeyondMaximumSize() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 16, 30000L);
+        for (int i = 1; i <= 4; i++) {
+            replayBuffer.add(data("event" + i), 1000L);
+        }
+
+        assertEquals(2, replayBuffer.size());
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(2L, BUFFER_ALLOCATOR, 1000L);
+
+        assertEquals(2, events.size());
+        assertEquals("3", events.get(0).getId());
+        assertEquals(1L, replayBuffer.getHitCount());
+    }
+
+    @Test
+    public void shouldNotRetainEventLargerThanMaximumSize() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 16, 30000L);
+        replayBuffer.add(data("event1"), 1000L);
+        assertEquals(2L, replayBuffer.add(data("event2 is too large to retain"), 1000L));
+        replayBuffer.add(data("event3"), 1000L);
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(1L, BUFFER_ALLOCATOR, 1000L);
+
+        assertEquals(1, events.size());
+        assertEquals("3", events.get(0).getId());
+        assertEquals(1L, replayBuffer.getMissCount());
+    }
+
+    @Test
+    public void shouldEvictEventsOlderThanRetention() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 1024, 30000L);
+        replayBuffer.add(data("event1"), 1000L);
+        replayBuffer.add(data("event2"), 20000L);
+        replayBuffer.add(data("event3"), 40000L);
+
+        List<SseMessage> events = replayBuffer.getEventsAfter(1L, BUFFER_ALLOCATOR, 45000L);
+
+        assertEquals(2, events.size());
+        assertEquals("2", events.get(0).getId());
+        assertEquals(1L, replayBuffer.getHitCount());
+
+        events = replayBuffer.getEventsAfter(1L, BUFFER_ALLOCATOR, 60000L);
+
+        assertEquals(1, events.size());
+        assertEquals("3", events.get(0).getId());
+        assertEquals(1L, replayBuffer.getMissCount());
+    }
+
+    @Test
+    public void shouldMissUnknownEventId() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(8, 1024, 30000L);
+        replayBuffer.add(data("event1"), 1000L);
+
+        assertNull(replayBuffer.getEventsAfter(7L, BUFFER_ALLOCATOR, 1000L));
+        assertNull(replayBuffer.getEventsAfter(-1L, BUFFER_ALLOCATOR, 1000L));
+        assertEquals(0L, replayBuffer.getHitCount());
+        assertEquals(2L, replayBuffer.getMissCount());
+    }
+
+    @Test
+    public void shouldReportHitRatio() throws Exception {
+        SseReplayBuffer replayBuffer = new SseReplayBuffer(2, 1024, 30000L);
+        assertEquals(0.0, replayBuffer.getHitRatio(), 0.0);
+
+        for (int i = 1; i <= 4; i++) {
+            replayBuffer.add(data("event" + i), 1000L);
+        }
+        replayBuffer.getEventsAfter(3L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer.getEventsAfter(4L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer.getEventsAfter(0L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer.getEventsAfter(1L, BUFFER_ALLOCATOR, 1000L);
+
+        assertEquals(0.5, replayBuffer.getHitRatio(), 0.0);
+    }
+
+    @Test
+    public void shouldCountReplaysInSharedStatistics() throws Exception {
+        SseReplayStatistics statistics = new SseReplayStatistics(true);
+        SseReplayBuffer replayBuffer1 = new SseReplayBuffer(2, 1024, 30000L, statistics);
+        SseReplayBuffer replayBuffer2 = new SseReplayBuffer(2, 1024, 30000L, statistics);
+
+        for (int i = 1; i <= 4; i++) {
+            replayBuffer1.add(data("event" + i), 1000L);
+            replayBuffer2.add(data("event" + i), 1000L);
+        }
+        replayBuffer1.getEventsAfter(3L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer2.getEventsAfter(2L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer2.getEventsAfter(1L, BUFFER_ALLOCATOR, 1000L);
+        replayBuffer1.getEventsAfter(9L, BUFFER_ALLOCATOR, 1000L);
+
+        assertTrue(statistics.isReplayEnabled());
+        assertEquals(2L, statistics.getReplayHits());
+        assertEquals(2L, statistics.getReplayMisses());
+        assertEquals(5L, statistics.getEventsReplayed());
+        assertEquals(0.5, statistics.getReplayHitRatio(), 0.0);
+    }
+
+    private static IoBufferEx data(String text) {
+        return BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(text.getBytes(UTF_8)));
+    }
+
+    private static String text(IoBufferEx data) {
+        ByteBuffer buf = data.buf().duplicate();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -28,11 +28,17 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.PROTOC
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.ENCRYPTION_ENABLED;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.KEY_SELECTOR;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.NEED_CLIENT_AUTH;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.SESSION_TIMEOUT;
 import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_CLIENT_AUTH;
 import static org.kaazing.gateway.transport.BridgeSession.LOCAL_ADDRESS;
 import static org.kaazing.gateway.transport.BridgeSession.NEXT_PROTOCOL_KEY;
 import static org.kaazing.gateway.transport.BridgeSession.REMOTE_ADDRESS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_OFFLOAD;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_QUEUE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.net.URI;
 import java.security.KeyStoreException;
@@ -40,15 +46,25 @@ import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.SortedSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Resource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
 
 import org.kaazing.gateway.security.KeySelector;
 import org.kaazing.gateway.transport.TransportKeySelector;
@@ -71,7 +87,7 @@ import org.kaazing.gateway.resource.address.ResourceAddressFactory;
 import org.kaazing.gateway.resource.address.ResourceOptions;
 import org.kaazing.gateway.resource.address.ssl.SslResourceAddress;
 import org.kaazing.gateway.security.SecurityContext;
-import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
+import org.kaazing.gateway.transport.dispatch.ProtocolDispatcherTrie;
 import org.kaazing.gateway.transport.AbstractBridgeAcceptor;
 import org.kaazing.gateway.transport.Bindings;
 import org.kaazing.gateway.transport.Bindings.Binding;
@@ -91,6 +107,7 @@ import org.kaazing.gateway.transport.ssl.bridge.filter.SslCipherSelectionFilter;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslClientHelloDecoder;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslClientHelloEncoder;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslFilter;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeStatistics;
 import org.kaazing.gateway.transport.ExceptionLoggingFilter;
 import org.kaazing.gateway.transport.ObjectLoggingFilter;
 import org.kaazing.gateway.transport.TypedAttributeKey;
@@ -120,6 +137,9 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
 
     private static final String LOGGER_NAME = String.format("transport.%s.accept", SslProtocol.NAME);
 
+    private static final String HANDSHAKE_MBEAN_NAME =
+            "org.kaazing.gateway.server.management:root=transports,transport=ssl,name=acceptor";
+
     private final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
 
     private SSLContext sslContext;
@@ -128,6 +148,14 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
     private ResourceAddressFactory resourceAddressFactory;
     private BridgeServiceFactory bridgeServiceFactory;
     private VirtualHostKeySelector vhostKeySelector;
+    private Properties configuration = new Properties();
+    private MBeanServer mbeanServer;
+    private ThreadPoolExecutor handshakeExecutor;
+    private SslHandshakeStatistics handshakeStatistics;
+    private ObjectName handshakeMBeanName;
+
+    // SSL contexts with their own server session cache, by transport address
+    private final ConcurrentMap<URI, SessionCacheContext> sessionCacheContexts = new ConcurrentHashMap<>();
 
     // TODO: SslBindings like HttpBindings
     
@@ -135,6 +163,16 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         super(new DefaultIoSessionConfigEx());
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.configuration = configuration;
+    }
+
+    @Resource(name = "mbeanServer")
+    public void setMBeanServer(MBeanServer mbeanServer) {
+        this.mbeanServer = mbeanServer;
+    }
+
     @Resource(name = "bridgeServiceFactory")
     public void setBridgeServiceFactory(BridgeServiceFactory bridgeServiceFactory) {
         this.bridgeServiceFactory = bridgeServiceFactory;
@@ -201,6 +239,69 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         }
 
         certificateSelection = new SslCertificateSelectionFilter(false);
+
+        if (SSL_HANDSHAKE_OFFLOAD.getBooleanProperty(configuration)) {
+            int handshakeThreads = SSL_HANDSHAKE_THREADS.getIntProperty(configuration);
+            int handshakeQueueSize = SSL_HANDSHAKE_QUEUE_SIZE.getIntProperty(configuration);
+            handshakeExecutor = new ThreadPoolExecutor(handshakeThreads, handshakeThreads, 60L, SECONDS,
+                    new ArrayBlockingQueue<Runnable>(handshakeQueueSize), new ThreadFactory() {
+                        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "ssl-handshake-" + threadNumber.getAndIncrement());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            handshakeExecutor.allowCoreThreadTimeOut(true);
+            logger.info(String.format("SSL handshake offload enabled: %d threads, queue size %d",
+                    handshakeThreads, handshakeQueueSize));
+        }
+
+        handshakeStatistics = new SslHandshakeStatistics(handshakeExecutor);
+        if (mbeanServer != null) {
+            try {
+                handshakeMBeanName = new ObjectName(HANDSHAKE_MBEAN_NAME);
+                if (!mbeanServer.isRegistered(handshakeMBeanName)) {
+                    mbeanServer.registerMBean(handshakeStatistics, handshakeMBeanName);
+                }
+            } catch (Exception e) {
+                logger.warn("Unable to register SSL handshake MBean", e);
+                handshakeMBeanName = null;
+            }
+        }
+    }
+
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdownNow();
+        }
+
+        if (handshakeMBeanName != null) {
+            try {
+                mbeanServer.unregisterMBean(handshakeMBeanName);
+            } catch (Exception e) {
+                logger.debug("Unable to unregister SSL handshake MBean", e);
+            }
+        }
+
+        return super.dispose0();
+    }
+
+    /**
+     * Returns the handshake statistics for this acceptor, or <tt>null</tt> before the first bind.
+     */
+    public SslHandshakeStatistics getHandshakeStatistics() {
+        return handshakeStatistics;
+    }
+
+    /**
+     * Returns the number of connections dispatched to each next protocol by this acceptor (protocol name -> count).
+     */
+    public Map<String, Long> getDispatchCounts() {
+        return ((NextProtocolBindings) bindings).getDispatchCounts();
     }
 
     @Override
@@ -246,13 +347,20 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
 
         // Create our SslFilter instance, and configure it based on the
         // resource address.
-        SslFilter sslFilter = new SslFilter(sslContext, false, logger);
-
         IoSession session = filterChain.getSession();
 
         // Note: Do NOT remove the SSL_RESOURCE_ADDRESS here; it will be
         // removed by the cipher selection filter as needed.
         ResourceAddress sslAddress = SSL_RESOURCE_ADDRESS.get(session);
+
+        // Use the session cache of the bound address, if resumption is enabled there
+        SessionCacheContext sessionCacheContext = sessionCacheContexts.get(sslAddress.getTransport().getResource());
+        SSLContext sessionSslContext = (sessionCacheContext != null) ? sessionCacheContext.sslContext : sslContext;
+
+        SslFilter sslFilter = new SslFilter(sessionSslContext, false, logger);
+        sslFilter.setHandshakeExecutor(handshakeExecutor);
+        sslFilter.setHandshakeStatistics(handshakeStatistics);
+
         boolean encryption = sslAddress.getOption(ENCRYPTION_ENABLED);
 
         if (encryption) {
@@ -299,7 +407,8 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
             NEXT_PROTOCOL_KEY.set(session, nextProtocolNames.first());
         }
         else {
-            Collection<ProtocolDispatcher> dispatchers = bridgeServiceFactory.getTransportFactory().getProtocolDispatchers().values();
+            ProtocolDispatcherTrie dispatchers =
+                    sslBinding.getProtocolDispatchers(bridgeServiceFactory.getTransportFactory().getProtocolDispatchers());
             filterChain.addLast(NEXT_PROTOCOL_FILTER, new NextProtocolFilter(dispatchers));
         }
 
@@ -370,6 +479,8 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+
+            bindSessionCache(address);
         }
 
         // JRF: this looks like we're breaking the transport abstraction by assuming that SSL is always over TCP
@@ -445,12 +556,83 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
+
+            unbindSessionCache(address);
         }
 
         BridgeAcceptor acceptor  = bridgeServiceFactory.newBridgeAcceptor(transportAddress);
         return acceptor.unbind(transportAddress);
     }
 
+    // The shared SSL context caches (almost) no sessions, so addresses that allow resumption get an SSL context
+    // of their own.  All virtual hosts bound on the same transport address share that context, and key selection
+    // still happens per connection, so multiple certificates work as before.
+    private void bindSessionCache(ResourceAddress address) {
+        int sessionCacheSize = address.getOption(SESSION_CACHE_SIZE);
+        if (sessionCacheSize <= 0) {
+            return;
+        }
+
+        int sessionTimeout = address.getOption(SESSION_TIMEOUT);
+        URI transportURI = address.getTransport().getResource();
+        synchronized (sessionCacheContexts) {
+            SessionCacheContext sessionCacheContext = sessionCacheContexts.get(transportURI);
+            if (sessionCacheContext == null) {
+                SSLContext sessionSslContext;
+                try {
+                    sessionSslContext = sslContextFactory.newInstance();
+                } catch (Exception e) {
+                    throw new RuntimeException("Unable to create SSL context for " + address, e);
+                }
+                SSLSessionContext serverSessionContext = sessionSslContext.getServerSessionContext();
+                serverSessionContext.setSessionCacheSize(sessionCacheSize);
+                serverSessionContext.setSessionTimeout(sessionTimeout);
+                sessionCacheContext = new SessionCacheContext(sessionSslContext);
+                sessionCacheContexts.put(transportURI, sessionCacheContext);
+
+                if (logger.isDebugEnabled()) {
+                    logger.debug(format("SSL session cache for %s: %d sessions, timeout %d seconds",
+                            transportURI, sessionCacheSize, sessionTimeout));
+                }
+            }
+            else {
+                SSLSessionContext serverSessionContext = sessionCacheContext.sslContext.getServerSessionContext();
+                if (serverSessionContext.getSessionCacheSize() != sessionCacheSize ||
+                        serverSessionContext.getSessionTimeout() != sessionTimeout) {
+                    logger.warn(format("SSL session cache options for %s differ from those already bound on %s, " +
+                            "keeping %d sessions with timeout %d seconds", address.getExternalURI(), transportURI,
+                            serverSessionContext.getSessionCacheSize(), serverSessionContext.getSessionTimeout()));
+                }
+            }
+            sessionCacheContext.bindCount++;
+        }
+    }
+
+    private void unbindSessionCache(ResourceAddress address) {
+        if (address.getOption(SESSION_CACHE_SIZE) <= 0) {
+            return;
+        }
+
+        URI transportURI = address.getTransport().getResource();
+        synchronized (sessionCacheContexts) {
+            SessionCacheContext sessionCacheContext = sessionCacheContexts.get(transportURI);
+            if (sessionCacheContext != null && --sessionCacheContext.bindCount == 0) {
+                sessionCacheContexts.remove(transportURI);
+            }
+        }
+    }
+
+    private static final class SessionCacheContext {
+        private final SSLContext sslContext;
+
+        // guarded by sessionCacheContexts
+        private int bindCount;
+
+        SessionCacheContext(SSLContext sslContext) {
+            this.sslContext = sslContext;
+        }
+    }
+
     private IoHandler secureBridgeHandler = new BridgeHandler(true);
 
     private BridgeHandler unsecureBridgeHandler = new BridgeHandler(false);
@@ -24,6 +24,7 @@ package org.kaazing.gateway.transport.ssl.bridge.filter;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -172,6 +173,10 @@ public class SslFilter extends IoFilterAdapter {
 
     private String[] enabledProtocols;
 
+    private Executor handshakeExecutor;
+
+    private SslHandshakeStatistics handshakeStatistics;
+
     /**
      * Creates a new SSL filter using the specified {@link SSLContext}.
      * The handshake will start immediately.
@@ -358,6 +363,29 @@ public class SslFilter extends IoFilterAdapter {
         this.enabledProtocols = protocols;
     }
 
+    /**
+     * Returns the executor for SSLEngine delegated tasks, or <tt>null</tt> if they run on the calling thread.
+     */
+    public Executor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Sets the executor for SSLEngine delegated tasks.  While delegated tasks run, reads are suspended on the
+     * session, and the handshake resumes on the session's I/O thread once they complete.
+     */
+    public void setHandshakeExecutor(Executor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
+    public SslHandshakeStatistics getHandshakeStatistics() {
+        return handshakeStatistics;
+    }
+
+    public void setHandshakeStatistics(SslHandshakeStatistics handshakeStatistics) {
+        this.handshakeStatistics = handshakeStatistics;
+    }
+
     @Override
     public void onPreAdd(IoFilterChain parent, String name,
             NextFilter nextFilter) throws SSLException {
@@ -619,6 +647,45 @@ public class SslFilter extends IoFilterAdapter {
         }
     }
 
+    /**
+     * Continues the handshake once offloaded delegated tasks have completed, called on the session's I/O thread.
+     */
+    void resumeHandshake(IoSession session) {
+        NextFilter nextFilter = (NextFilter) session.getAttribute(NEXT_FILTER);
+        SslHandler handler = (SslHandler) session.getAttribute(SSL_HANDLER);
+        if (nextFilter == null || handler == null) {
+            // session closed, or SSL stopped, while tasks were running
+            return;
+        }
+
+        try {
+            synchronized (handler) {
+                handler.resumeHandshake(nextFilter);
+
+                // Handle data to be forwarded to application or written to net
+                handleSslData(nextFilter, handler);
+
+                if (handler.isInboundDone()) {
+                    if (handler.isOutboundDone()) {
+                        handler.destroy();
+                    } else {
+                        initiateClosure(nextFilter, session);
+                    }
+                }
+            }
+
+            handler.flushScheduledEvents();
+        } catch (SSLException ssle) {
+            SSLException newSsle = new SSLHandshakeException("SSL handshake failed.");
+            newSsle.initCause(ssle);
+            nextFilter.exceptionCaught(session, newSsle);
+        } finally {
+            if (!handler.isTaskPending()) {
+                session.resumeRead();
+            }
+        }
+    }
+
     private void initiateHandshake(NextFilter nextFilter, IoSession session)
             throws SSLException {
         SslHandler handler = getSslSessionHandler(session);
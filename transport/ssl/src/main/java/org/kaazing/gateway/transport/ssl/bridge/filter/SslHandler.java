@@ -29,6 +29,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
@@ -103,6 +105,21 @@ class SslHandler {
     private boolean writingEncryptedData;
     private final IoBufferAllocatorEx<?> allocator;
 
+    /**
+     * True while delegated tasks run on the handshake executor (reads are suspended)
+     */
+    private volatile boolean taskPending;
+
+    /**
+     * Start of the initial handshake, for latency statistics
+     */
+    private long handshakeStartTime;
+
+    /**
+     * Wall clock time at the start of the initial handshake, to detect resumed sessions
+     */
+    private long handshakeStartTimeMillis;
+
     /**
      * Constuctor.
      *
@@ -218,10 +235,13 @@ class SslHandler {
         sslEngine.beginHandshake();
         
         handshakeStatus = sslEngine.getHandshakeStatus();
+        handshakeStartTime = System.nanoTime();
+        handshakeStartTimeMillis = System.currentTimeMillis();
 
         handshakeComplete = false;
         initialHandshakeComplete = false;
         writingEncryptedData = false;
+        taskPending = false;
     }
 
     /**
@@ -293,6 +313,13 @@ class SslHandler {
         return writingEncryptedData;
     }
 
+    /**
+     * Check if delegated tasks are running on the handshake executor.
+     */
+    public boolean isTaskPending() {
+        return taskPending;
+    }
+
     /**
      * Check if handshake is completed.
      */
@@ -389,6 +416,12 @@ class SslHandler {
         }
 
         inNetBuffer.put(buf);
+
+        // data received while delegated tasks are running is processed when the handshake resumes
+        if (taskPending) {
+            return;
+        }
+
         if (!handshakeComplete) {
             handshake(nextFilter);
         }
@@ -413,6 +446,10 @@ class SslHandler {
      * @return buffer with data
      */
     public IoBuffer fetchAppBuffer() {
+        if (this.appBuffer == null) {
+            return (IoBuffer) emptyBuffer;
+        }
+
         IoBufferEx appBuffer = this.appBuffer.flip();
         this.appBuffer = null;
         return (IoBuffer) appBuffer;
@@ -558,6 +595,14 @@ class SslHandler {
                             SslFilter.SSL_SESSION, sslEngine.getSession());
                     handshakeComplete = true;
 
+                    SslHandshakeStatistics handshakeStatistics = parent.getHandshakeStatistics();
+                    if (handshakeStatistics != null && handshakeStartTime != 0L) {
+                        // note: a resumed session was created by an earlier handshake
+                        boolean resumed = sslEngine.getSession().getCreationTime() < handshakeStartTimeMillis;
+                        handshakeStatistics.handshakeCompleted(System.nanoTime() - handshakeStartTime, resumed);
+                        handshakeStartTime = 0L;
+                    }
+
                     if (logger.isDebugEnabled()) {
                         SSLSession sslSession = sslEngine.getSession();
                         logger.debug(String.format("SSL session ID %s on transport session #%d %s: cipher %s, app buffer size %d, packet buffer size %d", 
@@ -576,6 +621,10 @@ class SslHandler {
                     return;
                     
                 case NEED_TASK :
+                    if (offloadTasks()) {
+                        // handshake resumes on the I/O thread when the tasks complete
+                        return;
+                    }
                     handshakeStatus = doTasks();
                     break;
                     
@@ -785,6 +834,98 @@ class SslHandler {
         return res;
     }
 
+    /**
+     * Continue the handshake after delegated tasks completed on the handshake executor.
+     */
+    void resumeHandshake(NextFilter nextFilter) throws SSLException {
+        taskPending = false;
+        if (sslEngine == null) {
+            // destroyed while tasks were running
+            return;
+        }
+
+        handshakeStatus = sslEngine.getHandshakeStatus();
+        handshake(nextFilter);
+
+        // data received while tasks were running may include application data
+        if (handshakeComplete) {
+            decrypt(nextFilter);
+        }
+    }
+
+    /**
+     * Run the outstanding handshake tasks on the handshake executor, if any, suspending reads until
+     * they complete.
+     *
+     * @return <tt>true</tt> if the tasks were offloaded, <tt>false</tt> if they must run in the current Thread
+     */
+    private boolean offloadTasks() {
+        Executor handshakeExecutor = parent.getHandshakeExecutor();
+        if (handshakeExecutor == null) {
+            return false;
+        }
+
+        final List<Runnable> tasks = new ArrayList<>(2);
+        Runnable task;
+        while ((task = sslEngine.getDelegatedTask()) != null) {
+            tasks.add(task);
+        }
+        if (tasks.isEmpty()) {
+            return false;
+        }
+
+        final boolean clientMode = parent.isUseClientMode();
+        taskPending = true;
+        session.suspendRead();
+        try {
+            handshakeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // certificate selection (see VirtualHostKeySelector) happens in delegated tasks
+                    SslCertificateSelectionFilter.setCurrentSession(session, clientMode);
+                    try {
+                        for (Runnable task : tasks) {
+                            task.run();
+                        }
+                    } finally {
+                        SslCertificateSelectionFilter.setCurrentSession(null, clientMode);
+                    }
+
+                    session.getIoExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            parent.resumeHandshake(session);
+                        }
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // executor saturated (or shut down), fall back to running tasks in the current Thread
+            taskPending = false;
+            session.resumeRead();
+            SslCertificateSelectionFilter.setCurrentSession(session, clientMode);
+            try {
+                for (Runnable rejectedTask : tasks) {
+                    rejectedTask.run();
+                }
+            } finally {
+                SslCertificateSelectionFilter.setCurrentSession(null, clientMode);
+            }
+
+            SslHandshakeStatistics handshakeStatistics = parent.getHandshakeStatistics();
+            if (handshakeStatistics != null) {
+                handshakeStatistics.taskRejected();
+            }
+            return false;
+        }
+
+        SslHandshakeStatistics handshakeStatistics = parent.getHandshakeStatistics();
+        if (handshakeStatistics != null) {
+            handshakeStatistics.taskOffloaded();
+        }
+        return true;
+    }
+
     /**
      * Do all the outstanding handshake tasks in the current Thread.
      */
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+/**
+ * Management view of SSL/TLS handshake activity for an SSL acceptor.
+ */
+public interface SslHandshakeMXBean {
+
+    /**
+     * Returns true if SSLEngine delegated tasks run on a dedicated executor rather than the I/O worker threads.
+     */
+    boolean isHandshakeOffloadEnabled();
+
+    /**
+     * Returns the number of handshakes waiting for a handshake executor thread.
+     */
+    int getHandshakeQueueDepth();
+
+    long getHandshakeTasksOffloaded();
+
+    /**
+     * Returns the number of delegated task batches that ran on the I/O worker thread because the queue was full.
+     */
+    long getHandshakeTasksRejected();
+
+    long getHandshakesCompleted();
+
+    /**
+     * Returns the number of completed handshakes that negotiated a new session.
+     */
+    long getFullHandshakes();
+
+    /**
+     * Returns the number of completed handshakes that resumed a cached session.
+     */
+    long getResumedHandshakes();
+
+    /**
+     * Returns the number of handshakes completed during the last full second.
+     */
+    long getHandshakesPerSecond();
+
+    /**
+     * Returns the mean time in milliseconds from handshake start to completion.
+     */
+    double getAverageHandshakeLatency();
+
+    double getMaximumHandshakeLatency();
+}
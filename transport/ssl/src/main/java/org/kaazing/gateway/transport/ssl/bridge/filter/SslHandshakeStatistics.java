@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handshake counters shared by the SSL filters of one acceptor.
+ */
+public class SslHandshakeStatistics implements SslHandshakeMXBean {
+
+    private static final long ONE_SECOND_NANOS = SECONDS.toNanos(1);
+
+    // note: null when handshake offload is disabled
+    private final ThreadPoolExecutor handshakeExecutor;
+
+    private final AtomicLong tasksOffloaded;
+    private final AtomicLong tasksRejected;
+
+    // guarded by this
+    private long handshakesCompleted;
+    private long resumedHandshakes;
+    private long totalLatencyNanos;
+    private long maximumLatencyNanos;
+    private long currentSecond;
+    private long currentSecondCount;
+    private long lastSecondCount;
+
+    public SslHandshakeStatistics(ThreadPoolExecutor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+        this.tasksOffloaded = new AtomicLong();
+        this.tasksRejected = new AtomicLong();
+    }
+
+    @Override
+    public boolean isHandshakeOffloadEnabled() {
+        return handshakeExecutor != null;
+    }
+
+    @Override
+    public int getHandshakeQueueDepth() {
+        return (handshakeExecutor != null) ? handshakeExecutor.getQueue().size() : 0;
+    }
+
+    @Override
+    public long getHandshakeTasksOffloaded() {
+        return tasksOffloaded.get();
+    }
+
+    @Override
+    public long getHandshakeTasksRejected() {
+        return tasksRejected.get();
+    }
+
+    @Override
+    public synchronized long getHandshakesCompleted() {
+        return handshakesCompleted;
+    }
+
+    @Override
+    public synchronized long getFullHandshakes() {
+        return handshakesCompleted - resumedHandshakes;
+    }
+
+    @Override
+    public synchronized long getResumedHandshakes() {
+        return resumedHandshakes;
+    }
+
+    @Override
+    public synchronized long getHandshakesPerSecond() {
+        long second = System.nanoTime() / ONE_SECOND_NANOS;
+        if (second == currentSecond + 1) {
+            return currentSecondCount;
+        }
+        else if (second == currentSecond) {
+            return lastSecondCount;
+        }
+        else {
+            // no handshakes completed during the last full second
+            return 0L;
+        }
+    }
+
+    @Override
+    public synchronized double getAverageHandshakeLatency() {
+        if (handshakesCompleted == 0L) {
+            return 0.0d;
+        }
+        return (double) totalLatencyNanos / handshakesCompleted / MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized double getMaximumHandshakeLatency() {
+        return (double) maximumLatencyNanos / MILLISECONDS.toNanos(1);
+    }
+
+    void taskOffloaded() {
+        tasksOffloaded.incrementAndGet();
+    }
+
+    void taskRejected() {
+        tasksRejected.incrementAndGet();
+    }
+
+    synchronized void handshakeCompleted(long latencyNanos, boolean resumed) {
+        handshakesCompleted++;
+        if (resumed) {
+            resumedHandshakes++;
+        }
+        totalLatencyNanos += latencyNanos;
+        maximumLatencyNanos = Math.max(maximumLatencyNanos, latencyNanos);
+
+        long second = System.nanoTime() / ONE_SECOND_NANOS;
+        if (second != currentSecond) {
+            lastSecondCount = (second == currentSecond + 1) ? currentSecondCount : 0L;
+            currentSecond = second;
+            currentSecondCount = 0L;
+        }
+        currentSecondCount++;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SslHandshakeStatistics [completed=%d, resumed=%d, offloaded=%d, rejected=%d, queued=%d]",
+                getHandshakesCompleted(), getResumedHandshakes(), getHandshakeTasksOffloaded(),
+                getHandshakeTasksRejected(), getHandshakeQueueDepth());
+    }
+}
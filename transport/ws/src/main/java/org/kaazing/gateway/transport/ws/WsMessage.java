@@ -31,8 +31,17 @@ public abstract class WsMessage extends Message {
         BINARY, TEXT, CONTINUATION, CLOSE, COMMAND, PING, PONG
     }
 
+    /**
+     * Reserved bit flags of the first frame byte, RSV1 being the most significant
+     */
+    public static final int RSV1 = 0x04;
+    public static final int RSV2 = 0x02;
+    public static final int RSV3 = 0x01;
+
     private final boolean fin;
 
+    private int rsv;
+
     public abstract Kind getKind();
 
     private IoBufferEx buf;
@@ -57,6 +66,17 @@ public abstract class WsMessage extends Message {
         return fin;
     }
 
+    /**
+     * Returns the reserved bits of this frame, as used by negotiated extensions (see {@link #RSV1}).
+     */
+    public int getRsv() {
+        return rsv;
+    }
+
+    public void setRsv(int rsv) {
+        this.rsv = rsv;
+    }
+
     @Override
     public int hashCode() {
         return buf.hashCode();
@@ -69,7 +89,7 @@ public abstract class WsMessage extends Message {
         }
 
         WsMessage that = (WsMessage) obj;
-        return (that.getKind() == this.getKind() && that.fin == this.fin &&
+        return (that.getKind() == this.getKind() && that.fin == this.fin && that.rsv == this.rsv &&
                 Utils.sameOrEquals(this.buf == null ? null : this.buf.buf(),
                         that.buf == null ? null : that.buf.buf())); // IoBufferEx has no equals method
     }
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static java.lang.System.getProperty;
+
+import org.apache.mina.core.filterchain.IoFilter;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeader;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeaderBuilder;
+import org.kaazing.gateway.transport.ws.extension.ExtensionParameter;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+
+/**
+ * The permessage-deflate extension (RFC 7692), which compresses the payload of data messages and flags
+ * compressed messages with RSV1.
+ *
+ * By default the server asks both endpoints not to take over the compression context between messages, so that
+ * sessions do not hold on to a compressor and decompressor while idle, and so that a message broadcast to many
+ * sessions need only be compressed once.  Context takeover (better compression of similar consecutive messages,
+ * at the cost of about 300KB of native memory per session) is enabled with the system property
+ * <tt>org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_CONTEXT_TAKEOVER=true</tt>, in which case the
+ * no context takeover parameters are only agreed to when the client offers them.
+ */
+public final class PerMessageDeflateExtension extends WebSocketExtension {
+
+    static final String EXTENSION_TOKEN = "permessage-deflate";
+
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    static final int MIN_WINDOW_BITS = 8;
+    static final int MAX_WINDOW_BITS = 15;
+
+    static final int COMPRESSION_LEVEL =
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_COMPRESSION_LEVEL", "6"));
+
+    static final boolean CONTEXT_TAKEOVER =
+            Boolean.valueOf(getProperty("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_CONTEXT_TAKEOVER", "false"));
+
+    static final int CLIENT_WINDOW_BITS = Math.max(MIN_WINDOW_BITS, Math.min(MAX_WINDOW_BITS,
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_CLIENT_MAX_WINDOW_BITS",
+                    "15"))));
+
+    // payloads smaller than this are sent uncompressed, as the saving would not be worth the effort
+    static final int MIN_COMPRESSION_SIZE =
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_MIN_SIZE", "64"));
+
+    static final PerMessageDeflatePool POOL = new PerMessageDeflatePool(COMPRESSION_LEVEL, PerMessageDeflatePool.POOL_SIZE);
+
+    private final ExtensionHeader extension;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final int maxMessageSize;
+
+    PerMessageDeflateExtension(ExtensionHeader extension, boolean serverNoContextTakeover,
+            boolean clientNoContextTakeover, int maxMessageSize) {
+        this.extension = extension;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * Builds the response to an extension negotiation offer.
+     *
+     * @param offer  the requested extension
+     * @param contextTakeover  whether the server permits context takeover
+     * @param clientWindowBits  the largest LZ77 window the client may use to compress
+     * @param maxMessageSize  the maximum decompressed message size, or 0 for no limit
+     * @return the accepted extension, or null if the offer has to be declined
+     */
+    static PerMessageDeflateExtension negotiate(ExtensionHeader offer, boolean contextTakeover, int clientWindowBits,
+            int maxMessageSize) {
+        boolean serverNoContextTakeover = !contextTakeover;
+        boolean clientNoContextTakeover = !contextTakeover;
+        Integer serverMaxWindowBits = null;
+        Integer clientMaxWindowBits = null;
+
+        for (ExtensionParameter parameter : offer.getParameters()) {
+            String name = parameter.getName();
+            String value = unquote(parameter.getValue());
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                serverNoContextTakeover = true;
+            }
+            else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                clientNoContextTakeover = true;
+            }
+            else if (SERVER_MAX_WINDOW_BITS.equals(name) && value != null) {
+                int windowBits = parseWindowBits(value);
+                // java.util.zip always compresses with a 32KB window, so a smaller window cannot be honoured
+                if (windowBits != MAX_WINDOW_BITS) {
+                    return null;
+                }
+                serverMaxWindowBits = windowBits;
+            }
+            else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                int windowBits = (value == null) ? MAX_WINDOW_BITS : parseWindowBits(value);
+                if (windowBits == -1) {
+                    return null;
+                }
+                clientMaxWindowBits = Math.min(windowBits, clientWindowBits);
+            }
+            else {
+                // unknown parameter or invalid value
+                return null;
+            }
+        }
+
+        ExtensionHeaderBuilder response = new ExtensionHeaderBuilder(EXTENSION_TOKEN);
+        if (serverNoContextTakeover) {
+            response.appendParameter(SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        if (clientNoContextTakeover) {
+            response.appendParameter(CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        if (serverMaxWindowBits != null) {
+            response.appendParameter(SERVER_MAX_WINDOW_BITS, serverMaxWindowBits.toString());
+        }
+        if (clientMaxWindowBits != null && clientMaxWindowBits < MAX_WINDOW_BITS) {
+            response.appendParameter(CLIENT_MAX_WINDOW_BITS, clientMaxWindowBits.toString());
+        }
+
+        return new PerMessageDeflateExtension(response.done(), serverNoContextTakeover, clientNoContextTakeover,
+                maxMessageSize);
+    }
+
+    @Override
+    public ExtensionHeader getExtensionHeader() {
+        return extension;
+    }
+
+    @Override
+    public IoFilter getFilter() {
+        return new PerMessageDeflateFilter(POOL, serverNoContextTakeover, clientNoContextTakeover,
+                MIN_COMPRESSION_SIZE, maxMessageSize);
+    }
+
+    @Override
+    public int getRsv() {
+        return WsMessage.RSV1;
+    }
+
+    boolean isServerNoContextTakeover() {
+        return serverNoContextTakeover;
+    }
+
+    boolean isClientNoContextTakeover() {
+        return clientNoContextTakeover;
+    }
+
+    // returns -1 if not a valid window size
+    private static int parseWindowBits(String value) {
+        if (value.length() == 0 || value.length() > 2 || value.charAt(0) == '0') {
+            return -1;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return -1;
+            }
+        }
+        int windowBits = Integer.parseInt(value);
+        return (windowBits >= MIN_WINDOW_BITS && windowBits <= MAX_WINDOW_BITS) ? windowBits : -1;
+    }
+
+    private static String unquote(String value) {
+        if (value != null && value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
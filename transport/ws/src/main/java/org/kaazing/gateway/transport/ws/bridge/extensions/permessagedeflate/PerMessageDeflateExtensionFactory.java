@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.resource.address.ws.WsResourceAddress.MAX_MESSAGE_SIZE;
+
+import java.net.ProtocolException;
+
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeader;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtensionFactorySpi;
+
+/**
+ * Negotiates permessage-deflate for native WebSocket connections.  Emulated connections carry their frames
+ * without reserved bits, so the extension is never accepted for them.
+ */
+public final class PerMessageDeflateExtensionFactory extends WebSocketExtensionFactorySpi {
+
+    @Override
+    public String getExtensionName() {
+        return PerMessageDeflateExtension.EXTENSION_TOKEN;
+    }
+
+    @Override
+    public ExtensionOrderCategory getOrderCategory() {
+        return ExtensionOrderCategory.NETWORK;
+    }
+
+    @Override
+    public WebSocketExtension negotiate(ExtensionHeader requestedExtension, WsResourceAddress address)
+            throws ProtocolException {
+        if (!isNative(address)) {
+            return null;
+        }
+
+        Integer maxMessageSize = address.getOption(MAX_MESSAGE_SIZE);
+        return PerMessageDeflateExtension.negotiate(requestedExtension, PerMessageDeflateExtension.CONTEXT_TAKEOVER,
+                PerMessageDeflateExtension.CLIENT_WINDOW_BITS, maxMessageSize != null ? maxMessageSize : 0);
+    }
+
+    private static boolean isNative(WsResourceAddress address) {
+        String scheme = address.getResource().getScheme();
+        return "wsn".equals(scheme) || "wsn+ssl".equals(scheme);
+    }
+
+}
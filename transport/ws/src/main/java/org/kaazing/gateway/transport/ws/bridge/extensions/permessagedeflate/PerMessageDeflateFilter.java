@@ -0,0 +1,405 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.transport.ws.WsMessage.RSV1;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsFilterAdapter;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsPongMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsBuffer;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsBuffer.WsSharedBuffer;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+
+/**
+ * This filter is used when the permessage-deflate extension is active.  It compresses outgoing unfragmented TEXT and
+ * BINARY messages, and decompresses incoming messages that have RSV1 set on their first frame.
+ *
+ * Without context takeover the compressor (or decompressor) is borrowed from the pool of the I/O thread for the
+ * duration of a message only.  Broadcast messages (messages with an encoding cache) are then compressed at most once
+ * per I/O thread, and the compressed message is shared by all sessions that negotiated the same parameters.
+ */
+class PerMessageDeflateFilter extends WsFilterAdapter {
+
+    // the empty stored block that terminates a sync flush, removed from the end of each compressed message
+    static final byte[] TAIL = { (byte) 0x00, (byte) 0x00, (byte) 0xff, (byte) 0xff };
+
+    static final String CACHE_KEY = PerMessageDeflateExtension.EXTENSION_TOKEN;
+
+    private final PerMessageDeflatePool pool;
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final int minCompressionSize;
+    private final int maxMessageSize;
+
+    private Deflater deflater;
+    private Inflater inflater;
+    private boolean inflating;
+    private int inflatedSize;
+
+    PerMessageDeflateFilter(PerMessageDeflatePool pool, boolean serverNoContextTakeover, boolean clientNoContextTakeover,
+            int minCompressionSize, int maxMessageSize) {
+        this.pool = pool;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.minCompressionSize = minCompressionSize;
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    @Override
+    public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        dispose();
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        dispose();
+        super.sessionClosed(nextFilter, session);
+    }
+
+    @Override
+    protected Object doFilterWriteWsText(NextFilter nextFilter, IoSession session, WriteRequest writeRequest, WsTextMessage wsText)
+            throws Exception {
+        return compress((IoSessionEx) session, wsText);
+    }
+
+    @Override
+    protected Object doFilterWriteWsBinary(NextFilter nextFilter, IoSession session, WriteRequest writeRequest,
+            WsBinaryMessage wsBinary) throws Exception {
+        return compress((IoSessionEx) session, wsBinary);
+    }
+
+    @Override
+    protected void wsTextReceived(NextFilter nextFilter, IoSession session, WsTextMessage wsText) throws Exception {
+        if ((wsText.getRsv() & RSV1) == 0) {
+            super.wsTextReceived(nextFilter, session, wsText);
+            return;
+        }
+
+        IoBufferEx payload = inflate((IoSessionEx) session, wsText, true);
+        if (payload == null) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsTextReceived(nextFilter, session, new WsTextMessage(payload, wsText.isFin()));
+    }
+
+    @Override
+    protected void wsBinaryReceived(NextFilter nextFilter, IoSession session, WsBinaryMessage wsBinary) throws Exception {
+        if ((wsBinary.getRsv() & RSV1) == 0) {
+            super.wsBinaryReceived(nextFilter, session, wsBinary);
+            return;
+        }
+
+        IoBufferEx payload = inflate((IoSessionEx) session, wsBinary, true);
+        if (payload == null) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsBinaryReceived(nextFilter, session, new WsBinaryMessage(payload, wsBinary.isFin()));
+    }
+
+    @Override
+    protected void wsContinuationReceived(NextFilter nextFilter, IoSession session, WsContinuationMessage wsCont)
+            throws Exception {
+        // RSV1 is only set on the first frame of a compressed message
+        if ((wsCont.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+
+        if (!inflating) {
+            super.wsContinuationReceived(nextFilter, session, wsCont);
+            return;
+        }
+
+        IoBufferEx payload = inflate((IoSessionEx) session, wsCont, false);
+        if (payload == null) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsContinuationReceived(nextFilter, session, new WsContinuationMessage(payload, wsCont.isFin()));
+    }
+
+    @Override
+    protected void wsPingReceived(NextFilter nextFilter, IoSession session, WsPingMessage wsPing) throws Exception {
+        if ((wsPing.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsPingReceived(nextFilter, session, wsPing);
+    }
+
+    @Override
+    protected void wsPongReceived(NextFilter nextFilter, IoSession session, WsPongMessage wsPong) throws Exception {
+        if ((wsPong.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsPongReceived(nextFilter, session, wsPong);
+    }
+
+    @Override
+    protected void wsCloseReceived(NextFilter nextFilter, IoSession session, WsCloseMessage wsClose) throws Exception {
+        if ((wsClose.getRsv() & RSV1) != 0) {
+            protocolError(nextFilter, session);
+            return;
+        }
+        super.wsCloseReceived(nextFilter, session, wsClose);
+    }
+
+    private WsMessage compress(IoSessionEx session, WsMessage message) {
+        IoBufferEx payload = message.getBytes();
+
+        // fragmented messages are sent uncompressed, as are messages already using RSV1
+        if (!message.isFin() || message.getRsv() != 0 || payload.remaining() < minCompressionSize) {
+            return message;
+        }
+
+        if (serverNoContextTakeover && message.hasCache()) {
+            // broadcast, compress once per I/O thread for all sessions
+            ConcurrentMap<String, IoBufferEx> cache = message.getCache();
+            IoBufferEx cachedBuffer = cache.get(CACHE_KEY);
+            if (cachedBuffer == null) {
+                IoBufferEx newCachedBuffer = newCachedBuffer(message);
+                cachedBuffer = cache.putIfAbsent(CACHE_KEY, newCachedBuffer);
+                if (cachedBuffer == null) {
+                    cachedBuffer = newCachedBuffer;
+                }
+            }
+            return ((WsBuffer) cachedBuffer).getMessage();
+        }
+
+        int length = deflate(payload);
+        if (serverNoContextTakeover && length >= payload.remaining()) {
+            // compression did not help, and the peer does not depend on our context
+            return message;
+        }
+
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ByteBuffer buf = allocator.allocate(length, FLAG_NONE);
+        int offset = buf.position();
+        buf.put(pool.outputScratch(length), 0, length);
+        buf.flip();
+        buf.position(offset);
+        WsMessage compressed = newMessage(message.getKind(), allocator.wrap(buf, FLAG_NONE));
+        compressed.setRsv(RSV1);
+        return compressed;
+    }
+
+    private IoBufferEx newCachedBuffer(WsMessage message) {
+        IoBufferEx payload = message.getBytes();
+        int length = deflate(payload);
+        if (length >= payload.remaining()) {
+            WsSharedBuffer uncompressed = new WsSharedBuffer(payload.buf().duplicate());
+            uncompressed.setMessage(message);
+            return uncompressed;
+        }
+
+        // the compressed message has its own cache, so that its frame is encoded once per I/O thread as well
+        WsSharedBuffer compressedBuffer = new WsSharedBuffer(ByteBuffer.wrap(Arrays.copyOf(pool.outputScratch(length), length)));
+        WsMessage compressed = newMessage(message.getKind(), compressedBuffer);
+        compressed.setRsv(RSV1);
+        compressed.initCache();
+        compressedBuffer.setMessage(compressed);
+        return compressedBuffer;
+    }
+
+    // compresses the payload into the output scratch array, returning the compressed length
+    private int deflate(IoBufferEx payload) {
+        Deflater deflater = serverNoContextTakeover ? pool.acquireDeflater() : dedicatedDeflater();
+        try {
+            ByteBuffer buf = payload.buf();
+            int length = buf.remaining();
+            if (buf.hasArray()) {
+                deflater.setInput(buf.array(), buf.arrayOffset() + buf.position(), length);
+            }
+            else {
+                byte[] input = pool.inputScratch(length);
+                buf.duplicate().get(input, 0, length);
+                deflater.setInput(input, 0, length);
+            }
+
+            byte[] output = pool.outputScratch(length + TAIL.length);
+            int outputLength = 0;
+            while (true) {
+                outputLength += deflater.deflate(output, outputLength, output.length - outputLength, Deflater.SYNC_FLUSH);
+                if (outputLength < output.length) {
+                    break;
+                }
+                output = pool.growOutputScratch(output, outputLength);
+            }
+            return outputLength - TAIL.length;
+        }
+        finally {
+            if (serverNoContextTakeover) {
+                pool.release(deflater);
+            }
+        }
+    }
+
+    // decompresses a frame of a compressed message, returning null if the frame is invalid or the message too large
+    private IoBufferEx inflate(IoSessionEx session, WsMessage message, boolean first) {
+        if (first) {
+            if (inflater == null) {
+                inflater = clientNoContextTakeover ? pool.acquireInflater() : pool.newInflater();
+            }
+            inflating = true;
+            inflatedSize = 0;
+        }
+
+        try {
+            ByteBuffer buf = message.getBytes().buf();
+            int length = buf.remaining();
+            int outputLength;
+            if (buf.hasArray()) {
+                outputLength = inflate(buf.array(), buf.arrayOffset() + buf.position(), length, 0);
+            }
+            else {
+                byte[] input = pool.inputScratch(length);
+                buf.duplicate().get(input, 0, length);
+                outputLength = inflate(input, 0, length, 0);
+            }
+
+            if (outputLength == -1) {
+                return null;
+            }
+
+            if (message.isFin()) {
+                outputLength = inflate(TAIL, 0, TAIL.length, outputLength);
+                if (outputLength == -1) {
+                    return null;
+                }
+                messageInflated();
+            }
+            else {
+                inflatedSize += outputLength;
+            }
+
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            ByteBuffer inflated = allocator.allocate(outputLength, FLAG_NONE);
+            int offset = inflated.position();
+            inflated.put(pool.outputScratch(outputLength), 0, outputLength);
+            inflated.flip();
+            inflated.position(offset);
+            return allocator.wrap(inflated, FLAG_NONE);
+        }
+        catch (DataFormatException e) {
+            return null;
+        }
+    }
+
+    // returns the new output length, or -1 if the message exceeds the maximum size
+    private int inflate(byte[] input, int offset, int length, int outputLength) throws DataFormatException {
+        inflater.setInput(input, offset, length);
+        // note: the output scratch array already holds outputLength bytes of this frame
+        byte[] output = (outputLength == 0) ? pool.outputScratch(length << 1) : pool.outputScratch(outputLength);
+        while (true) {
+            if (outputLength == output.length) {
+                output = pool.growOutputScratch(output, outputLength);
+            }
+            int inflated = inflater.inflate(output, outputLength, output.length - outputLength);
+            outputLength += inflated;
+            if (maxMessageSize > 0 && inflatedSize + outputLength > maxMessageSize) {
+                return -1;
+            }
+            if (inflated == 0) {
+                if (inflater.needsDictionary()) {
+                    throw new DataFormatException("Preset dictionary not supported");
+                }
+                if (inflater.needsInput() || inflater.finished()) {
+                    break;
+                }
+            }
+        }
+        return outputLength;
+    }
+
+    private void messageInflated() {
+        inflating = false;
+        inflatedSize = 0;
+        if (clientNoContextTakeover) {
+            pool.release(inflater);
+            inflater = null;
+        }
+        else if (inflater.finished()) {
+            // the client ended its deflate stream, start a new one
+            inflater.reset();
+        }
+    }
+
+    private Deflater dedicatedDeflater() {
+        if (deflater == null) {
+            deflater = pool.newDeflater();
+        }
+        return deflater;
+    }
+
+    private void dispose() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (inflater != null) {
+            // note: may be called from a thread other than the I/O thread, so never returned to the pool
+            inflater.end();
+            inflater = null;
+        }
+        inflating = false;
+    }
+
+    private static WsMessage newMessage(WsMessage.Kind kind, IoBufferEx payload) {
+        switch (kind) {
+        case TEXT:
+            return new WsTextMessage(payload, true);
+        case BINARY:
+            return new WsBinaryMessage(payload, true);
+        default:
+            throw new IllegalStateException("Unexpected message kind: " + kind);
+        }
+    }
+
+    private void protocolError(NextFilter nextFilter, IoSession session) {
+        nextFilter.filterWrite(session, new DefaultWriteRequestEx(WsCloseMessage.PROTOCOL_ERROR));
+        session.close(true);
+    }
+
+}
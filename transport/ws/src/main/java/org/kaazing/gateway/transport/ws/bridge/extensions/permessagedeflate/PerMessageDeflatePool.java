@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static java.lang.System.getProperty;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * Bounded per-thread pool of raw (no zlib header) Deflater and Inflater instances.
+ *
+ * Sessions that negotiated no context takeover only need a compressor for the duration of a single message,
+ * so they borrow one from the pool of the I/O thread and release it once the message is done.  This keeps the
+ * native memory used for compression proportional to the number of I/O threads rather than to the number of
+ * sessions.  When the pool of a thread is empty a new instance is created, and when it is full a released
+ * instance is ended instead of retained.
+ *
+ * The pool size per thread defaults to 32, configure it with the system property
+ * <tt>org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_POOL_SIZE</tt>.
+ */
+final class PerMessageDeflatePool {
+
+    static final int POOL_SIZE =
+            Integer.parseInt(getProperty("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_POOL_SIZE", "32"));
+
+    private static final int INITIAL_SCRATCH_SIZE = 8192;
+
+    private final int level;
+    private final int poolSize;
+    private final ThreadLocal<Arena> arenaRef;
+
+    PerMessageDeflatePool(int level, int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("poolSize must not be negative: " + poolSize);
+        }
+        this.level = level;
+        this.poolSize = poolSize;
+        this.arenaRef = new VicariousThreadLocal<Arena>() {
+            @Override
+            protected Arena initialValue() {
+                return new Arena();
+            }
+        };
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns a raw Deflater in its initial state, which must be passed to {@link #release(Deflater)}
+     * on the same thread once done.
+     */
+    Deflater acquireDeflater() {
+        Arena arena = arenaRef.get();
+        if (arena.deflaterCount > 0) {
+            Deflater deflater = arena.deflaters[--arena.deflaterCount];
+            arena.deflaters[arena.deflaterCount] = null;
+            return deflater;
+        }
+        return newDeflater();
+    }
+
+    void release(Deflater deflater) {
+        Arena arena = arenaRef.get();
+        if (arena.deflaterCount < poolSize) {
+            deflater.reset();
+            arena.deflaters[arena.deflaterCount++] = deflater;
+        }
+        else {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns a raw Inflater in its initial state, which must be passed to {@link #release(Inflater)}
+     * on the same thread once done.
+     */
+    Inflater acquireInflater() {
+        Arena arena = arenaRef.get();
+        if (arena.inflaterCount > 0) {
+            Inflater inflater = arena.inflaters[--arena.inflaterCount];
+            arena.inflaters[arena.inflaterCount] = null;
+            return inflater;
+        }
+        return newInflater();
+    }
+
+    void release(Inflater inflater) {
+        Arena arena = arenaRef.get();
+        if (arena.inflaterCount < poolSize) {
+            inflater.reset();
+            arena.inflaters[arena.inflaterCount++] = inflater;
+        }
+        else {
+            inflater.end();
+        }
+    }
+
+    Deflater newDeflater() {
+        return new Deflater(level, true);
+    }
+
+    Inflater newInflater() {
+        return new Inflater(true);
+    }
+
+    /**
+     * Returns the input scratch array of the calling thread, grown to at least the minimum capacity.
+     * The content is only valid until the next call on the same thread.
+     */
+    byte[] inputScratch(int minCapacity) {
+        Arena arena = arenaRef.get();
+        if (arena.input.length < minCapacity) {
+            arena.input = new byte[Math.max(minCapacity, arena.input.length << 1)];
+        }
+        return arena.input;
+    }
+
+    /**
+     * Returns the output scratch array of the calling thread, grown to at least the minimum capacity.
+     * The content is only valid until the next call on the same thread.
+     */
+    byte[] outputScratch(int minCapacity) {
+        Arena arena = arenaRef.get();
+        if (arena.output.length < minCapacity) {
+            arena.output = new byte[Math.max(minCapacity, arena.output.length << 1)];
+        }
+        return arena.output;
+    }
+
+    /**
+     * Returns the output scratch array with double the capacity, preserving the first length bytes.
+     */
+    byte[] growOutputScratch(byte[] output, int length) {
+        Arena arena = arenaRef.get();
+        byte[] newOutput = new byte[output.length << 1];
+        System.arraycopy(output, 0, newOutput, 0, length);
+        arena.output = newOutput;
+        return newOutput;
+    }
+
+    // note: only accessed by the owning thread
+    private final class Arena {
+        private final Deflater[] deflaters = new Deflater[poolSize];
+        private final Inflater[] inflaters = new Inflater[poolSize];
+        private int deflaterCount;
+        private int inflaterCount;
+        private byte[] input = new byte[INITIAL_SCRATCH_SIZE];
+        private byte[] output = new byte[INITIAL_SCRATCH_SIZE];
+    }
+}
@@ -21,6 +21,7 @@
 
 package org.kaazing.gateway.transport.ws.bridge.filter;
 
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_POOLED;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
 
@@ -63,7 +64,8 @@ public abstract class AbstractWsFrameEncoder extends ProtocolEncoderAdapter {
             IoBufferEx buf = cachingEncoder.encode(encoder, wsMessage, allocator, FLAG_SHARED | FLAG_ZERO_COPY);
             out.write(buf);
         } else {
-            IoBufferEx buf = doEncode(allocator, FLAG_ZERO_COPY, wsMessage);
+            // frame is written exactly once, so it can be returned to the pool when the write completes
+            IoBufferEx buf = doEncode(allocator, FLAG_ZERO_COPY | FLAG_POOLED, wsMessage);
             out.write(buf);
         }
     }
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.filter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Streaming UTF-8 validator, used to validate text messages frame by frame as they are decoded.
+ *
+ * A sequence may be split across buffers (for example across the frames of a fragmented message), so the validator
+ * keeps the bytes still expected for the current sequence between calls.  Runs of ASCII are skipped 8 bytes at a time.
+ * Overlong encodings, surrogates and code points above U+10FFFF are invalid, as required by RFC 3629.
+ *
+ * Not thread-safe, use one validator per session.
+ */
+final class Utf8Validator {
+
+    private static final long ASCII_MASK = 0x8080808080808080L;
+
+    // continuation bytes still expected in the current sequence, and the valid range of the next one
+    private int remaining;
+    private int lowerBound = 0x80;
+    private int upperBound = 0xbf;
+
+    /**
+     * Validates the remaining bytes of the buffer, without changing its position.
+     *
+     * @return false if the bytes are not valid UTF-8
+     */
+    boolean validate(ByteBuffer buf) {
+        int limit = buf.limit();
+        int i = buf.position();
+        while (i < limit) {
+            if (remaining == 0) {
+                while (i + 8 <= limit && (buf.getLong(i) & ASCII_MASK) == 0L) {
+                    i += 8;
+                }
+                if (i == limit) {
+                    break;
+                }
+
+                int b = buf.get(i++) & 0xff;
+                if (b < 0x80) {
+                    continue;
+                }
+                else if (b < 0xc2) {
+                    // continuation byte, or lead byte of an overlong 2 byte sequence
+                    return false;
+                }
+                else if (b < 0xe0) {
+                    remaining = 1;
+                }
+                else if (b < 0xf0) {
+                    remaining = 2;
+                    lowerBound = (b == 0xe0) ? 0xa0 : 0x80;   // overlong
+                    upperBound = (b == 0xed) ? 0x9f : 0xbf;   // surrogates
+                }
+                else if (b < 0xf5) {
+                    remaining = 3;
+                    lowerBound = (b == 0xf0) ? 0x90 : 0x80;   // overlong
+                    upperBound = (b == 0xf4) ? 0x8f : 0xbf;   // above U+10FFFF
+                }
+                else {
+                    return false;
+                }
+            }
+            else {
+                int b = buf.get(i++) & 0xff;
+                if (b < lowerBound || b > upperBound) {
+                    return false;
+                }
+                remaining--;
+                lowerBound = 0x80;
+                upperBound = 0xbf;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the bytes validated so far do not end part way through a sequence.
+     */
+    boolean isComplete() {
+        return remaining == 0;
+    }
+
+    void reset() {
+        remaining = 0;
+        lowerBound = 0x80;
+        upperBound = 0xbf;
+    }
+}
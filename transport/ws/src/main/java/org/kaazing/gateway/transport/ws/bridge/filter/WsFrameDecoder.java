@@ -21,11 +21,16 @@
 
 package org.kaazing.gateway.transport.ws.bridge.filter;
 
+import static java.lang.System.getProperty;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.BINARY;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.CONTINUATION;
 import static org.kaazing.gateway.transport.ws.WsMessage.Kind.TEXT;
 
+import static org.kaazing.gateway.transport.ws.util.WsUtils.ACTIVE_EXTENSIONS_KEY;
+
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
 
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolDecoderException;
@@ -33,25 +38,42 @@ import org.apache.mina.filter.codec.ProtocolDecoderOutput;
 import org.kaazing.gateway.transport.ws.WsBinaryMessage;
 import org.kaazing.gateway.transport.ws.WsCloseMessage;
 import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.gateway.transport.ws.WsMessage.Kind;
 import org.kaazing.gateway.transport.ws.WsPingMessage;
 import org.kaazing.gateway.transport.ws.WsPongMessage;
 import org.kaazing.gateway.transport.ws.WsTextMessage;
 import org.kaazing.gateway.transport.ws.bridge.filter.WsFrameEncodingSupport.Opcode;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.filter.codec.CumulativeProtocolDecoderEx;
 
 public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
 
+    /**
+     * Text messages are validated as UTF-8 frame by frame, unless disabled with the system property
+     * <tt>org.kaazing.gateway.transport.ws.UTF8_VALIDATION=false</tt>.  Messages with RSV bits set (for example
+     * compressed by permessage-deflate) are not validated, as their payload is not the text itself.
+     */
+    static final boolean UTF8_VALIDATION =
+            Boolean.valueOf(getProperty("org.kaazing.gateway.transport.ws.UTF8_VALIDATION", "true"));
+
     private final int maxMessageSize;
+    private final Utf8Validator utf8Validator;
     private BinaryTextMessageDecoder binaryTextDecoder = DEFAULT_BINARY_TEXT_DECODER;
     private boolean prevDataFin = true;
     private long currentMessageSize;           // accumulates frame sizes of a message
+    private boolean validatingText;            // current message is text being validated as UTF-8
 
     WsFrameDecoder(IoBufferAllocatorEx<?> allocator, int maxMessageSize) {
+        this(allocator, maxMessageSize, UTF8_VALIDATION);
+    }
+
+    WsFrameDecoder(IoBufferAllocatorEx<?> allocator, int maxMessageSize, boolean validateUtf8) {
         super(allocator);
         this.maxMessageSize = maxMessageSize;
+        this.utf8Validator = validateUtf8 ? new Utf8Validator() : null;
     }
 
     @Override
@@ -63,7 +85,10 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         in.mark();
 
         byte opcodeByte = in.get();
-        validateRSV(opcodeByte);
+        int rsv = (opcodeByte >> 4) & 0x07;
+        if (rsv != 0) {
+            validateRSV(opcodeByte, getNegotiatedRsv(session));
+        }
 
         int i = (opcodeByte & 0x0f);
         Opcode opcode;
@@ -133,25 +158,37 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
 
         switch (opcode) {
             case CONTINUATION:
-                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, out);
+                if (validatingText) {
+                    validateText(buf, fin);
+                }
+                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case BINARY:
-                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, out);
+                validatingText = false;
+                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case TEXT:
-                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, out);
+                validatingText = (utf8Validator != null) && (rsv == 0);
+                if (validatingText) {
+                    validateText(buf, fin);
+                }
+                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case PING:
-                out.write(new WsPingMessage(buf));
+                WsPingMessage ping = new WsPingMessage(buf);
+                ping.setRsv(rsv);
+                out.write(ping);
                 break;
             case PONG:
-                out.write(new WsPongMessage(buf));
+                WsPongMessage pong = new WsPongMessage(buf);
+                pong.setRsv(rsv);
+                out.write(pong);
                 break;
             case CLOSE:
                 WsCloseMessage close;
@@ -162,6 +199,7 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
                 } else {
                     close = new WsCloseMessage();
                 }
+                close.setRsv(rsv);
                 out.write(close);
                 break;
             default:
@@ -198,67 +236,64 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         }
     }
 
-    // Validates RSV bits
-    private void validateRSV(byte opcodeByte) throws ProtocolDecoderException {
-        if ((opcodeByte & 0x70) != 0) {
-            // We don't support for negotiated extensions that deal with RSV bits
-            if ((opcodeByte & 0x40) != 0) {
-                throw new ProtocolDecoderException("RSV1 is set");
-            }
-            if ((opcodeByte & 0x20) != 0) {
-                throw new ProtocolDecoderException("RSV2 is set");
-            }
-            if ((opcodeByte & 0x10) != 0) {
-                throw new ProtocolDecoderException("RSV3 is set");
-            }
+    // Validates RSV bits, which are only permitted when a negotiated extension defines them
+    private void validateRSV(byte opcodeByte, int negotiatedRsv) throws ProtocolDecoderException {
+        if ((opcodeByte & 0x40) != 0 && (negotiatedRsv & WsMessage.RSV1) == 0) {
+            throw new ProtocolDecoderException("RSV1 is set");
+        }
+        if ((opcodeByte & 0x20) != 0 && (negotiatedRsv & WsMessage.RSV2) == 0) {
+            throw new ProtocolDecoderException("RSV2 is set");
+        }
+        if ((opcodeByte & 0x10) != 0 && (negotiatedRsv & WsMessage.RSV3) == 0) {
+            throw new ProtocolDecoderException("RSV3 is set");
         }
     }
 
+    // Validates the payload of a text frame as UTF-8, continuing any sequence split across frames
+    private void validateText(IoBufferEx payload, boolean fin) throws ProtocolDecoderException {
+        if (!utf8Validator.validate(payload.buf()) || (fin && !utf8Validator.isComplete())) {
+            utf8Validator.reset();
+            validatingText = false;
+            throw new ProtocolDecoderException("Invalid UTF-8 in text message");
+        }
+        if (fin) {
+            validatingText = false;
+        }
+    }
+
+    private static int getNegotiatedRsv(IoSession session) {
+        int negotiatedRsv = 0;
+        List<WebSocketExtension> extensions = ACTIVE_EXTENSIONS_KEY.get(session);
+        for (WebSocketExtension extension : extensions) {
+            negotiatedRsv |= extension.getRsv();
+        }
+        return negotiatedRsv;
+    }
+
     /*
-     * Unmask a buffer in place
+     * Unmask a buffer in place, 8 bytes at a time as long as possible
      */
     protected static void unmask(ByteBuffer buf, int mask) {
-        if (!buf.hasRemaining()) {
-            return;
+        int position = buf.position();
+        int limit = buf.limit();
+
+        // the mask repeats every 4 bytes, so a long holds it twice (in the byte order of the buffer)
+        int orderedMask = (buf.order() == ByteOrder.BIG_ENDIAN) ? mask : Integer.reverseBytes(mask);
+        long longMask = ((long) orderedMask << 32) | (orderedMask & 0xffffffffL);
+        int longEnd = limit - 7;
+        for (; position < longEnd; position += 8) {
+            buf.putLong(position, buf.getLong(position) ^ longMask);
         }
 
-        byte b;
-        int start = buf.position();
-        int remainder = buf.remaining() % 4;
-        int remaining = buf.remaining() - remainder;
-        int end = remaining + buf.position();
-
-        // xor a 32bit word at a time as long as possible
-        while (buf.position() < end) {
-            int plaintext = buf.getInt(buf.position()) ^ mask;
-            buf.putInt(plaintext);
+        if (position + 4 <= limit) {
+            buf.putInt(position, buf.getInt(position) ^ orderedMask);
+            position += 4;
         }
 
-        // xor the remaining 3, 2, or 1 bytes
-        switch (remainder) {
-        case 3:
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 24) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 16) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 8) & 0xff));
-            buf.put(b);
-            break;
-        case 2:
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 24) & 0xff));
-            buf.put(b);
-            b = (byte) (buf.get(buf.position()) ^ ((mask >> 16) & 0xff));
-            buf.put(b);
-            break;
-        case 1:
-            b = (byte) (buf.get(buf.position()) ^ (mask >> 24));
-            buf.put(b);
-            break;
-        case 0:
-        default:
-                break;
+        // xor the remaining 3, 2, or 1 bytes, starting again from the first byte of the mask
+        for (int shift = 24; position < limit; position++, shift -= 8) {
+            buf.put(position, (byte) (buf.get(position) ^ (mask >>> shift)));
         }
-        buf.position(start);
     }
 
     private void validateMessageSize(long messageSize) throws ProtocolDecoderException {
@@ -289,25 +324,28 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
     }
 
     private interface BinaryTextMessageDecoder {
-        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out);
+        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out);
     }
 
     private static final BinaryTextMessageDecoder DEFAULT_BINARY_TEXT_DECODER = new BinaryTextMessageDecoder() {
         @Override
-        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out) {
+        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out) {
+            WsMessage message;
             switch(messageKind) {
             case CONTINUATION:
-                out.write(new WsContinuationMessage(payload, fin));
+                message = new WsContinuationMessage(payload, fin);
                 break;
             case BINARY:
-                out.write(new WsBinaryMessage(payload, fin));
+                message = new WsBinaryMessage(payload, fin);
                 break;
             case TEXT:
-                out.write(new WsTextMessage(payload, fin));
+                message = new WsTextMessage(payload, fin);
                 break;
             default:
-                assert false;
+                throw new IllegalStateException("Unexpected message kind: " + messageKind);
             }
+            message.setRsv(rsv);
+            out.write(message);
         }
     };
 
@@ -237,6 +237,9 @@ public class WsFrameEncodingSupport {
     private static byte doEncodeOpcode(byte b, WsMessage message) {
         Kind kind = message.getKind();
 
+        // reserved bits sit between FIN and the opcode
+        b |= (message.getRsv() & 0x07) << 4;
+
         switch (kind) {
         case CONTINUATION:
             b |= Opcode.CONTINUATION.getCode();
@@ -46,4 +46,13 @@ public abstract class WebSocketExtension {
         return null;
     };
 
+    /**
+     * Returns the frame reserved bits this extension gives a meaning to, for example {@link WsMessage#RSV1} for
+     * compression. Frames received with reserved bits set that no negotiated extension claims fail the connection.
+     * @return A combination of {@link WsMessage#RSV1}, {@link WsMessage#RSV2} and {@link WsMessage#RSV3}, or 0 if none
+     */
+    public int getRsv() {
+        return 0;
+    }
+
 }
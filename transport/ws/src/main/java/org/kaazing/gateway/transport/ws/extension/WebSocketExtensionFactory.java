@@ -85,14 +85,18 @@ public final class WebSocketExtensionFactory {
             LinkedList<WebSocketExtension> acceptedExtensions = new LinkedList<>();
 
             // Orders the extensions based on SPI preferences, and then order that they came in
+            // An extension can be offered more than once with different parameters, the first acceptable offer wins
+            Set<String> acceptedTokens = new HashSet<>();
+
             for(Set<ExtensionHeader> extensionHeaders: extensionHeadersByCategory.values()){
                 for (ExtensionHeader candidate : requestedExtensions) {
-                    if(extensionHeaders.contains(candidate)){
+                    if(extensionHeaders.contains(candidate) && !acceptedTokens.contains(candidate.getExtensionToken())){
                         WebSocketExtensionFactorySpi extension = factoriesRO.get(candidate.getExtensionToken());
                         WebSocketExtension acceptedExtension = extension.negotiate(candidate, address);
                         // negotiated can be null if the extension doesn't want to be active
                         if (acceptedExtension != null) {
                             acceptedExtensions.add(acceptedExtension);
+                            acceptedTokens.add(candidate.getExtensionToken());
                         }
                     }
                 }
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeaderBuilder;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtensionFactorySpi.ExtensionOrderCategory;
+
+public class PerMessageDeflateExtensionFactoryTest {
+
+    private final PerMessageDeflateExtensionFactory factory = new PerMessageDeflateExtensionFactory();
+
+    @Test
+    public void shouldBeNetworkExtension() throws Exception {
+        assertEquals("permessage-deflate", factory.getExtensionName());
+        assertEquals(ExtensionOrderCategory.NETWORK, factory.getOrderCategory());
+    }
+
+    @Test
+    public void shouldNotNegotiateForEmulatedAddress() throws Exception {
+        URI addressURI = URI.create("wse://localhost:2020/");
+        Map<String, Object> options = new HashMap<>();
+        WsResourceAddress address = (WsResourceAddress) ResourceAddressFactory.newResourceAddressFactory()
+                .newResourceAddress(addressURI, options);
+        assertNull(factory.negotiate(new ExtensionHeaderBuilder("permessage-deflate").done(), address));
+    }
+
+}
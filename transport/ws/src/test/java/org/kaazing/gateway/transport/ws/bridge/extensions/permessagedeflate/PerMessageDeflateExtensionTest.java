@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeaderBuilder;
+
+public class PerMessageDeflateExtensionTest {
+
+    @Test
+    public void shouldRequestNoContextTakeoverByDefault() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate", false, 15);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                extension.getExtensionHeader().toString());
+        assertTrue(extension.isServerNoContextTakeover());
+        assertTrue(extension.isClientNoContextTakeover());
+    }
+
+    @Test
+    public void shouldAcceptOfferWithoutParametersWhenContextTakeoverPermitted() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate", true, 15);
+        assertEquals("permessage-deflate", extension.getExtensionHeader().toString());
+        assertFalse(extension.isServerNoContextTakeover());
+        assertFalse(extension.isClientNoContextTakeover());
+    }
+
+    @Test
+    public void shouldHonourNoContextTakeoverOffersWhenContextTakeoverPermitted() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate; server_no_context_takeover", true, 15);
+        assertEquals("permessage-deflate; server_no_context_takeover", extension.getExtensionHeader().toString());
+        assertTrue(extension.isServerNoContextTakeover());
+        assertFalse(extension.isClientNoContextTakeover());
+    }
+
+    @Test
+    public void shouldEchoServerMaxWindowBitsOf15() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate; server_max_window_bits=15", false, 15);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover; server_max_window_bits=15",
+                extension.getExtensionHeader().toString());
+    }
+
+    @Test
+    public void shouldDeclineSmallerServerMaxWindowBits() throws Exception {
+        assertNull(negotiate("permessage-deflate; server_max_window_bits=10", false, 15));
+    }
+
+    @Test
+    public void shouldLimitClientMaxWindowBits() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate; client_max_window_bits", false, 10);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover; client_max_window_bits=10",
+                extension.getExtensionHeader().toString());
+    }
+
+    @Test
+    public void shouldAcceptSmallerClientMaxWindowBits() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate; client_max_window_bits=\"9\"", false, 10);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover; client_max_window_bits=9",
+                extension.getExtensionHeader().toString());
+    }
+
+    @Test
+    public void shouldOmitClientMaxWindowBitsWhenNotLimited() throws Exception {
+        PerMessageDeflateExtension extension = negotiate("permessage-deflate; client_max_window_bits", false, 15);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                extension.getExtensionHeader().toString());
+    }
+
+    @Test
+    public void shouldDeclineInvalidWindowBits() throws Exception {
+        assertNull(negotiate("permessage-deflate; client_max_window_bits=16", false, 15));
+        assertNull(negotiate("permessage-deflate; client_max_window_bits=010", false, 15));
+        assertNull(negotiate("permessage-deflate; server_max_window_bits", false, 15));
+    }
+
+    @Test
+    public void shouldDeclineUnknownParameter() throws Exception {
+        assertNull(negotiate("permessage-deflate; mux", false, 15));
+    }
+
+    @Test
+    public void shouldDeclineNoContextTakeoverWithValue() throws Exception {
+        assertNull(negotiate("permessage-deflate; server_no_context_takeover=1", false, 15));
+    }
+
+    @Test
+    public void shouldUseRsv1() throws Exception {
+        assertEquals(WsMessage.RSV1, negotiate("permessage-deflate", false, 15).getRsv());
+    }
+
+    private static PerMessageDeflateExtension negotiate(String offer, boolean contextTakeover, int clientWindowBits) {
+        return PerMessageDeflateExtension.negotiate(new ExtensionHeaderBuilder(offer).done(), contextTakeover,
+                clientWindowBits, 0);
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.ws.WsMessage.RSV1;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.kaazing.gateway.transport.test.Expectations;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+
+public class PerMessageDeflateFilterTest {
+    private static final byte[] TEXT;
+    private static final byte[] SHORT_TEXT = "ABC".getBytes(UTF_8);
+
+    static {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append("Hello, permessage-deflate ").append(i % 10).append('\n');
+        }
+        TEXT = text.toString().getBytes(UTF_8);
+    }
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    final IoSessionEx session = context.mock(IoSessionEx.class);
+    final NextFilter nextFilter = context.mock(NextFilter.class);
+
+    private final PerMessageDeflatePool pool = new PerMessageDeflatePool(6, 2);
+
+    @Before
+    public void before() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(session).getBufferAllocator(); will(returnValue(BUFFER_ALLOCATOR));
+            }
+        });
+    }
+
+    @Test
+    public void shouldCompressAndDecompressTextMessage() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsMessage compressed = (WsMessage) filter.doFilterWriteWsText(nextFilter, session, null, new WsTextMessage(wrap(TEXT)));
+        assertEquals(RSV1, compressed.getRsv());
+        assertTrue(compressed.getBytes().remaining() < TEXT.length);
+
+        final WsTextMessage expected = new WsTextMessage(wrap(TEXT));
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).messageReceived(session, expected);
+            }
+        });
+        filter.messageReceived(nextFilter, session, compressed);
+    }
+
+    @Test
+    public void shouldCompressAndDecompressWithContextTakeover() throws Exception {
+        PerMessageDeflateFilter sender = new PerMessageDeflateFilter(pool, false, false, 64, 0);
+        PerMessageDeflateFilter receiver = new PerMessageDeflateFilter(pool, false, false, 64, 0);
+        final WsBinaryMessage expected = new WsBinaryMessage(wrap(TEXT));
+        context.checking(new Expectations() {
+            {
+                exactly(2).of(nextFilter).messageReceived(session, expected);
+            }
+        });
+
+        WsMessage first = (WsMessage) sender.doFilterWriteWsBinary(nextFilter, session, null, new WsBinaryMessage(wrap(TEXT)));
+        WsMessage second = (WsMessage) sender.doFilterWriteWsBinary(nextFilter, session, null, new WsBinaryMessage(wrap(TEXT)));
+
+        // the second message refers back to the first
+        assertTrue(second.getBytes().remaining() < first.getBytes().remaining());
+        receiver.messageReceived(nextFilter, session, first);
+        receiver.messageReceived(nextFilter, session, second);
+    }
+
+    @Test
+    public void shouldDecompressFragmentedMessage() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsMessage compressed = (WsMessage) filter.doFilterWriteWsText(nextFilter, session, null, new WsTextMessage(wrap(TEXT)));
+        ByteBuffer payload = compressed.getBytes().buf();
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        int split = bytes.length / 2;
+        WsTextMessage first = new WsTextMessage(wrap(bytes, 0, split), false);
+        first.setRsv(RSV1);
+        WsContinuationMessage last = new WsContinuationMessage(wrap(bytes, split, bytes.length - split), true);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).messageReceived(with(session), with(any(WsTextMessage.class)));
+                oneOf(nextFilter).messageReceived(with(session), with(any(WsContinuationMessage.class)));
+            }
+        });
+        filter.messageReceived(nextFilter, session, first);
+        filter.messageReceived(nextFilter, session, last);
+    }
+
+    @Test
+    public void shouldCompressBroadcastMessageOnce() throws Exception {
+        WsTextMessage message = new WsTextMessage(wrap(TEXT));
+        message.initCache();
+
+        Object compressed1 = new PerMessageDeflateFilter(pool, true, true, 64, 0)
+                .doFilterWriteWsText(nextFilter, session, null, message);
+        Object compressed2 = new PerMessageDeflateFilter(pool, true, true, 64, 0)
+                .doFilterWriteWsText(nextFilter, session, null, message);
+
+        assertSame(compressed1, compressed2);
+        assertTrue(((WsMessage) compressed1).hasCache());
+    }
+
+    @Test
+    public void shouldNotCompressShortMessage() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsTextMessage message = new WsTextMessage(wrap(SHORT_TEXT));
+        assertSame(message, filter.doFilterWriteWsText(nextFilter, session, null, message));
+    }
+
+    @Test
+    public void shouldNotCompressFragmentedMessage() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsTextMessage message = new WsTextMessage(wrap(TEXT), false);
+        assertSame(message, filter.doFilterWriteWsText(nextFilter, session, null, message));
+    }
+
+    @Test
+    public void shouldPassUncompressedMessage() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        final WsTextMessage message = new WsTextMessage(wrap(TEXT));
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).messageReceived(session, message);
+            }
+        });
+        filter.messageReceived(nextFilter, session, message);
+    }
+
+    @Test
+    public void shouldFailOnRsv1ControlFrame() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsPingMessage ping = new WsPingMessage(wrap(SHORT_TEXT));
+        ping.setRsv(RSV1);
+        expectProtocolError();
+        filter.messageReceived(nextFilter, session, ping);
+    }
+
+    @Test
+    public void shouldFailOnInvalidCompressedData() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, 0);
+        WsBinaryMessage message = new WsBinaryMessage(wrap(new byte[] { (byte) 0xff, (byte) 0xff, 0x01, 0x02 }));
+        message.setRsv(RSV1);
+        expectProtocolError();
+        filter.messageReceived(nextFilter, session, message);
+    }
+
+    @Test
+    public void shouldFailWhenDecompressedMessageTooLarge() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(pool, true, true, 64, TEXT.length - 1);
+        WsMessage compressed = (WsMessage) filter.doFilterWriteWsText(nextFilter, session, null, new WsTextMessage(wrap(TEXT)));
+        expectProtocolError();
+        filter.messageReceived(nextFilter, session, compressed);
+    }
+
+    private void expectProtocolError() {
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.PROTOCOL_ERROR)));
+                oneOf(session).close(true);
+            }
+        });
+    }
+
+    private static IoBufferEx wrap(byte[] bytes) {
+        return BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    private static IoBufferEx wrap(byte[] bytes, int offset, int length) {
+        return BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(bytes, offset, length));
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+public class PerMessageDeflatePoolTest {
+
+    @Test
+    public void shouldReuseReleasedDeflater() throws Exception {
+        PerMessageDeflatePool pool = new PerMessageDeflatePool(6, 1);
+        Deflater deflater = pool.acquireDeflater();
+        pool.release(deflater);
+        assertSame(deflater, pool.acquireDeflater());
+    }
+
+    @Test
+    public void shouldNotRetainMoreThanPoolSize() throws Exception {
+        PerMessageDeflatePool pool = new PerMessageDeflatePool(6, 1);
+        Inflater first = pool.acquireInflater();
+        Inflater second = pool.acquireInflater();
+        pool.release(first);
+        pool.release(second);
+        assertSame(first, pool.acquireInflater());
+        assertNotSame(second, pool.acquireInflater());
+    }
+
+    @Test
+    public void shouldNotShareAcrossThreads() throws Exception {
+        final PerMessageDeflatePool pool = new PerMessageDeflatePool(6, 1);
+        final Deflater deflater = pool.acquireDeflater();
+        pool.release(deflater);
+        final Deflater[] acquired = new Deflater[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                acquired[0] = pool.acquireDeflater();
+            }
+        };
+        thread.start();
+        thread.join();
+        assertNotSame(deflater, acquired[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativePoolSize() throws Exception {
+        new PerMessageDeflatePool(6, -1);
+    }
+}
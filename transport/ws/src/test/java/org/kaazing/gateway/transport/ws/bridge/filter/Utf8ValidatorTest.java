@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.ws.bridge.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+public class Utf8ValidatorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void shouldValidateAscii() throws Exception {
+        Utf8Validator validator = new Utf8Validator();
+        ByteBuffer buf = ByteBuffer.wrap("Hello, WebSocket world!".getBytes(UTF_8));
+
+        assertTrue(validator.validate(buf));
+        assertTrue(validator.isComplete());
+        assertEquals(0, buf.position());
+    }
+
+    @Test
+    public void shouldValidateMultiByteSequences() throws Exception {
+        Utf8Validator validator = new Utf8Validator();
+        String text = "caf\u00e9 \u20ac \ud83d\ude00 plain ascii after the multi-byte characters";
+
+        assertTrue(validator.validate(ByteBuffer.wrap(text.getBytes(UTF_8))));
+        assertTrue(validator.isComplete());
+    }
+
+    @Test
+    public void shouldValidateSequenceSplitAcrossBuffers() throws Exception {
+        byte[] bytes = "a\ud83d\ude00b".getBytes(UTF_8);
+        for (int split = 0; split <= bytes.length; split++) {
+            Utf8Validator validator = new Utf8Validator();
+            assertTrue(validator.validate(ByteBuffer.wrap(bytes, 0, split)));
+            assertEquals(split < 2 || split > 4, validator.isComplete());
+            assertTrue(validator.validate(ByteBuffer.wrap(bytes, split, bytes.length - split)));
+            assertTrue(validator.isComplete());
+        }
+    }
+
+    @Test
+    public void shouldReportIncompleteSequence() throws Exception {
+        Utf8Validator validator = new Utf8Validator();
+
+        assertTrue(validator.validate(ByteBuffer.wrap(new byte[] { (byte) 0xe2, (byte) 0x82 })));
+        assertFalse(validator.isComplete());
+
+        validator.reset();
+        assertTrue(validator.isComplete());
+    }
+
+    @Test
+    public void shouldRejectUnexpectedContinuationByte() throws Exception {
+        assertInvalid(0x61, 0x80);
+    }
+
+    @Test
+    public void shouldRejectOverlongEncodings() throws Exception {
+        assertInvalid(0xc0, 0xaf);
+        assertInvalid(0xe0, 0x80, 0xaf);
+        assertInvalid(0xf0, 0x80, 0x80, 0xaf);
+    }
+
+    @Test
+    public void shouldRejectSurrogates() throws Exception {
+        assertInvalid(0xed, 0xa0, 0x80);
+        assertInvalid(0xed, 0xbf, 0xbf);
+    }
+
+    @Test
+    public void shouldRejectCodePointsAboveMaximum() throws Exception {
+        assertInvalid(0xf4, 0x90, 0x80, 0x80);
+        assertInvalid(0xf5, 0x80, 0x80, 0x80);
+    }
+
+    @Test
+    public void shouldRejectInvalidByteAfterAsciiRun() throws Exception {
+        byte[] bytes = "0123456789abcdef0123".getBytes(UTF_8);
+        bytes[17] = (byte) 0xff;
+        assertFalse(new Utf8Validator().validate(ByteBuffer.wrap(bytes)));
+    }
+
+    @Test
+    public void shouldValidateDirectBuffer() throws Exception {
+        byte[] bytes = "direct buffer caf\u00e9 \u20ac".getBytes(UTF_8);
+        ByteBuffer buf = ByteBuffer.allocateDirect(bytes.length);
+        buf.put(bytes).flip();
+
+        Utf8Validator validator = new Utf8Validator();
+        assertTrue(validator.validate(buf));
+        assertTrue(validator.isComplete());
+    }
+
+    private static void assertInvalid(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        assertFalse(new Utf8Validator().validate(ByteBuffer.wrap(bytes)));
+    }
+}
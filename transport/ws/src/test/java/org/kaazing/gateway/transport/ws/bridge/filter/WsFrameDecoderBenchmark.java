@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2007-2014 Kaazing Corporation. All rights reserved.
+ * 
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.kaazing.gateway.transport.ws.bridge.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+/**
+ * Measures unmasking of binary payloads (8 bytes at a time, against the previous 4 bytes at a time) and UTF-8
+ * validation of text payloads (streaming validator, against a CharsetDecoder), for heap and direct buffers.
+ *
+ * Run with: java -cp ... org.kaazing.gateway.transport.ws.bridge.filter.WsFrameDecoderBenchmark
+ */
+public class WsFrameDecoderBenchmark {
+
+    private static final int[] PAYLOAD_SIZES = { 64, 1024, 64 * 1024 };
+    private static final long BYTES_PER_RUN = 512L * 1024 * 1024;
+    private static final int MASK = 0x37fa213d;
+
+    public static void main(String... args) throws Exception {
+        for (int size : PAYLOAD_SIZES) {
+            for (boolean direct : new boolean[] { false, true }) {
+                ByteBuffer binary = allocate(size, direct);
+                ByteBuffer text = allocate(size, direct);
+                byte[] textBytes = createText(size);
+                text.put(textBytes).flip();
+
+                // warm up
+                unmaskInts(binary, 1);
+                unmaskLongs(binary, 1);
+                validate(text, 1);
+                decode(text, 1);
+
+                int iterations = (int) (BYTES_PER_RUN / size);
+                report("unmask int", size, direct, unmaskInts(binary, iterations));
+                report("unmask long", size, direct, unmaskLongs(binary, iterations));
+                report("utf8 decoder", size, direct, decode(text, iterations));
+                report("utf8 validator", size, direct, validate(text, iterations));
+            }
+        }
+    }
+
+    private static long unmaskInts(ByteBuffer buf, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            unmaskIntAtATime(buf, MASK);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long unmaskLongs(ByteBuffer buf, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            WsFrameDecoder.unmask(buf, MASK);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long validate(ByteBuffer buf, int iterations) {
+        Utf8Validator validator = new Utf8Validator();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (!validator.validate(buf) || !validator.isComplete()) {
+                throw new IllegalStateException("Invalid UTF-8");
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long decode(ByteBuffer buf, int iterations) {
+        CharsetDecoder decoder = Charset.forName("UTF-8").newDecoder();
+        CharBuffer chars = CharBuffer.allocate(buf.remaining());
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            decoder.reset();
+            chars.clear();
+            CoderResult result = decoder.decode(buf.duplicate(), chars, true);
+            if (result.isError()) {
+                throw new IllegalStateException("Invalid UTF-8");
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    // unmask as done before the long path was introduced
+    private static void unmaskIntAtATime(ByteBuffer buf, int mask) {
+        int start = buf.position();
+        int end = start + buf.remaining() - buf.remaining() % 4;
+        while (buf.position() < end) {
+            buf.putInt(buf.getInt(buf.position()) ^ mask);
+        }
+        for (int shift = 24; buf.hasRemaining(); shift -= 8) {
+            buf.put((byte) (buf.get(buf.position()) ^ (mask >>> shift)));
+        }
+        buf.position(start);
+    }
+
+    private static ByteBuffer allocate(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    // mostly ASCII, with a 2 byte and a 3 byte character every 64 bytes
+    private static byte[] createText(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'a');
+        for (int i = 0; i + 64 <= size; i += 64) {
+            bytes[i + 30] = (byte) 0xc3;
+            bytes[i + 31] = (byte) 0xa9;
+            bytes[i + 60] = (byte) 0xe2;
+            bytes[i + 61] = (byte) 0x82;
+            bytes[i + 62] = (byte) 0xac;
+        }
+        return bytes;
+    }
+
+    private static void report(String name, int size, boolean direct, long nanos) {
+        System.out.println(String.format("%-15s size=%-6d %-6s MB/sec=%,10.0f",
+                name, size, direct ? "direct" : "heap", BYTES_PER_RUN / (nanos / 1e9) / (1024 * 1024)));
+    }
+
+}
@@ -925,6 +925,100 @@ public class WsFrameDecoderTest {
         decoder.decode(session, (IoBuffer) in.getSlice(12), session.getDecoderOutput());
     }
     
+    @Test
+    public void decodeMaskedBinaryFrames() throws Exception {
+        int mask = 0x12345678;
+        for (int length = 0; length <= 17; length++) {
+            ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+            IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+            ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0);
+
+            byte[] payload = new byte[length];
+            for (int i = 0; i < length; i++) {
+                payload[i] = (byte) (i * 31);
+            }
+
+            IoBufferEx in = allocator.wrap(allocator.allocate(length + 6))
+                                     .put((byte) 0x82)
+                                     .put((byte) (0x80 | length))
+                                     .putInt(mask);
+            for (int i = 0; i < length; i++) {
+                in.put((byte) (payload[i] ^ (mask >>> (24 - 8 * (i % 4)))));
+            }
+            in.flip();
+
+            decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+            WsMessage out = (WsMessage)session.getDecoderOutputQueue().poll();
+            assertEquals("length " + length, new WsBinaryMessage(allocator.wrap(ByteBuffer.wrap(payload))), out);
+            assertTrue(session.getDecoderOutputQueue().isEmpty());
+            assertFalse(in.hasRemaining());
+        }
+    }
+
+    @Test(expected=ProtocolDecoderException.class)
+    public void decodeTextFrameWithInvalidUtf8() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(4))
+                                 .put((byte)0x81)
+                                 .put((byte)0x02)
+                                 .put((byte)0xc0)    // overlong encoding of '/'
+                                 .put((byte)0xaf)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test(expected=ProtocolDecoderException.class)
+    public void decodeTextFrameWithTruncatedUtf8() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(4))
+                                 .put((byte)0x81)
+                                 .put((byte)0x02)
+                                 .put((byte)0xe2)    // first 2 bytes of U+20AC
+                                 .put((byte)0x82)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void decodeTextContinuationFrameWithSplitUtf8() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0);
+
+        // U+20AC split across the text frame and the continuation frame
+        IoBufferEx in = allocator.wrap(allocator.allocate(8))
+                                 .put((byte)0x01)
+                                 .put((byte)0x02)
+                                 .put((byte)0x61)
+                                 .put((byte)0xe2)
+                                 .put((byte)0x80)
+                                 .put((byte)0x02)
+                                 .put((byte)0x82)
+                                 .put((byte)0xac)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        WsMessage out1 = (WsMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(new WsTextMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { 0x61, (byte) 0xe2 })), false), out1);
+
+        WsMessage out2 = (WsMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(new WsContinuationMessage(allocator.wrap(ByteBuffer.wrap(new byte[] { (byte) 0x82, (byte) 0xac }))),
+                out2);
+
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+        assertFalse(in.hasRemaining());
+    }
+
 /*
  * Use the below utility to decode a ws frame.
     public static String decodeABinaryFrame(byte[] hexBytes) throws Exception {
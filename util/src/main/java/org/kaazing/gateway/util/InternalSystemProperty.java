@@ -89,6 +89,27 @@ public enum InternalSystemProperty {
     TCP_IP_TOS
             ("org.kaazing.gateway.server.transport.tcp.IP_TOS"),
 
+    // Run SSLEngine delegated tasks (handshake key exchange) off the I/O worker threads
+    SSL_HANDSHAKE_OFFLOAD
+            ("org.kaazing.gateway.server.transport.ssl.HANDSHAKE_OFFLOAD", "false"), // true or false
+
+    SSL_HANDSHAKE_THREADS
+            ("org.kaazing.gateway.server.transport.ssl.HANDSHAKE_THREADS", Integer.toString(getRuntime().availableProcessors())),
+
+    // Delegated tasks beyond this many queued handshakes run on the I/O worker thread instead
+    SSL_HANDSHAKE_QUEUE_SIZE
+            ("org.kaazing.gateway.server.transport.ssl.HANDSHAKE_QUEUE_SIZE", "1024"),
+
+    // Events retained per SSE session for Last-Event-ID replay on reconnect (0 disables replay)
+    SSE_REPLAY_BUFFER_CAPACITY
+            ("org.kaazing.gateway.transport.sse.REPLAY_BUFFER_CAPACITY", "0"),
+
+    SSE_REPLAY_BUFFER_MAXIMUM_SIZE
+            ("org.kaazing.gateway.transport.sse.REPLAY_BUFFER_MAXIMUM_SIZE", "65536"), // bytes
+
+    SSE_REPLAY_BUFFER_RETENTION
+            ("org.kaazing.gateway.transport.sse.REPLAY_BUFFER_RETENTION", "30000"), // milliseconds
+
     // services
     BROADCAST_SERVICE_MAXIMUM_PENDING_BYTES
             ("org.kaazing.gateway.server.service.broadcast.MAXIMUM_PENDING_BYTES"),
@@ -96,6 +117,10 @@ public enum InternalSystemProperty {
     BROADCAST_SERVICE_DISCONNECT_CLIENTS_ON_RECONNECT
             ("org.kaazing.gateway.server.service.broadcast.DISCONNECT_CLIENTS_ON_RECONNECT"), // true or false
 
+    // How often balanced services publish their session count for load aware balancers (time interval, 0 disables)
+    BALANCEE_LOAD_INTERVAL
+            ("org.kaazing.gateway.server.service.BALANCEE_LOAD_INTERVAL", "1s"),
+
     // management
     MANAGEMENT_SESSION_THRESHOLD
             ("org.kaazing.gateway.management.SESSION_THRESHOLD", "500"),